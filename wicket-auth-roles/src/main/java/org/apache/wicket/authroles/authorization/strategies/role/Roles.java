@@ -16,7 +16,12 @@
  */
 package org.apache.wicket.authroles.authorization.strategies.role;
 
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.wicket.util.io.IClusterable;
 import org.apache.wicket.util.string.StringList;
@@ -24,6 +29,11 @@ import org.apache.wicket.util.string.StringList;
 
 /**
  * Utility class for working with roles.
+ * <p>
+ * Besides the names, the roles are represented as bits, so {@link #hasAnyRole(Roles)} is a cheap
+ * intersection of two bit sets. Each role name is assigned a bit on its first use, thus role names
+ * should come from a limited set and not be generated arbitrarily.
+ * </p>
  * 
  * @author Eelco Hillenius
  * @author Jonathan Locke
@@ -38,6 +48,14 @@ public class Roles extends HashSet<String> implements IClusterable
 	/** ADMIN role (for use in annotations) */
 	public static final String ADMIN = "ADMIN";
 
+	/** bit indices of all role names */
+	private static final ConcurrentMap<String, Integer> INDICES = new ConcurrentHashMap<>();
+
+	private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+	/** the roles as bits, computed lazily and reset on modification */
+	private transient volatile long[] bits;
+
 	/**
 	 * Construct.
 	 */
@@ -100,6 +118,12 @@ public class Roles extends HashSet<String> implements IClusterable
 	{
 		if (roles != null)
 		{
+			if (getClass() == Roles.class)
+			{
+				// #hasRole(String) is not overridden, intersect the bits
+				return intersects(getBits(), roles.getBits());
+			}
+
 			for (String role : roles)
 			{
 				if (hasRole(role))
@@ -134,6 +158,99 @@ public class Roles extends HashSet<String> implements IClusterable
 		return true;
 	}
 
+	@Override
+	public boolean add(final String role)
+	{
+		bits = null;
+		return super.add(role);
+	}
+
+	@Override
+	public boolean remove(final Object role)
+	{
+		bits = null;
+		return super.remove(role);
+	}
+
+	@Override
+	public void clear()
+	{
+		bits = null;
+		super.clear();
+	}
+
+	@Override
+	public Iterator<String> iterator()
+	{
+		final Iterator<String> iterator = super.iterator();
+		return new Iterator<String>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return iterator.hasNext();
+			}
+
+			@Override
+			public String next()
+			{
+				return iterator.next();
+			}
+
+			@Override
+			public void remove()
+			{
+				bits = null;
+				iterator.remove();
+			}
+		};
+	}
+
+	/**
+	 * Gets the roles as bits, where each role name has its own bit.
+	 * 
+	 * @return bits of the roles
+	 */
+	private long[] getBits()
+	{
+		long[] result = bits;
+		if (result == null)
+		{
+			result = new long[0];
+			for (String role : this)
+			{
+				if (role == null)
+				{
+					// never matches, see #hasRole(String)
+					continue;
+				}
+
+				int index = INDICES.computeIfAbsent(role, r -> NEXT_INDEX.getAndIncrement());
+				int word = index >>> 6;
+				if (word >= result.length)
+				{
+					result = Arrays.copyOf(result, word + 1);
+				}
+				result[word] |= 1L << index;
+			}
+			bits = result;
+		}
+		return result;
+	}
+
+	private static boolean intersects(final long[] bits1, final long[] bits2)
+	{
+		int words = Math.min(bits1.length, bits2.length);
+		for (int word = 0; word < words; word++)
+		{
+			if ((bits1[word] & bits2[word]) != 0)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * @see java.lang.Object#toString()
 	 */
@@ -16,6 +16,12 @@
  */
 package org.apache.wicket.authroles.authorization.strategies.role.annotations;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.wicket.Component;
 import org.apache.wicket.authorization.Action;
 import org.apache.wicket.authroles.authorization.strategies.role.AbstractRoleAuthorizationStrategy;
@@ -24,15 +30,23 @@ import org.apache.wicket.authroles.authorization.strategies.role.Roles;
 import org.apache.wicket.request.component.IRequestableComponent;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.util.collections.ClassMetaCache;
 
 
 /**
  * Strategy that checks the {@link AuthorizeInstantiation} annotation.
+ * <p>
+ * The annotations of a class and its package are looked up once only, the required roles are
+ * cached per class.
+ * </p>
  * 
  * @author Eelco Hillenius
  */
 public class AnnotationsRoleAuthorizationStrategy extends AbstractRoleAuthorizationStrategy
 {
+	/** required roles per class */
+	private final ClassMetaCache<ClassRoles> classRoles = new ClassMetaCache<>();
+
 	/**
 	 * Construct.
 	 * 
@@ -45,75 +59,41 @@ public class AnnotationsRoleAuthorizationStrategy extends AbstractRoleAuthorizat
 	}
 
 	/**
-	 * @see org.apache.wicket.authorization.IAuthorizationStrategy#isInstantiationAuthorized(java.lang.Class)
+	 * Gets the roles required by the annotations of a class.
+	 * 
+	 * @param clazz
+	 *            the annotated class
+	 * @return required roles
 	 */
-	@Override
-	public <T extends IRequestableComponent> boolean isInstantiationAuthorized(
-		final Class<T> componentClass)
+	private ClassRoles getClassRoles(final Class<?> clazz)
 	{
-		// We are authorized unless we are found not to be
-		boolean authorized = true;
-
-		// Check class annotation first because it is more specific than package annotation
-		final AuthorizeInstantiation classAnnotation = componentClass.getAnnotation(AuthorizeInstantiation.class);
-		if (classAnnotation != null)
+		ClassRoles roles = classRoles.get(clazz);
+		if (roles == null)
 		{
-			authorized = check(classAnnotation);
+			roles = new ClassRoles(clazz);
+			classRoles.put(clazz, roles);
 		}
-		else
-		{
-			// Check package annotation if there is no one on the the class
-			final Package componentPackage = componentClass.getPackage();
-			if (componentPackage != null)
-			{
-				final AuthorizeInstantiation packageAnnotation = componentPackage.getAnnotation(AuthorizeInstantiation.class);
-				if (packageAnnotation != null)
-				{
-					authorized = check(packageAnnotation);
-				}
-			}
-		}
-
-		// Check for multiple instantiations
-		final AuthorizeInstantiations authorizeInstantiationsAnnotation = componentClass
-			.getAnnotation(AuthorizeInstantiations.class);
-		if (authorizeInstantiationsAnnotation != null)
-		{
-			for (final AuthorizeInstantiation authorizeInstantiationAnnotation : authorizeInstantiationsAnnotation
-				.ruleset())
-			{
-				if (!check(authorizeInstantiationAnnotation))
-				{
-					authorized = false;
-				}
-			}
-		}
-
-		return authorized;
+		return roles;
 	}
 
 	/**
-	 * Check if annotated instantiation is allowed.
-	 * 
-	 * @param authorizeInstantiationAnnotation
-	 *            The annotations information
-	 * @return False if the instantiation is not authorized
+	 * @see org.apache.wicket.authorization.IAuthorizationStrategy#isInstantiationAuthorized(java.lang.Class)
 	 */
-	private <T extends IRequestableComponent> boolean check(
-		final AuthorizeInstantiation authorizeInstantiationAnnotation)
+	@Override
+	public <T extends IRequestableComponent> boolean isInstantiationAuthorized(
+		final Class<T> componentClass)
 	{
-		// We are authorized unless we are found not to be
-		boolean authorized = true;
-
-		// Check class annotation first because it is more specific than package annotation
-		if (authorizeInstantiationAnnotation != null)
+		// each annotation has to be satisfied
+		for (Roles roles : getClassRoles(componentClass).instantiation)
 		{
-			authorized = hasAny(new Roles(authorizeInstantiationAnnotation.value()));
+			if (!hasAny(roles))
+			{
+				return false;
+			}
 		}
-
-		return authorized;
+		return true;
 	}
-	
+
 	/**
 	 * @see org.apache.wicket.authorization.IAuthorizationStrategy#isActionAuthorized(org.apache.wicket.Component,
 	 *      org.apache.wicket.authorization.Action)
@@ -129,79 +109,142 @@ public class AnnotationsRoleAuthorizationStrategy extends AbstractRoleAuthorizat
 
 	protected boolean isActionAuthorized(final Class<?> componentClass, final Action action)
 	{
-		// Check for a single action
-		if (!check(action, componentClass.getAnnotation(AuthorizeAction.class)))
+		for (ActionRoles roles : getClassRoles(componentClass).getActionRoles(action))
 		{
-			return false;
+			if (isEmpty(roles.denied) == false && hasAny(roles.denied))
+			{
+				return false;
+			}
+
+			if (!(isEmpty(roles.accepted) || hasAny(roles.accepted)))
+			{
+				return false;
+			}
 		}
+		return true;
+	}
 
-		// Check for multiple actions
-		final AuthorizeActions authorizeActionsAnnotation = componentClass.getAnnotation(AuthorizeActions.class);
-		if (authorizeActionsAnnotation != null)
+	@Override
+	public boolean isResourceAuthorized(IResource resource, PageParameters pageParameters)
+	{
+		// both the resource itself and its package have to allow it
+		for (Roles roles : getClassRoles(resource.getClass()).resource)
 		{
-			for (final AuthorizeAction authorizeActionAnnotation : authorizeActionsAnnotation.actions())
+			if (!hasAny(roles))
 			{
-				if (!check(action, authorizeActionAnnotation))
-				{
-					return false;
-				}
+				return false;
 			}
 		}
-
 		return true;
 	}
 
 	/**
-	 * @param action
-	 *            The action to check
-	 * @param authorizeActionAnnotation
-	 *            The annotations information
-	 * @return False if the action is not authorized
+	 * The roles required by the annotations of a class and its package.
 	 */
-	private boolean check(final Action action, final AuthorizeAction authorizeActionAnnotation)
+	private static class ClassRoles
 	{
-		if (authorizeActionAnnotation != null)
+		/** roles of {@link AuthorizeInstantiation}s, each has to be satisfied */
+		private final List<Roles> instantiation = new ArrayList<>();
+
+		/** roles of {@link AuthorizeAction}s per action name */
+		private final Map<String, List<ActionRoles>> actions = new HashMap<>();
+
+		/** roles of {@link AuthorizeResource}s, each has to be satisfied */
+		private final List<Roles> resource = new ArrayList<>();
+
+		private ClassRoles(final Class<?> clazz)
 		{
-			if (action.getName().equals(authorizeActionAnnotation.action()))
+			final Package classPackage = clazz.getPackage();
+
+			// Check class annotation first because it is more specific than package annotation
+			AuthorizeInstantiation authorizeInstantiation = clazz.getAnnotation(AuthorizeInstantiation.class);
+			if (authorizeInstantiation == null && classPackage != null)
+			{
+				// Check package annotation if there is no one on the the class
+				authorizeInstantiation = classPackage.getAnnotation(AuthorizeInstantiation.class);
+			}
+			if (authorizeInstantiation != null)
+			{
+				instantiation.add(roles(authorizeInstantiation.value()));
+			}
+
+			// Check for multiple instantiations
+			final AuthorizeInstantiations authorizeInstantiations = clazz.getAnnotation(AuthorizeInstantiations.class);
+			if (authorizeInstantiations != null)
+			{
+				for (final AuthorizeInstantiation annotation : authorizeInstantiations.ruleset())
+				{
+					instantiation.add(roles(annotation.value()));
+				}
+			}
+
+			// Check for a single action
+			addActionRoles(clazz.getAnnotation(AuthorizeAction.class));
+
+			// Check for multiple actions
+			final AuthorizeActions authorizeActions = clazz.getAnnotation(AuthorizeActions.class);
+			if (authorizeActions != null)
 			{
-				Roles deniedRoles = new Roles(authorizeActionAnnotation.deny());
-				if (isEmpty(deniedRoles) == false && hasAny(deniedRoles))
+				for (final AuthorizeAction annotation : authorizeActions.actions())
 				{
-					return false;
+					addActionRoles(annotation);
 				}
+			}
 
-				Roles acceptedRoles = new Roles(authorizeActionAnnotation.roles());
-				if (!(isEmpty(acceptedRoles) || hasAny(acceptedRoles)))
+			final AuthorizeResource classResource = clazz.getAnnotation(AuthorizeResource.class);
+			if (classResource != null)
+			{
+				resource.add(roles(classResource.value()));
+			}
+			if (classPackage != null)
+			{
+				final AuthorizeResource packageResource = classPackage.getAnnotation(AuthorizeResource.class);
+				if (packageResource != null)
 				{
-					return false;
+					resource.add(roles(packageResource.value()));
 				}
 			}
 		}
-		return true;
-	}
 
-	@Override
-	public boolean isResourceAuthorized(IResource resource, PageParameters pageParameters)
-	{
-		Class<? extends IResource> resourceClass = resource.getClass();
-		boolean allowedByResourceItself = isResourceAnnotationSatisfied(
-				resourceClass.getAnnotation(AuthorizeResource.class));
-		boolean allowedByPackage = isResourceAnnotationSatisfied(
-				resourceClass.getPackage().getAnnotation(AuthorizeResource.class));
-		return allowedByResourceItself && allowedByPackage;
-	}
+		private void addActionRoles(final AuthorizeAction annotation)
+		{
+			if (annotation != null)
+			{
+				actions.computeIfAbsent(annotation.action(), name -> new ArrayList<>(1))
+					.add(new ActionRoles(roles(annotation.roles()), roles(annotation.deny())));
+			}
+		}
 
-	private boolean isResourceAnnotationSatisfied(AuthorizeResource annotation)
-	{
-		if (annotation != null)
+		private List<ActionRoles> getActionRoles(final Action action)
+		{
+			if (actions.isEmpty())
+			{
+				return Collections.emptyList();
+			}
+
+			List<ActionRoles> roles = actions.get(action.getName());
+			return roles == null ? Collections.<ActionRoles> emptyList() : roles;
+		}
+
+		private static Roles roles(final String[] names)
 		{
-			// we have an annotation => we must check for the required roles
-			return hasAny(new Roles(annotation.value()));
+			return new Roles(names);
 		}
-		else
+	}
+
+	/**
+	 * The roles of a single {@link AuthorizeAction}.
+	 */
+	private static class ActionRoles
+	{
+		private final Roles accepted;
+
+		private final Roles denied;
+
+		private ActionRoles(final Roles accepted, final Roles denied)
 		{
-			// no annotation => no required roles => this resource can be accessed
-			return true;
+			this.accepted = accepted;
+			this.denied = denied;
 		}
 	}
 }
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.authroles.authorization.strategies.role;
+
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link Roles}
+ */
+public class RolesTest extends Assert
+{
+	/**
+	 * Any role matches.
+	 */
+	@Test
+	public void hasAnyRole()
+	{
+		Roles roles = new Roles("USER, ADMIN");
+
+		assertTrue(roles.hasAnyRole(new Roles("ADMIN")));
+		assertTrue(roles.hasAnyRole(new Roles("GUEST, USER")));
+		assertFalse(roles.hasAnyRole(new Roles("GUEST")));
+		assertFalse(roles.hasAnyRole(new Roles()));
+		assertFalse(roles.hasAnyRole(null));
+	}
+
+	/**
+	 * Many different roles.
+	 */
+	@Test
+	public void manyRoles()
+	{
+		Roles roles = new Roles();
+		for (int i = 0; i < 200; i++)
+		{
+			roles.add("role" + i);
+		}
+
+		assertTrue(roles.hasAnyRole(new Roles("role0")));
+		assertTrue(roles.hasAnyRole(new Roles("role199")));
+		assertTrue(new Roles("other, role150").hasAnyRole(roles));
+		assertFalse(roles.hasAnyRole(new Roles("role200")));
+	}
+
+	/**
+	 * Modifications are respected after a check.
+	 */
+	@Test
+	public void modifications()
+	{
+		Roles roles = new Roles("USER");
+		Roles admin = new Roles(Roles.ADMIN);
+		assertFalse(roles.hasAnyRole(admin));
+
+		roles.add(Roles.ADMIN);
+		assertTrue(roles.hasAnyRole(admin));
+
+		roles.remove(Roles.ADMIN);
+		assertFalse(roles.hasAnyRole(admin));
+
+		roles.add(Roles.ADMIN);
+		assertTrue(roles.hasAnyRole(admin));
+		roles.removeIf(Roles.ADMIN::equals);
+		assertFalse(roles.hasAnyRole(admin));
+
+		roles.add(Roles.ADMIN);
+		assertTrue(roles.hasAnyRole(admin));
+		Iterator<String> iterator = roles.iterator();
+		while (iterator.hasNext())
+		{
+			iterator.next();
+			iterator.remove();
+		}
+		assertFalse(roles.hasAnyRole(admin));
+
+		roles.add(Roles.ADMIN);
+		assertTrue(roles.hasAnyRole(admin));
+		roles.clear();
+		assertFalse(roles.hasAnyRole(admin));
+	}
+
+	/**
+	 * Subclasses overriding {@link Roles#hasRole(String)} are respected.
+	 */
+	@Test
+	public void overriddenHasRole()
+	{
+		Roles all = new Roles()
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public boolean hasRole(String role)
+			{
+				return true;
+			}
+		};
+
+		assertTrue(all.hasAnyRole(new Roles("GUEST")));
+	}
+}
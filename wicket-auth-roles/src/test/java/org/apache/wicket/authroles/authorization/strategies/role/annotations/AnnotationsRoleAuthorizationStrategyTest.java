@@ -183,6 +183,37 @@ public class AnnotationsRoleAuthorizationStrategyTest
 		assertTrue(strategy.isResourceAuthorized(resource, null));
 	}
 
+	@Test
+	public void respectsChangedRoles() throws Exception
+	{
+		final Roles availableRoles = new Roles("role2");
+		AnnotationsRoleAuthorizationStrategy strategy = new AnnotationsRoleAuthorizationStrategy(
+			requiredRoles -> availableRoles.hasAnyRole(requiredRoles));
+		TestComponent_Render component = Mockito.mock(TestComponent_Render.class);
+		assertFalse(strategy.isActionAuthorized(component, Component.RENDER));
+
+		availableRoles.add("role1");
+		assertTrue(strategy.isActionAuthorized(component, Component.RENDER));
+		assertTrue(strategy.isActionAuthorized(component, Component.ENABLE));
+
+		availableRoles.add("role3");
+		assertFalse(strategy.isActionAuthorized(component, Component.RENDER));
+	}
+
+	@Test
+	public void checksMultipleActions() throws Exception
+	{
+		AnnotationsRoleAuthorizationStrategy strategy = new AnnotationsRoleAuthorizationStrategy(
+			roles("role1"));
+		TestComponent_Actions component = Mockito.mock(TestComponent_Actions.class);
+		assertTrue(strategy.isActionAuthorized(component, Component.RENDER));
+		assertFalse(strategy.isActionAuthorized(component, Component.ENABLE));
+
+		strategy = new AnnotationsRoleAuthorizationStrategy(roles("role2"));
+		assertFalse(strategy.isActionAuthorized(component, Component.RENDER));
+		assertTrue(strategy.isActionAuthorized(component, Component.ENABLE));
+	}
+
 	@AuthorizeInstantiation({"role1"})
 	private static class TestComponent_Instantiate extends WebComponent
 	{
@@ -235,6 +266,18 @@ public class AnnotationsRoleAuthorizationStrategyTest
 
 	}
 
+	@AuthorizeActions(actions = { @AuthorizeAction(action = "RENDER", roles = { "role1" }),
+			@AuthorizeAction(action = "ENABLE", roles = { "role2" }) })
+	private static class TestComponent_Actions extends WebComponent
+	{
+		private static final long serialVersionUID = 1L;
+
+		private TestComponent_Actions()
+		{
+			super("notUsed");
+		}
+	}
+
 	@AuthorizeResource("role1")
 	private static class RestrictedResource implements IResource
 	{
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.authorization.IAuthorizationStrategy;
+import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.authroles.authorization.strategies.role.annotations.AnnotationsRoleAuthorizationStrategy;
+import org.apache.wicket.benchmarks.pages.AuthorizedPage;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Role based authorization of the {@link AuthorizedPage}'s 5,000 components with an
+ * {@link AnnotationsRoleAuthorizationStrategy}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AuthorizationBenchmark
+{
+	/** the roles of the user */
+	private final Roles roles = new Roles(Roles.USER);
+
+	private IAuthorizationStrategy strategy;
+
+	private List<Component> components;
+
+	private WicketTester tester;
+
+	@Setup
+	public void setup()
+	{
+		strategy = new AnnotationsRoleAuthorizationStrategy(roles::hasAnyRole);
+
+		tester = new WicketTester(new BenchmarkApplication()
+		{
+			@Override
+			protected void init()
+			{
+				super.init();
+
+				getSecuritySettings().setAuthorizationStrategy(strategy);
+			}
+		});
+
+		tester.startPage(AuthorizedPage.class);
+		components = new ArrayList<>();
+		tester.getLastRenderedPage().visitChildren((component, visit) -> components.add(component));
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		tester.destroy();
+	}
+
+	/**
+	 * The checks performed for each component while rendering.
+	 *
+	 * @return number of authorized checks
+	 */
+	@Benchmark
+	public int check()
+	{
+		int authorized = 0;
+		for (Component component : components)
+		{
+			if (strategy.isInstantiationAuthorized(component.getClass()))
+			{
+				authorized++;
+			}
+			if (strategy.isActionAuthorized(component, Component.RENDER))
+			{
+				authorized++;
+			}
+			if (strategy.isActionAuthorized(component, Component.ENABLE))
+			{
+				authorized++;
+			}
+		}
+		return authorized;
+	}
+
+	@Benchmark
+	public String render()
+	{
+		tester.startPage(AuthorizedPage.class);
+		String document = tester.getLastResponse().getDocument();
+
+		// do not pile up rendered pages
+		tester.getSession().getPageManager().clear();
+
+		return document;
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.wicket.util.crypt.CachingAesGcmCryptFactory;
+import org.apache.wicket.util.crypt.CachingSunJceCryptFactory;
+import org.apache.wicket.util.crypt.ICrypt;
+import org.apache.wicket.util.crypt.SunJceCrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encryption of urls as done by {@link org.apache.wicket.core.request.mapper.CryptoMapper}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptBenchmark
+{
+	private static final String KEY = "benchmark-key";
+
+	private static final String URL = "wicket/page?5-1.-people-person-42-edit&section=people&q=a+b";
+
+	/**
+	 * The crypt, <em>SunJceCrypt</em> creates a new instance for each url.
+	 */
+	@Param({ "SunJceCrypt", "CachingSunJceCryptFactory", "CachingAesGcmCryptFactory" })
+	public String crypt;
+
+	private Supplier<ICrypt> supplier;
+
+	private String encrypted;
+
+	@Setup
+	public void setup()
+	{
+		switch (crypt)
+		{
+			case "SunJceCrypt" :
+				supplier = () -> {
+					SunJceCrypt sunJceCrypt = new SunJceCrypt();
+					sunJceCrypt.setKey(KEY);
+					return sunJceCrypt;
+				};
+				break;
+			case "CachingSunJceCryptFactory" :
+				supplier = new CachingSunJceCryptFactory(KEY)::newCrypt;
+				break;
+			case "CachingAesGcmCryptFactory" :
+				supplier = new CachingAesGcmCryptFactory(KEY)::newCrypt;
+				break;
+			default :
+				throw new IllegalArgumentException("Unknown crypt " + crypt);
+		}
+
+		encrypted = supplier.get().encryptUrlSafe(URL);
+	}
+
+	@Benchmark
+	public String encrypt()
+	{
+		return supplier.get().encryptUrlSafe(URL);
+	}
+
+	@Benchmark
+	public String decrypt()
+	{
+		return supplier.get().decryptUrlSafe(encrypted);
+	}
+}
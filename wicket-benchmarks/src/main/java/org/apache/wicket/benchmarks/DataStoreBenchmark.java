@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.pageStore.AsynchronousDataStore;
+import org.apache.wicket.pageStore.DiskDataStore;
+import org.apache.wicket.pageStore.IDataStore;
+import org.apache.wicket.pageStore.MappedSegmentDataStore;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Concurrent sessions storing and loading serialized pages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DataStoreBenchmark
+{
+	/** pages kept per session */
+	private static final int PAGES = 20;
+
+	/**
+	 * The store, <em>async</em> wraps a {@link DiskDataStore} with one worker,
+	 * <em>async-sharded</em> with four.
+	 */
+	@Param({ "disk", "mapped", "async", "async-sharded" })
+	public String store;
+
+	@Param({ "8192" })
+	public int pageSize;
+
+	private File folder;
+
+	private IDataStore dataStore;
+
+	private byte[] data;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		folder = java.nio.file.Files.createTempDirectory("wicket-benchmark").toFile();
+
+		Bytes maxSizePerSession = Bytes.megabytes(10);
+		switch (store)
+		{
+			case "disk" :
+				dataStore = new DiskDataStore("benchmark", folder, maxSizePerSession);
+				break;
+			case "mapped" :
+				dataStore = new MappedSegmentDataStore("benchmark", folder, maxSizePerSession);
+				break;
+			case "async" :
+				dataStore = new AsynchronousDataStore(
+					new DiskDataStore("benchmark", folder, maxSizePerSession), 100);
+				break;
+			case "async-sharded" :
+				dataStore = new AsynchronousDataStore(
+					new DiskDataStore("benchmark", folder, maxSizePerSession), 100, 4);
+				break;
+			default :
+				throw new IllegalArgumentException("Unknown store " + store);
+		}
+
+		data = new byte[pageSize];
+		new Random(0).nextBytes(data);
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		dataStore.destroy();
+
+		Files.removeFolder(folder);
+	}
+
+	/**
+	 * A session of a benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Session
+	{
+		private final String id = UUID.randomUUID().toString();
+
+		private int page;
+
+		@Setup
+		public void setup(DataStoreBenchmark benchmark)
+		{
+			for (int p = 0; p < PAGES; p++)
+			{
+				benchmark.dataStore.storeData(id, p, benchmark.data);
+			}
+		}
+
+		private int nextPage()
+		{
+			page = (page + 1) % PAGES;
+			return page;
+		}
+	}
+
+	@Benchmark
+	public void store(Session session)
+	{
+		dataStore.storeData(session.id, session.nextPage(), data);
+	}
+
+	@Benchmark
+	public byte[] load(Session session)
+	{
+		return dataStore.getData(session.id, session.nextPage());
+	}
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.markup.Markup;
+import org.apache.wicket.markup.MarkupParser;
+import org.apache.wicket.markup.parser.XmlPullParser;
+import org.apache.wicket.markup.parser.XmlTag;
+import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of markup with a table of components.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MarkupParserBenchmark
+{
+	/** rows of the table */
+	@Param({ "10", "100" })
+	public int rows;
+
+	private WicketTester tester;
+
+	private String markup;
+
+	@Setup
+	public void setup()
+	{
+		// markup filters need an application
+		tester = new WicketTester(new BenchmarkApplication());
+
+		StringBuilder builder = new StringBuilder();
+		builder.append("<!DOCTYPE html>\n");
+		builder.append("<html xmlns:wicket=\"http://wicket.apache.org\">\n");
+		builder.append("<head>\n\t<title>Benchmark</title>\n");
+		builder.append("\t<wicket:head><style>td { color: red; }</style></wicket:head>\n");
+		builder.append("</head>\n<body>\n");
+		builder.append("\t<!-- the table -->\n");
+		builder.append("\t<h1><wicket:message key=\"title\">Title</wicket:message></h1>\n");
+		builder.append("\t<table wicket:id=\"table\" class=\"table\">\n");
+		for (int r = 0; r < rows; r++)
+		{
+			builder.append("\t\t<tr wicket:id=\"row").append(r).append("\" class=\"row\">\n");
+			builder.append("\t\t\t<td wicket:id=\"name\">Name</td>\n");
+			builder.append("\t\t\t<td><a wicket:id=\"link\" href=\"#\" title=\"Link ")
+				.append(r)
+				.append("\"><span wicket:id=\"label\">Label</span></a></td>\n");
+			builder.append("\t\t\t<td><input type=\"text\" wicket:id=\"input\" value=\"\"/></td>\n");
+			builder.append("\t\t\t<td><img src=\"image.png\" alt=\"image\"/></td>\n");
+			builder.append("\t\t</tr>\n");
+		}
+		builder.append("\t</table>\n");
+		builder.append("\t<script>var x = 1 < 2;</script>\n");
+		builder.append("</body>\n</html>\n");
+		markup = builder.toString();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		tester.destroy();
+	}
+
+	@Benchmark
+	public int xmlPullParser() throws IOException, ParseException
+	{
+		XmlPullParser parser = new XmlPullParser();
+		parser.parse(markup);
+
+		int tags = 0;
+		XmlTag tag;
+		while ((tag = parser.nextTag()) != null)
+		{
+			tags += tag.getAttributes().size();
+		}
+		return tags;
+	}
+
+	@Benchmark
+	public Markup markupParser() throws IOException, ResourceStreamNotFoundException
+	{
+		return new MarkupParser(markup).parse();
+	}
+}
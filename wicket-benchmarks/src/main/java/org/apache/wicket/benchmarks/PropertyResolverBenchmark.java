@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.ConverterLocator;
+import org.apache.wicket.benchmarks.pages.Person;
+import org.apache.wicket.core.util.lang.PropertyResolver;
+import org.apache.wicket.core.util.lang.PropertyResolver.CachingPropertyLocator;
+import org.apache.wicket.core.util.lang.PropertyResolver.DefaultPropertyLocator;
+import org.apache.wicket.core.util.lang.PropertyResolverConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Property expressions resolved reflectively or by compiled accessors.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PropertyResolverBenchmark
+{
+	@Param({ "true", "false" })
+	public boolean compiled;
+
+	@Param({ "name", "address.city", "address.zip", "phones[1]" })
+	public String expression;
+
+	private Person person;
+
+	private Object value;
+
+	private PropertyResolverConverter converter;
+
+	@Setup
+	public void setup()
+	{
+		// without application the locator is used by all threads
+		PropertyResolver.setLocator(null,
+			new CachingPropertyLocator(new DefaultPropertyLocator(), compiled));
+
+		person = Person.list(1).get(0);
+		value = String.valueOf(PropertyResolver.getValue(expression, person));
+		converter = new PropertyResolverConverter(new ConverterLocator(), Locale.US);
+	}
+
+	@Benchmark
+	public Object getValue()
+	{
+		return PropertyResolver.getValue(expression, person);
+	}
+
+	/**
+	 * Sets a string, converting it if needed.
+	 */
+	@Benchmark
+	public void setValue()
+	{
+		PropertyResolver.setValue(expression, person, value, converter);
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.benchmarks.pages.ListViewPage;
+import org.apache.wicket.core.request.mapper.MountedMapper;
+import org.apache.wicket.mock.MockWebRequest;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.mapper.CompoundRequestMapper;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolution of requests by a {@link CompoundRequestMapper} with many mounted pages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestMapperBenchmark
+{
+	@Param({ "1000" })
+	public int mounts;
+
+	/**
+	 * Whether the mounts are indexed, otherwise each mapper is hidden behind a wrapper and scored
+	 * for every request.
+	 */
+	@Param({ "true", "false" })
+	public boolean indexed;
+
+	private WicketTester tester;
+
+	private CompoundRequestMapper mapper;
+
+	private Request[] requests;
+
+	private int request;
+
+	@Setup
+	public void setup()
+	{
+		// mappers need an application
+		tester = new WicketTester(new BenchmarkApplication());
+
+		mapper = new CompoundRequestMapper();
+		for (int i = 0; i < mounts; i++)
+		{
+			String path = "/section" + (i % 50) + "/page" + i + "/${id}";
+			if (i % 3 == 0)
+			{
+				path += "/#{tab}";
+			}
+
+			IRequestMapper mounted = new MountedMapper(path, ListViewPage.class);
+			mapper.add(indexed ? mounted : new Unindexed(mounted));
+		}
+
+		Random random = new Random(0);
+		requests = new Request[1024];
+		for (int r = 0; r < requests.length; r++)
+		{
+			int i = random.nextInt(mounts);
+			requests[r] = new MockWebRequest(
+				Url.parse("section" + (i % 50) + "/page" + i + "/" + r + "?q=" + r));
+		}
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		tester.destroy();
+	}
+
+	@Benchmark
+	public IRequestHandler mapRequest()
+	{
+		request = (request + 1) % requests.length;
+
+		return mapper.mapRequest(requests[request]);
+	}
+
+	/**
+	 * Hides a mapper from the index.
+	 */
+	private static class Unindexed implements IRequestMapper
+	{
+		private final IRequestMapper delegate;
+
+		private Unindexed(IRequestMapper delegate)
+		{
+			this.delegate = delegate;
+		}
+
+		@Override
+		public IRequestHandler mapRequest(Request request)
+		{
+			return delegate.mapRequest(request);
+		}
+
+		@Override
+		public int getCompatibilityScore(Request request)
+		{
+			return delegate.getCompatibilityScore(request);
+		}
+
+		@Override
+		public Url mapHandler(IRequestHandler requestHandler)
+		{
+			return delegate.mapHandler(requestHandler);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.serialize.java.CompactJavaSerializer;
+import org.apache.wicket.serialize.java.DeflatedJavaSerializer;
+import org.apache.wicket.serialize.java.JavaSerializer;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serialization of rendered pages.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializerBenchmark
+{
+	private static final Logger log = LoggerFactory.getLogger(SerializerBenchmark.class);
+
+	@Param({ "JavaSerializer", "DeflatedJavaSerializer", "CompactJavaSerializer" })
+	public String serializer;
+
+	/** simple name of the page in package {@code org.apache.wicket.benchmarks.pages} */
+	@Param({ "ListViewPage", "DataTablePage" })
+	public String page;
+
+	private WicketTester tester;
+
+	private ISerializer pageSerializer;
+
+	private Page renderedPage;
+
+	private byte[] data;
+
+	@Setup
+	public void setup() throws ClassNotFoundException
+	{
+		tester = new WicketTester(new BenchmarkApplication());
+
+		String applicationKey = tester.getApplication().getApplicationKey();
+		switch (serializer)
+		{
+			case "JavaSerializer" :
+				pageSerializer = new JavaSerializer(applicationKey);
+				break;
+			case "DeflatedJavaSerializer" :
+				pageSerializer = new DeflatedJavaSerializer(applicationKey);
+				break;
+			case "CompactJavaSerializer" :
+				pageSerializer = new CompactJavaSerializer(applicationKey);
+				break;
+			default :
+				throw new IllegalArgumentException("Unknown serializer " + serializer);
+		}
+
+		renderedPage = tester.startPage(Class.forName("org.apache.wicket.benchmarks.pages." + page)
+			.asSubclass(Page.class));
+		data = pageSerializer.serialize(renderedPage);
+
+		log.info("{} serializes {} into {}", serializer, page, Bytes.bytes(data.length));
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		tester.destroy();
+	}
+
+	@Benchmark
+	public byte[] serialize()
+	{
+		return pageSerializer.serialize(renderedPage);
+	}
+
+	@Benchmark
+	public Object deserialize()
+	{
+		return pageSerializer.deserialize(data);
+	}
+}
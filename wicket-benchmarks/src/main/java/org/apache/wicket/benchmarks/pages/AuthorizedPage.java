@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.authroles.authorization.strategies.role.annotations.AuthorizeAction;
+import org.apache.wicket.authroles.authorization.strategies.role.annotations.AuthorizeActions;
+import org.apache.wicket.authroles.authorization.strategies.role.annotations.AuthorizeInstantiation;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.repeater.RepeatingView;
+
+/**
+ * A page with many components annotated for role based authorization.
+ */
+@AuthorizeInstantiation(Roles.USER)
+public class AuthorizedPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/** number of labels */
+	public static final int COMPONENTS = 5000;
+
+	/**
+	 * Construct.
+	 */
+	public AuthorizedPage()
+	{
+		RepeatingView labels = new RepeatingView("label");
+		add(labels);
+
+		for (int i = 0; i < COMPONENTS; i++)
+		{
+			labels.add(new AuthorizedLabel(labels.newChildId(), "Label " + i));
+		}
+	}
+
+	/**
+	 * A label rendered for users, but not enabled for guests.
+	 */
+	@AuthorizeActions(actions = { @AuthorizeAction(action = "RENDER", roles = Roles.USER),
+			@AuthorizeAction(action = "ENABLE", deny = "GUEST") })
+	private static class AuthorizedLabel extends Label
+	{
+		private static final long serialVersionUID = 1L;
+
+		private AuthorizedLabel(String id, String label)
+		{
+			super(id, label);
+		}
+	}
+}
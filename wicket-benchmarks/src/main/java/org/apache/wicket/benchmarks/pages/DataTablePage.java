@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.DefaultDataTable;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.IColumn;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.PropertyColumn;
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.apache.wicket.extensions.markup.html.repeater.util.SortableDataProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+
+/**
+ * A page showing people in a sortable {@link DefaultDataTable}.
+ */
+public class DataTablePage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/** number of people in the data provider */
+	public static final int PEOPLE = 1000;
+
+	/** number of rows shown on each page of the table */
+	public static final int ROWS = 100;
+
+	/**
+	 * Construct.
+	 */
+	public DataTablePage()
+	{
+		List<IColumn<Person, String>> columns = new ArrayList<>();
+		columns.add(new PropertyColumn<>(Model.of("ID"), "id", "id"));
+		columns.add(new PropertyColumn<>(Model.of("Name"), "name", "name"));
+		columns.add(new PropertyColumn<>(Model.of("Email"), "email"));
+		columns.add(new PropertyColumn<>(Model.of("Street"), "address.street"));
+		columns.add(new PropertyColumn<>(Model.of("City"), "address.city", "address.city"));
+		columns.add(new PropertyColumn<>(Model.of("Zip"), "address.zip"));
+		columns.add(new PropertyColumn<>(Model.of("Phone"), "phones[0]"));
+
+		add(new DefaultDataTable<>("table", columns, new PeopleProvider(), ROWS));
+	}
+
+	/**
+	 * Provides people sorted by name, id or city.
+	 */
+	private static class PeopleProvider extends SortableDataProvider<Person, String>
+	{
+		private static final long serialVersionUID = 1L;
+
+		/** not serialized with the page, as if loaded from a database */
+		private static final List<Person> DATA = Person.list(PEOPLE);
+
+		private PeopleProvider()
+		{
+			setSort("name", SortOrder.ASCENDING);
+		}
+
+		@Override
+		public Iterator<? extends Person> iterator(long first, long count)
+		{
+			List<Person> sorted = new ArrayList<>(DATA);
+
+			SortParam<String> sort = getSort();
+			Comparator<Person> comparator;
+			if ("address.city".equals(sort.getProperty()))
+			{
+				comparator = Comparator.comparing(person -> person.getAddress().getCity());
+			}
+			else if ("id".equals(sort.getProperty()))
+			{
+				comparator = Comparator.comparing(Person::getId);
+			}
+			else
+			{
+				comparator = Comparator.comparing(Person::getName);
+			}
+			sorted.sort(sort.isAscending() ? comparator : comparator.reversed());
+
+			return sorted.subList((int)first, (int)(first + count)).iterator();
+		}
+
+		@Override
+		public long size()
+		{
+			return DATA.size();
+		}
+
+		@Override
+		public IModel<Person> model(Person person)
+		{
+			return Model.of(person);
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.form.Button;
+import org.apache.wicket.markup.html.form.DropDownChoice;
+import org.apache.wicket.markup.html.form.EmailTextField;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.FeedbackPanel;
+import org.apache.wicket.model.CompoundPropertyModel;
+import org.apache.wicket.model.PropertyModel;
+
+/**
+ * A page with a form to edit a person.
+ */
+public class FormPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Construct.
+	 */
+	public FormPage()
+	{
+		add(new FeedbackPanel("feedback"));
+
+		Person person = Person.list(1).get(0);
+		Form<Person> form = new Form<>("form", new CompoundPropertyModel<>(person));
+		add(form);
+
+		form.add(new TextField<String>("name").setRequired(true));
+		form.add(new EmailTextField("email"));
+		form.add(new TextField<>("street", new PropertyModel<String>(person, "address.street")));
+
+		List<String> cities = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+		{
+			cities.add("City " + i);
+		}
+		form.add(new DropDownChoice<>("city", new PropertyModel<String>(person, "address.city"),
+			cities));
+		form.add(new TextField<>("zip", new PropertyModel<Integer>(person, "address.zip"),
+			Integer.class));
+
+		form.add(new ListView<String>("phones")
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void populateItem(ListItem<String> item)
+			{
+				item.add(new TextField<>("phone", item.getModel()));
+			}
+		}.setReuseItems(true));
+
+		form.add(new Button("submit"));
+	}
+}
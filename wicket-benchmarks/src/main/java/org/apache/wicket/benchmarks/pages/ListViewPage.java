@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.ajax.markup.html.AjaxLink;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.ExternalLink;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.model.PropertyModel;
+
+/**
+ * A page listing people with a {@link ListView}, the list can be refreshed with Ajax.
+ */
+public class ListViewPage extends WebPage
+{
+	private static final long serialVersionUID = 1L;
+
+	/** number of listed people */
+	public static final int ROWS = 100;
+
+	/**
+	 * Construct.
+	 */
+	public ListViewPage()
+	{
+		add(new Label("title", "People"));
+
+		final WebMarkupContainer people = new WebMarkupContainer("people");
+		people.setOutputMarkupId(true);
+		add(people);
+
+		people.add(new ListView<Person>("person", Person.list(ROWS))
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void populateItem(ListItem<Person> item)
+			{
+				Person person = item.getModelObject();
+
+				item.add(new Label("name", new PropertyModel<>(item.getModel(), "name")));
+				item.add(new ExternalLink("email", "mailto:" + person.getEmail(),
+					person.getEmail()));
+				item.add(new Label("city", new PropertyModel<>(item.getModel(), "address.city")));
+				item.add(new Label("phone", new PropertyModel<>(item.getModel(), "phones[0]")));
+				item.add(new Link<Void>("edit")
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					public void onClick()
+					{
+					}
+				});
+			}
+		});
+
+		add(new AjaxLink<Void>("refresh")
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void onClick(AjaxRequestTarget target)
+			{
+				target.add(people);
+			}
+		});
+	}
+}
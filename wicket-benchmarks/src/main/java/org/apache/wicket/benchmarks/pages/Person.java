@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.benchmarks.pages;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A person shown on the benchmark pages.
+ */
+public class Person implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	private int id;
+
+	private String name;
+
+	private String email;
+
+	private Address address = new Address();
+
+	private List<String> phones = new ArrayList<>();
+
+	/**
+	 * Creates people with predictable properties.
+	 *
+	 * @param count
+	 *            number of people
+	 * @return people
+	 */
+	public static List<Person> list(int count)
+	{
+		List<Person> people = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			Person person = new Person();
+			person.setId(i);
+			person.setName("Person " + i);
+			person.setEmail("person" + i + "@example.com");
+			person.getAddress().setStreet(i + " Main Street");
+			person.getAddress().setCity("City " + (i % 10));
+			person.getAddress().setZip(10000 + i);
+			person.getPhones().add("+1 555 " + i);
+			person.getPhones().add("+1 555 " + (i + 1));
+			people.add(person);
+		}
+		return people;
+	}
+
+	public int getId()
+	{
+		return id;
+	}
+
+	public void setId(int id)
+	{
+		this.id = id;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public void setName(String name)
+	{
+		this.name = name;
+	}
+
+	public String getEmail()
+	{
+		return email;
+	}
+
+	public void setEmail(String email)
+	{
+		this.email = email;
+	}
+
+	public Address getAddress()
+	{
+		return address;
+	}
+
+	public void setAddress(Address address)
+	{
+		this.address = address;
+	}
+
+	public List<String> getPhones()
+	{
+		return phones;
+	}
+
+	public void setPhones(List<String> phones)
+	{
+		this.phones = phones;
+	}
+
+	/**
+	 * Address of a person.
+	 */
+	public static class Address implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private String street;
+
+		private String city;
+
+		private int zip;
+
+		public String getStreet()
+		{
+			return street;
+		}
+
+		public void setStreet(String street)
+		{
+			this.street = street;
+		}
+
+		public String getCity()
+		{
+			return city;
+		}
+
+		public void setCity(String city)
+		{
+			this.city = city;
+		}
+
+		public int getZip()
+		{
+			return zip;
+		}
+
+		public void setZip(int zip)
+		{
+			this.zip = zip;
+		}
+	}
+}
@@ -447,6 +447,12 @@ public abstract class Component
 	private static final short RFLAG_INITIALIZE_SUPER_CALL_VERIFIED = 0x40;
 	protected static final short RFLAG_CONTAINER_DEQUEING = 0x80;
 	private static final short RFLAG_ON_RE_ADD_SUPER_CALL_VERIFIED = 0x100;
+	/** the output is replayed from an output cache */
+	static final short RFLAG_OUTPUT_CACHED = 0x200;
+	/** the output is rendered to be stored in an output cache */
+	static final short RFLAG_OUTPUT_RECORDING = 0x400;
+	/** the header contributions are recorded for the output cache of an ancestor */
+	static final short RFLAG_OUTPUT_RECORDED = 0x800;
 
 	/**
 	 * Flags that only keep their value during the request. Useful for cache markers, etc. At the
@@ -2392,7 +2398,10 @@ public abstract class Component
 			try
 			{
 				notifyBehaviorsComponentBeforeRender();
-				onRender();
+				if (getRequestFlag(RFLAG_OUTPUT_CACHED) == false)
+				{
+					onRender();
+				}
 				notifyBehaviorsComponentRendered();
 
 				// Component has been rendered
@@ -2719,6 +2728,23 @@ public abstract class Component
 			}
 
 			IHeaderResponse response = container.getHeaderResponse();
+			if (getRequestFlag(RFLAG_OUTPUT_RECORDED))
+			{
+				// let the ancestors whose output is recorded decorate the response
+				for (Component parent = getParent(); parent != null; parent = parent.getParent())
+				{
+					if (parent.getRequestFlag(RFLAG_OUTPUT_RECORDING))
+					{
+						for (Behavior behavior : parent.getBehaviors())
+						{
+							if (parent.isBehaviorAccepted(behavior))
+							{
+								response = behavior.decorateHeaderResponse(parent, this, response);
+							}
+						}
+					}
+				}
+			}
 
 			// Allow component to contribute
 			if (response.wasRendered(this) == false)
@@ -3745,6 +3771,36 @@ public abstract class Component
 		return (requestFlags & flag) != 0;
 	}
 
+	/**
+	 * THIS METHOD IS NOT PART OF THE WICKET PUBLIC API. DO NOT USE IT!
+	 * <p>
+	 * Sets whether the output of this component is replayed from a cache in the current request.
+	 * If so, neither are its children prepared for render nor is {@link #onRender()} called.
+	 * Otherwise the header contributions of its children are recorded while rendering.
+	 * 
+	 * @param cached
+	 *            whether the output is replayed from a cache
+	 * @see Behavior#decorateHeaderResponse(Component, Component, IHeaderResponse)
+	 * @see org.apache.wicket.markup.html.cache.OutputCacheBehavior
+	 */
+	public final void internalSetOutputCached(final boolean cached)
+	{
+		setRequestFlag(RFLAG_OUTPUT_CACHED, cached);
+		setRequestFlag(RFLAG_OUTPUT_RECORDING, cached == false);
+	}
+
+	/**
+	 * Gets whether the output of this component is replayed from a cache in the current request,
+	 * so that its children are neither prepared for render nor rendered.
+	 * 
+	 * @return {@code true} if the output is replayed from a cache
+	 * @see org.apache.wicket.markup.html.cache.OutputCacheBehavior
+	 */
+	public final boolean isOutputCached()
+	{
+		return getRequestFlag(RFLAG_OUTPUT_CACHED);
+	}
+
 	/**
 	 * Finds the innermost IModel object for an IModel that might contain nested IModel(s).
 	 * 
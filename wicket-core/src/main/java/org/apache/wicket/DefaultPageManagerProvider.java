@@ -24,6 +24,7 @@ import org.apache.wicket.page.PageStoreManager;
 import org.apache.wicket.pageStore.AsynchronousDataStore;
 import org.apache.wicket.pageStore.AsynchronousPageStore;
 import org.apache.wicket.pageStore.DefaultPageStore;
+import org.apache.wicket.pageStore.DeltaPageStore;
 import org.apache.wicket.pageStore.DiskDataStore;
 import org.apache.wicket.pageStore.IDataStore;
 import org.apache.wicket.pageStore.IPageStore;
@@ -63,7 +64,8 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 		if (dataStore.canBeAsynchronous())
 		{
 			int capacity = storeSettings.getAsynchronousQueueCapacity();
-			dataStore = new AsynchronousDataStore(dataStore, capacity);
+			int workerCount = storeSettings.getAsynchronousWorkerCount();
+			dataStore = new AsynchronousDataStore(dataStore, capacity, workerCount);
 
 			pageStore = newPageStore(dataStore);
 
@@ -83,9 +85,18 @@ public class DefaultPageManagerProvider implements IPageManagerProvider
 
 	protected IPageStore newPageStore(IDataStore dataStore)
 	{
-		int inmemoryCacheSize = getStoreSettings().getInmemoryCacheSize();
+		StoreSettings storeSettings = getStoreSettings();
+		int inmemoryCacheSize = storeSettings.getInmemoryCacheSize();
+		Bytes inmemoryCacheMaxSize = storeSettings.getInmemoryCacheMaxSize();
 		ISerializer pageSerializer = application.getFrameworkSettings().getSerializer();
-		return new DefaultPageStore(pageSerializer, dataStore, inmemoryCacheSize);
+		int deltaSnapshotInterval = storeSettings.getDeltaSnapshotInterval();
+		if (deltaSnapshotInterval > 0)
+		{
+			return new DeltaPageStore(pageSerializer, dataStore, inmemoryCacheSize,
+				inmemoryCacheMaxSize, deltaSnapshotInterval);
+		}
+		return new DefaultPageStore(pageSerializer, dataStore, inmemoryCacheSize,
+			inmemoryCacheMaxSize);
 	}
 
 	protected IDataStore newDataStore()
@@ -42,6 +42,7 @@ import org.apache.wicket.markup.MarkupFactory;
 import org.apache.wicket.markup.MarkupNotFoundException;
 import org.apache.wicket.markup.MarkupStream;
 import org.apache.wicket.markup.MarkupType;
+import org.apache.wicket.markup.RawMarkup;
 import org.apache.wicket.markup.WicketTag;
 import org.apache.wicket.markup.html.border.Border;
 import org.apache.wicket.markup.html.form.AutoLabelResolver;
@@ -1471,7 +1472,15 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 			// Render as raw markup
 			if (canRenderRawTag(element))
 			{
-				getResponse().write(element.toCharSequence());
+				if (element instanceof RawMarkup &&
+					getApplication().getRequestCycleSettings().getWritePreEncodedMarkup())
+				{
+					getResponse().write(((RawMarkup)element).toPreEncodedText());
+				}
+				else
+				{
+					getResponse().write(element.toCharSequence());
+				}
 			}
 			return true;
 		}
@@ -1734,6 +1743,16 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 	{
 		super.onBeforeRenderChildren();
 
+		if (getRequestFlag(RFLAG_OUTPUT_CACHED))
+		{
+			// the children are not rendered
+			return;
+		}
+
+		// record the header contributions of the children for an output cache
+		boolean recorded = getRequestFlag(RFLAG_OUTPUT_RECORDING) ||
+			getRequestFlag(RFLAG_OUTPUT_RECORDED);
+
 		try
 		{
 			// Loop through child components
@@ -1746,6 +1765,10 @@ public abstract class MarkupContainer extends Component implements Iterable<Comp
 				// onBeforeRender)
 				if (child.getParent() == this)
 				{
+					if (recorded)
+					{
+						child.setRequestFlag(RFLAG_OUTPUT_RECORDED, true);
+					}
 					child.beforeRender();
 				}
 			}
@@ -109,6 +109,9 @@ public abstract class Page extends MarkupContainer
 	/** Numeric version of this page's id */
 	private int numericId;
 
+	/** The id of the version this page was derived from */
+	private int previousNumericId = -1;
+
 	/** Set of components that rendered if component use checking is enabled */
 	private transient Set<Component> renderedComponents;
 
@@ -281,6 +284,7 @@ public abstract class Page extends MarkupContainer
 			isInitialization))
 		{
 			setFlag(FLAG_IS_DIRTY, true);
+			previousNumericId = isInitialization ? -1 : numericId;
 			setNextAvailableId();
 
 			if (isInitialization == false)
@@ -605,6 +609,11 @@ public abstract class Page extends MarkupContainer
 							visit.dontGoDeeper();
 						}
 					}
+					else if (component.isOutputCached())
+					{
+						// the children are replayed from the cache
+						visit.dontGoDeeper();
+					}
 				}
 			});
 
@@ -946,6 +955,12 @@ public abstract class Page extends MarkupContainer
 		return numericId;
 	}
 
+	@Override
+	public int getPreviousPageId()
+	{
+		return previousNumericId;
+	}
+
 	@Override
 	public int getRenderCount()
 	{
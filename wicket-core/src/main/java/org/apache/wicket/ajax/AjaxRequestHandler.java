@@ -45,6 +45,7 @@ import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.response.StringResponse;
 import org.apache.wicket.response.filter.IResponseFilter;
+import org.apache.wicket.settings.RequestCycleSettings;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Classes;
 import org.apache.wicket.util.string.AppendingStringBuffer;
@@ -352,8 +353,10 @@ public class AjaxRequestHandler implements AjaxRequestTarget
 
 		page.send(app, Broadcast.BREADTH, this);
 
+		final RequestCycleSettings settings = app.getRequestCycleSettings();
+
 		// Determine encoding
-		final String encoding = app.getRequestCycleSettings().getResponseRequestEncoding();
+		final String encoding = settings.getResponseRequestEncoding();
 
 		// Set content type based on markup type for page
 		update.setContentType(response, encoding);
@@ -361,10 +364,18 @@ public class AjaxRequestHandler implements AjaxRequestTarget
 		// Make sure it is not cached by a client
 		response.disableCaching();
 
-		final StringResponse bodyResponse = new StringResponse();
-		update.writeTo(bodyResponse, encoding);
-		CharSequence filteredResponse = invokeResponseFilters(bodyResponse);
-		response.write(filteredResponse);
+		if (settings.getStreamAjaxResponses() && settings.getResponseFilters() == null)
+		{
+			update.setStreaming(true);
+			update.writeTo(response, encoding);
+		}
+		else
+		{
+			final StringResponse bodyResponse = new StringResponse();
+			update.writeTo(bodyResponse, encoding);
+			CharSequence filteredResponse = invokeResponseFilters(bodyResponse);
+			response.write(filteredResponse);
+		}
 	}
 
 	private boolean shouldRedirectToPage(IRequestCycle requestCycle)
@@ -264,6 +264,26 @@ public abstract class Behavior
 	{
 	}
 
+	/**
+	 * Called when a descendant of the component contributes to the header while the output of the
+	 * component is recorded for an output cache. Allows to decorate the header response, e.g. to
+	 * record the contributions of the descendant.
+	 * 
+	 * @param component
+	 *            the component whose output is recorded
+	 * @param descendant
+	 *            the descendant contributing to the header
+	 * @param response
+	 *            the header response
+	 * @return the header response to use, by default the given one
+	 * @see Component#internalSetOutputCached(boolean)
+	 */
+	public IHeaderResponse decorateHeaderResponse(Component component, Component descendant,
+		IHeaderResponse response)
+	{
+		return response;
+	}
+
 	/**
 	 * Creates a {@link Behavior} that uses the given {@code SerializableConsumer consumer} to do
 	 * something with the component's tag.
@@ -221,6 +221,54 @@ public abstract class AbstractBookmarkableMapper extends AbstractComponentMapper
 		}
 	}
 
+	/**
+	 * Checks whether {@link #getCompatibilityScore(Request)} depends on the mount segments only,
+	 * i.e. whether none of the methods it is computed with is overridden below the given class.
+	 * 
+	 * @param base
+	 *            the class which implements the scoring
+	 * @return <code>true</code> if the default scoring is used
+	 * @see org.apache.wicket.request.mapper.IMountedRequestMapper
+	 */
+	protected final boolean isScoredByMountSegments(Class<? extends AbstractBookmarkableMapper> base)
+	{
+		return isOverridden(base, "getCompatibilityScore", Request.class) == false &&
+			isOverridden(base, "urlStartsWith", Url.class, String[].class) == false &&
+			isOverridden(base, "getPlaceholder", String.class) == false &&
+			isOverridden(base, "getOptionalPlaceholder", String.class) == false &&
+			isOverridden(base, "getPlaceholder", String.class, char.class) == false;
+	}
+
+	/**
+	 * Checks whether a method is declared by the class of this mapper or any of its superclasses
+	 * below the given class.
+	 * 
+	 * @param base
+	 *            the class to stop at
+	 * @param name
+	 *            name of the method
+	 * @param parameterTypes
+	 *            parameter types of the method
+	 * @return <code>true</code> if the method is overridden
+	 */
+	protected final boolean isOverridden(Class<? extends AbstractBookmarkableMapper> base,
+		String name, Class<?>... parameterTypes)
+	{
+		for (Class<?> clazz = getClass(); clazz != base && clazz != null; clazz = clazz.getSuperclass())
+		{
+			try
+			{
+				clazz.getDeclaredMethod(name, parameterTypes);
+				return true;
+			}
+			catch (NoSuchMethodException e)
+			{
+				// not declared here
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Creates a {@code IRequestHandler} that processes a bookmarkable request.
 	 * 
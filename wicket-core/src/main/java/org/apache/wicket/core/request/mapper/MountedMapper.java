@@ -23,6 +23,7 @@ import org.apache.wicket.request.IRequestHandler;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.component.IRequestablePage;
+import org.apache.wicket.request.mapper.IMountedRequestMapper;
 import org.apache.wicket.request.mapper.info.ComponentInfo;
 import org.apache.wicket.request.mapper.info.PageComponentInfo;
 import org.apache.wicket.request.mapper.info.PageInfo;
@@ -61,7 +62,7 @@ import org.apache.wicket.util.string.Strings;
  * 
  * @author Matej Knopp
  */
-public class MountedMapper extends AbstractBookmarkableMapper
+public class MountedMapper extends AbstractBookmarkableMapper implements IMountedRequestMapper
 {
 	/** bookmarkable page class. */
 	private final Supplier<Class<? extends IRequestablePage>> pageClassProvider;
@@ -264,6 +265,24 @@ public class MountedMapper extends AbstractBookmarkableMapper
 		return pageClassProvider.get();
 	}
 
+	@Override
+	public String[] getMountedSegments()
+	{
+		return isScoredByMountSegments(MountedMapper.class) ? mountSegments.clone() : null;
+	}
+
+	@Override
+	public int getIncompatibleScore()
+	{
+		return 0;
+	}
+
+	@Override
+	public boolean isLastSegmentDecorated()
+	{
+		return false;
+	}
+
 	@Override
 	public String toString()
 	{
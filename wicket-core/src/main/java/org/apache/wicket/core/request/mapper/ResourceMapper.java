@@ -27,6 +27,7 @@ import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.handler.resource.ResourceReferenceRequestHandler;
 import org.apache.wicket.request.http.flow.AbortWithHttpErrorCodeException;
+import org.apache.wicket.request.mapper.IMountedRequestMapper;
 import org.apache.wicket.request.mapper.parameter.INamedParameters;
 import org.apache.wicket.request.mapper.parameter.IPageParametersEncoder;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
@@ -70,7 +71,7 @@ import org.apache.wicket.util.string.Strings;
  *
  * @author Peter Ertl
  */
-public class ResourceMapper extends AbstractBookmarkableMapper
+public class ResourceMapper extends AbstractBookmarkableMapper implements IMountedRequestMapper
 {
 	// encode page parameters into url + decode page parameters from url
 	private final IPageParametersEncoder parametersEncoder;
@@ -189,6 +190,33 @@ public class ResourceMapper extends AbstractBookmarkableMapper
 		return score;
 	}
 
+	@Override
+	public String[] getMountedSegments()
+	{
+		if (isScoredByMountSegments(ResourceMapper.class) &&
+			isOverridden(ResourceMapper.class, "removeCachingDecoration", Url.class,
+				PageParameters.class) == false)
+		{
+			return mountSegments.clone();
+		}
+		return null;
+	}
+
+	@Override
+	public int getIncompatibleScore()
+	{
+		return -1;
+	}
+
+	/**
+	 * The caching strategy may have decorated the filename.
+	 */
+	@Override
+	public boolean isLastSegmentDecorated()
+	{
+		return true;
+	}
+
 	@Override
 	public Url mapHandler(IRequestHandler requestHandler)
 	{
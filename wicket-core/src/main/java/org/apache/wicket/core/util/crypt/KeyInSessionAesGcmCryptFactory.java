@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.core.util.crypt;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Session;
+import org.apache.wicket.util.crypt.AesGcmCrypt;
+import org.apache.wicket.util.crypt.ICrypt;
+import org.apache.wicket.util.crypt.ICryptFactory;
+
+/**
+ * Crypt factory that produces {@link AesGcmCrypt} instances based on a random session-specific
+ * key. Like {@link KeyInSessionSunJceCryptFactory} this gives each user his own encryption key,
+ * but the key is generated only once per session and no key derivation is needed for each
+ * created crypt.
+ * <br>
+ * Note that the use of this crypt factory will result in an immediate creation of a session.
+ */
+public class KeyInSessionAesGcmCryptFactory implements ICryptFactory
+{
+	/** metadata-key used to store crypto-key in session metadata */
+	private static final MetaDataKey<byte[]> KEY = new MetaDataKey<byte[]>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	@Override
+	public ICrypt newCrypt()
+	{
+		Session session = Session.get();
+		session.bind();
+
+		// retrieve or generate encryption key from session
+		byte[] key = session.getMetaData(KEY);
+		if (key == null)
+		{
+			key = AesGcmCrypt.generateKey();
+			session.setMetaData(KEY, key);
+		}
+
+		return new AesGcmCrypt(new SecretKeySpec(key, "AES"));
+	}
+}
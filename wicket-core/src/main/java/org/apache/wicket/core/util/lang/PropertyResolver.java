@@ -16,10 +16,14 @@
  */
 package org.apache.wicket.core.util.lang;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -72,6 +76,11 @@ import org.slf4j.LoggerFactory;
  * <p>
  * <strong>Note: If a property evaluates to an instance of {@link org.apache.wicket.model.IModel} then
  * the expression should use '.object' to work with its value.</strong>
+ * <p>
+ * With the default {@link CachingPropertyLocator} an expression is compiled on its first evaluation
+ * for a class: the parsed chain of properties is cached and bean properties and fields are accessed
+ * through {@link MethodHandle}s, so later evaluations neither parse the expression nor look up the
+ * single properties again.
  *
  * @author jcompagner
  * @author svenmeier
@@ -258,7 +267,40 @@ public final class PropertyResolver
 	private static ObjectWithGetAndSet getObjectWithGetAndSet(final String expression,
 		final Object object, int tryToCreateNull)
 	{
-		return getObjectWithGetAndSet(expression, object, tryToCreateNull, object.getClass());
+		final Class<?> clz = object.getClass();
+
+		if (tryToCreateNull != RESOLVE_CLASS)
+		{
+			IPropertyLocator locator = getLocator();
+			if (locator instanceof CachingPropertyLocator &&
+				((CachingPropertyLocator)locator).compile)
+			{
+				CachingPropertyLocator cachingLocator = (CachingPropertyLocator)locator;
+
+				CompiledExpression compiled = cachingLocator.getCompiled(clz, expression);
+				if (compiled != null)
+				{
+					ObjectWithGetAndSet objectWithGetAndSet = compiled.resolve(object,
+						tryToCreateNull);
+					if (objectWithGetAndSet != CompiledExpression.MISMATCH)
+					{
+						return objectWithGetAndSet;
+					}
+				}
+
+				// evaluate and compile for the classes encountered on the way
+				List<CompiledStep> steps = new ArrayList<>();
+				ObjectWithGetAndSet objectWithGetAndSet = getObjectWithGetAndSet(expression,
+					object, tryToCreateNull, clz, steps);
+				if (objectWithGetAndSet != null)
+				{
+					cachingLocator.putCompiled(clz, expression, new CompiledExpression(steps));
+				}
+				return objectWithGetAndSet;
+			}
+		}
+
+		return getObjectWithGetAndSet(expression, object, tryToCreateNull, clz);
 	}
 
 	/**
@@ -272,6 +314,22 @@ public final class PropertyResolver
 	 * @return final getAndSet and the target to apply it on, or {@code null} if expression results in an intermediate null
 	 */
 	private static ObjectWithGetAndSet getObjectWithGetAndSet(final String expression, final Object object, final int tryToCreateNull, Class<?> clz)
+	{
+		return getObjectWithGetAndSet(expression, object, tryToCreateNull, clz, null);
+	}
+
+	/**
+	 * Resolves the expression, recording the steps taken if requested.
+	 *
+	 * @param expression property expression
+	 * @param object root object
+	 * @param tryToCreateNull how should null values be handled
+	 * @param clz owning clazz
+	 * @param steps optional list to record the steps in, for non-null values only
+	 * @return final getAndSet and the target to apply it on, or {@code null} if expression results in an intermediate null
+	 */
+	private static ObjectWithGetAndSet getObjectWithGetAndSet(final String expression, final Object object, final int tryToCreateNull, Class<?> clz,
+		final List<CompiledStep> steps)
 	{
 		String expressionBracketsSeperated = Strings.replaceAll(expression, "[", ".[").toString();
 		int index = getNextDotIndex(expressionBracketsSeperated, 0);
@@ -313,6 +371,10 @@ public final class PropertyResolver
 					continue;
 				}
 			}
+			if (steps != null)
+			{
+				steps.add(new CompiledStep(clz, getAndSet));
+			}
 			Object nextValue = null;
 			if (value != null)
 			{
@@ -353,6 +415,10 @@ public final class PropertyResolver
 			}
 		}
 		IGetAndSet getAndSet = getGetAndSet(exp, clz);
+		if (steps != null)
+		{
+			steps.add(new CompiledStep(clz, getAndSet));
+		}
 		return new ObjectWithGetAndSet(getAndSet, value);
 	}
 
@@ -473,6 +539,175 @@ public final class PropertyResolver
 		}
 	}
 
+	/**
+	 * An expression compiled for the classes of the objects it was evaluated on.
+	 */
+	private static final class CompiledExpression
+	{
+		/**
+		 * Token for an evaluation on objects of other classes than compiled for.
+		 */
+		private static final ObjectWithGetAndSet MISMATCH = new ObjectWithGetAndSet(null, null);
+
+		private final CompiledStep[] steps;
+
+		private CompiledExpression(List<CompiledStep> steps)
+		{
+			this.steps = steps.toArray(new CompiledStep[steps.size()]);
+		}
+
+		/**
+		 * Resolve the compiled steps.
+		 *
+		 * @param object
+		 *            root object
+		 * @param tryToCreateNull
+		 *            how should null values be handled, either {@link #RETURN_NULL} or
+		 *            {@link #CREATE_NEW_VALUE}
+		 * @return final getAndSet and the target to apply it on, {@code null} if expression
+		 *         results in an intermediate null or {@link #MISMATCH} if an object is not of the
+		 *         compiled class
+		 */
+		private ObjectWithGetAndSet resolve(final Object object, final int tryToCreateNull)
+		{
+			Object value = object;
+			int last = steps.length - 1;
+			for (int i = 0; i < last; i++)
+			{
+				CompiledStep step = steps[i];
+				if (value.getClass() != step.owner)
+				{
+					return MISMATCH;
+				}
+
+				Object nextValue = step.getValue(value);
+				if (nextValue == null)
+				{
+					if (tryToCreateNull == CREATE_NEW_VALUE)
+					{
+						nextValue = step.newValue(value);
+					}
+					if (nextValue == null)
+					{
+						return null;
+					}
+				}
+				value = nextValue;
+			}
+
+			CompiledStep step = steps[last];
+			if (value.getClass() != step.owner)
+			{
+				return MISMATCH;
+			}
+			return new ObjectWithGetAndSet(step, value);
+		}
+	}
+
+	/**
+	 * A step of a compiled expression, accessing the property through {@link MethodHandle}s if
+	 * possible.
+	 */
+	private static final class CompiledStep implements IGetAndSet
+	{
+		/** the class the property was located for */
+		private final Class<?> owner;
+
+		private final IGetAndSet getAndSet;
+
+		/** handle of type {@code (Object)Object} or {@code null} */
+		private final MethodHandle getter;
+
+		/** handle of type {@code (Object,Object)void} or {@code null} */
+		private final MethodHandle setter;
+
+		private CompiledStep(Class<?> owner, IGetAndSet getAndSet)
+		{
+			this.owner = owner;
+			this.getAndSet = getAndSet;
+
+			if (getAndSet instanceof CompilableGetAndSet)
+			{
+				getter = ((CompilableGetAndSet)getAndSet).compileGetter();
+				setter = ((CompilableGetAndSet)getAndSet).compileSetter();
+			}
+			else
+			{
+				getter = null;
+				setter = null;
+			}
+		}
+
+		@Override
+		public Object getValue(Object object)
+		{
+			if (getter == null)
+			{
+				return getAndSet.getValue(object);
+			}
+
+			try
+			{
+				return (Object)getter.invokeExact(object);
+			}
+			catch (Throwable ex)
+			{
+				throw ((CompilableGetAndSet)getAndSet).getFailed(object, ex);
+			}
+		}
+
+		@Override
+		public void setValue(Object object, Object value, PropertyResolverConverter converter)
+		{
+			if (setter == null)
+			{
+				getAndSet.setValue(object, value, converter);
+				return;
+			}
+
+			CompilableGetAndSet compilable = (CompilableGetAndSet)getAndSet;
+			Object converted = compilable.convert(object, value, converter);
+			try
+			{
+				setter.invokeExact(object, converted);
+			}
+			catch (Throwable ex)
+			{
+				throw compilable.setFailed(object, converted, ex);
+			}
+		}
+
+		@Override
+		public Object newValue(Object object)
+		{
+			return getAndSet.newValue(object);
+		}
+
+		@Override
+		public Class<?> getTargetClass()
+		{
+			return getAndSet.getTargetClass();
+		}
+
+		@Override
+		public Field getField()
+		{
+			return getAndSet.getField();
+		}
+
+		@Override
+		public Method getGetter()
+		{
+			return getAndSet.getGetter();
+		}
+
+		@Override
+		public Method getSetter()
+		{
+			return getAndSet.getSetter();
+		}
+	}
+
 	/**
 	 * A property to get and set.
 	 * 
@@ -564,6 +799,59 @@ public final class PropertyResolver
 		}
 	}
 
+	/**
+	 * A property which can be accessed through {@link MethodHandle}s in a compiled expression.
+	 */
+	private static abstract class CompilableGetAndSet extends AbstractGetAndSet
+	{
+		static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+		static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class,
+			Object.class);
+
+		/**
+		 * @return handle of type {@code (Object)Object} to get the value, or {@code null} if not
+		 *         available
+		 */
+		abstract MethodHandle compileGetter();
+
+		/**
+		 * @return handle of type {@code (Object,Object)void} to set the converted value, or
+		 *         {@code null} if not available
+		 */
+		abstract MethodHandle compileSetter();
+
+		/**
+		 * Convert a value to be set.
+		 *
+		 * @param object
+		 *            the object where the value will be set on
+		 * @param value
+		 *            the value to convert
+		 * @param converter
+		 * @return converted value
+		 */
+		abstract Object convert(Object object, Object value, PropertyResolverConverter converter);
+
+		/**
+		 * @param object
+		 *            the object the value was taken from
+		 * @param cause
+		 * @return exception for a failed get
+		 */
+		abstract WicketRuntimeException getFailed(Object object, Throwable cause);
+
+		/**
+		 * @param object
+		 *            the object the value was set on
+		 * @param value
+		 *            the converted value
+		 * @param cause
+		 * @return exception for a failed set
+		 */
+		abstract WicketRuntimeException setFailed(Object object, Object value, Throwable cause);
+	}
+
 	private static final class MapGetAndSet extends AbstractGetAndSet
 	{
 		private final String key;
@@ -911,7 +1199,7 @@ public final class PropertyResolver
 		}
 	}
 
-	private static final class MethodGetAndSet extends AbstractGetAndSet
+	private static final class MethodGetAndSet extends CompilableGetAndSet
 	{
 		private final Method getMethod;
 		private final Method setMethod;
@@ -938,17 +1226,22 @@ public final class PropertyResolver
 			}
 			catch (InvocationTargetException ex)
 			{
-				throw new WicketRuntimeException("Error calling method: " + getMethod +
-					" on object: " + object, ex.getCause());
+				throw getFailed(object, ex.getCause());
 			}
 			catch (Exception ex)
 			{
-				throw new WicketRuntimeException("Error calling method: " + getMethod +
-					" on object: " + object, ex);
+				throw getFailed(object, ex);
 			}
 			return ret;
 		}
 
+		@Override
+		WicketRuntimeException getFailed(Object object, Throwable cause)
+		{
+			return new WicketRuntimeException("Error calling method: " + getMethod +
+				" on object: " + object, cause);
+		}
+
 		/**
 		 * @param object
 		 * @param value
@@ -957,6 +1250,61 @@ public final class PropertyResolver
 		@Override
 		public final void setValue(final Object object, final Object value,
 			PropertyResolverConverter converter)
+		{
+			Object converted = convert(object, value, converter);
+
+			if (setMethod != null)
+			{
+				try
+				{
+					setMethod.invoke(object, converted);
+				}
+				catch (InvocationTargetException ex)
+				{
+					throw setFailed(object, converted, ex.getCause());
+				}
+				catch (Exception ex)
+				{
+					throw setFailed(object, converted, ex);
+				}
+			}
+			else if (field != null)
+			{
+				try
+				{
+					field.set(object, converted);
+				}
+				catch (Exception ex)
+				{
+					throw setFailed(object, converted, ex);
+				}
+			}
+			else
+			{
+				throw new WicketRuntimeException("no set method defined for value: " + value +
+					" on object: " + object + " while respective getMethod being " +
+					getMethod.getName());
+			}
+		}
+
+		@Override
+		WicketRuntimeException setFailed(Object object, Object value, Throwable cause)
+		{
+			if (setMethod != null)
+			{
+				return new WicketRuntimeException("Error calling method: " + setMethod +
+					" on object: " + object, cause);
+			}
+			else
+			{
+				return new WicketRuntimeException("Error setting field: " + field +
+					" on object: " + object, cause);
+			}
+		}
+
+		@Override
+		Object convert(final Object object, final Object value,
+			final PropertyResolverConverter converter)
 		{
 			Class<?> type = null;
 			if (setMethod != null)
@@ -991,42 +1339,42 @@ public final class PropertyResolver
 					}
 				}
 			}
+			return converted;
+		}
 
-			if (setMethod != null)
+		@Override
+		MethodHandle compileGetter()
+		{
+			try
 			{
-				try
-				{
-					setMethod.invoke(object, converted);
-				}
-				catch (InvocationTargetException ex)
-				{
-					throw new WicketRuntimeException("Error calling method: " + setMethod +
-						" on object: " + object, ex.getCause());
-				}
-				catch (Exception ex)
-				{
-					throw new WicketRuntimeException("Error calling method: " + setMethod +
-						" on object: " + object, ex);
-				}
+				return MethodHandles.lookup().unreflect(getMethod).asType(GETTER_TYPE);
 			}
-			else if (field != null)
+			catch (IllegalAccessException ex)
 			{
-				try
+				log.debug("Cannot compile getter " + getMethod, ex);
+				return null;
+			}
+		}
+
+		@Override
+		MethodHandle compileSetter()
+		{
+			try
+			{
+				if (setMethod != null)
 				{
-					field.set(object, converted);
+					return MethodHandles.lookup().unreflect(setMethod).asType(SETTER_TYPE);
 				}
-				catch (Exception ex)
+				else if (field != null)
 				{
-					throw new WicketRuntimeException("Error setting field: " + field +
-						" on object: " + object, ex);
+					return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
 				}
 			}
-			else
+			catch (IllegalAccessException ex)
 			{
-				throw new WicketRuntimeException("no set method defined for value: " + value +
-					" on object: " + object + " while respective getMethod being " +
-					getMethod.getName());
+				log.debug("Cannot compile setter for " + getMethod, ex);
 			}
+			return null;
 		}
 
 		private static Method findSetter(Method getMethod, Class<?> clz)
@@ -1141,7 +1489,7 @@ public final class PropertyResolver
 	/**
 	 * @author jcompagner
 	 */
-	private static class FieldGetAndSet extends AbstractGetAndSet
+	private static class FieldGetAndSet extends CompilableGetAndSet
 	{
 		private final Field field;
 
@@ -1169,11 +1517,17 @@ public final class PropertyResolver
 			}
 			catch (Exception ex)
 			{
-				throw new WicketRuntimeException("Error getting field value of field " + field +
-					" from object " + object, ex);
+				throw getFailed(object, ex);
 			}
 		}
 
+		@Override
+		WicketRuntimeException getFailed(Object object, Throwable cause)
+		{
+			return new WicketRuntimeException("Error getting field value of field " + field +
+				" from object " + object, cause);
+		}
+
 		/**
 		 * {@inheritDoc}
 		 */
@@ -1201,15 +1555,56 @@ public final class PropertyResolver
 		public void setValue(final Object object, Object value,
 			final PropertyResolverConverter converter)
 		{
-			value = converter.convert(value, field.getType());
+			value = convert(object, value, converter);
 			try
 			{
 				field.set(object, value);
 			}
 			catch (Exception ex)
 			{
-				throw new WicketRuntimeException("Error setting field value of field " + field +
-					" on object " + object + ", value " + value, ex);
+				throw setFailed(object, value, ex);
+			}
+		}
+
+		@Override
+		WicketRuntimeException setFailed(Object object, Object value, Throwable cause)
+		{
+			return new WicketRuntimeException("Error setting field value of field " + field +
+				" on object " + object + ", value " + value, cause);
+		}
+
+		@Override
+		Object convert(final Object object, final Object value,
+			final PropertyResolverConverter converter)
+		{
+			return converter.convert(value, field.getType());
+		}
+
+		@Override
+		MethodHandle compileGetter()
+		{
+			try
+			{
+				return MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE);
+			}
+			catch (IllegalAccessException ex)
+			{
+				log.debug("Cannot compile getter for " + field, ex);
+				return null;
+			}
+		}
+
+		@Override
+		MethodHandle compileSetter()
+		{
+			try
+			{
+				return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+			}
+			catch (IllegalAccessException ex)
+			{
+				log.debug("Cannot compile setter for " + field, ex);
+				return null;
 			}
 		}
 
@@ -1308,10 +1703,22 @@ public final class PropertyResolver
 
 	/**
 	 * A wrapper for another {@link IPropertyLocator} that caches results of {@link #get(Class, String)}.
+	 * <p>
+	 * Additionally whole expressions are compiled per class, see {@link PropertyResolver}.
 	 */
 	public static class CachingPropertyLocator implements IPropertyLocator
 	{
 		private final ConcurrentHashMap<String, IGetAndSet> map = Generics.newConcurrentHashMap(16);
+
+		/**
+		 * Compiled expressions by root class and expression.
+		 */
+		private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, CompiledExpression>> compiled = Generics.newConcurrentHashMap(16);
+
+		/**
+		 * Whether expressions are compiled.
+		 */
+		private final boolean compile;
 		
 		/**
 		 * Special token to put into the cache representing no located {@link IGetAndSet}. 
@@ -1335,8 +1742,44 @@ public final class PropertyResolver
 
 		private IPropertyLocator locator;
 
+		/**
+		 * Caching located properties and compiling expressions.
+		 * 
+		 * @param locator locator to wrap
+		 */
 		public CachingPropertyLocator(IPropertyLocator locator) {
+			this(locator, true);
+		}
+
+		/**
+		 * Caching located properties.
+		 * 
+		 * @param locator locator to wrap
+		 * @param compile whether expressions should be compiled
+		 */
+		public CachingPropertyLocator(IPropertyLocator locator, boolean compile) {
 			this.locator = locator;
+			this.compile = compile;
+		}
+
+		private CompiledExpression getCompiled(Class<?> clz, String expression) {
+			ConcurrentHashMap<String, CompiledExpression> expressions = compiled.get(clz);
+			if (expressions == null) {
+				return null;
+			}
+			return expressions.get(expression);
+		}
+
+		private void putCompiled(Class<?> clz, String expression, CompiledExpression compiledExpression) {
+			ConcurrentHashMap<String, CompiledExpression> expressions = compiled.get(clz);
+			if (expressions == null) {
+				expressions = Generics.newConcurrentHashMap(4);
+				ConcurrentHashMap<String, CompiledExpression> tmp = compiled.putIfAbsent(clz, expressions);
+				if (tmp != null) {
+					expressions = tmp;
+				}
+			}
+			expressions.put(expression, compiledExpression);
 		}
 
 		@Override
@@ -16,7 +16,9 @@
  */
 package org.apache.wicket.core.util.lang;
 
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.wicket.util.io.IClusterable;
 import org.apache.wicket.IConverterLocator;
@@ -31,6 +33,20 @@ public class PropertyResolverConverter implements IClusterable
 {
 	private static final long serialVersionUID = 1L;
 
+	/** wrapper classes of primitives */
+	private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<>();
+
+	static
+	{
+		WRAPPERS.put(Boolean.TYPE, Boolean.class);
+		WRAPPERS.put(Byte.TYPE, Byte.class);
+		WRAPPERS.put(Short.TYPE, Short.class);
+		WRAPPERS.put(Character.TYPE, Character.class);
+		WRAPPERS.put(Integer.TYPE, Integer.class);
+		WRAPPERS.put(Long.TYPE, Long.class);
+		WRAPPERS.put(Float.TYPE, Float.class);
+		WRAPPERS.put(Double.TYPE, Double.class);
+	}
 
 	private final IConverterLocator converterSupplier;
 	private final Locale locale;
@@ -67,6 +83,13 @@ public class PropertyResolverConverter implements IClusterable
 			T result = (T)object;
 			return result;
 		}
+		if (clz.isPrimitive() && WRAPPERS.get(clz) == object.getClass())
+		{
+			// already boxed as needed, no conversion required
+			@SuppressWarnings("unchecked")
+			T result = (T)object;
+			return result;
+		}
 		IConverter<T> converter = converterSupplier.getConverter(clz);
 		if (object instanceof String)
 		{
@@ -65,17 +65,34 @@ public class DefaultMarkupResourceStreamProvider implements IMarkupResourceStrea
 	@Override
 	public IResourceStream getMarkupResourceStream(final MarkupContainer container,
 		Class<?> containerClass)
+	{
+		return locate(containerClass, container.getLocale(), container.getStyle(),
+			container.getVariation(), container.getMarkupType());
+	}
+
+	/**
+	 * Locates the markup resource stream for a container class or one of its super classes.
+	 * 
+	 * @param containerClass
+	 *            The container the markup should be associated with
+	 * @param locale
+	 *            locale of the container
+	 * @param style
+	 *            style of the container
+	 * @param variation
+	 *            variation of the container
+	 * @param markupType
+	 *            markup type of the container
+	 * @return A MarkupResourceStream if the resource was found
+	 */
+	static MarkupResourceStream locate(Class<?> containerClass, final Locale locale,
+		final String style, final String variation, final MarkupType markupType)
 	{
 		// Get locator to search for the resource
 		final IResourceStreamLocator locator = Application.get()
 			.getResourceSettings()
 			.getResourceStreamLocator();
 
-		String style = container.getStyle();
-		String variation = container.getVariation();
-		Locale locale = container.getLocale();
-
-		MarkupType markupType = container.getMarkupType();
 		String ext = (markupType != null ? markupType.getExtension() : null);
 
 		// Markup is associated with the containers class. Walk up the class
@@ -90,7 +107,8 @@ public class DefaultMarkupResourceStreamProvider implements IMarkupResourceStrea
 			// Did we find it already?
 			if (resourceStream != null)
 			{
-				return new MarkupResourceStream(resourceStream, new ContainerInfo(containerClass, container), containerClass);
+				return new MarkupResourceStream(resourceStream, new ContainerInfo(containerClass,
+					locale, style, variation, markupType), containerClass);
 			}
 
 			// Walk up the class hierarchy one level, if markup has not
@@ -513,34 +513,82 @@ public class MarkupCache implements IMarkupCache
 			}
 
 			// Watch file in the future
-			final IModificationWatcher watcher = application.getResourceSettings()
-				.getResourceWatcher(true);
-			if (watcher != null)
+			watchForChanges(markupResourceStream, cacheKey);
+		}
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Loading markup from " + markupResourceStream);
+		}
+		return loadMarkup(container, markupResourceStream, enforceReload);
+	}
+
+	/**
+	 * Add an {@link IChangeListener} to the {@link ModificationWatcher} so that if the resource
+	 * changes, the markup is removed from the cache.
+	 * 
+	 * @param markupResourceStream
+	 *            The markup stream to watch
+	 * @param cacheKey
+	 *            The key of the markup
+	 */
+	private void watchForChanges(final MarkupResourceStream markupResourceStream,
+		final String cacheKey)
+	{
+		final IModificationWatcher watcher = application.getResourceSettings()
+			.getResourceWatcher(true);
+		if (watcher != null)
+		{
+			watcher.add(markupResourceStream, new IChangeListener<IModifiable>()
 			{
-				watcher.add(markupResourceStream, new IChangeListener<IModifiable>()
+				@Override
+				public void onChange(IModifiable modifiable)
 				{
-					@Override
-					public void onChange(IModifiable modifiable)
+					if (log.isDebugEnabled())
 					{
-						if (log.isDebugEnabled())
-						{
-							log.debug("Remove markup from watcher: " + markupResourceStream);
-						}
-
-						// Remove the markup from the cache. It will be reloaded
-						// next time when the markup is requested.
-						watcher.remove(markupResourceStream);
-						removeMarkup(cacheKey);
+						log.debug("Remove markup from watcher: " + markupResourceStream);
 					}
-				});
-			}
+
+					// Remove the markup from the cache. It will be reloaded
+					// next time when the markup is requested.
+					watcher.remove(markupResourceStream);
+					removeMarkup(cacheKey);
+				}
+			});
 		}
+	}
 
-		if (log.isDebugEnabled())
+	/**
+	 * Put markup which was loaded without a container into the cache, e.g. by
+	 * {@link MarkupPreloader}. Its resource is watched for changes as with markup loaded by
+	 * {@link #getMarkup(MarkupContainer, Class, boolean)}.
+	 * <p>
+	 * Note that {@link #putIntoCache(String, MarkupContainer, Markup)} is called without a
+	 * container.
+	 * 
+	 * @param cacheKey
+	 *            The key of the markup
+	 * @param markup
+	 *            The markup to cache
+	 * @return The markup provided, except if markup with the same location was cached already,
+	 *         then the markup from the cache is provided.
+	 */
+	public final Markup putMarkup(final String cacheKey, final Markup markup)
+	{
+		Args.notNull(cacheKey, "cacheKey");
+		Args.notNull(markup, "markup");
+
+		MarkupResourceStream markupResourceStream = markup.getMarkupResourceStream();
+		markupResourceStream.setCacheKey(cacheKey);
+		watchForChanges(markupResourceStream, cacheKey);
+
+		String locationString = markup.locationAsString();
+		if (locationString == null)
 		{
-			log.debug("Loading markup from " + markupResourceStream);
+			locationString = cacheKey;
 		}
-		return loadMarkup(container, markupResourceStream, enforceReload);
+		markupKeyCache.put(cacheKey, locationString);
+		return putIntoCache(locationString, null, markup);
 	}
 
 	/**
@@ -0,0 +1,603 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.IApplicationListener;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.markup.loader.DefaultMarkupLoader;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Objects;
+import org.apache.wicket.util.string.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads markup into the {@link MarkupCache} on startup, so that the first requests do not have to
+ * wait for markup to be parsed. The markup of all containers is parsed in parallel on a
+ * {@link ForkJoinPool}.
+ * <p>
+ * The containers to preload are added explicitly. Additionally the markup cached while the
+ * application is running can be listed in an index file, so that a restarted application preloads
+ * all markup used before:
+ *
+ * <pre>
+ * protected void init()
+ * {
+ * 	super.init();
+ *
+ * 	MarkupPreloader preloader = new MarkupPreloader(this);
+ * 	preloader.add(HomePage.class);
+ * 	preloader.setIndexFile(new File(&quot;/var/cache/myapp/markup.index&quot;));
+ * 	getApplicationListeners().add(preloader);
+ * }
+ * </pre>
+ *
+ * As an {@link IApplicationListener} the preloader preloads after the application is initialized
+ * and writes the index before the application is destroyed.
+ * <p>
+ * Note that markup can be preloaded without container instances only, if it is located and cached
+ * by Wicket's defaults, i.e. the {@link DefaultMarkupLoader} and the
+ * {@link DefaultMarkupResourceStreamProvider} and {@link DefaultMarkupCacheKeyProvider}.
+ * Containers implementing {@link IMarkupResourceStreamProvider} or {@link IMarkupCacheKeyProvider}
+ * are skipped.
+ */
+public class MarkupPreloader implements IApplicationListener
+{
+	private static final Logger log = LoggerFactory.getLogger(MarkupPreloader.class);
+
+	private static final char SEPARATOR = '\t';
+
+	private final Application application;
+
+	private final Set<Key> keys = new LinkedHashSet<>();
+
+	private File indexFile;
+
+	/**
+	 * Construct.
+	 *
+	 * @param application
+	 *            the application to preload markup for
+	 */
+	public MarkupPreloader(final Application application)
+	{
+		this.application = Args.notNull(application, "application");
+	}
+
+	/**
+	 * Add a container to preload the markup for, in the default locale.
+	 *
+	 * @param containerClass
+	 *            class of container
+	 * @return this
+	 */
+	public MarkupPreloader add(final Class<? extends MarkupContainer> containerClass)
+	{
+		return add(containerClass, Locale.getDefault(), null, null, MarkupType.HTML_MARKUP_TYPE);
+	}
+
+	/**
+	 * Add a container to preload the markup for.
+	 *
+	 * @param containerClass
+	 *            class of container
+	 * @param locale
+	 *            locale of the container, may be {@code null}
+	 * @param style
+	 *            style of the container, may be {@code null}
+	 * @param variation
+	 *            variation of the container, may be {@code null}
+	 * @param markupType
+	 *            markup type of the container
+	 * @return this
+	 */
+	public MarkupPreloader add(final Class<? extends MarkupContainer> containerClass,
+		final Locale locale, final String style, final String variation,
+		final MarkupType markupType)
+	{
+		Args.notNull(containerClass, "containerClass");
+		Args.notNull(markupType, "markupType");
+
+		keys.add(new Key(containerClass, locale, style, variation, markupType.getExtension()));
+
+		return this;
+	}
+
+	/**
+	 * Set the file to read the markup to preload from and write the cached markup to.
+	 *
+	 * @param indexFile
+	 *            index file, may be {@code null}
+	 * @return this
+	 */
+	public MarkupPreloader setIndexFile(final File indexFile)
+	{
+		this.indexFile = indexFile;
+
+		return this;
+	}
+
+	/**
+	 * Preloads after initialization.
+	 */
+	@Override
+	public void onAfterInitialized(final Application application)
+	{
+		preload();
+	}
+
+	/**
+	 * Writes the index before destruction.
+	 */
+	@Override
+	public void onBeforeDestroyed(final Application application)
+	{
+		writeIndex();
+	}
+
+	/**
+	 * Preload on the common pool.
+	 *
+	 * @return the number of preloaded markups
+	 * @see ForkJoinPool#commonPool()
+	 */
+	public int preload()
+	{
+		return preload(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Preload all added containers and the containers listed in the index file, waiting for all of
+	 * them to be loaded.
+	 *
+	 * @param pool
+	 *            pool to parse markup on
+	 * @return the number of preloaded markups
+	 */
+	public int preload(final ForkJoinPool pool)
+	{
+		Args.notNull(pool, "pool");
+
+		MarkupFactory factory = application.getMarkupSettings().getMarkupFactory();
+		IMarkupCache cache;
+		ThreadContext previous = ThreadContext.detach();
+		try
+		{
+			// the cache is created lazily and needs an application
+			ThreadContext.setApplication(application);
+			cache = factory.getMarkupCache();
+		}
+		finally
+		{
+			ThreadContext.restore(previous);
+		}
+		if (cache instanceof MarkupCache == false ||
+			factory.getMarkupLoader().getClass() != DefaultMarkupLoader.class)
+		{
+			log.info("Markup is not preloaded, since it is not cached or loaded by defaults");
+			return 0;
+		}
+
+		Set<Key> all = new LinkedHashSet<>(keys);
+		all.addAll(readIndex());
+
+		long start = System.currentTimeMillis();
+
+		List<ForkJoinTask<Markup>> tasks = new ArrayList<>();
+		for (final Key key : all)
+		{
+			tasks.add(pool.submit(() -> load(factory, (MarkupCache)cache, key)));
+		}
+
+		int count = 0;
+		for (ForkJoinTask<Markup> task : tasks)
+		{
+			if (task.join() != null)
+			{
+				count++;
+			}
+		}
+
+		log.info("Preloaded {} markups in {} ms", count, System.currentTimeMillis() - start);
+
+		return count;
+	}
+
+	/**
+	 * Load the markup for a container in the current thread.
+	 *
+	 * @param factory
+	 * @param cache
+	 * @param key
+	 * @return loaded markup, or {@code null} if not available
+	 */
+	private Markup load(final MarkupFactory factory, final MarkupCache cache, final Key key)
+	{
+		if (IMarkupResourceStreamProvider.class.isAssignableFrom(key.containerClass) ||
+			IMarkupCacheKeyProvider.class.isAssignableFrom(key.containerClass))
+		{
+			log.debug("Cannot preload markup for {}", key);
+			return null;
+		}
+
+		ThreadContext previous = ThreadContext.detach();
+		try
+		{
+			ThreadContext.setApplication(application);
+
+			return load(factory, cache, key, key.containerClass);
+		}
+		catch (Exception ex)
+		{
+			log.warn("Cannot preload markup for " + key, ex);
+			return null;
+		}
+		finally
+		{
+			ThreadContext.restore(previous);
+		}
+	}
+
+	/**
+	 * Load the markup for a container or one of its super classes, as the
+	 * {@link DefaultMarkupLoader} does.
+	 *
+	 * @param factory
+	 * @param cache
+	 * @param key
+	 * @param clazz
+	 *            the container class or one of its super classes
+	 * @return loaded markup, or {@code null} if not found
+	 * @throws Exception
+	 */
+	private Markup load(final MarkupFactory factory, final MarkupCache cache, final Key key,
+		final Class<?> clazz) throws Exception
+	{
+		MarkupResourceStream markupResourceStream = locate(key, clazz);
+		if (markupResourceStream == null)
+		{
+			return null;
+		}
+
+		String cacheKey = key.getCacheKey(clazz);
+		String locationString = markupResourceStream.locationAsString();
+		Markup markup = cache.getMarkupCache().get(
+			locationString != null ? locationString : cacheKey);
+		if (markup != null && markup != Markup.NO_MARKUP)
+		{
+			return markup;
+		}
+
+		markup = factory.newMarkupParser(markupResourceStream).parse();
+
+		int extendIndex = getExtendIndex(markup);
+		if (extendIndex != -1)
+		{
+			Class<?> base = markupResourceStream.getMarkupClass().getSuperclass();
+			Markup baseMarkup = load(factory, cache, key, base);
+			if (baseMarkup == null)
+			{
+				throw new MarkupNotFoundException(
+					"Base markup of inherited markup not found. Component class: " +
+						clazz.getName());
+			}
+			markup = new MergedMarkup(markup, baseMarkup, extendIndex);
+		}
+
+		return cache.putMarkup(cacheKey, markup);
+	}
+
+	/**
+	 * Locate the markup resource stream with the {@link DefaultMarkupResourceStreamProvider}, so
+	 * its {@link ContainerInfo} is the same as at runtime.
+	 *
+	 * @param key
+	 * @param clazz
+	 *            the container class or one of its super classes
+	 * @return resource stream or {@code null}
+	 */
+	private MarkupResourceStream locate(final Key key, final Class<?> clazz)
+	{
+		MarkupType markupType = MarkupType.HTML_MARKUP_TYPE;
+		if (Objects.equal(markupType.getExtension(), key.extension) == false)
+		{
+			markupType = new MarkupType(key.extension, null);
+		}
+
+		return DefaultMarkupResourceStreamProvider.locate(clazz, key.locale, key.style,
+			key.variation, markupType);
+	}
+
+	/**
+	 * @param markup
+	 * @return index of the {@code <wicket:extend>} tag, or -1
+	 */
+	private int getExtendIndex(final IMarkupFragment markup)
+	{
+		for (int i = 0; i < markup.size(); i++)
+		{
+			if (TagUtils.isExtendTag(markup, i))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Read the containers listed in the index file.
+	 *
+	 * @return keys
+	 */
+	private List<Key> readIndex()
+	{
+		List<Key> keys = new ArrayList<>();
+
+		if (indexFile == null || indexFile.exists() == false)
+		{
+			return keys;
+		}
+
+		try
+		{
+			for (String line : Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8))
+			{
+				if (Strings.isEmpty(line))
+				{
+					continue;
+				}
+
+				Key key = Key.parse(line, application);
+				if (key != null)
+				{
+					keys.add(key);
+				}
+			}
+		}
+		catch (IOException ex)
+		{
+			log.warn("Cannot read markup index " + indexFile, ex);
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Write all containers with cached markup to the index file.
+	 */
+	public void writeIndex()
+	{
+		if (indexFile == null)
+		{
+			return;
+		}
+
+		IMarkupCache cache = application.getMarkupSettings().getMarkupFactory().getMarkupCache();
+		if (cache instanceof MarkupCache == false)
+		{
+			return;
+		}
+
+		Set<Key> cached = new LinkedHashSet<>(keys);
+		for (Markup markup : ((MarkupCache)cache).getMarkupCache().getValues())
+		{
+			if (markup == Markup.NO_MARKUP || markup.getMarkupResourceStream() == null)
+			{
+				continue;
+			}
+
+			ContainerInfo info = markup.getMarkupResourceStream().getContainerInfo();
+			if (info == null || info.getContainerClass() == null)
+			{
+				continue;
+			}
+
+			cached.add(new Key(info.getContainerClass(), info.getLocale(), info.getStyle(),
+				info.getVariation(), info.getFileExtension()));
+		}
+
+		List<String> lines = new ArrayList<>();
+		for (Key key : cached)
+		{
+			String line = key.format();
+			if (line != null)
+			{
+				lines.add(line);
+			}
+		}
+
+		try
+		{
+			File parent = indexFile.getParentFile();
+			if (parent != null)
+			{
+				parent.mkdirs();
+			}
+			Files.write(indexFile.toPath(), lines, StandardCharsets.UTF_8);
+		}
+		catch (IOException ex)
+		{
+			log.warn("Cannot write markup index " + indexFile, ex);
+		}
+	}
+
+	/**
+	 * Identifies markup of a container.
+	 */
+	private static final class Key
+	{
+		private final Class<?> containerClass;
+
+		private final Locale locale;
+
+		private final String style;
+
+		private final String variation;
+
+		private final String extension;
+
+		private Key(final Class<?> containerClass, final Locale locale, final String style,
+			final String variation, final String extension)
+		{
+			this.containerClass = containerClass;
+			this.locale = locale;
+			this.style = style;
+			this.variation = variation;
+			this.extension = extension;
+		}
+
+		/**
+		 * Get the key of the markup in the cache, as the {@link DefaultMarkupCacheKeyProvider}
+		 * does.
+		 *
+		 * @param clazz
+		 *            the container class or one of its super classes
+		 * @return cache key
+		 */
+		private String getCacheKey(final Class<?> clazz)
+		{
+			final String classname = clazz.getName();
+			final StringBuilder buffer = new StringBuilder(classname.length() + 64);
+			buffer.append(classname);
+
+			if (variation != null)
+			{
+				buffer.append('_').append(variation);
+			}
+
+			if (style != null)
+			{
+				buffer.append('_').append(style);
+			}
+
+			if (locale != null)
+			{
+				buffer.append('_').append(locale.toString());
+			}
+
+			buffer.append('.').append(extension);
+			return buffer.toString();
+		}
+
+		/**
+		 * @return line for the index file, or {@code null} if not representable
+		 */
+		private String format()
+		{
+			String[] values = { containerClass.getName(),
+					locale != null ? locale.toLanguageTag() : "", style != null ? style : "",
+					variation != null ? variation : "", extension };
+
+			StringBuilder line = new StringBuilder();
+			for (String value : values)
+			{
+				if (value.indexOf(SEPARATOR) != -1 || value.indexOf('\n') != -1 ||
+					value.indexOf('\r') != -1)
+				{
+					return null;
+				}
+				if (line.length() > 0)
+				{
+					line.append(SEPARATOR);
+				}
+				line.append(value);
+			}
+			return line.toString();
+		}
+
+		/**
+		 * @param line
+		 *            line from the index file
+		 * @param application
+		 * @return key or {@code null} if the line cannot be parsed
+		 */
+		private static Key parse(final String line, final Application application)
+		{
+			String[] values = Strings.split(line, SEPARATOR);
+			if (values.length != 5)
+			{
+				log.debug("Skipping malformed markup index entry '{}'", line);
+				return null;
+			}
+
+			Class<?> containerClass;
+			try
+			{
+				containerClass = application.getApplicationSettings()
+					.getClassResolver()
+					.resolveClass(values[0]);
+			}
+			catch (ClassNotFoundException ex)
+			{
+				log.debug("Skipping markup index entry of unknown class '{}'", values[0]);
+				return null;
+			}
+			if (MarkupContainer.class.isAssignableFrom(containerClass) == false)
+			{
+				return null;
+			}
+
+			return new Key(containerClass, values[1].isEmpty() ? null
+				: Locale.forLanguageTag(values[1]), Strings.isEmpty(values[2]) ? null : values[2],
+				Strings.isEmpty(values[3]) ? null : values[3], values[4]);
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (obj instanceof Key == false)
+			{
+				return false;
+			}
+			Key other = (Key)obj;
+			return containerClass == other.containerClass &&
+				Objects.equal(locale, other.locale) && Objects.equal(style, other.style) &&
+				Objects.equal(variation, other.variation) &&
+				Objects.equal(extension, other.extension);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hashCode(containerClass, locale, style, variation, extension);
+		}
+
+		@Override
+		public String toString()
+		{
+			return getCacheKey(containerClass);
+		}
+	}
+}
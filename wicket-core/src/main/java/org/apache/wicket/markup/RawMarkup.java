@@ -16,6 +16,8 @@
  */
 package org.apache.wicket.markup;
 
+import org.apache.wicket.util.string.PreEncodedText;
+
 /**
  * This class is for framework purposes only, which is why the class is (default) protected.
  * <p>
@@ -29,6 +31,9 @@ public class RawMarkup extends MarkupElement
 	/** The raw markup string * */
 	private final CharSequence string;
 
+	/** The raw markup with its encoded bytes, created lazily */
+	private volatile PreEncodedText preEncodedText;
+
 	/**
 	 * Create a RawMarkup element referencing an uninterpreted markup string.
 	 * 
@@ -96,6 +101,23 @@ public class RawMarkup extends MarkupElement
 		return string;
 	}
 
+	/**
+	 * Gets the raw markup as text which caches its encoded bytes. Since markup is cached, the raw
+	 * markup has to be encoded once only instead of on each render.
+	 * 
+	 * @return the raw markup
+	 */
+	public PreEncodedText toPreEncodedText()
+	{
+		PreEncodedText text = preEncodedText;
+		if (text == null)
+		{
+			text = new PreEncodedText(string);
+			preEncodedText = text;
+		}
+		return text;
+	}
+
 	/**
 	 * @return This raw markup string
 	 */
@@ -0,0 +1,468 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.util.collections.MostRecentlyUsedMap;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.PreEncodedText;
+import org.apache.wicket.util.time.Duration;
+
+/**
+ * A bounded store of the rendered output of components, used by {@link OutputCacheBehavior}s.
+ * <p>
+ * The least recently used entry is evicted when the maximum number of entries is exceeded, and
+ * entries expire after their time to live. Entries can be invalidated explicitly, either one by
+ * one, by a tag given when they were stored, or by a predicate on their keys.
+ * </p>
+ * <p>
+ * Each application has its own cache, which is created with default settings on first access.
+ * </p>
+ * 
+ * @see #get(Application)
+ * @see #set(Application, OutputCache)
+ */
+public class OutputCache
+{
+	/** The default maximum number of entries */
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	/** The default time to live of an entry */
+	public static final Duration DEFAULT_TIME_TO_LIVE = Duration.minutes(5);
+
+	private static final MetaDataKey<OutputCache> KEY = new MetaDataKey<OutputCache>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	private final MostRecentlyUsedMap<OutputCacheKey, Entry> entries;
+
+	private final Duration defaultTimeToLive;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong expirations = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final AtomicLong invalidations = new AtomicLong();
+
+	/**
+	 * Construct with {@link #DEFAULT_MAX_ENTRIES} and {@link #DEFAULT_TIME_TO_LIVE}.
+	 */
+	public OutputCache()
+	{
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param maxEntries
+	 *            the maximum number of entries
+	 * @param defaultTimeToLive
+	 *            the time to live of entries stored without one
+	 */
+	public OutputCache(int maxEntries, Duration defaultTimeToLive)
+	{
+		Args.withinRange(1, Integer.MAX_VALUE, maxEntries, "maxEntries");
+
+		entries = new MostRecentlyUsedMap<>(maxEntries);
+		this.defaultTimeToLive = Args.notNull(defaultTimeToLive, "defaultTimeToLive");
+	}
+
+	/**
+	 * Gets the cache of an application, creating it if necessary.
+	 * 
+	 * @param application
+	 *            the application
+	 * @return the cache
+	 */
+	public static OutputCache get(Application application)
+	{
+		OutputCache cache = application.getMetaData(KEY);
+		if (cache == null)
+		{
+			synchronized (application)
+			{
+				cache = application.getMetaData(KEY);
+				if (cache == null)
+				{
+					cache = new OutputCache();
+					set(application, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Sets the cache of an application.
+	 * 
+	 * @param application
+	 *            the application
+	 * @param cache
+	 *            the cache
+	 */
+	public static void set(Application application, OutputCache cache)
+	{
+		application.setMetaData(KEY, cache);
+	}
+
+	/**
+	 * Gets an entry.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return the entry or {@code null} if there is none or it has expired
+	 */
+	public Entry get(OutputCacheKey key)
+	{
+		Entry entry;
+		boolean expired = false;
+		synchronized (entries)
+		{
+			entry = entries.get(key);
+			if (entry != null && entry.isExpired(System.currentTimeMillis()))
+			{
+				entries.remove(key);
+				expired = true;
+			}
+		}
+
+		if (expired)
+		{
+			expirations.incrementAndGet();
+			onRemoved(key, entry);
+			entry = null;
+		}
+
+		if (entry == null)
+		{
+			misses.incrementAndGet();
+		}
+		else
+		{
+			hits.incrementAndGet();
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores the output of a component.
+	 * 
+	 * @param key
+	 *            the key
+	 * @param markup
+	 *            the rendered markup
+	 * @param headerItems
+	 *            the header contributions
+	 * @param timeToLive
+	 *            the time to live, {@code null} for the default
+	 * @param tags
+	 *            tags to invalidate the entry by
+	 * @return the stored entry
+	 */
+	public Entry put(OutputCacheKey key, CharSequence markup, List<HeaderItem> headerItems,
+		Duration timeToLive, String... tags)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(markup, "markup");
+		Args.notNull(headerItems, "headerItems");
+
+		Duration ttl = timeToLive != null ? timeToLive : defaultTimeToLive;
+		Entry entry = new Entry(new PreEncodedText(markup), headerItems, System.currentTimeMillis() +
+			ttl.getMilliseconds(), tags);
+
+		Entry replaced;
+		Entry evicted;
+		synchronized (entries)
+		{
+			replaced = entries.put(key, entry);
+			evicted = entries.getRemovedValue();
+		}
+
+		if (replaced != null)
+		{
+			onRemoved(key, replaced);
+		}
+		if (evicted != null)
+		{
+			evictions.incrementAndGet();
+			onRemoved(null, evicted);
+		}
+		return entry;
+	}
+
+	/**
+	 * Invalidates an entry.
+	 * 
+	 * @param key
+	 *            the key
+	 * @return {@code true} if an entry was removed
+	 */
+	public boolean remove(OutputCacheKey key)
+	{
+		Entry entry;
+		synchronized (entries)
+		{
+			entry = entries.remove(key);
+		}
+
+		if (entry != null)
+		{
+			invalidations.incrementAndGet();
+			onRemoved(key, entry);
+		}
+		return entry != null;
+	}
+
+	/**
+	 * Invalidates all entries stored with a tag.
+	 * 
+	 * @param tag
+	 *            the tag
+	 * @return number of removed entries
+	 * @see OutputCacheBehavior#setTags(String...)
+	 */
+	public int invalidate(final String tag)
+	{
+		Args.notNull(tag, "tag");
+
+		return invalidate(new EntryPredicate()
+		{
+			@Override
+			public boolean test(OutputCacheKey key, Entry entry)
+			{
+				return entry.getTags().contains(tag);
+			}
+		});
+	}
+
+	/**
+	 * Invalidates all entries whose key matches a predicate, e.g. all entries of a page class.
+	 * 
+	 * @param predicate
+	 *            the predicate
+	 * @return number of removed entries
+	 */
+	public int invalidate(final Predicate<OutputCacheKey> predicate)
+	{
+		Args.notNull(predicate, "predicate");
+
+		return invalidate(new EntryPredicate()
+		{
+			@Override
+			public boolean test(OutputCacheKey key, Entry entry)
+			{
+				return predicate.test(key);
+			}
+		});
+	}
+
+	private int invalidate(EntryPredicate predicate)
+	{
+		List<Map.Entry<OutputCacheKey, Entry>> removed = new ArrayList<>();
+		synchronized (entries)
+		{
+			Iterator<Map.Entry<OutputCacheKey, Entry>> iterator = entries.entrySet().iterator();
+			while (iterator.hasNext())
+			{
+				Map.Entry<OutputCacheKey, Entry> entry = iterator.next();
+				if (predicate.test(entry.getKey(), entry.getValue()))
+				{
+					removed.add(entry);
+					iterator.remove();
+				}
+			}
+		}
+
+		invalidations.addAndGet(removed.size());
+		for (Map.Entry<OutputCacheKey, Entry> entry : removed)
+		{
+			onRemoved(entry.getKey(), entry.getValue());
+		}
+		return removed.size();
+	}
+
+	/**
+	 * Invalidates all entries.
+	 * 
+	 * @return number of removed entries
+	 */
+	public int clear()
+	{
+		return invalidate(new EntryPredicate()
+		{
+			@Override
+			public boolean test(OutputCacheKey key, Entry entry)
+			{
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * Called after an entry was removed, because it was evicted, has expired, was replaced or
+	 * invalidated.
+	 * 
+	 * @param key
+	 *            the key of the entry, {@code null} if evicted
+	 * @param entry
+	 *            the removed entry
+	 */
+	protected void onRemoved(OutputCacheKey key, Entry entry)
+	{
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+	public int size()
+	{
+		synchronized (entries)
+		{
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return the number of lookups which found an entry
+	 */
+	public long getHitCount()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups which found no entry
+	 */
+	public long getMissCount()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of entries removed because they have expired
+	 */
+	public long getExpirationCount()
+	{
+		return expirations.get();
+	}
+
+	/**
+	 * @return the number of entries evicted because the cache was full
+	 */
+	public long getEvictionCount()
+	{
+		return evictions.get();
+	}
+
+	/**
+	 * @return the number of entries invalidated explicitly
+	 */
+	public long getInvalidationCount()
+	{
+		return invalidations.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "OutputCache [size=" + size() + ", hits=" + hits + ", misses=" + misses +
+			", expirations=" + expirations + ", evictions=" + evictions + ", invalidations=" +
+			invalidations + "]";
+	}
+
+	private interface EntryPredicate
+	{
+		boolean test(OutputCacheKey key, Entry entry);
+	}
+
+	/**
+	 * The cached output of a component.
+	 */
+	public static final class Entry
+	{
+		private final PreEncodedText markup;
+
+		private final List<HeaderItem> headerItems;
+
+		private final long expiresAt;
+
+		private final Set<String> tags;
+
+		private Entry(PreEncodedText markup, List<HeaderItem> headerItems, long expiresAt,
+			String... tags)
+		{
+			this.markup = markup;
+			this.headerItems = Collections.unmodifiableList(new ArrayList<>(headerItems));
+			this.expiresAt = expiresAt;
+			this.tags = tags == null || tags.length == 0 ? Collections.<String> emptySet()
+				: Collections.unmodifiableSet(new HashSet<>(Arrays.asList(tags)));
+		}
+
+		/**
+		 * @return the rendered markup
+		 */
+		public PreEncodedText getMarkup()
+		{
+			return markup;
+		}
+
+		/**
+		 * @return the header contributions
+		 */
+		public List<HeaderItem> getHeaderItems()
+		{
+			return headerItems;
+		}
+
+		/**
+		 * @return the tags of this entry
+		 */
+		public Set<String> getTags()
+		{
+			return tags;
+		}
+
+		/**
+		 * @param now
+		 *            the current time in milliseconds
+		 * @return whether this entry has expired
+		 */
+		public boolean isExpired(long now)
+		{
+			return now >= expiresAt;
+		}
+	}
+}
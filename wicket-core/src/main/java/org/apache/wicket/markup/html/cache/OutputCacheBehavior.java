@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html.cache;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Page;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.html.DecoratingHeaderResponse;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.protocol.http.BufferedWebResponse;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.time.Duration;
+import org.apache.wicket.util.visit.IVisit;
+import org.apache.wicket.util.visit.IVisitor;
+
+/**
+ * A behavior which caches the rendered output of a component, so that expensive parts of a page,
+ * e.g. a navigation menu, are rendered once only and then replayed for all requests and sessions
+ * until the cached output expires or is invalidated.
+ * <p>
+ * The output is stored in the application's {@link OutputCache} under a key made of the page
+ * class, the page relative path, the locale, style and variation of the component and an optional
+ * additional key, e.g. a version of the component's model. The header contributions of the
+ * component's children are stored too and replayed through the {@link IHeaderResponse}, while
+ * the component itself and its behaviors contribute as usual.
+ * </p>
+ * <p>
+ * When the output is replayed, the component is configured but neither are its children prepared
+ * for render nor is the component rendered, so their models are not loaded. Output is stored only
+ * if the component and all its children are stateless, since the callback URLs of stateful
+ * components are valid for a single page instance only. For the same reason the output must not
+ * contain generated markup ids which are referred to by other components.
+ * </p>
+ * 
+ * <pre>
+ * menu.add(new OutputCacheBehavior(new PropertyModel&lt;Integer&gt;(catalog, &quot;version&quot;),
+ * 	Duration.minutes(10)).setTags(&quot;catalog&quot;));
+ * 
+ * // after the catalog has changed
+ * OutputCache.get(application).invalidate(&quot;catalog&quot;);
+ * </pre>
+ * 
+ * @see OutputCache
+ */
+public class OutputCacheBehavior extends Behavior
+{
+	private static final long serialVersionUID = 1L;
+
+	/** The state of the cached components in the current request */
+	private static final MetaDataKey<Map<Component, Rendering>> RENDERINGS = new MetaDataKey<Map<Component, Rendering>>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	private final IModel<?> cacheKey;
+
+	private final Duration timeToLive;
+
+	private String[] tags = new String[0];
+
+	/**
+	 * Construct caching the output for the cache's default time to live.
+	 */
+	public OutputCacheBehavior()
+	{
+		this(null, null);
+	}
+
+	/**
+	 * Construct caching the output for the cache's default time to live.
+	 * 
+	 * @param cacheKey
+	 *            model of an additional key, e.g. a version of the component's model
+	 */
+	public OutputCacheBehavior(IModel<?> cacheKey)
+	{
+		this(cacheKey, null);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param cacheKey
+	 *            model of an additional key, e.g. a version of the component's model, may be
+	 *            {@code null}
+	 * @param timeToLive
+	 *            the time to live of the cached output, {@code null} for the cache's default
+	 */
+	public OutputCacheBehavior(IModel<?> cacheKey, Duration timeToLive)
+	{
+		this.cacheKey = cacheKey;
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the tags to store the output with.
+	 * 
+	 * @param tags
+	 *            the tags
+	 * @return {@code this}
+	 * @see OutputCache#invalidate(String)
+	 */
+	public OutputCacheBehavior setTags(String... tags)
+	{
+		this.tags = tags.clone();
+		return this;
+	}
+
+	@Override
+	public void bind(Component component)
+	{
+		super.bind(component);
+
+		if (component instanceof Page)
+		{
+			throw new IllegalArgumentException(OutputCacheBehavior.class.getSimpleName() +
+				" can not be added to a page");
+		}
+	}
+
+	@Override
+	public void onConfigure(Component component)
+	{
+		super.onConfigure(component);
+
+		if (component.isVisible() == false)
+		{
+			return;
+		}
+
+		OutputCacheKey key = newCacheKey(component);
+		OutputCache.Entry entry = getOutputCache().get(key);
+
+		RequestCycle requestCycle = RequestCycle.get();
+		Map<Component, Rendering> renderings = requestCycle.getMetaData(RENDERINGS);
+		if (renderings == null)
+		{
+			renderings = new IdentityHashMap<>();
+			requestCycle.setMetaData(RENDERINGS, renderings);
+		}
+		renderings.put(component, new Rendering(key, entry));
+
+		component.internalSetOutputCached(entry != null);
+	}
+
+	@Override
+	public void beforeRender(Component component)
+	{
+		super.beforeRender(component);
+
+		Rendering rendering = getRendering(component);
+		if (rendering != null)
+		{
+			RequestCycle requestCycle = RequestCycle.get();
+
+			// collect the output, or discard it if replayed
+			rendering.originalResponse = requestCycle.getResponse();
+			WebResponse webResponse = rendering.originalResponse instanceof WebResponse
+				? (WebResponse)rendering.originalResponse : null;
+			rendering.response = new BufferedWebResponse(webResponse);
+			requestCycle.setResponse(rendering.response);
+		}
+	}
+
+	@Override
+	public void afterRender(Component component)
+	{
+		Rendering rendering = getRendering(component);
+		if (rendering != null && rendering.originalResponse != null)
+		{
+			Response originalResponse = rendering.originalResponse;
+			rendering.originalResponse = null;
+
+			try
+			{
+				if (rendering.entry != null)
+				{
+					originalResponse.write(rendering.entry.getMarkup());
+				}
+				else
+				{
+					CharSequence output = rendering.response.getText();
+					if (output == null)
+					{
+						output = "";
+					}
+					originalResponse.write(output);
+
+					if (isCacheable(component))
+					{
+						getOutputCache().put(rendering.key, output, rendering.headerItems,
+							timeToLive, tags);
+					}
+				}
+			}
+			finally
+			{
+				RequestCycle.get().setResponse(originalResponse);
+			}
+		}
+
+		super.afterRender(component);
+	}
+
+	@Override
+	public void renderHead(Component component, IHeaderResponse response)
+	{
+		super.renderHead(component, response);
+
+		Rendering rendering = getRendering(component);
+		if (rendering != null && rendering.entry != null)
+		{
+			for (HeaderItem item : rendering.entry.getHeaderItems())
+			{
+				response.render(item);
+			}
+		}
+	}
+
+	/**
+	 * Records the header contributions of the descendants, if the output is going to be cached.
+	 */
+	@Override
+	public IHeaderResponse decorateHeaderResponse(Component component, Component descendant,
+		IHeaderResponse response)
+	{
+		Rendering rendering = getRendering(component);
+		if (rendering != null && rendering.entry == null)
+		{
+			return new RecordingHeaderResponse(response, rendering.headerItems);
+		}
+		return response;
+	}
+
+	@Override
+	public void detach(Component component)
+	{
+		if (cacheKey != null)
+		{
+			cacheKey.detach();
+		}
+
+		super.detach(component);
+	}
+
+	/**
+	 * Creates the key to cache the output of a component with.
+	 * 
+	 * @param component
+	 *            the component
+	 * @return the key
+	 */
+	protected OutputCacheKey newCacheKey(Component component)
+	{
+		return new OutputCacheKey(component.getPage().getClass().getName(),
+			component.getPageRelativePath(), component.getLocale(), component.getStyle(),
+			component.getVariation(), getCacheKey(component));
+	}
+
+	/**
+	 * Gets the additional key to cache the output of a component with.
+	 * 
+	 * @param component
+	 *            the component
+	 * @return the object of the cache key model, or {@code null}
+	 */
+	protected Object getCacheKey(Component component)
+	{
+		return cacheKey != null ? cacheKey.getObject() : null;
+	}
+
+	/**
+	 * Decides whether the rendered output of a component can be cached. By default it can if the
+	 * component and all its children are stateless.
+	 * 
+	 * @param component
+	 *            the rendered component
+	 * @return {@code true} if the output should be cached
+	 */
+	protected boolean isCacheable(Component component)
+	{
+		if (component.isStateless() == false)
+		{
+			return false;
+		}
+
+		if (component instanceof MarkupContainer)
+		{
+			Boolean stateful = ((MarkupContainer)component).visitChildren(
+				new IVisitor<Component, Boolean>()
+				{
+					@Override
+					public void component(Component child, IVisit<Boolean> visit)
+					{
+						if (child.isStateless() == false)
+						{
+							visit.stop(Boolean.TRUE);
+						}
+					}
+				});
+			return stateful == null;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the cache to store the output in
+	 */
+	protected OutputCache getOutputCache()
+	{
+		return OutputCache.get(Application.get());
+	}
+
+	private static Rendering getRendering(Component component)
+	{
+		Map<Component, Rendering> renderings = RequestCycle.get().getMetaData(RENDERINGS);
+		return renderings != null ? renderings.get(component) : null;
+	}
+
+	/**
+	 * The state of a cached component in the current request
+	 */
+	private static class Rendering
+	{
+		private final OutputCacheKey key;
+
+		/** the entry to replay, {@code null} if the output is going to be cached */
+		private final OutputCache.Entry entry;
+
+		private final List<HeaderItem> headerItems = new ArrayList<>();
+
+		private Response originalResponse;
+
+		private BufferedWebResponse response;
+
+		private Rendering(OutputCacheKey key, OutputCache.Entry entry)
+		{
+			this.key = key;
+			this.entry = entry;
+		}
+	}
+
+	/**
+	 * Records the rendered header items.
+	 */
+	private static class RecordingHeaderResponse extends DecoratingHeaderResponse
+	{
+		private final List<HeaderItem> headerItems;
+
+		private RecordingHeaderResponse(IHeaderResponse real, List<HeaderItem> headerItems)
+		{
+			super(real);
+			this.headerItems = headerItems;
+		}
+
+		@Override
+		public void render(HeaderItem item)
+		{
+			headerItems.add(item);
+
+			super.render(item);
+		}
+	}
+}
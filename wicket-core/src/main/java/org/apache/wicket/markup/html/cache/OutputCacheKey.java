@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html.cache;
+
+import java.util.Locale;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Objects;
+
+/**
+ * The key of a component's output in an {@link OutputCache}.
+ * 
+ * @see OutputCacheBehavior#newCacheKey(org.apache.wicket.Component)
+ */
+public final class OutputCacheKey
+{
+	private final String pageClass;
+
+	private final String path;
+
+	private final Locale locale;
+
+	private final String style;
+
+	private final String variation;
+
+	private final Object key;
+
+	private final int hashCode;
+
+	/**
+	 * Construct.
+	 * 
+	 * @param pageClass
+	 *            name of the class of the component's page
+	 * @param path
+	 *            page relative path of the component
+	 * @param locale
+	 *            locale of the component, may be {@code null}
+	 * @param style
+	 *            style of the component, may be {@code null}
+	 * @param variation
+	 *            variation of the component, may be {@code null}
+	 * @param key
+	 *            additional key, e.g. a version of the component's model, may be {@code null}
+	 */
+	public OutputCacheKey(String pageClass, String path, Locale locale, String style,
+		String variation, Object key)
+	{
+		this.pageClass = Args.notNull(pageClass, "pageClass");
+		this.path = Args.notNull(path, "path");
+		this.locale = locale;
+		this.style = style;
+		this.variation = variation;
+		this.key = key;
+
+		hashCode = Objects.hashCode(pageClass, path, locale, style, variation, key);
+	}
+
+	/**
+	 * @return name of the class of the component's page
+	 */
+	public String getPageClass()
+	{
+		return pageClass;
+	}
+
+	/**
+	 * @return page relative path of the component
+	 */
+	public String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * @return locale of the component
+	 */
+	public Locale getLocale()
+	{
+		return locale;
+	}
+
+	/**
+	 * @return style of the component
+	 */
+	public String getStyle()
+	{
+		return style;
+	}
+
+	/**
+	 * @return variation of the component
+	 */
+	public String getVariation()
+	{
+		return variation;
+	}
+
+	/**
+	 * @return the additional key
+	 */
+	public Object getKey()
+	{
+		return key;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (obj instanceof OutputCacheKey == false)
+		{
+			return false;
+		}
+		OutputCacheKey other = (OutputCacheKey)obj;
+		return hashCode == other.hashCode && pageClass.equals(other.pageClass) &&
+			path.equals(other.path) && Objects.equal(locale, other.locale) &&
+			Objects.equal(style, other.style) && Objects.equal(variation, other.variation) &&
+			Objects.equal(key, other.key);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hashCode;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "OutputCacheKey [pageClass=" + pageClass + ", path=" + path + ", locale=" + locale +
+			", style=" + style + ", variation=" + variation + ", key=" + key + "]";
+	}
+}
@@ -46,6 +46,7 @@ import org.apache.wicket.markup.html.form.validation.FormValidatorAdapter;
 import org.apache.wicket.markup.html.form.validation.IFormValidator;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
+import org.apache.wicket.protocol.http.servlet.IUploadSink;
 import org.apache.wicket.protocol.http.servlet.MultipartServletWebRequest;
 import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
 import org.apache.wicket.request.IRequestParameters;
@@ -1346,6 +1347,32 @@ public class Form<T> extends WebMarkupContainer
 		return (multiPart & (MULTIPART_HARD | MULTIPART_HINT_YES)) != 0;
 	}
 
+	/**
+	 * Registers the {@link IUploadSink}s of all {@link FileUploadField}s on the request.
+	 * 
+	 * @param multipartWebRequest
+	 *            request to be parsed
+	 */
+	private void registerUploadSinks(final MultipartServletWebRequest multipartWebRequest)
+	{
+		visitFormComponents(new IVisitor<FormComponent<?>, Void>()
+		{
+			@Override
+			public void component(final FormComponent<?> formComponent, IVisit<Void> visit)
+			{
+				if (formComponent instanceof FileUploadField &&
+					formComponent.isVisibleInHierarchy() && formComponent.isEnabledInHierarchy())
+				{
+					IUploadSink sink = ((FileUploadField)formComponent).newUploadSink();
+					if (sink != null)
+					{
+						multipartWebRequest.setUploadSink(formComponent.getInputName(), sink);
+					}
+				}
+			}
+		});
+	}
+
 	/**
 	 * Handles multi-part processing of the submitted data. <h3>
 	 * WARNING</h3> If this method is overridden it can break {@link FileUploadField}s on this form
@@ -1364,6 +1391,7 @@ public class Form<T> extends WebMarkupContainer
 				final MultipartServletWebRequest multipartWebRequest = request.newMultipartWebRequest(
 					getMaxSize(), getPage().getId());
 				multipartWebRequest.setFileMaxSize(getFileMaxSize());
+				registerUploadSinks(multipartWebRequest);
 				multipartWebRequest.parseFileParts();
 
 				// TODO: Can't this be detected from header?
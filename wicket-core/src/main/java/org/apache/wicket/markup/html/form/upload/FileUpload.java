@@ -93,6 +93,9 @@ public class FileUpload implements IClusterable
 
 	/**
 	 * @return Uploaded file as an array of bytes
+	 * @throws IllegalStateException
+	 *             if the file was streamed to an {@link FileUploadField#newUploadSink() upload sink}
+	 *             which did not keep its content
 	 */
 	public byte[] getBytes()
 	{
@@ -200,6 +203,8 @@ public class FileUpload implements IClusterable
 	 * 
 	 * @return Input stream with file contents.
 	 * @throws IOException
+	 *             also if the file was streamed to an {@link FileUploadField#newUploadSink()
+	 *             upload sink} which did not keep its content
 	 */
 	public InputStream getInputStream() throws IOException
 	{
@@ -228,6 +233,8 @@ public class FileUpload implements IClusterable
 	 * @param file
 	 *            The file
 	 * @throws Exception
+	 *             also if the file was streamed to an {@link FileUploadField#newUploadSink()
+	 *             upload sink} which did not keep its content
 	 */
 	public void writeTo(final File file) throws Exception
 	{
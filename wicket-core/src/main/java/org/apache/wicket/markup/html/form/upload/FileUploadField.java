@@ -25,6 +25,7 @@ import org.apache.wicket.markup.ComponentTag;
 import org.apache.wicket.markup.html.form.FormComponent;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.protocol.http.IMultipartWebRequest;
+import org.apache.wicket.protocol.http.servlet.IUploadSink;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.util.convert.ConversionException;
 import org.apache.wicket.util.string.Strings;
@@ -159,6 +160,23 @@ public class FileUploadField extends FormComponent<List<FileUpload>>
 		return getFileUploads();
 	}
 
+	/**
+	 * Creates a sink receiving the content of the uploaded files while the request is parsed,
+	 * instead of keeping it in the {@link FileUpload}s. Called by the form on each submit before
+	 * the request is parsed.
+	 * <p>
+	 * Note that {@link FileUpload}s of this field read the content from the file the sink kept it
+	 * in, if the sink does not keep it they provide the client's file name, content type and size
+	 * only.
+	 * </p>
+	 * 
+	 * @return sink or <code>null</code> to keep the content in the {@link FileUpload}s
+	 */
+	public IUploadSink newUploadSink()
+	{
+		return null;
+	}
+
 	@Override
 	public boolean isMultiPart()
 	{
@@ -59,6 +59,11 @@ public abstract class AbstractMarkupFilter implements IMarkupFilter
 		private static final long serialVersionUID = 1L;
 	};
 
+	/**
+	 * The counters for markup parsed outside of a request, e.g. when preloaded on startup.
+	 */
+	private final static ThreadLocal<Map<String, AtomicInteger>> THREAD_COUNTERS = new ThreadLocal<>();
+
 	/**
 	 * Construct.
 	 */
@@ -215,18 +220,10 @@ public abstract class AbstractMarkupFilter implements IMarkupFilter
 	 */
 	protected int getRequestUniqueId()
 	{
-		RequestCycle requestCycle = RequestCycle.get();
-		Map<String, AtomicInteger> markupUniqueCounters = requestCycle.getMetaData(REQUEST_COUNTER_KEY);
+		Map<String, AtomicInteger> markupUniqueCounters = getMarkupUniqueCounters();
 		ContainerInfo containerInfo = getMarkupResourceStream().getContainerInfo();
 		String cacheKey = containerInfo != null ? containerInfo.getContainerClass().getCanonicalName() : null;
 		
-		if (markupUniqueCounters == null)
-		{
-			markupUniqueCounters = new HashMap<>();
-			
-			requestCycle.setMetaData(REQUEST_COUNTER_KEY, markupUniqueCounters);
-		}
-		
 		AtomicInteger counter = markupUniqueCounters.get(cacheKey);
 		
 		if (counter == null)
@@ -241,4 +238,59 @@ public abstract class AbstractMarkupFilter implements IMarkupFilter
  	    //using the same algorithm of String#hashCode() 
  	    return  cacheHash * 31 + counter.getAndIncrement();
 	}
+
+	/**
+	 * Gets the counters of the current request, or of the current thread if markup is parsed
+	 * outside of a request.
+	 * 
+	 * @return counters
+	 */
+	private static Map<String, AtomicInteger> getMarkupUniqueCounters()
+	{
+		RequestCycle requestCycle = RequestCycle.get();
+		Map<String, AtomicInteger> markupUniqueCounters;
+		if (requestCycle != null)
+		{
+			markupUniqueCounters = requestCycle.getMetaData(REQUEST_COUNTER_KEY);
+		}
+		else
+		{
+			markupUniqueCounters = THREAD_COUNTERS.get();
+		}
+
+		if (markupUniqueCounters == null)
+		{
+			markupUniqueCounters = new HashMap<>();
+
+			if (requestCycle != null)
+			{
+				requestCycle.setMetaData(REQUEST_COUNTER_KEY, markupUniqueCounters);
+			}
+			else
+			{
+				THREAD_COUNTERS.set(markupUniqueCounters);
+			}
+		}
+		return markupUniqueCounters;
+	}
+
+	/**
+	 * Resets the counters used by {@link #getRequestUniqueId()}.
+	 */
+	protected static void resetMarkupUniqueCounters()
+	{
+		RequestCycle requestCycle = RequestCycle.get();
+		if (requestCycle != null)
+		{
+			Map<String, AtomicInteger> markupUniqueCounters = requestCycle.getMetaData(REQUEST_COUNTER_KEY);
+			if (markupUniqueCounters != null)
+			{
+				markupUniqueCounters.clear();
+			}
+		}
+		else
+		{
+			THREAD_COUNTERS.remove();
+		}
+	}
 }
@@ -78,7 +78,9 @@ public abstract class DeepChildFirstVisitor implements IVisitor<Component, Void>
 			return visit;
 		}
 
-		if (visit.isContinue())
+		// the contributions of the children of a component with cached output are replayed
+		// by the component
+		if (visit.isContinue() && rootComponent.isOutputCached() == false)
 		{
 			// Iterate over all children
 			for (Component child : (MarkupContainer)rootComponent)
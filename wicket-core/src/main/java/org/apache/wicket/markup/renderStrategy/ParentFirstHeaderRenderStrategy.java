@@ -50,8 +50,9 @@ public class ParentFirstHeaderRenderStrategy extends AbstractHeaderRenderStrateg
 		Args.notNull(headerContainer, "headerContainer");
 		Args.notNull(rootComponent, "rootComponent");
 
-		// Only MarkupContainer can have children. Component's don't
-		if (rootComponent instanceof MarkupContainer)
+		// Only MarkupContainer can have children. Component's don't. The contributions of the
+		// children of a component with cached output are replayed by the component.
+		if (rootComponent instanceof MarkupContainer && rootComponent.isOutputCached() == false)
 		{
 			// Visit the children with parent first, than children
 			((MarkupContainer)rootComponent).visitChildren(new IVisitor<Component, Void>()
@@ -62,6 +63,11 @@ public class ParentFirstHeaderRenderStrategy extends AbstractHeaderRenderStrateg
 					if (component.isVisibleInHierarchy())
 					{
 						component.internalRenderHead(headerContainer);
+
+						if (component.isOutputCached())
+						{
+							visit.dontGoDeeper();
+						}
 					}
 					else
 					{
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.util.LazyInitializer;
+import org.apache.wicket.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link PageAccessSynchronizer} queueing threads waiting for a page in FIFO order.
+ * <p>
+ * Each locked page has a fair {@link ReentrantReadWriteLock}, so a thread is granted access to a
+ * page before threads which started waiting later. Threads give up waiting after the
+ * {@link #getTimeout(int) timeout}.
+ * </p>
+ * <p>
+ * Requests which do not alter pages may access them shared with each other, e.g. Ajax requests
+ * polling a dashboard page. Such requests have to be marked before the page is accessed, e.g. in
+ * {@link org.apache.wicket.request.cycle.IRequestCycleListener#onRequestHandlerResolved(RequestCycle, org.apache.wicket.request.IRequestHandler)}:
+ * </p>
+ *
+ * <pre>
+ * RequestCycle.get().setMetaData(FairPageAccessSynchronizer.SHARED_PAGE_ACCESS, true);
+ * </pre>
+ * <p>
+ * Note that rendering components usually alters them too, thus shared access is suitable for
+ * listeners which neither change nor render the page only.
+ * </p>
+ * <p>
+ * If {@link PageLockStatistics} are given, the time waited for the locks is recorded per page
+ * class. The statistics are not serialized with the synchronizer.
+ * </p>
+ * <p>
+ * Use by overriding {@link org.apache.wicket.Session#newPageAccessSynchronizer(Duration)}.
+ * </p>
+ */
+public class FairPageAccessSynchronizer extends PageAccessSynchronizer
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger logger = LoggerFactory.getLogger(FairPageAccessSynchronizer.class);
+
+	/**
+	 * Marks a request to access pages shared with other requests marked so.
+	 */
+	public static final MetaDataKey<Boolean> SHARED_PAGE_ACCESS = new MetaDataKey<Boolean>()
+	{
+		private static final long serialVersionUID = 1L;
+	};
+
+	/** locks of pages accessed or waited for */
+	private final Supplier<ConcurrentMap<Integer, FairLock>> locks = new LazyInitializer<ConcurrentMap<Integer, FairLock>>()
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected ConcurrentMap<Integer, FairLock> createInstance()
+		{
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private final transient PageLockStatistics statistics;
+
+	/**
+	 * Constructor
+	 *
+	 * @param timeout
+	 *            timeout value for acquiring a page lock
+	 */
+	public FairPageAccessSynchronizer(Duration timeout)
+	{
+		this(timeout, null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param timeout
+	 *            timeout value for acquiring a page lock
+	 * @param statistics
+	 *            optional statistics to record the time waited for locks
+	 */
+	public FairPageAccessSynchronizer(Duration timeout, PageLockStatistics statistics)
+	{
+		super(timeout);
+
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Whether the current request accesses pages shared with other requests.
+	 *
+	 * @param pageId
+	 *            id of the page to lock
+	 * @return <code>true</code> if the request is marked with {@link #SHARED_PAGE_ACCESS}
+	 */
+	protected boolean isSharedAccess(int pageId)
+	{
+		RequestCycle requestCycle = RequestCycle.get();
+		return requestCycle != null &&
+			Boolean.TRUE.equals(requestCycle.getMetaData(SHARED_PAGE_ACCESS));
+	}
+
+	@Override
+	public void lockPage(int pageId) throws CouldNotLockPageException
+	{
+		lock(pageId);
+	}
+
+	/**
+	 * Acquires a lock to a page.
+	 *
+	 * @param pageId
+	 *            page id
+	 * @return nanoseconds waited for the lock, or -1 if it was held already
+	 * @throws CouldNotLockPageException
+	 *             if lock could not be acquired
+	 */
+	private long lock(int pageId) throws CouldNotLockPageException
+	{
+		final Thread thread = Thread.currentThread();
+		final boolean shared = isSharedAccess(pageId);
+
+		FairLock lock = locks.get().get(pageId);
+		if (lock != null && lock.isHeldByCurrentThread())
+		{
+			if (lock.isWriteLockedByCurrentThread() || shared)
+			{
+				return -1;
+			}
+
+			// read locks cannot be upgraded, queue up again
+			lock.releaseHolds();
+		}
+		else
+		{
+			lock = locks.get().compute(pageId, (id, existing) -> {
+				FairLock l = existing == null ? new FairLock() : existing;
+				l.users++;
+				return l;
+			});
+		}
+
+		if (logger.isDebugEnabled())
+		{
+			logger.debug("'{}' attempting to acquire {} lock to page with id '{}'",
+				thread.getName(), shared ? "shared" : "exclusive", pageId);
+		}
+
+		Duration timeout = getTimeout(pageId);
+		Lock l = shared ? lock.readLock() : lock.writeLock();
+		long start = System.nanoTime();
+		boolean locked;
+		try
+		{
+			locked = l.tryLock(timeout.getMilliseconds(), TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			release(pageId, lock);
+			throw new RuntimeException(e);
+		}
+		long waited = System.nanoTime() - start;
+
+		if (locked == false)
+		{
+			Thread owner = lock.owner();
+			release(pageId, lock);
+
+			if (logger.isWarnEnabled())
+			{
+				logger.warn(
+					"Thread '{}' failed to acquire lock to page with id '{}', attempted for {} with {} other threads queued." +
+						" The thread that holds the lock has name '{}'.",
+					thread.getName(), pageId, timeout, lock.getQueueLength(),
+					owner == null ? "(shared)" : owner.getName());
+				dumpThreads(owner);
+			}
+			throw new CouldNotLockPageException(pageId, thread.getName(), timeout);
+		}
+
+		if (logger.isDebugEnabled())
+		{
+			logger.debug("{} acquired lock to page {} after {}ms", thread.getName(), pageId,
+				TimeUnit.NANOSECONDS.toMillis(waited));
+		}
+		return waited;
+	}
+
+	@Override
+	public void unlockAllPages()
+	{
+		for (Map.Entry<Integer, FairLock> entry : locks.get().entrySet())
+		{
+			FairLock lock = entry.getValue();
+			if (lock.isHeldByCurrentThread())
+			{
+				lock.releaseHolds();
+				release(entry.getKey(), lock);
+			}
+		}
+	}
+
+	@Override
+	public void unlockPage(int pageId)
+	{
+		FairLock lock = locks.get().get(pageId);
+		if (lock != null && lock.isHeldByCurrentThread())
+		{
+			lock.releaseHolds();
+			release(pageId, lock);
+		}
+	}
+
+	/**
+	 * Releases the current thread's reference to a lock, removing it if no other thread uses it.
+	 *
+	 * @param pageId
+	 * @param lock
+	 */
+	private void release(int pageId, FairLock lock)
+	{
+		locks.get().computeIfPresent(pageId, (id, existing) -> {
+			if (existing != lock)
+			{
+				return existing;
+			}
+			return --existing.users == 0 ? null : existing;
+		});
+
+		if (logger.isDebugEnabled())
+		{
+			logger.debug("'{}' no longer holds or waits for lock to page with id '{}'",
+				Thread.currentThread().getName(), pageId);
+		}
+	}
+
+	/*
+	 * used by tests
+	 */
+	int getLockCount()
+	{
+		return locks.get().size();
+	}
+
+	@Override
+	public IPageManager adapt(IPageManager pagemanager)
+	{
+		return new PageManagerDecorator(super.adapt(pagemanager))
+		{
+			@Override
+			public IManageablePage getPage(int pageId)
+			{
+				long waited = lock(pageId);
+
+				// unlocks if the page is not found
+				IManageablePage page = super.getPage(pageId);
+
+				if (page != null)
+				{
+					record(page, waited);
+				}
+				return page;
+			}
+
+			@Override
+			public void touchPage(IManageablePage page)
+			{
+				long waited = lock(page.getPageId());
+
+				super.touchPage(page);
+
+				record(page, waited);
+			}
+		};
+	}
+
+	private void record(IManageablePage page, long waited)
+	{
+		if (statistics != null && waited >= 0)
+		{
+			statistics.record(page.getClass(), waited);
+		}
+	}
+
+	/**
+	 * Lock of a page, counting the threads holding or waiting for it.
+	 */
+	private static class FairLock extends ReentrantReadWriteLock
+	{
+		private static final long serialVersionUID = 1L;
+
+		/** threads referencing this lock, guarded by the map of locks */
+		private int users;
+
+		private FairLock()
+		{
+			super(true);
+		}
+
+		private boolean isHeldByCurrentThread()
+		{
+			return isWriteLockedByCurrentThread() || getReadHoldCount() > 0;
+		}
+
+		private void releaseHolds()
+		{
+			while (isWriteLockedByCurrentThread())
+			{
+				writeLock().unlock();
+			}
+			while (getReadHoldCount() > 0)
+			{
+				readLock().unlock();
+			}
+		}
+
+		private Thread owner()
+		{
+			return getOwner();
+		}
+	}
+}
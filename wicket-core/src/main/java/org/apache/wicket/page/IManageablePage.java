@@ -36,6 +36,18 @@ public interface IManageablePage extends IClusterable
 	 */
 	int getPageId();
 
+	/**
+	 * Gets the id of the page this page was derived from. A page gets a new id when a change of
+	 * one of its components has to be recorded in a new version, see
+	 * {@link #setFreezePageId(boolean)}.
+	 * 
+	 * @return the id of the previous version of this page or -1 if there is none
+	 */
+	default int getPreviousPageId()
+	{
+		return -1;
+	}
+
 	/**
 	 * Detaches model after use. This is generally used to null out transient references that can be
 	 * re-attached later.
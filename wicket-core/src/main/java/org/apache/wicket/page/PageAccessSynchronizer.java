@@ -146,26 +146,40 @@ public class PageAccessSynchronizer implements Serializable
 							" The thread that holds the lock has name '{}'.",
 					thread.getName(), pageId, start.elapsedSince(), timeout,
 							previous.thread.getName());
-				if (Application.exists())
-				{
-					ThreadDumpStrategy strategy = Application.get()
-						.getExceptionSettings()
-						.getThreadDumpStrategy();
-					switch (strategy)
+				dumpThreads(previous.thread);
+			}
+			throw new CouldNotLockPageException(pageId, thread.getName(), timeout);
+		}
+	}
+
+	/**
+	 * Dumps threads as configured by the application's {@link ThreadDumpStrategy}.
+	 * 
+	 * @param lockHolder
+	 *            the thread holding the lock, may be <code>null</code>
+	 */
+	static void dumpThreads(Thread lockHolder)
+	{
+		if (Application.exists())
+		{
+			ThreadDumpStrategy strategy = Application.get()
+				.getExceptionSettings()
+				.getThreadDumpStrategy();
+			switch (strategy)
+			{
+				case ALL_THREADS :
+					Threads.dumpAllThreads(logger);
+					break;
+				case THREAD_HOLDING_LOCK :
+					if (lockHolder != null)
 					{
-						case ALL_THREADS :
-							Threads.dumpAllThreads(logger);
-							break;
-						case THREAD_HOLDING_LOCK :
-							Threads.dumpSingleThread(logger, previous.thread);
-							break;
-						case NO_THREADS :
-						default :
-							// do nothing
+						Threads.dumpSingleThread(logger, lockHolder);
 					}
-				}
+					break;
+				case NO_THREADS :
+				default :
+					// do nothing
 			}
-			throw new CouldNotLockPageException(pageId, thread.getName(), timeout);
 		}
 	}
 
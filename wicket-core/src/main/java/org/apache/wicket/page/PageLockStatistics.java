@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Histograms of the time spent waiting for page locks, per page class.
+ * <p>
+ * An instance is usually shared by the {@link FairPageAccessSynchronizer}s of all sessions of an
+ * application.
+ * </p>
+ *
+ * @see FairPageAccessSynchronizer#FairPageAccessSynchronizer(org.apache.wicket.util.time.Duration,
+ *      PageLockStatistics)
+ */
+public class PageLockStatistics
+{
+	private final ConcurrentMap<String, WaitHistogram> histograms = new ConcurrentHashMap<>();
+
+	/**
+	 * Records the time a lock was waited for.
+	 *
+	 * @param pageClass
+	 *            class of the locked page
+	 * @param waitNanos
+	 *            nanoseconds waited
+	 */
+	public void record(Class<?> pageClass, long waitNanos)
+	{
+		Args.notNull(pageClass, "pageClass");
+
+		WaitHistogram histogram = histograms.get(pageClass.getName());
+		if (histogram == null)
+		{
+			histogram = histograms.computeIfAbsent(pageClass.getName(), name -> new WaitHistogram());
+		}
+		histogram.record(waitNanos);
+	}
+
+	/**
+	 * @param pageClass
+	 *            class of pages
+	 * @return the histogram for the pages or <code>null</code> if none were locked yet
+	 */
+	public WaitHistogram getHistogram(Class<?> pageClass)
+	{
+		return histograms.get(pageClass.getName());
+	}
+
+	/**
+	 * @return histograms by names of page classes
+	 */
+	public Map<String, WaitHistogram> getHistograms()
+	{
+		return Collections.unmodifiableMap(histograms);
+	}
+
+	/**
+	 * Clears all histograms.
+	 */
+	public void clear()
+	{
+		histograms.clear();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "PageLockStatistics " + histograms;
+	}
+
+	/**
+	 * Histogram of wait times with exponential buckets: bucket <em>i</em> counts waits shorter than
+	 * 2<sup>i</sup> milliseconds (and not shorter than the bound of the previous bucket), the last
+	 * bucket counts all longer waits.
+	 */
+	public static class WaitHistogram
+	{
+		/** number of buckets, the last but one is bounded by about one minute */
+		public static final int BUCKETS = 18;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		/**
+		 * Records a wait.
+		 *
+		 * @param waitNanos
+		 *            nanoseconds waited
+		 */
+		void record(long waitNanos)
+		{
+			long nanos = Math.max(0, waitNanos);
+
+			buckets.incrementAndGet(bucket(nanos));
+			count.increment();
+			totalNanos.add(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+		}
+
+		private static int bucket(long nanos)
+		{
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+			// 0 -> 0, 1 -> 1, 2..3 -> 2, 4..7 -> 3 ...
+			int bucket = 64 - Long.numberOfLeadingZeros(millis);
+			return Math.min(bucket, BUCKETS - 1);
+		}
+
+		/**
+		 * @param bucket
+		 *            index of the bucket
+		 * @return the exclusive upper bound of the bucket in milliseconds,
+		 *         {@link Long#MAX_VALUE} for the last bucket
+		 */
+		public static long getUpperBoundMillis(int bucket)
+		{
+			Args.withinRange(0, BUCKETS - 1, bucket, "bucket");
+
+			return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+		}
+
+		/**
+		 * @param bucket
+		 *            index of the bucket
+		 * @return number of waits in the bucket
+		 */
+		public long getBucketCount(int bucket)
+		{
+			return buckets.get(bucket);
+		}
+
+		/**
+		 * @return number of recorded waits
+		 */
+		public long getCount()
+		{
+			return count.sum();
+		}
+
+		/**
+		 * @return total time waited in milliseconds
+		 */
+		public long getTotalMillis()
+		{
+			return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+		}
+
+		/**
+		 * @return mean time waited in milliseconds
+		 */
+		public double getMeanMillis()
+		{
+			long count = getCount();
+			return count == 0 ? 0 : totalNanos.sum() / (count * 1000000d);
+		}
+
+		/**
+		 * @return longest time waited in milliseconds
+		 */
+		public long getMaxMillis()
+		{
+			return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+		}
+
+		/**
+		 * Estimates a percentile by the upper bound of the bucket it falls into.
+		 *
+		 * @param percentile
+		 *            between 0 and 100
+		 * @return the estimated wait time in milliseconds, capped by the longest wait
+		 */
+		public long getPercentileMillis(double percentile)
+		{
+			Args.withinRange(0d, 100d, percentile, "percentile");
+
+			long total = 0;
+			long[] counts = new long[BUCKETS];
+			for (int b = 0; b < BUCKETS; b++)
+			{
+				counts[b] = buckets.get(b);
+				total += counts[b];
+			}
+
+			long threshold = (long)Math.ceil(total * percentile / 100);
+			long seen = 0;
+			for (int b = 0; b < BUCKETS; b++)
+			{
+				seen += counts[b];
+				if (seen >= threshold && seen > 0)
+				{
+					return Math.min(getUpperBoundMillis(b), getMaxMillis());
+				}
+			}
+			return 0;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "[count=" + getCount() + ", mean=" + getMeanMillis() + "ms, 99th=" +
+				getPercentileMillis(99) + "ms, max=" + getMaxMillis() + "ms]";
+		}
+	}
+}
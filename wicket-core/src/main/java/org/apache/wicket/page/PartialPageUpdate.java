@@ -121,6 +121,11 @@ public abstract class PartialPageUpdate
 
 	private IHeaderResponse headerResponse;
 
+	/**
+	 * Whether markup is written to the response while it is rendered.
+	 */
+	private boolean streaming = false;
+
 	/**
 	 * The page which components are being updated.
 	 */
@@ -142,6 +147,36 @@ public abstract class PartialPageUpdate
 		headerBuffer = new ResponseBuffer(response);
 	}
 
+	/**
+	 * Whether the markup of components and header contributions is written to the response while
+	 * it is rendered, instead of being collected in {@link #bodyBuffer} and {@link #headerBuffer}
+	 * first.
+	 * 
+	 * @return <code>true</code> if streaming
+	 * @see #setStreaming(boolean)
+	 */
+	public boolean isStreaming()
+	{
+		return streaming;
+	}
+
+	/**
+	 * Sets whether the markup of components and header contributions is written to the response
+	 * while it is rendered. This reduces the memory needed for large updates, but the response
+	 * passed to {@link #writeTo(Response, String)} will contain partial output if rendering fails.
+	 * <p>
+	 * Subclasses not supporting streaming may ignore this setting.
+	 * 
+	 * @param streaming
+	 *      whether to stream
+	 * @return {@code this} for chaining
+	 */
+	public PartialPageUpdate setStreaming(boolean streaming)
+	{
+		this.streaming = streaming;
+		return this;
+	}
+
 	/**
 	 * Serializes this object to the response.
 	 *
@@ -258,8 +293,8 @@ public abstract class PartialPageUpdate
 			// tag, which we do here:
 			headerRendering = true;
 			// save old response, set new
-			Response oldResponse = RequestCycle.get().setResponse(headerBuffer);
-			headerBuffer.reset();
+			Response oldResponse = RequestCycle.get().setResponse(
+				getHeaderContributionResponse(response));
 
 			// now, close the response (which may render things)
 			header.getHeaderResponse().close();
@@ -298,6 +333,20 @@ public abstract class PartialPageUpdate
 	 */
 	protected abstract void writeHeader(Response response, String encoding);
 
+	/**
+	 * Gets the response to render header contributions into, before they are written with
+	 * {@link #writeHeaderContribution(Response)}.
+	 *
+	 * @param response
+	 *      the response to write to
+	 * @return the reset {@link #headerBuffer} by default
+	 */
+	protected Response getHeaderContributionResponse(Response response)
+	{
+		headerBuffer.reset();
+		return headerBuffer;
+	}
+
 	/**
 	 * Writes header contribution (<link/> or <script/>) to the response.
 	 *
@@ -488,11 +537,9 @@ public abstract class PartialPageUpdate
 		RequestCycle requestCycle = component.getRequestCycle();
 
 		// save old response, set new
-		Response oldResponse = requestCycle.setResponse(headerBuffer);
+		Response oldResponse = requestCycle.setResponse(getHeaderContributionResponse(response));
 
 		try {
-			headerBuffer.reset();
-
 			IHeaderRenderStrategy strategy = AbstractHeaderRenderStrategy.get();
 
 			strategy.renderHeader(header, null, component);
@@ -632,19 +679,14 @@ public abstract class PartialPageUpdate
 	}
 
 	/**
-	 * Wrapper of a response that buffers its contents.
-	 *
-	 * @author Igor Vaynberg (ivaynberg)
-	 * @author Sven Meier (svenmeier)
+	 * Wrapper of the original response, which delegates everything except the writing of the
+	 * response body.
 	 * 
-	 * @see ResponseBuffer#getContents()
-	 * @see ResponseBuffer#reset()
+	 * @see ResponseBuffer
 	 */
-	protected static final class ResponseBuffer extends WebResponse
+	protected abstract static class DelegatingResponse extends WebResponse
 	{
-		private final AppendingStringBuffer buffer = new AppendingStringBuffer(256);
-
-		private final WebResponse originalResponse;
+		protected final WebResponse originalResponse;
 
 		/**
 		 * Constructor.
@@ -652,7 +694,7 @@ public abstract class PartialPageUpdate
 		 * @param originalResponse
 		 *      the original request cycle response
 		 */
-		private ResponseBuffer(WebResponse originalResponse)
+		protected DelegatingResponse(WebResponse originalResponse)
 		{
 			this.originalResponse = originalResponse;
 		}
@@ -666,32 +708,6 @@ public abstract class PartialPageUpdate
 			return originalResponse.encodeURL(url);
 		}
 
-		/**
-		 * @return contents of the response
-		 */
-		public CharSequence getContents()
-		{
-			return buffer;
-		}
-
-		/**
-		 * @see org.apache.wicket.request.Response#write(CharSequence)
-		 */
-		@Override
-		public void write(CharSequence cs)
-		{
-			buffer.append(cs);
-		}
-
-		/**
-		 * Resets the response to a clean state so it can be reused to save on garbage.
-		 */
-		@Override
-		public void reset()
-		{
-			buffer.clear();
-		}
-
 		@Override
 		public void write(byte[] array)
 		{
@@ -789,6 +805,57 @@ public abstract class PartialPageUpdate
 		}
 	}
 
+	/**
+	 * Wrapper of a response that buffers its contents.
+	 *
+	 * @author Igor Vaynberg (ivaynberg)
+	 * @author Sven Meier (svenmeier)
+	 * 
+	 * @see ResponseBuffer#getContents()
+	 * @see ResponseBuffer#reset()
+	 */
+	protected static final class ResponseBuffer extends DelegatingResponse
+	{
+		private final AppendingStringBuffer buffer = new AppendingStringBuffer(256);
+
+		/**
+		 * Constructor.
+		 *
+		 * @param originalResponse
+		 *      the original request cycle response
+		 */
+		private ResponseBuffer(WebResponse originalResponse)
+		{
+			super(originalResponse);
+		}
+
+		/**
+		 * @return contents of the response
+		 */
+		public CharSequence getContents()
+		{
+			return buffer;
+		}
+
+		/**
+		 * @see org.apache.wicket.request.Response#write(CharSequence)
+		 */
+		@Override
+		public void write(CharSequence cs)
+		{
+			buffer.append(cs);
+		}
+
+		/**
+		 * Resets the response to a clean state so it can be reused to save on garbage.
+		 */
+		@Override
+		public void reset()
+		{
+			buffer.clear();
+		}
+	}
+
 	private void assertComponentsNotFrozen()
 	{
 		assertNotFrozen(componentsFrozen, Component.class);
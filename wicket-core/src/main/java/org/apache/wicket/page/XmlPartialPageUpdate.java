@@ -29,6 +29,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A {@link PartialPageUpdate} that serializes itself to XML.
+ * <p>
+ * If {@link #isStreaming() streaming}, the markup of components and header contributions is
+ * escaped into its CDATA section while it is rendered, so that no copies of the markup are held in
+ * memory.
+ * </p>
  */
 public class XmlPartialPageUpdate extends PartialPageUpdate
 {
@@ -40,6 +45,15 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 	public static final String START_ROOT_ELEMENT = "<ajax-response>";
 	public static final String END_ROOT_ELEMENT = "</ajax-response>";
 
+	private static final String START_HEADER_CONTRIBUTION = "<header-contribution><![CDATA[<head xmlns:wicket=\"http://wicket.apache.org\">";
+
+	private static final String END_HEADER_CONTRIBUTION = "</head>]]></header-contribution>";
+
+	/**
+	 * The header contribution currently streamed.
+	 */
+	private CDataResponse headerContribution;
+
 	public XmlPartialPageUpdate(final Page page)
 	{
 		super(page);
@@ -87,6 +101,7 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 		// component's markup in a manner safe for transport inside CDATA block
 		Response oldResponse = RequestCycle.get().setResponse(bodyBuffer);
 
+		CDataResponse componentResponse = null;
 		try
 		{
 			bodyBuffer.reset();
@@ -114,6 +129,18 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 				throw e;
 			}
 
+			if (isStreaming())
+			{
+				// header contributions are written already, start the component
+				componentResponse = new CDataResponse(bodyBuffer, response,
+					"<component id=\"" + markupId + "\" ><![CDATA[", "]]></component>");
+				componentResponse.start();
+				componentResponse.write(bodyBuffer.getContents());
+				bodyBuffer.reset();
+
+				RequestCycle.get().setResponse(componentResponse);
+			}
+
 			try
 			{
 				component.render();
@@ -132,6 +159,12 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 			RequestCycle.get().setResponse(oldResponse);
 		}
 
+		if (componentResponse != null)
+		{
+			componentResponse.end();
+			return;
+		}
+
 		response.write("<component id=\"");
 		response.write(markupId);
 		response.write("\" ><![CDATA[");
@@ -147,20 +180,38 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 		response.write(END_ROOT_ELEMENT);
 	}
 
+	@Override
+	protected Response getHeaderContributionResponse(Response response)
+	{
+		if (isStreaming())
+		{
+			// started lazily, since most components do not contribute anything
+			headerContribution = new CDataResponse(headerBuffer, response,
+				START_HEADER_CONTRIBUTION, END_HEADER_CONTRIBUTION);
+			return headerContribution;
+		}
+
+		return super.getHeaderContributionResponse(response);
+	}
+
 	@Override
 	protected void writeHeaderContribution(Response response)
 	{
+		if (headerContribution != null)
+		{
+			headerContribution.end();
+			headerContribution = null;
+			return;
+		}
+
 		CharSequence contents = headerBuffer.getContents();
 		if (Strings.isEmpty(contents) == false)
 		{
-			response.write("<header-contribution>");
-
 			// we need to write response as CDATA and parse it on client,
 			// because konqueror crashes when there is a <script> element
-			response.write("<![CDATA[<head xmlns:wicket=\"http://wicket.apache.org\">");
+			response.write(START_HEADER_CONTRIBUTION);
 			response.write(encode(contents));
-			response.write("</head>]]>");
-			response.write("</header-contribution>");
+			response.write(END_HEADER_CONTRIBUTION);
 		}
 	}
 
@@ -179,7 +230,19 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 
 	private void writeEvaluations(final Response response, String elementName, Collection<CharSequence> scripts)
 	{
-		if (scripts.size() > 0)
+		if (scripts.size() > 0 && isStreaming())
+		{
+			CDataResponse evaluation = new CDataResponse(bodyBuffer, response,
+				"<" + elementName + "><![CDATA[", "]]></" + elementName + ">");
+			for (CharSequence script : scripts)
+			{
+				evaluation.write("(function(){");
+				evaluation.write(script);
+				evaluation.write("})();");
+			}
+			evaluation.end();
+		}
+		else if (scripts.size() > 0)
 		{
 			StringBuilder combinedScript = new StringBuilder(1024);
 			for (CharSequence script : scripts)
@@ -219,5 +282,107 @@ public class XmlPartialPageUpdate extends PartialPageUpdate
 		return Strings.replaceAll(str, "]]>", "]]]]><![CDATA[>"); 
 	}
 
+	/**
+	 * A response which writes into a CDATA section of another response, splitting the section
+	 * wherever the written text contains its end "]]>" - the same as {@link #encode(CharSequence)}
+	 * does, but for text written in arbitrary pieces.
+	 */
+	private static class CDataResponse extends DelegatingResponse
+	{
+		private static final String SPLIT_CDATA = "]]><![CDATA[>";
+
+		private final Response target;
+
+		private final String start;
+
+		private final String end;
+
+		private boolean started;
+
+		/**
+		 * number of consecutive closing brackets written last, at most two
+		 */
+		private int brackets;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param originalResponse
+		 *      response to delegate to for anything but the body
+		 * @param target
+		 *      the response to write to
+		 * @param start
+		 *      written before any text, including the start of the CDATA section
+		 * @param end
+		 *      written after all text, including the end of the CDATA section
+		 */
+		private CDataResponse(WebResponse originalResponse, Response target, String start,
+			String end)
+		{
+			super(originalResponse);
+
+			this.target = target;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Starts the section, if not already started on the first written text.
+		 */
+		private void start()
+		{
+			if (started == false)
+			{
+				target.write(start);
+				started = true;
+			}
+		}
+
+		/**
+		 * Ends the section, if it was started.
+		 */
+		private void end()
+		{
+			if (started)
+			{
+				target.write(end);
+			}
+		}
+
+		@Override
+		public void write(CharSequence sequence)
+		{
+			int length = sequence.length();
+			if (length == 0)
+			{
+				return;
+			}
+
+			start();
+
+			int from = 0;
+			for (int i = 0; i < length; i++)
+			{
+				char c = sequence.charAt(i);
+				if (c == ']')
+				{
+					brackets = Math.min(brackets + 1, 2);
+				}
+				else
+				{
+					if (c == '>' && brackets == 2)
+					{
+						// "]]" is written already
+						target.write(sequence.subSequence(from, i));
+						target.write(SPLIT_CDATA);
+						from = i + 1;
+					}
+					brackets = 0;
+				}
+			}
+
+			target.write(from == 0 ? sequence : sequence.subSequence(from, length));
+		}
+	}
 
 }
@@ -16,28 +16,40 @@
  */
 package org.apache.wicket.pageStore;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.wicket.util.lang.Args;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Facade for {@link IDataStore} that does the actual saving in worker thread.
+ * Facade for {@link IDataStore} that does the actual saving in worker threads.
  * <p>
- * Creates an {@link Entry} for each triple (sessionId, pageId, data) and puts it in
- * {@link #entries} queue if there is room. Acts as producer.<br/>
- * Later {@link PageSavingRunnable} reads in blocking manner from {@link #entries} and saves each
- * entry. Acts as consumer.
+ * Creates an {@link Entry} for each triple (sessionId, pageId, data) and puts it in one of the
+ * {@link #entries} queues if there is room. Acts as producer.<br/>
+ * Later {@link PageSavingRunnable} reads in blocking manner from its queue and saves the entries
+ * in batches. Acts as consumer.
+ * </p>
+ * <p>
+ * By default it starts only one instance of {@link PageSavingRunnable} because all we need is to
+ * make the page storing asynchronous. We don't want to write concurrently in the wrapped
+ * {@link IDataStore}, though it may happen in the extreme case when the queue is full. These
+ * cases should be avoided.
+ * </p>
+ * <p>
+ * For write-heavy applications more workers can be started if the wrapped {@link IDataStore}
+ * supports concurrent writes. The entries are sharded by session id, so the pages of a session
+ * are still stored in order by a single worker. A page which is stored again while its previous
+ * data is still waiting in the queue replaces that data instead of being queued a second time.
  * </p>
- * It starts only one instance of {@link PageSavingRunnable} because all we need is to make the page
- * storing asynchronous. We don't want to write concurrently in the wrapped {@link IDataStore},
- * though it may happen in the extreme case when the queue is full. These cases should be avoided.
  * 
  * @author Matej Knopp
  */
@@ -57,9 +69,14 @@ public class AsynchronousDataStore implements IDataStore
 	private static final long POLL_WAIT = 1000L;
 
 	/**
-	 * The page saving thread.
+	 * The maximum number of entries a worker takes from its queue at once.
+	 */
+	private static final int BATCH_SIZE = 16;
+
+	/**
+	 * The page saving threads, one per queue.
 	 */
-	private final Thread pageSavingThread;
+	private final Thread[] pageSavingThreads;
 
 	/**
 	 * The wrapped {@link IDataStore} that actually stores that pages
@@ -67,9 +84,9 @@ public class AsynchronousDataStore implements IDataStore
 	private final IDataStore dataStore;
 
 	/**
-	 * The queue where the entries which have to be saved are temporary stored
+	 * The queues where the entries which have to be saved are temporary stored, one per worker
 	 */
-	private final BlockingQueue<Entry> entries;
+	private final BlockingQueue<Entry>[] entries;
 
 	/**
 	 * A map 'sessionId:::pageId' -> {@link Entry}. Used for fast retrieval of {@link Entry}s which
@@ -77,6 +94,12 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	private final ConcurrentMap<String, Entry> entryMap;
 
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong fallbackSyncCount = new AtomicLong();
+
 	/**
 	 * Construct.
 	 * 
@@ -87,31 +110,71 @@ public class AsynchronousDataStore implements IDataStore
 	 */
 	public AsynchronousDataStore(final IDataStore dataStore, final int capacity)
 	{
-		this.dataStore = dataStore;
-		entries = new LinkedBlockingQueue<>(capacity);
+		this(dataStore, capacity, 1);
+	}
+
+	/**
+	 * Construct.
+	 * 
+	 * @param dataStore
+	 *            the wrapped {@link IDataStore} that actually saved the data
+	 * @param capacity
+	 *            the total capacity of the queues that delay the saving
+	 * @param workerCount
+	 *            the number of threads which save the data. If greater than one the wrapped
+	 *            {@link IDataStore} has to support concurrent writes
+	 */
+	@SuppressWarnings("unchecked")
+	public AsynchronousDataStore(final IDataStore dataStore, final int capacity,
+		final int workerCount)
+	{
+		this.dataStore = Args.notNull(dataStore, "dataStore");
+		Args.withinRange(1, Integer.MAX_VALUE, capacity, "capacity");
+		Args.withinRange(1, capacity, workerCount, "workerCount");
+
 		entryMap = new ConcurrentHashMap<>();
+		entries = new BlockingQueue[workerCount];
+		pageSavingThreads = new Thread[workerCount];
+		for (int i = 0; i < workerCount; i++)
+		{
+			entries[i] = new LinkedBlockingQueue<>(capacity / workerCount);
 
-		PageSavingRunnable savingRunnable = new PageSavingRunnable(dataStore, entries, entryMap);
-		pageSavingThread = new Thread(savingRunnable, "Wicket-AsyncDataStore-PageSavingThread");
-		pageSavingThread.setDaemon(true);
-		pageSavingThread.start();
+			PageSavingRunnable savingRunnable = new PageSavingRunnable(dataStore, entries[i],
+				entryMap);
+			String name = "Wicket-AsyncDataStore-PageSavingThread";
+			if (workerCount > 1)
+			{
+				name += "-" + i;
+			}
+			pageSavingThreads[i] = new Thread(savingRunnable, name);
+			pageSavingThreads[i].setDaemon(true);
+			pageSavingThreads[i].start();
+		}
 	}
 
 	@Override
 	public void destroy()
 	{
-		if (pageSavingThread.isAlive())
+		for (Thread pageSavingThread : pageSavingThreads)
 		{
-			pageSavingThread.interrupt();
-			try
-			{
-				pageSavingThread.join();
-			} catch (InterruptedException e)
+			if (pageSavingThread.isAlive())
 			{
-				log.error(e.getMessage(), e);
+				pageSavingThread.interrupt();
+				try
+				{
+					pageSavingThread.join();
+				} catch (InterruptedException e)
+				{
+					log.error(e.getMessage(), e);
+				}
 			}
 		}
 
+		for (BlockingQueue<Entry> queue : entries)
+		{
+			droppedCount.addAndGet(queue.size());
+		}
+
 		dataStore.destroy();
 	}
 
@@ -136,7 +199,7 @@ public class AsynchronousDataStore implements IDataStore
 			log.debug(
 				"Returning the data of a non-stored entry with sessionId '{}' and pageId '{}'",
 				sessionId, id);
-			return entry.data;
+			return entry.getData();
 		}
 		byte[] data = dataStore.getData(sessionId, id);
 
@@ -159,9 +222,10 @@ public class AsynchronousDataStore implements IDataStore
 		if (key != null)
 		{
 			Entry entry = entryMap.remove(key);
-			if (entry != null)
+			if (entry != null && getQueue(sessionId).remove(entry))
 			{
-				entries.remove(entry);
+				entry.close();
+				droppedCount.incrementAndGet();
 			}
 		}
 
@@ -171,7 +235,7 @@ public class AsynchronousDataStore implements IDataStore
 	@Override
 	public void removeData(final String sessionId)
 	{
-		for (Iterator<Entry> itor = entries.iterator(); itor.hasNext();)
+		for (Iterator<Entry> itor = getQueue(sessionId).iterator(); itor.hasNext();)
 		{
 			Entry entry = itor.next();
 			if (entry != null) // this check is not needed in JDK6
@@ -180,8 +244,10 @@ public class AsynchronousDataStore implements IDataStore
 
 				if (sessionId.equals(entrySessionId))
 				{
-					entryMap.remove(getKey(entry));
+					entryMap.remove(getKey(entry), entry);
 					itor.remove();
+					entry.close();
+					droppedCount.incrementAndGet();
 				}
 			}
 		}
@@ -191,36 +257,108 @@ public class AsynchronousDataStore implements IDataStore
 
 	/**
 	 * Save the entry in the queue if there is a room or directly pass it to the wrapped
-	 * {@link IDataStore} if there is no such
+	 * {@link IDataStore} if there is no such. If the page is already waiting in the queue only its
+	 * data is replaced.
 	 * 
 	 * @see org.apache.wicket.pageStore.IDataStore#storeData(java.lang.String, int, byte[])
 	 */
 	@Override
 	public void storeData(final String sessionId, final int id, final byte[] data)
 	{
+		String key = getKey(sessionId, id);
+
+		Entry queued = entryMap.get(key);
+		if (queued != null && queued.replaceData(data))
+		{
+			log.debug("Replacing the queued data of page with id '{}' in session '{}'", id,
+				sessionId);
+			coalescedCount.incrementAndGet();
+			return;
+		}
+
 		Entry entry = new Entry(sessionId, id, data);
-		String key = getKey(entry);
 		entryMap.put(key, entry);
 
 		try
 		{
-			boolean added = entries.offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
+			boolean added = getQueue(sessionId).offer(entry, OFFER_WAIT, TimeUnit.MILLISECONDS);
 
 			if (added == false)
 			{
 				log.debug("Storing synchronously page with id '{}' in session '{}'", id, sessionId);
-				entryMap.remove(key);
-				dataStore.storeData(sessionId, id, data);
+				storeSynchronously(key, entry);
 			}
 		}
 		catch (InterruptedException e)
 		{
 			log.error(e.getMessage(), e);
-			entryMap.remove(key);
-			dataStore.storeData(sessionId, id, data);
+			storeSynchronously(key, entry);
 		}
 	}
 
+	/**
+	 * Stores an entry which could not be queued with the wrapped {@link IDataStore}. The entry is
+	 * closed first, so the data of a concurrent {@link #storeData(String, int, byte[])} has either
+	 * replaced the data stored here or is put into a new entry.
+	 * 
+	 * @param key
+	 * @param entry
+	 */
+	private void storeSynchronously(final String key, final Entry entry)
+	{
+		fallbackSyncCount.incrementAndGet();
+		dataStore.storeData(entry.sessionId, entry.pageId, entry.close());
+		entryMap.remove(key, entry);
+	}
+
+	/**
+	 * @return the number of entries waiting to be stored
+	 */
+	public int getQueueDepth()
+	{
+		int depth = 0;
+		for (BlockingQueue<Entry> queue : entries)
+		{
+			depth += queue.size();
+		}
+		return depth;
+	}
+
+	/**
+	 * @return the number of times the data of a queued entry has been replaced by newer data
+	 */
+	public long getCoalescedCount()
+	{
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of queued entries which have been discarded without storing them, because
+	 *         they have been removed or the data store has been destroyed
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the number of entries which have been stored synchronously because the queue was
+	 *         full
+	 */
+	public long getFallbackSyncCount()
+	{
+		return fallbackSyncCount.get();
+	}
+
+	/**
+	 * @param sessionId
+	 * @return the queue for the entries of the session
+	 */
+	private BlockingQueue<Entry> getQueue(final String sessionId)
+	{
+		return entries[(sessionId.hashCode() & Integer.MAX_VALUE) % entries.length];
+	}
+
 	/**
 	 * 
 	 * @param pageId
@@ -249,7 +387,12 @@ public class AsynchronousDataStore implements IDataStore
 	{
 		private final String sessionId;
 		private final int pageId;
-		private final byte data[];
+
+		/** guarded by this */
+		private byte data[];
+
+		/** whether the entry has been taken from the queue, guarded by this */
+		private boolean closed;
 
 		public Entry(final String sessionId, final int pageId, final byte data[])
 		{
@@ -258,6 +401,38 @@ public class AsynchronousDataStore implements IDataStore
 			this.data = Args.notNull(data, "data");
 		}
 
+		public synchronized byte[] getData()
+		{
+			return data;
+		}
+
+		/**
+		 * Replaces the data if the entry is still waiting in the queue
+		 * 
+		 * @param data
+		 * @return {@code true} if the data has been replaced
+		 */
+		public synchronized boolean replaceData(final byte data[])
+		{
+			if (closed)
+			{
+				return false;
+			}
+			this.data = Args.notNull(data, "data");
+			return true;
+		}
+
+		/**
+		 * Marks the entry as taken from the queue, so its data cannot be replaced anymore
+		 * 
+		 * @return the data to store
+		 */
+		public synchronized byte[] close()
+		{
+			closed = true;
+			return data;
+		}
+
 		@Override
 		public int hashCode()
 		{
@@ -322,6 +497,7 @@ public class AsynchronousDataStore implements IDataStore
 		@Override
 		public void run()
 		{
+			List<Entry> batch = new ArrayList<>(BATCH_SIZE);
 			while (!Thread.interrupted())
 			{
 				Entry entry = null;
@@ -336,9 +512,16 @@ public class AsynchronousDataStore implements IDataStore
 
 				if (entry != null)
 				{
-					log.debug("Saving asynchronously: {}...", entry);
-					dataStore.storeData(entry.sessionId, entry.pageId, entry.data);
-					entryMap.remove(getKey(entry));
+					batch.add(entry);
+					entries.drainTo(batch, BATCH_SIZE - 1);
+
+					for (Entry e : batch)
+					{
+						log.debug("Saving asynchronously: {}...", e);
+						dataStore.storeData(e.sessionId, e.pageId, e.close());
+						entryMap.remove(getKey(e), e);
+					}
+					batch.clear();
 				}
 			}
 		}
@@ -0,0 +1,319 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DefaultPageStore} which stores a new version of a page as a delta against the version
+ * it was derived from.
+ * <p>
+ * When a component of a versioned page changes its state the page gets a new id, see
+ * {@link IManageablePage#getPreviousPageId()}. Usually only a small part of the page has changed,
+ * so this store passes only the binary difference between the serialized versions to the
+ * {@link IDataStore}. Every {@code snapshotInterval} versions, or whenever the previous version is
+ * not available or the delta would not be considerably smaller, the whole page is stored instead.
+ * </p>
+ * <p>
+ * A version is rebuilt by applying the deltas to the last full snapshot, so it can be restored
+ * only as long as all the versions it depends on are available in the data store.
+ * </p>
+ */
+public class DeltaPageStore extends DefaultPageStore
+{
+	private static final Logger LOG = LoggerFactory.getLogger(DeltaPageStore.class);
+
+	/** the default number of versions after which a full snapshot is stored */
+	public static final int DEFAULT_SNAPSHOT_INTERVAL = 8;
+
+	private static final byte SNAPSHOT = 1;
+
+	private static final byte DELTA = 2;
+
+	/** type, depth and id of the previous version */
+	private static final int DELTA_HEADER = 9;
+
+	private final int snapshotInterval;
+
+	private final AtomicLong pageBytes = new AtomicLong();
+
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	/**
+	 * Construct.
+	 *
+	 * @param pageSerializer
+	 *            the {@link ISerializer} that will be used to convert pages from/to byte arrays
+	 * @param dataStore
+	 *            the {@link IDataStore} that actually stores the pages
+	 * @param cacheSize
+	 *            the number of pages to cache in memory before passing them to
+	 *            {@link IDataStore#storeData(String, int, byte[])}
+	 * @param cacheMaxSize
+	 *            the maximum size of all pages cached in memory, may be {@code null} for no limit
+	 * @param snapshotInterval
+	 *            the maximum number of versions between two full snapshots
+	 */
+	public DeltaPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
+		final int cacheSize, final Bytes cacheMaxSize, final int snapshotInterval)
+	{
+		this(pageSerializer, dataStore, newSerializedPagesCache(cacheSize, cacheMaxSize),
+			snapshotInterval);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param pageSerializer
+	 *            the {@link ISerializer} that will be used to convert pages from/to byte arrays
+	 * @param dataStore
+	 *            the {@link IDataStore} that actually stores the pages
+	 * @param pagesCache
+	 *            the cache for the serialized pages
+	 * @param snapshotInterval
+	 *            the maximum number of versions between two full snapshots
+	 */
+	public DeltaPageStore(final ISerializer pageSerializer, final IDataStore dataStore,
+		final SecondLevelPageCache<String, Integer, SerializedPage> pagesCache,
+		final int snapshotInterval)
+	{
+		super(pageSerializer, dataStore, pagesCache);
+
+		this.snapshotInterval = Args.withinRange(1, Integer.MAX_VALUE, snapshotInterval,
+			"snapshotInterval");
+	}
+
+	/**
+	 * @return the maximum number of versions between two full snapshots
+	 */
+	public int getSnapshotInterval()
+	{
+		return snapshotInterval;
+	}
+
+	/**
+	 * @return the size of all pages stored by {@link #storePage(String, IManageablePage)}
+	 */
+	public long getPageBytes()
+	{
+		return pageBytes.get();
+	}
+
+	/**
+	 * @return the number of bytes actually passed to the data store for these pages
+	 */
+	public long getStoredBytes()
+	{
+		return storedBytes.get();
+	}
+
+	@Override
+	public void storePage(final String sessionId, final IManageablePage page)
+	{
+		SerializedPage serialized = createSerializedPage(sessionId, page);
+		if (serialized != null)
+		{
+			int pageId = page.getPageId();
+			byte[] data = serialized.getData();
+
+			byte[] record = null;
+			int depth = 0;
+			int previousPageId = page.getPreviousPageId();
+			if (previousPageId != -1 && previousPageId != pageId && snapshotInterval > 1)
+			{
+				Version previous = getVersion(sessionId, previousPageId, snapshotInterval);
+				if (previous != null && previous.depth + 1 < snapshotInterval)
+				{
+					record = newDelta(previousPageId, previous, data);
+					if (record != null)
+					{
+						depth = previous.depth + 1;
+					}
+				}
+			}
+			if (record == null)
+			{
+				record = newSnapshot(data);
+			}
+
+			pagesCache.storePage(sessionId, pageId, new VersionedPage(sessionId, pageId, data,
+				depth));
+			pageBytes.addAndGet(data.length);
+			storedBytes.addAndGet(record.length);
+			dataStore.storeData(sessionId, pageId, record);
+		}
+	}
+
+	/**
+	 * Creates a delta record if it is considerably smaller than a snapshot.
+	 *
+	 * @param previousPageId
+	 * @param previous
+	 * @param data
+	 * @return the record or {@code null}
+	 */
+	private byte[] newDelta(final int previousPageId, final Version previous, final byte[] data)
+	{
+		byte[] delta = PageDelta.diff(previous.data, data);
+		if (delta.length > data.length / 2)
+		{
+			return null;
+		}
+
+		byte[] record = new byte[DELTA_HEADER + delta.length];
+		record[0] = DELTA;
+		writeInt(record, 1, previous.depth + 1);
+		writeInt(record, 5, previousPageId);
+		System.arraycopy(delta, 0, record, DELTA_HEADER, delta.length);
+		return record;
+	}
+
+	private static byte[] newSnapshot(final byte[] data)
+	{
+		byte[] record = new byte[data.length + 1];
+		record[0] = SNAPSHOT;
+		System.arraycopy(data, 0, record, 1, data.length);
+		return record;
+	}
+
+	@Override
+	protected void storePageData(final String sessionId, final int pageId, final byte[] data)
+	{
+		super.storePageData(sessionId, pageId, newSnapshot(data));
+	}
+
+	@Override
+	protected byte[] getPageData(final String sessionId, final int pageId)
+	{
+		Version version = getVersion(sessionId, pageId, snapshotInterval);
+		return version != null ? version.data : null;
+	}
+
+	/**
+	 * Gets the data of a version, either from the cache or by applying its deltas.
+	 *
+	 * @param sessionId
+	 * @param pageId
+	 * @param maxDepth
+	 *            the maximum number of deltas to apply
+	 * @return the version or {@code null} if it or a version it depends on is not available
+	 */
+	private Version getVersion(final String sessionId, final int pageId, final int maxDepth)
+	{
+		SerializedPage cached = pagesCache.getPage(sessionId, pageId);
+		if (cached instanceof VersionedPage && cached.getData() != null)
+		{
+			return new Version(cached.getData(), ((VersionedPage)cached).depth);
+		}
+
+		byte[] record = super.getPageData(sessionId, pageId);
+		if (record == null || record.length == 0)
+		{
+			return null;
+		}
+
+		if (record[0] == SNAPSHOT)
+		{
+			return new Version(Arrays.copyOfRange(record, 1, record.length), 0);
+		}
+		else if (record[0] == DELTA && record.length >= DELTA_HEADER)
+		{
+			int depth = readInt(record, 1);
+			int previousPageId = readInt(record, 5);
+			if (depth < 1 || depth > maxDepth || previousPageId == pageId)
+			{
+				throw new WicketRuntimeException("Corrupt delta of page " + pageId);
+			}
+
+			Version previous = getVersion(sessionId, previousPageId, depth - 1);
+			if (previous == null)
+			{
+				LOG.debug("Page {} cannot be restored because its previous version {} is not "
+					+ "available any more", pageId, previousPageId);
+				return null;
+			}
+			return new Version(PageDelta.apply(previous.data, record, DELTA_HEADER), depth);
+		}
+
+		throw new WicketRuntimeException("Unknown record type " + record[0] + " of page " +
+			pageId);
+	}
+
+	private static void writeInt(final byte[] data, final int offset, final int value)
+	{
+		data[offset] = (byte)(value >>> 24);
+		data[offset + 1] = (byte)(value >>> 16);
+		data[offset + 2] = (byte)(value >>> 8);
+		data[offset + 3] = (byte)value;
+	}
+
+	private static int readInt(final byte[] data, final int offset)
+	{
+		return ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16) |
+			((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+	}
+
+	/**
+	 * A serialized page which knows the number of deltas since the last snapshot
+	 */
+	protected static class VersionedPage extends SerializedPage
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int depth;
+
+		/**
+		 * Construct.
+		 *
+		 * @param sessionId
+		 * @param pageId
+		 * @param data
+		 * @param depth
+		 *            the number of deltas since the last snapshot
+		 */
+		public VersionedPage(String sessionId, int pageId, byte[] data, int depth)
+		{
+			super(sessionId, pageId, data);
+			this.depth = depth;
+		}
+	}
+
+	/**
+	 * The data of a version and its distance to the last snapshot
+	 */
+	private static class Version
+	{
+		private final byte[] data;
+
+		private final int depth;
+
+		private Version(final byte[] data, final int depth)
+		{
+			this.data = data;
+			this.depth = depth;
+		}
+	}
+}
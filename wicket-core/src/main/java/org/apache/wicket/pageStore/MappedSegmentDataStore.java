@@ -0,0 +1,942 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data store implementation which appends the data of all sessions to a small, fixed number of
+ * memory-mapped segment files.
+ * <p>
+ * In contrast to {@link DiskDataStore} there is no file (and no file handle) per session. Each
+ * stored page is written as a self-describing record (session id, page id, sequence number and
+ * checksum) at the end of the active segment, and an in-memory index maps (sessionId, pageId) to
+ * the location of the latest record. Overwritten and removed records are flagged as dead in place.
+ * </p>
+ * <p>
+ * When the active segment is full another segment is recycled: if one of them contains at most
+ * {@link #getCompactionThreshold() compactionThreshold} live data it is compacted in place, i.e.
+ * its live records are moved to its beginning and the freed space is reused. Otherwise the next
+ * segment in ring order - the oldest one - is evicted, the same way {@link DiskDataStore} reuses
+ * its session files in a cyclic way.
+ * </p>
+ * <p>
+ * There is no separate index file: at startup the index is rebuilt by scanning the segments.
+ * Records that are not completely written (e.g. because the process crashed) fail the checksum
+ * test and are ignored.
+ * </p>
+ * To use it override {@link org.apache.wicket.DefaultPageManagerProvider#newDataStore()}.
+ */
+public class MappedSegmentDataStore implements IDataStore
+{
+	private static final Logger log = LoggerFactory.getLogger(MappedSegmentDataStore.class);
+
+	/** The default size of a single segment file */
+	public static final Bytes DEFAULT_SEGMENT_SIZE = Bytes.megabytes(32);
+
+	/** The default number of segment files */
+	public static final int DEFAULT_SEGMENT_COUNT = 8;
+
+	/** The default maximum ratio of live data for a segment to be compacted instead of evicted */
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
+	private static final String SEGMENT_FILE_PREFIX = "segment-";
+
+	private static final String SEGMENT_FILE_SUFFIX = ".data";
+
+	private static final int SEGMENT_MAGIC = 0x57534731;
+
+	private static final int RECORD_MAGIC = 0x57524331;
+
+	/** magic + generation */
+	private static final int SEGMENT_HEADER_SIZE = 4 + 8;
+
+	/** magic + state + generation + sequence + page id + session id length + data length + crc */
+	private static final int RECORD_HEADER_SIZE = 4 + 1 + 8 + 8 + 4 + 2 + 4 + 4;
+
+	private static final int STATE_OFFSET = 4;
+
+	private static final byte STATE_LIVE = 1;
+
+	private static final byte STATE_DEAD = 0;
+
+	private final String applicationName;
+
+	private final File fileStoreFolder;
+
+	private final long maxSizePerSession;
+
+	private final int segmentSize;
+
+	private final double compactionThreshold;
+
+	private final Segment[] segments;
+
+	private final ConcurrentMap<String, SessionIndex> sessionIndexMap;
+
+	/**
+	 * Readers and writers of records share the read lock, recycling a segment requires the write
+	 * lock
+	 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/** guards {@link #activeSegment} and the write offsets of the segments */
+	private final Object allocationLock = new Object();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private Segment activeSegment;
+
+	private volatile boolean destroyed = false;
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 * @param maxSizePerSession
+	 */
+	public MappedSegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes maxSizePerSession)
+	{
+		this(applicationName, fileStoreFolder, maxSizePerSession, DEFAULT_SEGMENT_SIZE,
+			DEFAULT_SEGMENT_COUNT, DEFAULT_COMPACTION_THRESHOLD);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationName
+	 * @param fileStoreFolder
+	 * @param maxSizePerSession
+	 *            the maximum size of the pages of a single session
+	 * @param segmentSize
+	 *            the size of a single segment file
+	 * @param segmentCount
+	 *            the number of segment files
+	 * @param compactionThreshold
+	 *            the maximum ratio of live data for a segment to be compacted instead of evicted
+	 */
+	public MappedSegmentDataStore(final String applicationName, final File fileStoreFolder,
+		final Bytes maxSizePerSession, final Bytes segmentSize, final int segmentCount,
+		final double compactionThreshold)
+	{
+		this.applicationName = Args.notNull(applicationName, "applicationName");
+		this.fileStoreFolder = Args.notNull(fileStoreFolder, "fileStoreFolder");
+		this.maxSizePerSession = Args.notNull(maxSizePerSession, "maxSizePerSession").bytes();
+		Args.notNull(segmentSize, "segmentSize");
+		Args.withinRange((long)SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE,
+			(long)Integer.MAX_VALUE, segmentSize.bytes(), "segmentSize");
+		this.segmentSize = (int)segmentSize.bytes();
+		Args.withinRange(1, 1024, segmentCount, "segmentCount");
+		Args.withinRange(0d, 1d, compactionThreshold, "compactionThreshold");
+		this.compactionThreshold = compactionThreshold;
+
+		sessionIndexMap = new ConcurrentHashMap<>();
+		segments = new Segment[segmentCount];
+
+		try
+		{
+			File storeFolder = getStoreFolder();
+			if (storeFolder.exists() || storeFolder.mkdirs())
+			{
+				openSegments(storeFolder);
+			}
+			else
+			{
+				throw new WicketRuntimeException("Cannot create the store folder " + storeFolder);
+			}
+		}
+		catch (SecurityException | IOException e)
+		{
+			closeSegments();
+			throw new WicketRuntimeException(
+				"An error occurred while creating MappedSegmentDataStore. Consider using a non-disk based IDataStore implementation. "
+					+ "See org.apache.wicket.Application.setPageManagerProvider(IPageManagerProvider)",
+				e);
+		}
+	}
+
+	/**
+	 * @return the maximum ratio of live data for a segment to be compacted instead of evicted
+	 */
+	public double getCompactionThreshold()
+	{
+		return compactionThreshold;
+	}
+
+	/**
+	 * This folder contains the segment files.
+	 *
+	 * @return the folder where the pages are stored
+	 */
+	protected File getStoreFolder()
+	{
+		return new File(fileStoreFolder, applicationName + "-segmentstore");
+	}
+
+	@Override
+	public byte[] getData(final String sessionId, final int id)
+	{
+		byte[] pageData = null;
+
+		lock.readLock().lock();
+		try
+		{
+			SessionIndex index = sessionIndexMap.get(sessionId);
+			if (index != null && destroyed == false)
+			{
+				Location location;
+				synchronized (index)
+				{
+					location = index.pages.get(id);
+				}
+				if (location != null)
+				{
+					pageData = readData(location);
+				}
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Returning data{} for page with id '{}' in session with id '{}'",
+				pageData != null ? "" : "(null)", id, sessionId);
+		}
+		return pageData;
+	}
+
+	@Override
+	public void removeData(final String sessionId, final int id)
+	{
+		lock.readLock().lock();
+		try
+		{
+			SessionIndex index = sessionIndexMap.get(sessionId);
+			if (index != null)
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug("Removing data for page with id '{}' in session with id '{}'", id,
+						sessionId);
+				}
+				synchronized (index)
+				{
+					Location location = index.pages.remove(id);
+					if (location != null)
+					{
+						index.size -= location.length;
+						markDead(location);
+					}
+				}
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void removeData(final String sessionId)
+	{
+		lock.readLock().lock();
+		try
+		{
+			SessionIndex index = sessionIndexMap.remove(sessionId);
+			if (index != null)
+			{
+				log.debug("Removing data for pages in session with id '{}'", sessionId);
+				synchronized (index)
+				{
+					index.unbound = true;
+					for (Location location : index.pages.values())
+					{
+						markDead(location);
+					}
+					index.pages.clear();
+					index.size = 0;
+				}
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void storeData(final String sessionId, final int id, final byte[] data)
+	{
+		// only save page that has some data
+		if (data == null)
+		{
+			return;
+		}
+
+		byte[] sessionIdBytes = sessionId.getBytes(StandardCharsets.UTF_8);
+		int recordSize = RECORD_HEADER_SIZE + sessionIdBytes.length + data.length;
+		if (sessionIdBytes.length > Short.MAX_VALUE ||
+			recordSize > segmentSize - SEGMENT_HEADER_SIZE || recordSize > maxSizePerSession)
+		{
+			log.warn(
+				"Cannot save page with id '{}' in session with id '{}' because it is too big: {} bytes",
+				id, sessionId, data.length);
+			return;
+		}
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Storing data for page with id '{}' in session with id '{}'", id, sessionId);
+		}
+
+		while (destroyed == false)
+		{
+			lock.readLock().lock();
+			try
+			{
+				Location location = allocate(recordSize, data.length);
+				if (location != null)
+				{
+					writeRecord(location, sessionIdBytes, id, data);
+					index(sessionId, id, location);
+					return;
+				}
+			}
+			finally
+			{
+				lock.readLock().unlock();
+			}
+
+			lock.writeLock().lock();
+			try
+			{
+				if (destroyed == false && fits(activeSegment, recordSize) == false)
+				{
+					recycle(recordSize);
+				}
+			}
+			finally
+			{
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		log.debug("Destroying...");
+		lock.writeLock().lock();
+		try
+		{
+			destroyed = true;
+			closeSegments();
+			sessionIndexMap.clear();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+		log.debug("Destroyed.");
+	}
+
+	@Override
+	public boolean isReplicated()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean canBeAsynchronous()
+	{
+		return true;
+	}
+
+	/**
+	 * Reserves the space for a record in the active segment.
+	 *
+	 * @param recordSize
+	 * @param dataLength
+	 * @return the location of the new record or {@code null} if the active segment is full
+	 */
+	private Location allocate(final int recordSize, final int dataLength)
+	{
+		synchronized (allocationLock)
+		{
+			Segment segment = activeSegment;
+			if (fits(segment, recordSize) == false)
+			{
+				return null;
+			}
+			int offset = segment.writeOffset;
+			segment.writeOffset += recordSize;
+			segment.liveBytes.addAndGet(recordSize);
+			return new Location(segment.index, offset, recordSize, dataLength,
+				sequence.incrementAndGet());
+		}
+	}
+
+	private boolean fits(final Segment segment, final int recordSize)
+	{
+		synchronized (allocationLock)
+		{
+			return (long)segment.writeOffset + recordSize <= segmentSize;
+		}
+	}
+
+	/**
+	 * Registers a written record in the index of its session. Replaces the previous record of the
+	 * same page and evicts the oldest pages of the session if it exceeds the maximum size.
+	 *
+	 * @param sessionId
+	 * @param pageId
+	 * @param location
+	 */
+	private void index(final String sessionId, final int pageId, final Location location)
+	{
+		SessionIndex index = getSessionIndex(sessionId);
+		synchronized (index)
+		{
+			if (index.unbound)
+			{
+				// the session has been removed in the meantime
+				markDead(location);
+				return;
+			}
+
+			// remove first to move the page to the end of the (insertion ordered) map
+			Location previous = index.pages.remove(pageId);
+			if (previous != null)
+			{
+				index.size -= previous.length;
+				markDead(previous);
+			}
+			index.pages.put(pageId, location);
+			index.size += location.length;
+
+			Iterator<Location> oldest = index.pages.values().iterator();
+			while (index.size > maxSizePerSession && oldest.hasNext())
+			{
+				Location evicted = oldest.next();
+				if (evicted == location)
+				{
+					break;
+				}
+				oldest.remove();
+				index.size -= evicted.length;
+				markDead(evicted);
+			}
+		}
+	}
+
+	private SessionIndex getSessionIndex(final String sessionId)
+	{
+		SessionIndex index = sessionIndexMap.get(sessionId);
+		if (index == null)
+		{
+			index = new SessionIndex();
+			SessionIndex existing = sessionIndexMap.putIfAbsent(sessionId, index);
+			if (existing != null)
+			{
+				index = existing;
+			}
+		}
+		return index;
+	}
+
+	private void writeRecord(final Location location, final byte[] sessionIdBytes,
+		final int pageId, final byte[] data)
+	{
+		Segment segment = segments[location.segment];
+		ByteBuffer buffer = segment.buffer.duplicate();
+		buffer.position(location.offset);
+		buffer.putInt(RECORD_MAGIC);
+		buffer.put(STATE_LIVE);
+		buffer.putLong(segment.generation);
+		buffer.putLong(location.sequence);
+		buffer.putInt(pageId);
+		buffer.putShort((short)sessionIdBytes.length);
+		buffer.putInt(data.length);
+		buffer.putInt(checksum(location.sequence, pageId, sessionIdBytes, data));
+		buffer.put(sessionIdBytes);
+		buffer.put(data);
+	}
+
+	private byte[] readData(final Location location)
+	{
+		byte[] data = new byte[location.dataLength];
+		ByteBuffer buffer = segments[location.segment].buffer.duplicate();
+		buffer.position(location.offset + location.length - location.dataLength);
+		buffer.get(data);
+		return data;
+	}
+
+	/**
+	 * Flags a record as dead. Must be called while holding the read or the write lock.
+	 *
+	 * @param location
+	 */
+	private void markDead(final Location location)
+	{
+		Segment segment = segments[location.segment];
+		segment.buffer.put(location.offset + STATE_OFFSET, STATE_DEAD);
+		segment.liveBytes.addAndGet(-location.length);
+	}
+
+	/**
+	 * Makes another segment the active one, freeing space in it by compaction or eviction. Must be
+	 * called while holding the write lock.
+	 *
+	 * @param recordSize
+	 *            the size of the record that has to fit in the new active segment
+	 */
+	private void recycle(final int recordSize)
+	{
+		Segment target = null;
+		for (Segment segment : segments)
+		{
+			if (segment != activeSegment || segments.length == 1)
+			{
+				if (target == null || segment.liveBytes.get() < target.liveBytes.get())
+				{
+					target = segment;
+				}
+			}
+		}
+
+		if (target.liveBytes.get() <= (segmentSize - SEGMENT_HEADER_SIZE) * compactionThreshold)
+		{
+			compact(target);
+		}
+		else
+		{
+			// evict the oldest one
+			target = segments[(activeSegment.index + 1) % segments.length];
+			evict(target);
+		}
+
+		if (fits(target, recordSize) == false)
+		{
+			evict(target);
+		}
+
+		synchronized (allocationLock)
+		{
+			activeSegment = target;
+		}
+	}
+
+	/**
+	 * Moves the live records of a segment to its beginning.
+	 *
+	 * @param segment
+	 */
+	private void compact(final Segment segment)
+	{
+		log.debug("Compacting segment {}", segment.index);
+
+		List<LiveRecord> liveRecords = new ArrayList<>();
+		scan(segment, false, record -> {
+			SessionIndex index = getIndexOf(record);
+			if (index != null)
+			{
+				byte[] bytes = new byte[record.location.length];
+				ByteBuffer buffer = segment.buffer.duplicate();
+				buffer.position(record.location.offset);
+				buffer.get(bytes);
+				liveRecords.add(new LiveRecord(index, record.pageId, record.location, bytes));
+			}
+		});
+
+		reset(segment);
+
+		ByteBuffer buffer = segment.buffer.duplicate();
+		for (LiveRecord liveRecord : liveRecords)
+		{
+			Location old = liveRecord.location;
+			Location moved = new Location(segment.index, segment.writeOffset, old.length,
+				old.dataLength, old.sequence);
+			buffer.position(moved.offset);
+			buffer.put(liveRecord.bytes);
+			buffer.putLong(moved.offset + 4 + 1, segment.generation);
+			segment.writeOffset += moved.length;
+			segment.liveBytes.addAndGet(moved.length);
+
+			// replace the location without changing the age of the page
+			liveRecord.index.pages.put(liveRecord.pageId, moved);
+		}
+	}
+
+	/**
+	 * Drops all records of a segment.
+	 *
+	 * @param segment
+	 */
+	private void evict(final Segment segment)
+	{
+		log.debug("Evicting segment {}", segment.index);
+
+		scan(segment, false, record -> {
+			SessionIndex index = getIndexOf(record);
+			if (index != null)
+			{
+				index.pages.remove(record.pageId);
+				index.size -= record.location.length;
+			}
+		});
+
+		reset(segment);
+	}
+
+	/**
+	 * @param record
+	 * @return the index of the record's session if it still refers to the record
+	 */
+	private SessionIndex getIndexOf(final Record record)
+	{
+		if (record.live)
+		{
+			SessionIndex index = sessionIndexMap.get(record.sessionId);
+			if (index != null)
+			{
+				Location indexed = index.pages.get(record.pageId);
+				if (indexed != null && indexed.segment == record.location.segment &&
+					indexed.offset == record.location.offset)
+				{
+					return index;
+				}
+			}
+		}
+		return null;
+	}
+
+	private void reset(final Segment segment)
+	{
+		segment.generation++;
+		segment.buffer.putInt(0, SEGMENT_MAGIC);
+		segment.buffer.putLong(4, segment.generation);
+		segment.writeOffset = SEGMENT_HEADER_SIZE;
+		segment.liveBytes.set(0);
+	}
+
+	/**
+	 * Iterates over the records of a segment.
+	 *
+	 * @param segment
+	 * @param verify
+	 *            whether to verify the checksums of the records
+	 * @param visitor
+	 * @return the offset after the last valid record
+	 */
+	private int scan(final Segment segment, final boolean verify, final RecordVisitor visitor)
+	{
+		ByteBuffer buffer = segment.buffer.duplicate();
+		int offset = SEGMENT_HEADER_SIZE;
+		while (offset + RECORD_HEADER_SIZE <= segmentSize)
+		{
+			buffer.position(offset);
+			if (buffer.getInt() != RECORD_MAGIC)
+			{
+				break;
+			}
+			boolean live = buffer.get() == STATE_LIVE;
+			long generation = buffer.getLong();
+			long recordSequence = buffer.getLong();
+			int pageId = buffer.getInt();
+			int sessionIdLength = buffer.getShort();
+			int dataLength = buffer.getInt();
+			int crc = buffer.getInt();
+			long recordSize = (long)RECORD_HEADER_SIZE + sessionIdLength + dataLength;
+			if (generation != segment.generation || sessionIdLength < 0 || dataLength < 0 ||
+				offset + recordSize > segmentSize)
+			{
+				break;
+			}
+
+			byte[] sessionIdBytes = new byte[sessionIdLength];
+			buffer.get(sessionIdBytes);
+			if (verify)
+			{
+				byte[] data = new byte[dataLength];
+				buffer.get(data);
+				if (crc != checksum(recordSequence, pageId, sessionIdBytes, data))
+				{
+					log.warn("Ignoring the incomplete record at offset {} in segment {}", offset,
+						segment.index);
+					break;
+				}
+			}
+
+			Location location = new Location(segment.index, offset, (int)recordSize,
+				dataLength, recordSequence);
+			visitor.visit(new Record(new String(sessionIdBytes, StandardCharsets.UTF_8), pageId,
+				live, location));
+
+			offset += recordSize;
+		}
+		return offset;
+	}
+
+	private static int checksum(final long sequence, final int pageId,
+		final byte[] sessionIdBytes, final byte[] data)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(12).putLong(sequence).putInt(pageId).array());
+		crc.update(sessionIdBytes);
+		crc.update(data);
+		return (int)crc.getValue();
+	}
+
+	/**
+	 * Opens (or creates) the segment files and rebuilds the index from their records.
+	 *
+	 * @param storeFolder
+	 * @throws IOException
+	 */
+	private void openSegments(final File storeFolder) throws IOException
+	{
+		List<Record> recovered = new ArrayList<>();
+		long maxSequence = 0;
+		Segment latest = null;
+
+		for (int i = 0; i < segments.length; i++)
+		{
+			File file = new File(storeFolder, SEGMENT_FILE_PREFIX + i + SEGMENT_FILE_SUFFIX);
+			boolean existing = file.exists() && file.length() == segmentSize;
+			if (file.exists() && existing == false)
+			{
+				log.info("Discarding segment file {} because its size does not match", file);
+				Files.remove(file);
+			}
+
+			Segment segment = new Segment(i, file, segmentSize);
+			segments[i] = segment;
+
+			if (existing && segment.buffer.getInt(0) == SEGMENT_MAGIC)
+			{
+				segment.generation = segment.buffer.getLong(4);
+				List<Record> records = new ArrayList<>();
+				segment.writeOffset = scan(segment, true, records::add);
+				for (Record record : records)
+				{
+					if (record.live)
+					{
+						segment.liveBytes.addAndGet(record.location.length);
+						recovered.add(record);
+					}
+					if (record.location.sequence > maxSequence)
+					{
+						maxSequence = record.location.sequence;
+						latest = segment;
+					}
+				}
+			}
+			else
+			{
+				reset(segment);
+			}
+		}
+
+		sequence.set(maxSequence);
+		activeSegment = latest != null ? latest : segments[0];
+
+		Collections.sort(recovered,
+			(r1, r2) -> Long.compare(r1.location.sequence, r2.location.sequence));
+		for (Record record : recovered)
+		{
+			index(record.sessionId, record.pageId, record.location);
+		}
+
+		if (recovered.isEmpty() == false)
+		{
+			log.info("Recovered {} pages of {} sessions", recovered.size(), sessionIndexMap.size());
+		}
+	}
+
+	private void closeSegments()
+	{
+		for (Segment segment : segments)
+		{
+			if (segment != null)
+			{
+				try
+				{
+					segment.buffer.force();
+				}
+				catch (RuntimeException e)
+				{
+					log.error("Couldn't flush segment file " + segment.file, e);
+				}
+				IOUtils.closeQuietly(segment.file);
+			}
+		}
+	}
+
+	/**
+	 * A memory-mapped segment file
+	 */
+	private static final class Segment
+	{
+		private final int index;
+
+		private final RandomAccessFile file;
+
+		private final MappedByteBuffer buffer;
+
+		/** incremented when the segment is recycled to tell apart stale records */
+		private long generation;
+
+		/** guarded by allocationLock */
+		private int writeOffset;
+
+		private final AtomicLong liveBytes = new AtomicLong();
+
+		private Segment(final int index, final File file, final int size) throws IOException
+		{
+			this.index = index;
+			this.file = new RandomAccessFile(file, "rw");
+			try
+			{
+				this.file.setLength(size);
+				buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			}
+			catch (IOException e)
+			{
+				IOUtils.closeQuietly(this.file);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * The position of a record in the segments
+	 */
+	private static final class Location
+	{
+		private final int segment;
+
+		private final int offset;
+
+		/** size of the whole record */
+		private final int length;
+
+		/** size of the page data at the end of the record */
+		private final int dataLength;
+
+		private final long sequence;
+
+		private Location(final int segment, final int offset, final int length,
+			final int dataLength, final long sequence)
+		{
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.dataLength = dataLength;
+			this.sequence = sequence;
+		}
+	}
+
+	/**
+	 * The pages of a session, in the order they were stored
+	 */
+	private static final class SessionIndex
+	{
+		private final Map<Integer, Location> pages = new LinkedHashMap<>();
+
+		/** the sum of the lengths of all records */
+		private long size;
+
+		private boolean unbound = false;
+	}
+
+	private static final class Record
+	{
+		private final String sessionId;
+
+		private final int pageId;
+
+		private final boolean live;
+
+		private final Location location;
+
+		private Record(final String sessionId, final int pageId, final boolean live,
+			final Location location)
+		{
+			this.sessionId = sessionId;
+			this.pageId = pageId;
+			this.live = live;
+			this.location = location;
+		}
+	}
+
+	private static final class LiveRecord
+	{
+		private final SessionIndex index;
+
+		private final int pageId;
+
+		private final Location location;
+
+		private final byte[] bytes;
+
+		private LiveRecord(final SessionIndex index, final int pageId, final Location location,
+			final byte[] bytes)
+		{
+			this.index = index;
+			this.pageId = pageId;
+			this.location = location;
+			this.bytes = bytes;
+		}
+	}
+
+	@FunctionalInterface
+	private interface RecordVisitor
+	{
+		void visit(Record record);
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.wicket.WicketRuntimeException;
+
+/**
+ * Computes and applies binary deltas between two serialized versions of a page.
+ * <p>
+ * The delta is a sequence of instructions which either copy a range of the base or insert literal
+ * bytes. Matches are found by indexing the base in blocks with a rolling hash, so unchanged parts
+ * of the page are found even if they moved because a preceding part changed its length.
+ * </p>
+ */
+final class PageDelta
+{
+	/** the length of the indexed blocks and so the minimal length of a copy */
+	private static final int BLOCK = 32;
+
+	private static final int HASH_MULTIPLIER = 31;
+
+	private static final int INSERT = 0;
+
+	private static final int COPY = 1;
+
+	private PageDelta()
+	{
+	}
+
+	/**
+	 * Computes the delta which turns the base into the target.
+	 *
+	 * @param base
+	 *            the previous version
+	 * @param target
+	 *            the new version
+	 * @return the delta
+	 */
+	static byte[] diff(final byte[] base, final byte[] target)
+	{
+		ByteArrayOutputStream delta = new ByteArrayOutputStream(Math.max(64, target.length / 8));
+		writeVarInt(delta, target.length);
+
+		if (base.length < BLOCK || target.length < BLOCK)
+		{
+			insert(delta, target, 0, target.length);
+			return delta.toByteArray();
+		}
+
+		int[] table = index(base);
+		int mask = table.length - 1;
+
+		// HASH_MULTIPLIER ^ BLOCK, to remove the leaving byte from the rolling hash
+		int outFactor = 1;
+		for (int i = 0; i < BLOCK; i++)
+		{
+			outFactor *= HASH_MULTIPLIER;
+		}
+
+		int literalStart = 0;
+		int position = 0;
+		int hash = hash(target, 0);
+		while (position + BLOCK <= target.length)
+		{
+			int candidate = table[mix(hash) & mask] - 1;
+			if (candidate >= 0 && equal(base, candidate, target, position))
+			{
+				// extend the match backwards into the pending literals and forwards
+				int start = position;
+				int baseStart = candidate;
+				while (start > literalStart && baseStart > 0 &&
+					target[start - 1] == base[baseStart - 1])
+				{
+					start--;
+					baseStart--;
+				}
+				int end = position + BLOCK;
+				int baseEnd = candidate + BLOCK;
+				while (end < target.length && baseEnd < base.length && target[end] == base[baseEnd])
+				{
+					end++;
+					baseEnd++;
+				}
+
+				insert(delta, target, literalStart, start - literalStart);
+				writeVarInt(delta, ((end - start) << 1) | COPY);
+				writeVarInt(delta, baseStart);
+
+				position = end;
+				literalStart = end;
+				if (position + BLOCK <= target.length)
+				{
+					hash = hash(target, position);
+				}
+			}
+			else
+			{
+				if (position + BLOCK < target.length)
+				{
+					hash = hash * HASH_MULTIPLIER - target[position] * outFactor +
+						target[position + BLOCK];
+				}
+				position++;
+			}
+		}
+
+		insert(delta, target, literalStart, target.length - literalStart);
+		return delta.toByteArray();
+	}
+
+	/**
+	 * Applies a delta computed by {@link #diff(byte[], byte[])}.
+	 *
+	 * @param base
+	 *            the previous version
+	 * @param delta
+	 *            the delta
+	 * @param offset
+	 *            the offset of the delta
+	 * @return the new version
+	 */
+	static byte[] apply(final byte[] base, final byte[] delta, final int offset)
+	{
+		int[] position = { offset };
+		byte[] target = new byte[readVarInt(delta, position)];
+		int length = 0;
+		while (position[0] < delta.length)
+		{
+			int instruction = readVarInt(delta, position);
+			int count = instruction >>> 1;
+			if (count > target.length - length)
+			{
+				throw new WicketRuntimeException("Corrupt page delta");
+			}
+
+			if ((instruction & 1) == COPY)
+			{
+				int from = readVarInt(delta, position);
+				if (from < 0 || from > base.length - count)
+				{
+					throw new WicketRuntimeException("Corrupt page delta");
+				}
+				System.arraycopy(base, from, target, length, count);
+			}
+			else
+			{
+				if (count > delta.length - position[0])
+				{
+					throw new WicketRuntimeException("Corrupt page delta");
+				}
+				System.arraycopy(delta, position[0], target, length, count);
+				position[0] += count;
+			}
+			length += count;
+		}
+
+		if (length != target.length)
+		{
+			throw new WicketRuntimeException("Corrupt page delta");
+		}
+		return target;
+	}
+
+	/**
+	 * Indexes the non overlapping blocks of the base in an open addressing hash table.
+	 *
+	 * @param base
+	 * @return the table of block offsets plus one
+	 */
+	private static int[] index(final byte[] base)
+	{
+		int blocks = base.length / BLOCK;
+		int size = Integer.highestOneBit(blocks * 2 - 1) << 1;
+		int[] table = new int[size];
+		int mask = size - 1;
+		for (int block = 0; block < blocks; block++)
+		{
+			int offset = block * BLOCK;
+			int slot = mix(hash(base, offset)) & mask;
+			// keep the first block with this hash, the table is just a hint
+			if (table[slot] == 0)
+			{
+				table[slot] = offset + 1;
+			}
+		}
+		return table;
+	}
+
+	private static int hash(final byte[] data, final int offset)
+	{
+		int hash = 0;
+		for (int i = offset; i < offset + BLOCK; i++)
+		{
+			hash = hash * HASH_MULTIPLIER + data[i];
+		}
+		return hash;
+	}
+
+	private static int mix(int hash)
+	{
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equal(final byte[] base, final int baseOffset, final byte[] target,
+		final int targetOffset)
+	{
+		for (int i = 0; i < BLOCK; i++)
+		{
+			if (base[baseOffset + i] != target[targetOffset + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void insert(final ByteArrayOutputStream delta, final byte[] target,
+		final int offset, final int length)
+	{
+		if (length > 0)
+		{
+			writeVarInt(delta, (length << 1) | INSERT);
+			delta.write(target, offset, length);
+		}
+	}
+
+	private static void writeVarInt(final ByteArrayOutputStream out, int value)
+	{
+		while ((value & ~0x7F) != 0)
+		{
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarInt(final byte[] data, final int[] position)
+	{
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7)
+		{
+			if (position[0] >= data.length)
+			{
+				break;
+			}
+			int b = data[position[0]++];
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+			{
+				return value;
+			}
+		}
+		throw new WicketRuntimeException("Corrupt page delta");
+	}
+}
@@ -0,0 +1,464 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * A {@link SecondLevelPageCache} with constant time lookup by (sessionId, pageId).
+ * <p>
+ * The entries are spread over a number of lock-striped hash tables. Each stripe evicts its least
+ * recently used entries once it exceeds its share of the maximum number of entries, so the cache
+ * as a whole approximates a LRU cache. The maximum size in bytes is shared by all stripes: a page
+ * fits as long as it is not larger than the maximum size, and if the size is exceeded the stripe
+ * storing a page evicts its least recently used entries first, then the other stripes do. Small
+ * caches use a single stripe and are therefore exact.
+ * </p>
+ * <p>
+ * The pages are held by {@link SoftReference}s, so they can be reclaimed by the garbage
+ * collector under memory pressure. Entries of reclaimed pages are purged before evicting.
+ * </p>
+ *
+ * @param <P>
+ *            The type of the stored page
+ */
+public class StripedPageCache<P> implements SecondLevelPageCache<String, Integer, P>
+{
+	private static final int MAX_STRIPES = 16;
+
+	/** caches with less entries per stripe would evict too eagerly */
+	private static final int MIN_ENTRIES_PER_STRIPE = 16;
+
+	private final Stripe<P>[] stripes;
+
+	private final boolean enabled;
+
+	private final ToLongFunction<P> weigher;
+
+	private final long maxBytes;
+
+	/** the size of all cached entries */
+	private final AtomicLong bytes = new AtomicLong();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxEntries
+	 *            The maximum number of entries to cache. A non-positive value disables the cache
+	 * @param maxSize
+	 *            The maximum size of all cached entries, may be {@code null} for no limit
+	 * @param weigher
+	 *            calculates the size of a page in bytes
+	 */
+	@SuppressWarnings("unchecked")
+	public StripedPageCache(final int maxEntries, final Bytes maxSize,
+		final ToLongFunction<P> weigher)
+	{
+		this.weigher = Args.notNull(weigher, "weigher");
+		enabled = maxEntries > 0;
+
+		int stripeCount = 1;
+		while (stripeCount < MAX_STRIPES && maxEntries / (stripeCount * 2) >= MIN_ENTRIES_PER_STRIPE)
+		{
+			stripeCount *= 2;
+		}
+
+		maxBytes = maxSize != null ? maxSize.bytes() : Long.MAX_VALUE;
+
+		stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++)
+		{
+			// distribute the remainders over the first stripes
+			int stripeEntries = maxEntries / stripeCount + (i < maxEntries % stripeCount ? 1 : 0);
+			stripes[i] = new Stripe<>(stripeEntries);
+		}
+	}
+
+	@Override
+	public P removePage(final String sessionId, final Integer pageId)
+	{
+		if (enabled == false)
+		{
+			return null;
+		}
+
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+
+		PageKey key = new PageKey(sessionId, pageId);
+		Stripe<P> stripe = stripeFor(key);
+		synchronized (stripe)
+		{
+			Entry<P> entry = stripe.entries.remove(key);
+			if (entry != null)
+			{
+				bytes.addAndGet(-entry.weight);
+				return entry.get();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes all pages of the session. Unlike the other operations this one has to visit all
+	 * entries, but it is called only when a session expires.
+	 *
+	 * @param sessionId
+	 */
+	@Override
+	public void removePages(final String sessionId)
+	{
+		if (enabled == false)
+		{
+			return;
+		}
+
+		Args.notNull(sessionId, "sessionId");
+
+		for (Stripe<P> stripe : stripes)
+		{
+			synchronized (stripe)
+			{
+				Iterator<Map.Entry<PageKey, Entry<P>>> iterator = stripe.entries.entrySet()
+					.iterator();
+				while (iterator.hasNext())
+				{
+					Map.Entry<PageKey, Entry<P>> entry = iterator.next();
+					if (entry.getKey().sessionId.equals(sessionId))
+					{
+						iterator.remove();
+						bytes.addAndGet(-entry.getValue().weight);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public P getPage(final String sessionId, final Integer pageId)
+	{
+		if (enabled == false)
+		{
+			return null;
+		}
+
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+
+		P result = null;
+		PageKey key = new PageKey(sessionId, pageId);
+		Stripe<P> stripe = stripeFor(key);
+		synchronized (stripe)
+		{
+			// the lookup moves the entry to the top
+			Entry<P> entry = stripe.entries.get(key);
+			if (entry != null)
+			{
+				result = entry.get();
+				if (result == null)
+				{
+					// collected by the garbage collector
+					stripe.entries.remove(key);
+					bytes.addAndGet(-entry.weight);
+				}
+			}
+		}
+
+		if (result != null)
+		{
+			hitCount.incrementAndGet();
+		}
+		else
+		{
+			missCount.incrementAndGet();
+		}
+		return result;
+	}
+
+	@Override
+	public void storePage(final String sessionId, final Integer pageId, final P page)
+	{
+		if (enabled == false)
+		{
+			return;
+		}
+
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(pageId, "pageId");
+		Args.notNull(page, "page");
+
+		PageKey key = new PageKey(sessionId, pageId);
+		Stripe<P> stripe = stripeFor(key);
+		long weight = weigher.applyAsLong(page);
+		int evicted = 0;
+		synchronized (stripe)
+		{
+			purge(stripe);
+
+			Entry<P> previous = stripe.entries.remove(key);
+			if (previous != null)
+			{
+				bytes.addAndGet(-previous.weight);
+			}
+
+			if (weight <= maxBytes)
+			{
+				stripe.entries.put(key, new Entry<>(key, page, weight, stripe.collected));
+				bytes.addAndGet(weight);
+			}
+
+			// the stored page is the most recently used, so it is evicted last
+			Iterator<Entry<P>> eldest = stripe.entries.values().iterator();
+			while ((stripe.entries.size() > stripe.maxEntries || bytes.get() > maxBytes) &&
+				stripe.entries.size() > 1 && eldest.hasNext())
+			{
+				Entry<P> entry = eldest.next();
+				eldest.remove();
+				bytes.addAndGet(-entry.weight);
+				evicted++;
+			}
+		}
+
+		// make room in the other stripes, without holding more than one lock at a time
+		for (int i = 0; i < stripes.length && bytes.get() > maxBytes; i++)
+		{
+			Stripe<P> other = stripes[i];
+			if (other == stripe)
+			{
+				continue;
+			}
+
+			synchronized (other)
+			{
+				purge(other);
+
+				Iterator<Entry<P>> eldest = other.entries.values().iterator();
+				while (bytes.get() > maxBytes && eldest.hasNext())
+				{
+					Entry<P> entry = eldest.next();
+					eldest.remove();
+					bytes.addAndGet(-entry.weight);
+					evicted++;
+				}
+			}
+		}
+
+		if (evicted > 0)
+		{
+			evictionCount.addAndGet(evicted);
+		}
+	}
+
+	/**
+	 * Removes the entries of a stripe whose pages were reclaimed by the garbage collector.
+	 *
+	 * @param stripe
+	 *            the locked stripe
+	 */
+	@SuppressWarnings("unchecked")
+	private void purge(final Stripe<P> stripe)
+	{
+		Reference<? extends P> reference;
+		while ((reference = stripe.collected.poll()) != null)
+		{
+			Entry<P> entry = (Entry<P>)reference;
+			// the key might have been stored again meanwhile
+			if (stripe.entries.remove(entry.key, entry))
+			{
+				bytes.addAndGet(-entry.weight);
+			}
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		for (Stripe<P> stripe : stripes)
+		{
+			synchronized (stripe)
+			{
+				for (Entry<P> entry : stripe.entries.values())
+				{
+					bytes.addAndGet(-entry.weight);
+				}
+				stripe.entries.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of lookups which found a page
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups which did not find a page
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of pages removed to make room for other pages
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return the number of cached pages
+	 */
+	public int size()
+	{
+		int size = 0;
+		for (Stripe<P> stripe : stripes)
+		{
+			synchronized (stripe)
+			{
+				size += stripe.entries.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * @return the size of all cached pages in bytes
+	 */
+	public long getSizeInBytes()
+	{
+		return bytes.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "StripedPageCache [size=" + size() + ", bytes=" + getSizeInBytes() + ", hits=" +
+			getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() +
+			"]";
+	}
+
+	private Stripe<P> stripeFor(final PageKey key)
+	{
+		// scramble the hash because the stripe is selected by its lower bits and the session
+		// and page ids are often correlated
+		int hash = key.hashCode() * 0x9E3779B9;
+		hash ^= (hash >>> 16);
+		return stripes[hash & (stripes.length - 1)];
+	}
+
+	/**
+	 * A hash table in access order with its share of the maximum number of entries
+	 *
+	 * @param <P>
+	 */
+	private static final class Stripe<P>
+	{
+		private final LinkedHashMap<PageKey, Entry<P>> entries = new LinkedHashMap<>(16, 0.75f,
+			true);
+
+		/** entries whose pages were reclaimed by the garbage collector */
+		private final ReferenceQueue<P> collected = new ReferenceQueue<>();
+
+		private final int maxEntries;
+
+		private Stripe(final int maxEntries)
+		{
+			this.maxEntries = maxEntries;
+		}
+	}
+
+	/**
+	 * A softly referenced page and its size
+	 *
+	 * @param <P>
+	 */
+	private static final class Entry<P> extends SoftReference<P>
+	{
+		private final PageKey key;
+
+		private final long weight;
+
+		private Entry(final PageKey key, final P page, final long weight,
+			final ReferenceQueue<P> queue)
+		{
+			super(page, queue);
+			this.key = key;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * The key of a page in the cache
+	 */
+	private static final class PageKey
+	{
+		private final String sessionId;
+
+		private final int pageId;
+
+		private final int hash;
+
+		private PageKey(final String sessionId, final int pageId)
+		{
+			this.sessionId = sessionId;
+			this.pageId = pageId;
+			hash = 31 * sessionId.hashCode() + pageId;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (obj instanceof PageKey == false)
+			{
+				return false;
+			}
+			PageKey other = (PageKey)obj;
+			return pageId == other.pageId && sessionId.equals(other.sessionId);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,730 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.core.request.handler.BufferedResponseRequestHandler;
+import org.apache.wicket.core.request.handler.IPageClassRequestHandler;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestHandlerDelegate;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Processes requests for resources and other non-page request handlers asynchronously, so that
+ * slow clients do not occupy the threads of the container.
+ * <p>
+ * The request is mapped on the container's thread already, if it resolves to a handler processed
+ * asynchronously, an {@link AsyncContext} is started and the request cycle is processed by the
+ * executor. The response is written with a {@link WriteListener}: content the container cannot
+ * take yet is buffered in memory and written when the container calls
+ * {@link WriteListener#onWritePossible()}. Once the buffered content exceeds a maximum size, the
+ * executor's thread waits for the container to take it, so the memory used for slow clients is
+ * bounded.
+ * </p>
+ * <p>
+ * If the executor is busy and its queue is full, the request is processed synchronously on the
+ * container's thread. Requests not completed within the timeout, including the time queued, are
+ * aborted. A request cycle not handling the request after all is dispatched back to the
+ * container, and passed on to the filter chain by {@link WicketFilter}.
+ * </p>
+ * <p>
+ * Requires a container supporting Servlet 3.1 and the filter to be declared
+ * <code>async-supported</code>, otherwise requests are processed synchronously as usual.
+ * </p>
+ *
+ * @see WicketFilter#ASYNC_THREADS_PARAM
+ * @see WicketFilter#ASYNC_TIMEOUT_PARAM
+ */
+public class AsyncRequestProcessor
+{
+	private static final Logger log = LoggerFactory.getLogger(AsyncRequestProcessor.class);
+
+	/** The default maximum size of the content buffered for a response */
+	public static final Bytes DEFAULT_MAX_PENDING = Bytes.kilobytes(64);
+
+	/** request attribute marking requests dispatched back as not handled */
+	private static final String UNHANDLED_ATTRIBUTE = AsyncRequestProcessor.class.getName() +
+		".unhandled";
+
+	private final WicketFilter filter;
+
+	private final ExecutorService executor;
+
+	private final long timeout;
+
+	private final long maxPending;
+
+	/**
+	 * Construct buffering up to {@link #DEFAULT_MAX_PENDING} for each response.
+	 *
+	 * @param filter
+	 *            the filter processing the request cycles
+	 * @param executor
+	 *            executor to process requests, should reject requests when busy instead of
+	 *            queuing them without bounds
+	 * @param timeout
+	 *            maximum duration of an asynchronous request, including the time it is queued
+	 */
+	public AsyncRequestProcessor(WicketFilter filter, ExecutorService executor, Duration timeout)
+	{
+		this(filter, executor, timeout, DEFAULT_MAX_PENDING);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param filter
+	 *            the filter processing the request cycles
+	 * @param executor
+	 *            executor to process requests, should reject requests when busy instead of
+	 *            queuing them without bounds
+	 * @param timeout
+	 *            maximum duration of an asynchronous request, including the time it is queued
+	 * @param maxPending
+	 *            maximum size of the content buffered for a response until the container is ready
+	 *            to write it
+	 */
+	public AsyncRequestProcessor(WicketFilter filter, ExecutorService executor, Duration timeout,
+		Bytes maxPending)
+	{
+		this.filter = Args.notNull(filter, "filter");
+		this.executor = Args.notNull(executor, "executor");
+		this.timeout = Args.notNull(timeout, "timeout").getMilliseconds();
+		this.maxPending = Args.notNull(maxPending, "maxPending").bytes();
+	}
+
+	/**
+	 * Wraps the response of a request, so it can be written asynchronously.
+	 *
+	 * @param request
+	 * @param response
+	 * @return wrapped response, or the response itself if the request does not support
+	 *         asynchronous processing
+	 */
+	HttpServletResponse wrap(HttpServletRequest request, HttpServletResponse response)
+	{
+		if (request.isAsyncSupported())
+		{
+			return new AsyncResponse(response, maxPending);
+		}
+		return response;
+	}
+
+	/**
+	 * Whether a request was dispatched back to the container, because its request cycle did not
+	 * handle it.
+	 *
+	 * @param request
+	 * @return <code>true</code> if the request should be passed on to the filter chain
+	 */
+	boolean isUnhandled(HttpServletRequest request)
+	{
+		return request.getAttribute(UNHANDLED_ATTRIBUTE) != null;
+	}
+
+	/**
+	 * Processes the request cycle asynchronously, if its request is resolved to a handler which
+	 * should be processed asynchronously.
+	 *
+	 * @param requestCycle
+	 * @param webResponse
+	 * @param request
+	 * @param response
+	 *            the response as {@link #wrap(HttpServletRequest, HttpServletResponse) wrapped}
+	 * @return <code>true</code> if processing is continued asynchronously, <code>false</code>
+	 *         if it has to be processed synchronously
+	 */
+	boolean process(RequestCycle requestCycle, WebResponse webResponse,
+		HttpServletRequest request, HttpServletResponse response)
+	{
+		if (response instanceof AsyncResponse == false)
+		{
+			return false;
+		}
+
+		IRequestHandler handler = resolve(requestCycle);
+		if (handler == null || isProcessedAsync(handler) == false)
+		{
+			return false;
+		}
+
+		AsyncResponse asyncResponse = (AsyncResponse)response;
+		Application application = Application.get();
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		try
+		{
+			executor.execute(() -> {
+				AsyncContext context = asyncResponse.awaitStart();
+				if (context != null)
+				{
+					run(application, classLoader, context, requestCycle, webResponse, request,
+						asyncResponse);
+				}
+			});
+		}
+		catch (RejectedExecutionException ex)
+		{
+			log.debug("Executor rejected request, processing it synchronously");
+			return false;
+		}
+
+		AsyncContext context = null;
+		try
+		{
+			// without the wrapped response, so it is dispatched back untouched if not handled
+			context = request.startAsync();
+			context.setTimeout(timeout);
+		}
+		finally
+		{
+			// releases the task, which does nothing if starting failed
+			asyncResponse.start(context);
+		}
+		return true;
+	}
+
+	/**
+	 * Resolves the handler of a request cycle, without executing it.
+	 * <p>
+	 * Mapping a request to a {@link BufferedResponseRequestHandler} removes the buffered response,
+	 * so requests for buffered responses are left to synchronous processing without mapping them.
+	 * </p>
+	 *
+	 * @param requestCycle
+	 * @return handler or <code>null</code>
+	 */
+	private IRequestHandler resolve(RequestCycle requestCycle)
+	{
+		ThreadContext.setRequestCycle(requestCycle);
+		try
+		{
+			Request request = requestCycle.getRequest();
+			if (hasBufferedResponse(request))
+			{
+				return null;
+			}
+			return Application.get().getRootRequestMapper().mapRequest(request);
+		}
+		catch (RuntimeException ex)
+		{
+			// leave it to synchronous processing to handle the problem
+			log.debug("Cannot resolve handler for asynchronous processing", ex);
+			return null;
+		}
+		finally
+		{
+			ThreadContext.setRequestCycle(null);
+		}
+	}
+
+	/**
+	 * Whether a response was buffered for a request, e.g. by
+	 * {@link org.apache.wicket.settings.RequestCycleSettings.RenderStrategy#REDIRECT_TO_BUFFER}.
+	 *
+	 * @param request
+	 * @return <code>true</code> if the request is for a buffered response
+	 */
+	private boolean hasBufferedResponse(Request request)
+	{
+		Session session = filter.getApplication().getSessionStore().lookup(request);
+		return session != null && session.getId() != null &&
+			filter.getApplication().hasBufferedResponse(session.getId(), request.getUrl());
+	}
+
+	/**
+	 * Whether a handler should be processed asynchronously. By default all handlers not related
+	 * to pages or their buffered responses are.
+	 *
+	 * @param handler
+	 *            the handler resolved for a request
+	 * @return <code>true</code> if the handler should be processed asynchronously
+	 */
+	protected boolean isProcessedAsync(IRequestHandler handler)
+	{
+		while (handler instanceof IRequestHandlerDelegate)
+		{
+			handler = ((IRequestHandlerDelegate)handler).getDelegateHandler();
+		}
+
+		return handler instanceof IPageClassRequestHandler == false &&
+			handler instanceof BufferedResponseRequestHandler == false;
+	}
+
+	private void run(Application application, ClassLoader classLoader, AsyncContext context,
+		RequestCycle requestCycle, WebResponse webResponse, HttpServletRequest request,
+		AsyncResponse response)
+	{
+		if (response.isCompleted())
+		{
+			log.debug("Request {} timed out before it was processed", request.getRequestURI());
+			return;
+		}
+
+		final ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
+		try
+		{
+			Thread.currentThread().setContextClassLoader(classLoader);
+			ThreadContext.setApplication(application);
+
+			if (filter.processRequestCycle(requestCycle, webResponse, request, response, null))
+			{
+				response.finish();
+			}
+			else
+			{
+				// let the container pass it on to the filter chain
+				request.setAttribute(UNHANDLED_ATTRIBUTE, Boolean.TRUE);
+				context.dispatch();
+			}
+		}
+		catch (Exception ex)
+		{
+			log.error("Error during asynchronous processing of request " + request.getRequestURI(),
+				ex);
+
+			response.abort(ex);
+		}
+		finally
+		{
+			ThreadContext.detach();
+			Thread.currentThread().setContextClassLoader(previousClassLoader);
+		}
+	}
+
+	/**
+	 * Shuts down the executor.
+	 */
+	public void destroy()
+	{
+		executor.shutdown();
+		try
+		{
+			if (executor.awaitTermination(timeout, TimeUnit.MILLISECONDS) == false)
+			{
+				executor.shutdownNow();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			log.error(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * A response which switches to non-blocking writes once asynchronous processing has started.
+	 * Content the container is not ready for is buffered and written from
+	 * {@link #onWritePossible()}, the context is completed once all of it was written. Writing
+	 * waits while more than the maximum size is buffered.
+	 */
+	private static class AsyncResponse extends HttpServletResponseWrapper
+		implements
+			WriteListener,
+			AsyncListener
+	{
+		/** content not taken by the container yet */
+		private final Deque<byte[]> pending = new ArrayDeque<>();
+
+		/** the maximum size of the pending content before writing waits */
+		private final long maxPending;
+
+		/** the size of the pending content */
+		private long pendingBytes;
+
+		/** whether starting the asynchronous processing was attempted */
+		private boolean starting;
+
+		private AsyncContext context;
+
+		/** the container's non-blocking stream, set up on the first write */
+		private ServletOutputStream stream;
+
+		private ServletOutputStream outputStream;
+
+		private PrintWriter writer;
+
+		private boolean flush;
+
+		private boolean finished;
+
+		private boolean completed;
+
+		private Throwable error;
+
+		private AsyncResponse(HttpServletResponse response, long maxPending)
+		{
+			super(response);
+
+			this.maxPending = maxPending;
+		}
+
+		/**
+		 * Starts asynchronous processing.
+		 *
+		 * @param context
+		 *            the context or <code>null</code> if it could not be started
+		 */
+		private synchronized void start(AsyncContext context)
+		{
+			starting = true;
+			this.context = context;
+			if (context != null)
+			{
+				context.addListener(this);
+			}
+			notifyAll();
+		}
+
+		/**
+		 * Waits until asynchronous processing was started.
+		 *
+		 * @return the context or <code>null</code> if it could not be started
+		 */
+		private synchronized AsyncContext awaitStart()
+		{
+			try
+			{
+				while (starting == false)
+				{
+					wait();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			return context;
+		}
+
+		private synchronized boolean isStarted()
+		{
+			return context != null;
+		}
+
+		private ServletOutputStream getStream() throws IOException
+		{
+			if (stream == null)
+			{
+				stream = super.getOutputStream();
+				stream.setWriteListener(this);
+			}
+			return stream;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException
+		{
+			if (isStarted() == false)
+			{
+				return super.getOutputStream();
+			}
+
+			if (outputStream == null)
+			{
+				outputStream = new BufferingOutputStream();
+			}
+			return outputStream;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException
+		{
+			if (isStarted() == false)
+			{
+				return super.getWriter();
+			}
+
+			if (writer == null)
+			{
+				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(),
+					getCharacterEncoding()));
+			}
+			return writer;
+		}
+
+		@Override
+		public void flushBuffer() throws IOException
+		{
+			if (isStarted() == false)
+			{
+				super.flushBuffer();
+			}
+			else if (writer != null)
+			{
+				// flushes the stream too
+				writer.flush();
+			}
+			else
+			{
+				getOutputStream().flush();
+			}
+		}
+
+		private synchronized boolean isCompleted()
+		{
+			return completed;
+		}
+
+		/**
+		 * Completes the context once all content was written.
+		 *
+		 * @throws IOException
+		 */
+		private void finish() throws IOException
+		{
+			if (writer != null)
+			{
+				writer.flush();
+			}
+
+			synchronized (this)
+			{
+				finished = true;
+				write();
+			}
+		}
+
+		/**
+		 * Completes the context, discarding content not written yet.
+		 *
+		 * @param t
+		 *            the cause
+		 */
+		private synchronized void abort(Throwable t)
+		{
+			if (error == null)
+			{
+				error = t;
+			}
+			pending.clear();
+			pendingBytes = 0;
+			notifyAll();
+
+			if (completed == false)
+			{
+				completed = true;
+				context.complete();
+			}
+		}
+
+		private synchronized void checkError() throws IOException
+		{
+			if (error != null)
+			{
+				throw new IOException(error);
+			}
+			if (completed)
+			{
+				throw new IOException("Response was completed already");
+			}
+		}
+
+		/**
+		 * Writes pending content as long as the container is ready for it.
+		 *
+		 * @throws IOException
+		 */
+		private void write() throws IOException
+		{
+			while (pending.isEmpty() == false)
+			{
+				if (getStream().isReady() == false)
+				{
+					return;
+				}
+				byte[] bytes = pending.poll();
+				pendingBytes -= bytes.length;
+				stream.write(bytes);
+
+				// let a waiting writer continue
+				notifyAll();
+			}
+
+			if (flush && stream != null)
+			{
+				if (stream.isReady() == false)
+				{
+					return;
+				}
+				flush = false;
+				stream.flush();
+			}
+
+			if (finished && completed == false && (stream == null || stream.isReady()))
+			{
+				completed = true;
+				context.complete();
+			}
+		}
+
+		@Override
+		public synchronized void onWritePossible()
+		{
+			if (completed)
+			{
+				return;
+			}
+
+			try
+			{
+				write();
+			}
+			catch (IOException ex)
+			{
+				onError(ex);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t)
+		{
+			log.debug("Error writing asynchronous response", t);
+
+			abort(t);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event)
+		{
+			abort(new IOException("Asynchronous request timed out"));
+		}
+
+		@Override
+		public void onError(AsyncEvent event)
+		{
+			onError(event.getThrowable());
+		}
+
+		@Override
+		public synchronized void onComplete(AsyncEvent event)
+		{
+			completed = true;
+			notifyAll();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event)
+		{
+		}
+
+		/**
+		 * Passes content on to the container's non-blocking stream, buffering it while the
+		 * container is not ready.
+		 */
+		private class BufferingOutputStream extends ServletOutputStream
+		{
+			@Override
+			public void write(int b) throws IOException
+			{
+				write(new byte[] { (byte)b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException
+			{
+				synchronized (AsyncResponse.this)
+				{
+					checkError();
+
+					if (pending.isEmpty() && getStream().isReady())
+					{
+						stream.write(b, off, len);
+					}
+					else
+					{
+						pending.add(Arrays.copyOfRange(b, off, off + len));
+						pendingBytes += len;
+
+						// wait for the container to take the content
+						while (pendingBytes > maxPending)
+						{
+							try
+							{
+								AsyncResponse.this.wait();
+							}
+							catch (InterruptedException e)
+							{
+								Thread.currentThread().interrupt();
+								throw new InterruptedIOException();
+							}
+							checkError();
+						}
+					}
+				}
+			}
+
+			@Override
+			public void flush() throws IOException
+			{
+				synchronized (AsyncResponse.this)
+				{
+					checkError();
+
+					flush = true;
+					AsyncResponse.this.write();
+				}
+			}
+
+			@Override
+			public void close() throws IOException
+			{
+				flush();
+			}
+
+			@Override
+			public boolean isReady()
+			{
+				// content is buffered
+				return true;
+			}
+
+			@Override
+			public void setWriteListener(WriteListener writeListener)
+			{
+				throw new IllegalStateException("write listener is already set");
+			}
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
+
+/**
+ * A concurrent {@link IBufferedResponseStore} with a budget of bytes and a lifetime of its entries.
+ * <p>
+ * If the stored responses exceed the budget, the oldest ones are evicted. Expired responses are
+ * never returned and are evicted when newer responses are stored. Optionally the text of the
+ * responses is {@link BufferedWebResponse#compress() compressed} while stored.
+ * </p>
+ * <p>
+ * The number of entries and bytes, hits, misses, expired and evicted responses are available for
+ * monitoring.
+ * </p>
+ */
+public class BufferedResponseStore implements IBufferedResponseStore
+{
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/** entries in the order they were stored, possibly including already removed ones */
+	private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+
+	private final long maxBytes;
+
+	private final long lifetime;
+
+	private final boolean compress;
+
+	private final AtomicLong bytes = new AtomicLong();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong expired = new AtomicLong();
+
+	private final AtomicLong evicted = new AtomicLong();
+
+	/**
+	 * Construct.
+	 *
+	 * @param maxBytes
+	 *            budget of bytes for all stored responses
+	 * @param lifetime
+	 *            the duration of time to keep a response before considering it expired
+	 * @param compress
+	 *            whether to compress the text of stored responses
+	 */
+	public BufferedResponseStore(Bytes maxBytes, Duration lifetime, boolean compress)
+	{
+		this.maxBytes = Args.notNull(maxBytes, "maxBytes").bytes();
+		this.lifetime = Args.notNull(lifetime, "lifetime").getMilliseconds();
+		this.compress = compress;
+	}
+
+	@Override
+	public void put(String key, BufferedWebResponse response)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(response, "response");
+
+		if (compress)
+		{
+			response.compress();
+		}
+
+		long now = now();
+		Entry entry = new Entry(key, response, response.getBufferedBytes(), now);
+		if (entry.bytes > maxBytes)
+		{
+			// would evict everything else
+			Entry old = entries.get(key);
+			if (old != null)
+			{
+				removeEntry(old);
+			}
+			evicted.incrementAndGet();
+			return;
+		}
+
+		bytes.addAndGet(entry.bytes);
+		Entry old = entries.put(key, entry);
+		if (old != null)
+		{
+			bytes.addAndGet(-old.bytes);
+		}
+		order.add(entry);
+
+		evict(now);
+	}
+
+	/**
+	 * Evicts the oldest entries while the budget is exceeded or they are expired.
+	 *
+	 * @param now
+	 *            the current time
+	 */
+	private void evict(long now)
+	{
+		Entry eldest;
+		while ((eldest = order.peek()) != null)
+		{
+			boolean isExpired = isExpired(eldest, now);
+			if (isExpired == false && bytes.get() <= maxBytes &&
+				entries.get(eldest.key) == eldest)
+			{
+				break;
+			}
+
+			if (order.remove(eldest) && removeEntry(eldest))
+			{
+				(isExpired ? expired : evicted).incrementAndGet();
+			}
+		}
+	}
+
+	@Override
+	public boolean contains(String key)
+	{
+		Entry entry = entries.get(key);
+		return entry != null && isExpired(entry, now()) == false;
+	}
+
+	@Override
+	public BufferedWebResponse remove(String key)
+	{
+		Entry entry = entries.get(key);
+		if (entry == null || removeEntry(entry) == false)
+		{
+			misses.incrementAndGet();
+			return null;
+		}
+
+		if (isExpired(entry, now()))
+		{
+			expired.incrementAndGet();
+			return null;
+		}
+
+		hits.incrementAndGet();
+		return entry.response;
+	}
+
+	/**
+	 * Removes the entry, if it is still stored.
+	 *
+	 * @param entry
+	 * @return <code>true</code> if removed
+	 */
+	private boolean removeEntry(Entry entry)
+	{
+		if (entries.remove(entry.key, entry))
+		{
+			bytes.addAndGet(-entry.bytes);
+			return true;
+		}
+		return false;
+	}
+
+	private boolean isExpired(Entry entry, long now)
+	{
+		return now - entry.creationTime >= lifetime;
+	}
+
+	/**
+	 * @return the current time in milliseconds
+	 */
+	private long now()
+	{
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * @return the number of stored responses, including expired ones not evicted yet
+	 */
+	public int getEntries()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return the number of bytes of the stored responses
+	 */
+	public long getBytes()
+	{
+		return bytes.get();
+	}
+
+	/**
+	 * @return the number of stored responses removed successfully
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of removals not finding a response
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of expired responses
+	 */
+	public long getExpired()
+	{
+		return expired.get();
+	}
+
+	/**
+	 * @return the number of responses evicted because of the byte budget
+	 */
+	public long getEvicted()
+	{
+		return evicted.get();
+	}
+
+	@Override
+	public String toString()
+	{
+		return "BufferedResponseStore [entries=" + getEntries() + ", bytes=" + getBytes() +
+			", hits=" + getHits() + ", misses=" + getMisses() + ", expired=" + getExpired() +
+			", evicted=" + getEvicted() + "]";
+	}
+
+	/**
+	 * A stored response.
+	 */
+	private static class Entry
+	{
+		private final String key;
+
+		private final BufferedWebResponse response;
+
+		private final long bytes;
+
+		private final long creationTime;
+
+		private Entry(String key, BufferedWebResponse response, long bytes, long creationTime)
+		{
+			this.key = key;
+			this.response = response;
+			this.bytes = bytes;
+			this.creationTime = creationTime;
+		}
+	}
+}
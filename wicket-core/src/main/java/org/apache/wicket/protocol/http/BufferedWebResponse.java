@@ -16,13 +16,23 @@
  */
 package org.apache.wicket.protocol.http;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
+import javax.servlet.ServletResponse;
 import javax.servlet.http.Cookie;
 
 import org.apache.wicket.Application;
@@ -30,8 +40,10 @@ import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.request.Response;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.response.filter.IResponseFilter;
+import org.apache.wicket.settings.RequestCycleSettings;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.string.AppendingStringBuffer;
+import org.apache.wicket.util.string.PreEncodedText;
 import org.apache.wicket.util.time.Time;
 
 /**
@@ -142,24 +154,158 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 	{
 		private final StringBuilder builder = new StringBuilder(4096);
 
+		/** pre-encoded texts written to the builder */
+		private final List<Segment> segments = new ArrayList<>();
+
+		/** length of the builder after the last append, to detect modifications from outside */
+		private int length;
+
+		/** the compressed characters of the builder, {@code null} if not compressed */
+		private byte[] compressed;
+
 		public WriteCharSequenceAction()
 		{
 
 		}
 
+		/**
+		 * @return the builder, decompressed if needed
+		 */
+		public StringBuilder getBuilder()
+		{
+			decompress();
+			return builder;
+		}
+
 		public void append(CharSequence sequence)
 		{
+			decompress();
 			builder.append(sequence);
+			length = builder.length();
+		}
+
+		public void append(PreEncodedText text)
+		{
+			if (text.length() > 0)
+			{
+				decompress();
+				segments.add(new Segment(builder.length(), text));
+				builder.append(text.toString());
+				length = builder.length();
+			}
+		}
+
+		public void clear()
+		{
+			builder.setLength(0);
+			segments.clear();
+			length = 0;
+			compressed = null;
+		}
+
+		/**
+		 * @return the number of bytes occupied by the text
+		 */
+		public long getSize()
+		{
+			return compressed != null ? compressed.length : builder.length() * 2L;
+		}
+
+		/**
+		 * Compresses the characters of the builder, releasing its memory.
+		 */
+		public void compress()
+		{
+			if (compressed != null || builder.length() != length || length == 0)
+			{
+				return;
+			}
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4 + 64);
+			Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+			try (OutputStream out = new DeflaterOutputStream(bytes, deflater, CHUNK_SIZE))
+			{
+				byte[] chunk = new byte[CHUNK_SIZE];
+				for (int start = 0; start < length; start += CHUNK_SIZE / 2)
+				{
+					int end = Math.min(start + CHUNK_SIZE / 2, length);
+					int count = 0;
+					for (int i = start; i < end; i++)
+					{
+						char c = builder.charAt(i);
+						chunk[count++] = (byte)(c >> 8);
+						chunk[count++] = (byte)c;
+					}
+					out.write(chunk, 0, count);
+				}
+			}
+			catch (IOException e)
+			{
+				throw new WicketRuntimeException(e);
+			}
+			finally
+			{
+				deflater.end();
+			}
+
+			compressed = bytes.toByteArray();
+			builder.setLength(0);
+			builder.trimToSize();
+		}
+
+		private void decompress()
+		{
+			if (compressed == null)
+			{
+				return;
+			}
+
+			builder.ensureCapacity(length);
+			try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed)))
+			{
+				byte[] chunk = new byte[CHUNK_SIZE];
+				int pending = -1;
+				int count;
+				while ((count = in.read(chunk)) != -1)
+				{
+					for (int i = 0; i < count; i++)
+					{
+						int b = chunk[i] & 0xff;
+						if (pending == -1)
+						{
+							pending = b;
+						}
+						else
+						{
+							builder.append((char)((pending << 8) | b));
+							pending = -1;
+						}
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				throw new WicketRuntimeException(e);
+			}
+
+			compressed = null;
 		}
 
 		@Override
 		protected void invoke(WebResponse response)
 		{
-			AppendingStringBuffer responseBuffer = new AppendingStringBuffer(builder);
+			decompress();
+
+			RequestCycleSettings settings = Application.get().getRequestCycleSettings();
+			List<IResponseFilter> responseFilters = settings.getResponseFilters();
 
-			List<IResponseFilter> responseFilters = Application.get()
-				.getRequestCycleSettings()
-				.getResponseFilters();
+			if (responseFilters == null && settings.getWritePreEncodedMarkup() &&
+				writeEncoded(response))
+			{
+				return;
+			}
+
+			AppendingStringBuffer responseBuffer = new AppendingStringBuffer(builder);
 
 			if (responseFilters != null)
 			{
@@ -171,6 +317,90 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 			response.write(responseBuffer);
 		}
 
+		/**
+		 * Writes the text as bytes, copying the bytes of the pre-encoded texts and encoding the
+		 * text in between only.
+		 * 
+		 * @param response
+		 * @return {@code true} if written, {@code false} if the text has to be written as is
+		 */
+		private boolean writeEncoded(WebResponse response)
+		{
+			if (segments.isEmpty() || builder.length() != length)
+			{
+				return false;
+			}
+
+			Charset charset = getCharset(response);
+			if (charset == null)
+			{
+				return false;
+			}
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream(builder.length() + 256);
+			int position = 0;
+			for (Segment segment : segments)
+			{
+				if (segment.text.isSelfContained())
+				{
+					encode(stream, charset, position, segment.offset);
+					byte[] bytes = segment.text.getBytes(charset);
+					stream.write(bytes, 0, bytes.length);
+					position = segment.offset + segment.text.length();
+				}
+			}
+			encode(stream, charset, position, builder.length());
+
+			try
+			{
+				writeStream(response, stream);
+				return true;
+			}
+			catch (IllegalStateException | IllegalArgumentException e)
+			{
+				// the container's writer is already in use
+				return false;
+			}
+		}
+
+		private void encode(ByteArrayOutputStream stream, Charset charset, int start, int end)
+		{
+			if (start < end)
+			{
+				ByteBuffer buffer = charset.encode(CharBuffer.wrap(builder, start, end));
+				stream.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+					buffer.remaining());
+			}
+		}
+
+		/**
+		 * Gets the charset of the container response, if its encoder is stateless so that texts
+		 * can be encoded separately.
+		 * 
+		 * @param response
+		 * @return charset or {@code null}
+		 */
+		private static Charset getCharset(WebResponse response)
+		{
+			Object containerResponse = response.getContainerResponse();
+			if (containerResponse instanceof ServletResponse)
+			{
+				String encoding = ((ServletResponse)containerResponse).getCharacterEncoding();
+				if (encoding != null)
+				{
+					for (Charset charset : STATELESS_CHARSETS)
+					{
+						if (charset.name().equalsIgnoreCase(encoding) ||
+							charset.aliases().contains(encoding))
+						{
+							return charset;
+						}
+					}
+				}
+			}
+			return null;
+		}
+
 		@Override
 		protected ActionType getType()
 		{
@@ -178,6 +408,34 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 	}
 
+	/**
+	 * Size of chunks to compress text in.
+	 */
+	private static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * Charsets whose encoders produce the same bytes for a text, whether it is encoded at once or in
+	 * parts.
+	 */
+	private static final Charset[] STATELESS_CHARSETS = { StandardCharsets.UTF_8,
+			StandardCharsets.ISO_8859_1, StandardCharsets.US_ASCII };
+
+	/**
+	 * A pre-encoded text at an offset of the written text.
+	 */
+	private static class Segment
+	{
+		private final int offset;
+
+		private final PreEncodedText text;
+
+		private Segment(int offset, PreEncodedText text)
+		{
+			this.offset = offset;
+			this.text = text;
+		}
+	}
+
 	private static class WriteDataAction extends Action
 	{
 		private final ByteArrayOutputStream stream = new ByteArrayOutputStream();
@@ -211,6 +469,14 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 			}
 		}
 
+		/**
+		 * @return the number of bytes written
+		 */
+		public long getSize()
+		{
+			return stream.size();
+		}
+
 		@Override
 		protected void invoke(WebResponse response)
 		{
@@ -496,6 +762,28 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		charSequenceAction.append(sequence);
 	}
 
+	/**
+	 * Buffers the text, keeping its encoded bytes for writing to the original response.
+	 * 
+	 * @see RequestCycleSettings#setWritePreEncodedMarkup(boolean)
+	 */
+	@Override
+	public void write(PreEncodedText text)
+	{
+		if (dataAction != null)
+		{
+			throw new IllegalStateException(
+				"Can't call write(PreEncodedText) after write(byte[]) has been called.");
+		}
+
+		if (charSequenceAction == null)
+		{
+			charSequenceAction = new WriteCharSequenceAction();
+			actions.add(charSequenceAction);
+		}
+		charSequenceAction.append(text);
+	}
+
 	/**
 	 * Returns the text already written to this response.
 	 * 
@@ -509,7 +797,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 		if (charSequenceAction != null)
 		{
-			return charSequenceAction.builder;
+			return charSequenceAction.getBuilder();
 		}
 		else
 		{
@@ -530,7 +818,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		}
 		if (charSequenceAction != null)
 		{
-			charSequenceAction.builder.setLength(0);
+			charSequenceAction.clear();
 		}
 		write(text);
 	}
@@ -567,6 +855,38 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		dataAction.append(array, offset, length);
 	}
 
+	/**
+	 * Gets the approximate number of bytes occupied by the buffered text or data.
+	 * 
+	 * @return number of bytes
+	 */
+	public long getBufferedBytes()
+	{
+		long bytes = 0;
+		if (charSequenceAction != null)
+		{
+			bytes += charSequenceAction.getSize();
+		}
+		if (dataAction != null)
+		{
+			bytes += dataAction.getSize();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Compresses the buffered text, e.g. to reduce memory while this response is stored for a
+	 * later request. The text is decompressed again as soon as it is needed, e.g. when this
+	 * response is written to another one.
+	 */
+	public void compress()
+	{
+		if (charSequenceAction != null)
+		{
+			charSequenceAction.compress();
+		}
+	}
+
 	@Override
 	public void sendRedirect(String url)
 	{
@@ -666,7 +986,7 @@ public class BufferedWebResponse extends WebResponse implements IMetaDataBufferi
 		final String toString;
 		if (charSequenceAction != null)
 		{
-			toString = charSequenceAction.builder.toString();
+			toString = charSequenceAction.getBuilder().toString();
 		}
 		else
 		{
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+/**
+ * Stores {@link BufferedWebResponse}s rendered in one request until they are written in the
+ * following request.
+ * <p>
+ * Implementations must be thread safe.
+ * </p>
+ *
+ * @see WebApplication#setBufferedResponseStore(IBufferedResponseStore)
+ * @see org.apache.wicket.settings.RequestCycleSettings.RenderStrategy#REDIRECT_TO_BUFFER
+ */
+public interface IBufferedResponseStore
+{
+	/**
+	 * Stores a response, replacing any response stored under the same key.
+	 *
+	 * @param key
+	 *            key of the response
+	 * @param response
+	 *            the response to store
+	 */
+	void put(String key, BufferedWebResponse response);
+
+	/**
+	 * Checks whether a response is stored.
+	 *
+	 * @param key
+	 *            key of the response
+	 * @return <code>true</code> if a non-expired response is stored
+	 */
+	boolean contains(String key);
+
+	/**
+	 * Removes a stored response.
+	 *
+	 * @param key
+	 *            key of the response
+	 * @return the removed response or <code>null</code> if none or an expired one was stored
+	 */
+	BufferedWebResponse remove(String key);
+}
@@ -76,6 +76,7 @@ import org.apache.wicket.util.file.FileCleaner;
 import org.apache.wicket.util.file.IFileCleaner;
 import org.apache.wicket.util.file.Path;
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.PackageName;
 import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.time.Duration;
@@ -948,11 +949,34 @@ public abstract class WebApplication extends Application
 	}
 
 	/*
-	 * Can contain at most 1000 responses and each entry can live at most one minute. For now there
-	 * is no need to configure these parameters externally.
+	 * Can contain at most 32 megabytes of responses and each entry can live at most one minute.
 	 */
-	private final StoredResponsesMap storedResponses = new StoredResponsesMap(1000,
-		Duration.seconds(60));
+	private IBufferedResponseStore bufferedResponseStore = new BufferedResponseStore(
+		Bytes.megabytes(32), Duration.seconds(60), false);
+
+	/**
+	 * Returns the store for buffered responses.
+	 * 
+	 * @return the store for buffered responses
+	 * @see org.apache.wicket.settings.RequestCycleSettings.RenderStrategy#REDIRECT_TO_BUFFER
+	 */
+	public IBufferedResponseStore getBufferedResponseStore()
+	{
+		return bufferedResponseStore;
+	}
+
+	/**
+	 * Sets the store for buffered responses.
+	 * 
+	 * @param bufferedResponseStore
+	 *            the new store
+	 * @return {@code this} for chaining
+	 */
+	public WebApplication setBufferedResponseStore(IBufferedResponseStore bufferedResponseStore)
+	{
+		this.bufferedResponseStore = Args.notNull(bufferedResponseStore, "bufferedResponseStore");
+		return this;
+	}
 
 	/**
 	 * 
@@ -963,7 +987,7 @@ public abstract class WebApplication extends Application
 	public boolean hasBufferedResponse(String sessionId, Url url)
 	{
 		String key = sessionId + url.toString();
-		return storedResponses.containsKey(key);
+		return bufferedResponseStore.contains(key);
 	}
 
 	/**
@@ -977,7 +1001,7 @@ public abstract class WebApplication extends Application
 	public BufferedWebResponse getAndRemoveBufferedResponse(String sessionId, Url url)
 	{
 		String key = sessionId + url.toString();
-		return storedResponses.remove(key);
+		return bufferedResponseStore.remove(key);
 	}
 
 	/**
@@ -997,7 +1021,7 @@ public abstract class WebApplication extends Application
 		}
 
 		String key = sessionId + url.toString();
-		storedResponses.put(key, response);
+		bufferedResponseStore.put(key, response);
 	}
 
 	@Override
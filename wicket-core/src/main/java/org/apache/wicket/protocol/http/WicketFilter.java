@@ -19,6 +19,11 @@ package org.apache.wicket.protocol.http;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -39,6 +44,7 @@ import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.util.file.WebXmlFile;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.string.Strings;
+import org.apache.wicket.util.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +82,22 @@ public class WicketFilter implements Filter
 	 */
 	public static final String IGNORE_PATHS_PARAM = "ignorePaths";
 
+	/**
+	 * Name of parameter used to enable asynchronous processing of requests for resources and
+	 * other non-page request handlers, specifying the number of threads to use
+	 * 
+	 * @see AsyncRequestProcessor
+	 */
+	public static final String ASYNC_THREADS_PARAM = "asyncThreads";
+
+	/**
+	 * Name of parameter used to express the maximum duration of asynchronously processed
+	 * requests, e.g. "30 seconds", defaults to one minute
+	 * 
+	 * @see #ASYNC_THREADS_PARAM
+	 */
+	public static final String ASYNC_TIMEOUT_PARAM = "asyncTimeout";
+
 	// Wicket's Application object
 	private WebApplication application;
 
@@ -92,6 +114,9 @@ public class WicketFilter implements Filter
 	/** set of paths that should be ignored by the wicket filter */
 	private final Set<String> ignorePaths = new HashSet<String>();
 
+	/** processor of asynchronous requests, <code>null</code> if disabled */
+	private AsyncRequestProcessor asyncRequestProcessor;
+
 	/**
 	 * A flag indicating whether WicketFilter is used directly or through WicketServlet
 	 */
@@ -177,6 +202,19 @@ public class WicketFilter implements Filter
 				return false;
 			}
 
+			if (asyncRequestProcessor != null &&
+				asyncRequestProcessor.isUnhandled(httpServletRequest))
+			{
+				log.debug("Request {} was not handled asynchronously",
+					httpServletRequest.getRequestURL());
+				if (chain != null)
+				{
+					// invoke next filter from within Wicket context
+					chain.doFilter(request, response);
+				}
+				return false;
+			}
+
 			if ("OPTIONS".equalsIgnoreCase(httpServletRequest.getMethod()))
 			{
 				// handle the OPTIONS request outside of normal request processing.
@@ -197,12 +235,24 @@ public class WicketFilter implements Filter
 				ThreadContext.setApplication(application);
 
 				WebRequest webRequest = application.createWebRequest(httpServletRequest, filterPath);
+
+				HttpServletResponse servletResponse = httpServletResponse;
+				if (asyncRequestProcessor != null)
+				{
+					servletResponse = asyncRequestProcessor.wrap(httpServletRequest,
+						httpServletResponse);
+				}
 				WebResponse webResponse = application.createWebResponse(webRequest,
-					httpServletResponse);
+					servletResponse);
 
 				RequestCycle requestCycle = application.createRequestCycle(webRequest, webResponse);
-				res = processRequestCycle(requestCycle, webResponse, httpServletRequest,
-					httpServletResponse, chain);
+				if (asyncRequestProcessor == null ||
+					asyncRequestProcessor.process(requestCycle, webResponse, httpServletRequest,
+						servletResponse) == false)
+				{
+					res = processRequestCycle(requestCycle, webResponse, httpServletRequest,
+						httpServletResponse, chain);
+				}
 			}
 			else
 			{
@@ -372,6 +422,7 @@ public class WicketFilter implements Filter
 		this.filterConfig = filterConfig;
 		this.isServlet = isServlet;
 		initIgnorePaths(filterConfig);
+		initAsyncRequestProcessor(filterConfig);
 
 		final ClassLoader previousClassLoader = Thread.currentThread().getContextClassLoader();
 		final ClassLoader newClassLoader = getClassLoader();
@@ -606,6 +657,18 @@ public class WicketFilter implements Filter
 	@Override
 	public void destroy()
 	{
+		if (asyncRequestProcessor != null)
+		{
+			try
+			{
+				asyncRequestProcessor.destroy();
+			}
+			finally
+			{
+				asyncRequestProcessor = null;
+			}
+		}
+
 		if (application != null)
 		{
 			try
@@ -826,6 +889,53 @@ public class WicketFilter implements Filter
 		}
 	}
 
+	/**
+	 * initializes the asynchronous processing of requests if enabled by parameter
+	 * 
+	 * @param filterConfig
+	 */
+	private void initAsyncRequestProcessor(final FilterConfig filterConfig)
+	{
+		String threads = filterConfig.getInitParameter(ASYNC_THREADS_PARAM);
+		if (Strings.isEmpty(threads) == false)
+		{
+			int count = Integer.parseInt(threads.trim());
+			if (count > 0)
+			{
+				Duration timeout = Duration.minutes(1);
+				String timeoutParam = filterConfig.getInitParameter(ASYNC_TIMEOUT_PARAM);
+				if (Strings.isEmpty(timeoutParam) == false)
+				{
+					timeout = Duration.valueOf(timeoutParam.trim());
+				}
+				asyncRequestProcessor = newAsyncRequestProcessor(count, timeout);
+			}
+		}
+	}
+
+	/**
+	 * Creates the processor of asynchronous requests. Its executor queues as many requests as it
+	 * has threads, further requests are processed on the container's threads.
+	 * 
+	 * @param threads
+	 *            number of threads as configured with {@link #ASYNC_THREADS_PARAM}
+	 * @param timeout
+	 *            maximum duration of requests as configured with {@link #ASYNC_TIMEOUT_PARAM}
+	 * @return processor
+	 */
+	protected AsyncRequestProcessor newAsyncRequestProcessor(int threads, Duration timeout)
+	{
+		final AtomicInteger counter = new AtomicInteger();
+		ExecutorService executor = new ThreadPoolExecutor(threads, threads, 0L,
+			TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads), runnable -> {
+				Thread thread = new Thread(runnable, "Wicket-AsyncRequest-" +
+					counter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		return new AsyncRequestProcessor(this, executor, timeout);
+	}
+
 	/**
 	 * A filterPath should have all leading slashes removed and exactly one trailing slash. A
 	 * wildcard asterisk character has no special meaning. If your intention is to mean the top
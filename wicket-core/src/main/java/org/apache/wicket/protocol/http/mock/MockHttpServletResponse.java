@@ -20,6 +20,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -312,7 +313,12 @@ public class MockHttpServletResponse implements HttpServletResponse, IMetaDataBu
 	{
 		if (mode == MODE_BINARY)
 		{
-			return new String(byteStream.toByteArray());
+			Charset charset = Charset.defaultCharset();
+			if (characterEncoding != null && Charset.isSupported(characterEncoding))
+			{
+				charset = Charset.forName(characterEncoding);
+			}
+			return new String(byteStream.toByteArray(), charset);
 		}
 		else
 		{
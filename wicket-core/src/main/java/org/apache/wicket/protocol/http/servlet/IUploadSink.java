@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.servlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.commons.fileupload.FileUploadBase.FileSizeLimitExceededException;
+import org.apache.commons.fileupload.FileUploadBase.FileUploadIOException;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.wicket.util.io.ByteCountingOutputStream;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+
+/**
+ * Receives the content of uploaded files while a multipart request is parsed, instead of it being
+ * buffered in memory or temporary files first.
+ * <p>
+ * Sinks are registered per field with
+ * {@link MultipartServletWebRequest#setUploadSink(String, IUploadSink)} before the request is
+ * parsed, e.g. by overriding
+ * {@link org.apache.wicket.markup.html.form.upload.FileUploadField#newUploadSink()}. The content
+ * of {@link org.apache.commons.fileupload.FileItem}s of such fields is read from the
+ * {@link #getFile(String) file} the sink wrote it to. If the sink does not keep the content, the
+ * items provide the client's file name, content type and size only, reading their content fails
+ * with an {@link IOException} or {@link IllegalStateException}.
+ * </p>
+ * <p>
+ * A sink may reject an upload early by throwing an {@link IOException}, e.g. when the file has
+ * an unwanted content type or grows too large. If it is a {@link FileUploadIOException}, the
+ * wrapped {@link org.apache.commons.fileupload.FileUploadException} is passed to
+ * {@link org.apache.wicket.markup.html.form.Form#onFileUploadException(org.apache.commons.fileupload.FileUploadException, java.util.Map)}.
+ * </p>
+ */
+@FunctionalInterface
+public interface IUploadSink
+{
+	/**
+	 * Opens the stream for the content of an uploaded file. The stream is closed after the
+	 * content was written.
+	 *
+	 * @param fileName
+	 *            name of the file on the client, may be <code>null</code>
+	 * @param contentType
+	 *            content type of the file, may be <code>null</code>
+	 * @return stream to write the content to
+	 * @throws IOException
+	 *             to reject the upload
+	 */
+	OutputStream open(String fileName, String contentType) throws IOException;
+
+	/**
+	 * Gets the file the content of an uploaded file was written to, so it can be read again. Called
+	 * after the stream {@link #open(String, String) opened} for it was closed.
+	 *
+	 * @param fileName
+	 *            name of the file on the client
+	 * @return file or <code>null</code> if the content is not kept
+	 */
+	default File getFile(String fileName)
+	{
+		return null;
+	}
+
+	/**
+	 * Deletes the content of an uploaded file, because it was not written completely or the
+	 * request failed later on.
+	 *
+	 * @param fileName
+	 *            name of the file on the client
+	 */
+	default void delete(String fileName)
+	{
+	}
+
+	/**
+	 * A sink writing the content of each uploaded file into its destination through a
+	 * {@link FileChannel}. An upload is rejected if its destination was written already by this
+	 * sink, e.g. if a field uploading multiple files maps them all to the same file. Destinations
+	 * of failed uploads are deleted.
+	 *
+	 * @param destinations
+	 *            function giving the destination for the name of the file on the client
+	 * @return sink
+	 */
+	static IUploadSink toFile(final Function<String, File> destinations)
+	{
+		Args.notNull(destinations, "destinations");
+
+		return new IUploadSink()
+		{
+			/** destinations written to, keyed by the name of the file on the client */
+			private final Map<String, File> files = new HashMap<>();
+
+			@Override
+			public OutputStream open(String fileName, String contentType) throws IOException
+			{
+				File file = Args.notNull(destinations.apply(fileName), "destination");
+				if (files.containsKey(fileName) || files.containsValue(file))
+				{
+					throw new FileUploadIOException(new FileUploadException("The file '" +
+						fileName + "' cannot be written to '" + file + "' twice"));
+				}
+				files.put(fileName, file);
+
+				return Channels.newOutputStream(FileChannel.open(file.toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+					StandardOpenOption.WRITE));
+			}
+
+			@Override
+			public File getFile(String fileName)
+			{
+				return files.get(fileName);
+			}
+
+			@Override
+			public void delete(String fileName)
+			{
+				File file = files.remove(fileName);
+				if (file != null)
+				{
+					file.delete();
+				}
+			}
+		};
+	}
+
+	/**
+	 * A sink discarding the content, updating a digest with it.
+	 *
+	 * @param digest
+	 *            digest to update
+	 * @return sink
+	 */
+	static IUploadSink digest(final MessageDigest digest)
+	{
+		Args.notNull(digest, "digest");
+
+		return (fileName, contentType) -> new DigestOutputStream(new ByteCountingOutputStream(),
+			digest);
+	}
+
+	/**
+	 * A sink discarding the content, rejecting files larger than the given size.
+	 *
+	 * @param maxSize
+	 *            maximum size of a file
+	 * @return sink
+	 */
+	static IUploadSink discard(final Bytes maxSize)
+	{
+		Args.notNull(maxSize, "maxSize");
+
+		return (fileName, contentType) -> new OutputStream()
+		{
+			private long size;
+
+			@Override
+			public void write(int b) throws IOException
+			{
+				write(null, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException
+			{
+				size += len;
+				if (size > maxSize.bytes())
+				{
+					FileSizeLimitExceededException e = new FileSizeLimitExceededException(
+						"The file '" + fileName + "' exceeds its maximum permitted size of " +
+							maxSize,
+						size, maxSize.bytes());
+					e.setFileName(fileName);
+					throw new FileUploadIOException(e);
+				}
+			}
+		};
+	}
+}
@@ -16,6 +16,7 @@
  */
 package org.apache.wicket.protocol.http.servlet;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -48,6 +49,11 @@ public abstract class MultipartServletWebRequest extends ServletWebRequest
 	 */
 	private Bytes fileMaxSize;
 
+	/**
+	 * Sinks receiving the content of uploaded files, keyed by field name.
+	 */
+	private final Map<String, IUploadSink> uploadSinks = new HashMap<>();
+
 	/**
 	 * Construct.
 	 * 
@@ -131,4 +137,47 @@ public abstract class MultipartServletWebRequest extends ServletWebRequest
 	{
 		this.fileMaxSize = fileMaxSize;
 	}
+
+	/**
+	 * Gets the sink receiving the content of files uploaded with a field.
+	 *
+	 * @param fieldName
+	 *            name of the field
+	 * @return sink or <code>null</code> if the files are kept in {@link FileItem}s
+	 */
+	public IUploadSink getUploadSink(String fieldName)
+	{
+		return uploadSinks.get(fieldName);
+	}
+
+	/**
+	 * Sets the sink receiving the content of files uploaded with a field, while the request is
+	 * {@link #parseFileParts() parsed}. Has to be called before parsing.
+	 *
+	 * @param fieldName
+	 *            name of the field
+	 * @param uploadSink
+	 *            sink or <code>null</code> to keep the files in {@link FileItem}s
+	 */
+	public void setUploadSink(String fieldName, IUploadSink uploadSink)
+	{
+		Args.notNull(fieldName, "fieldName");
+
+		if (uploadSink == null)
+		{
+			uploadSinks.remove(fieldName);
+		}
+		else
+		{
+			uploadSinks.put(fieldName, uploadSink);
+		}
+	}
+
+	/**
+	 * @return whether any {@link IUploadSink} is set
+	 */
+	protected boolean hasUploadSinks()
+	{
+		return uploadSinks.isEmpty() == false;
+	}
 }
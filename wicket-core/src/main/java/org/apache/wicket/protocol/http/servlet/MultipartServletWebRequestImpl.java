@@ -18,6 +18,7 @@ package org.apache.wicket.protocol.http.servlet;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -27,23 +28,33 @@ import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 import javax.servlet.http.Part;
 
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.fileupload.FileItemFactory;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
 import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadBase.FileUploadIOException;
+import org.apache.commons.fileupload.FileUploadBase.IOFileUploadException;
 import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.RequestContext;
 import org.apache.commons.fileupload.disk.DiskFileItemFactory;
 import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.apache.commons.fileupload.servlet.ServletRequestContext;
+import org.apache.commons.fileupload.util.Streams;
 import org.apache.commons.io.FileCleaningTracker;
 import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.settings.ApplicationSettings;
 import org.apache.wicket.util.file.FileCleanerTrackerAdapter;
 import org.apache.wicket.util.file.IFileCleaner;
+import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.string.StringValue;
+import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.value.ValueMap;
 
 /**
@@ -74,6 +85,18 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 	/** content length cache, used for upload notifications */
 	private int totalBytes;
 
+	/** bytes uploaded at the last upload notification */
+	private int bytesNotified;
+
+	/** time of the last upload notification */
+	private long timeNotified;
+
+	/** granularity of upload notifications in bytes */
+	private long notificationBytes;
+
+	/** granularity of upload notifications in milliseconds */
+	private long notificationInterval;
+
 	/**
 	 * Constructor.
 	 *
@@ -179,16 +202,30 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 			};
 			totalBytes = request.getContentLength();
 
+			ApplicationSettings settings = Application.get().getApplicationSettings();
+			notificationBytes = settings.getUploadProgressUpdateBytes().bytes();
+			notificationInterval = settings.getUploadProgressUpdateInterval().getMilliseconds();
+			timeNotified = System.currentTimeMillis();
+
 			onUploadStarted(totalBytes);
 			try
 			{
-				items = fileUpload.parseRequest(ctx);
+				items = parseRequest(fileUpload, ctx);
+
+				if (bytesUploaded > bytesNotified)
+				{
+					notifyUploadUpdate();
+				}
 			}
 			finally
 			{
 				onUploadCompleted();
 			}
 		}
+		else if (hasUploadSinks())
+		{
+			items = parseRequest(fileUpload, new ServletRequestContext(request));
+		}
 		else
 		{
 			// try to parse the file uploads by using Apache Commons FileUpload APIs
@@ -242,6 +279,104 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 		}
 	}
 
+	/**
+	 * Parses the request by using Apache Commons FileUpload APIs. Files uploaded with fields having
+	 * an {@link IUploadSink} are streamed into their sink as they arrive, all other items are
+	 * created by the {@link FileItemFactory}.
+	 *
+	 * @param fileUpload
+	 *            the file upload to parse with
+	 * @param ctx
+	 *            context of the request
+	 * @return A list of {@link FileItem}s
+	 * @throws FileUploadException
+	 */
+	private List<FileItem> parseRequest(FileUploadBase fileUpload, RequestContext ctx)
+		throws FileUploadException
+	{
+		if (hasUploadSinks() == false)
+		{
+			return fileUpload.parseRequest(ctx);
+		}
+
+		List<FileItem> items = new ArrayList<>();
+		boolean successful = false;
+		try
+		{
+			FileItemFactory factory = fileUpload.getFileItemFactory();
+			FileItemIterator iterator = fileUpload.getItemIterator(ctx);
+			while (iterator.hasNext())
+			{
+				FileItemStream stream = iterator.next();
+
+				IUploadSink sink = null;
+				// WICKET-6270 empty fields have no file name
+				if (stream.isFormField() == false && Strings.isEmpty(stream.getName()) == false)
+				{
+					sink = getUploadSink(stream.getFieldName());
+				}
+
+				FileItem item;
+				if (sink == null)
+				{
+					item = factory.createItem(stream.getFieldName(), stream.getContentType(),
+						stream.isFormField(), stream.getName());
+					Streams.copy(stream.openStream(), item.getOutputStream(), true);
+				}
+				else
+				{
+					long size = -1;
+					OutputStream out = sink.open(stream.getName(), stream.getContentType());
+					try
+					{
+						size = Streams.copy(stream.openStream(), out, true);
+					}
+					finally
+					{
+						if (size == -1)
+						{
+							// not written completely
+							IOUtils.closeQuietly(out);
+							sink.delete(stream.getName());
+						}
+					}
+					item = new StreamedFileItem(stream.getFieldName(), stream.getName(),
+						stream.getContentType(), size, sink);
+				}
+				item.setHeaders(stream.getHeaders());
+				items.add(item);
+			}
+			successful = true;
+			return items;
+		}
+		catch (FileUploadIOException e)
+		{
+			throw (FileUploadException)e.getCause();
+		}
+		catch (IOException e)
+		{
+			throw new IOFileUploadException("Processing of multipart/form-data request failed. " +
+				e.getMessage(), e);
+		}
+		finally
+		{
+			if (successful == false)
+			{
+				for (FileItem item : items)
+				{
+					if (item instanceof StreamedFileItem)
+					{
+						((StreamedFileItem)item).discard();
+					}
+					else
+					{
+						item.delete();
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * Reads the uploads' parts by using Servlet 3.0 APIs.
 	 *
@@ -397,23 +532,21 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 	}
 
 	/**
-	 * Upload status update callback
+	 * Upload status update callback, invoked at the granularity configured in
+	 * {@link ApplicationSettings#setUploadProgressUpdateGranularity(Bytes, org.apache.wicket.util.time.Duration)}.
 	 * 
 	 * @param bytesUploaded
 	 * @param total
 	 */
 	protected void onUploadUpdate(int bytesUploaded, int total)
 	{
-		HttpServletRequest request = getContainerRequest();
-		UploadInfo info = getUploadInfo(request, upload);
+		UploadInfo info = getUploadInfo(getContainerRequest(), upload);
 		if (info == null)
 		{
 			throw new IllegalStateException(
-				"could not find UploadInfo object in session which should have been set when uploaded started");
+				"could not find UploadInfo object which should have been set when uploaded started");
 		}
 		info.setBytesUploaded(bytesUploaded);
-
-		setUploadInfo(request, upload, info);
 	}
 
 	/**
@@ -424,6 +557,42 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 		clearUploadInfo(getContainerRequest(), upload);
 	}
 
+	/**
+	 * Counts bytes read and notifies about the upload progress if enough bytes were read or enough
+	 * time passed since the last notification.
+	 * 
+	 * @param read
+	 *            number of bytes read, or -1 at the end of the stream
+	 */
+	private void onRead(int read)
+	{
+		if (read > 0)
+		{
+			bytesUploaded += read;
+		}
+
+		if (bytesUploaded - bytesNotified >= notificationBytes)
+		{
+			notifyUploadUpdate();
+		}
+		else if (bytesUploaded > bytesNotified)
+		{
+			long now = System.currentTimeMillis();
+			if (now - timeNotified >= notificationInterval)
+			{
+				notifyUploadUpdate();
+			}
+		}
+	}
+
+	private void notifyUploadUpdate()
+	{
+		bytesNotified = bytesUploaded;
+		timeNotified = System.currentTimeMillis();
+
+		onUploadUpdate(bytesUploaded, totalBytes);
+	}
+
 	/**
 	 * An {@link InputStream} that updates total number of bytes read
 	 * 
@@ -452,8 +621,7 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 		public int read() throws IOException
 		{
 			int read = in.read();
-			bytesUploaded += (read < 0) ? 0 : 1;
-			onUploadUpdate(bytesUploaded, totalBytes);
+			onRead(read < 0 ? read : 1);
 			return read;
 		}
 
@@ -464,8 +632,7 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 		public int read(byte[] b) throws IOException
 		{
 			int read = in.read(b);
-			bytesUploaded += (read < 0) ? 0 : read;
-			onUploadUpdate(bytesUploaded, totalBytes);
+			onRead(read);
 			return read;
 		}
 
@@ -476,8 +643,7 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 		public int read(byte[] b, int off, int len) throws IOException
 		{
 			int read = in.read(b, off, len);
-			bytesUploaded += (read < 0) ? 0 : read;
-			onUploadUpdate(bytesUploaded, totalBytes);
+			onRead(read);
 			return read;
 		}
 
@@ -518,37 +684,36 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 		return this;
 	}
 
-	private static final String SESSION_KEY = MultipartServletWebRequestImpl.class.getName();
-
-	private static String getSessionKey(String upload)
-	{
-		return SESSION_KEY + ":" + upload;
-	}
-
 	/**
-	 * Retrieves {@link UploadInfo} from session, null if not found.
+	 * Retrieves {@link UploadInfo} from the application's {@link UploadProgressRegistry}, null if
+	 * not found.
 	 * 
 	 * @param req
 	 *            http servlet request, not null
 	 * @param upload
 	 *            upload identifier
-	 * @return {@link UploadInfo} object from session, or null if not found
+	 * @return {@link UploadInfo} object from registry, or null if not found
 	 */
 	public static UploadInfo getUploadInfo(final HttpServletRequest req, String upload)
 	{
 		Args.notNull(req, "req");
-		return (UploadInfo)req.getSession().getAttribute(getSessionKey(upload));
+		HttpSession session = req.getSession(false);
+		if (session == null)
+		{
+			return null;
+		}
+		return getUploadProgressRegistry().get(session.getId(), upload);
 	}
 
 	/**
-	 * Sets the {@link UploadInfo} object into session.
+	 * Sets the {@link UploadInfo} object into the application's {@link UploadProgressRegistry}.
 	 * 
 	 * @param req
 	 *            http servlet request, not null
 	 * @param upload
 	 *            upload identifier
 	 * @param uploadInfo
-	 *            {@link UploadInfo} object to be put into session, not null
+	 *            {@link UploadInfo} object to be put into registry, not null
 	 */
 	public static void setUploadInfo(final HttpServletRequest req, String upload,
 		final UploadInfo uploadInfo)
@@ -556,11 +721,12 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 		Args.notNull(req, "req");
 		Args.notNull(upload, "upload");
 		Args.notNull(uploadInfo, "uploadInfo");
-		req.getSession().setAttribute(getSessionKey(upload), uploadInfo);
+		getUploadProgressRegistry().put(req.getSession().getId(), upload, uploadInfo);
 	}
 
 	/**
-	 * Clears the {@link UploadInfo} object from session if one exists.
+	 * Clears the {@link UploadInfo} object from the application's {@link UploadProgressRegistry}
+	 * if one exists.
 	 * 
 	 * @param req
 	 *            http servlet request, not null
@@ -571,7 +737,15 @@ public class MultipartServletWebRequestImpl extends MultipartServletWebRequest
 	{
 		Args.notNull(req, "req");
 		Args.notNull(upload, "upload");
-		req.getSession().removeAttribute(getSessionKey(upload));
+		HttpSession session = req.getSession(false);
+		if (session != null)
+		{
+			getUploadProgressRegistry().remove(session.getId(), upload);
+		}
 	}
 
+	private static UploadProgressRegistry getUploadProgressRegistry()
+	{
+		return Application.get().getApplicationSettings().getUploadProgressRegistry();
+	}
 }
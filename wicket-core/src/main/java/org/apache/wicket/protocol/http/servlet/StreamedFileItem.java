@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.servlet;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileItemHeaders;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A {@link FileItem} whose content was written to an {@link IUploadSink}. The content is read from
+ * the {@link IUploadSink#getFile(String) file} the sink kept it in, if any.
+ */
+class StreamedFileItem implements FileItem
+{
+	private static final long serialVersionUID = 1L;
+
+	private static final String NOT_KEPT = "The content was not kept by the upload sink";
+
+	private String fieldName;
+	private final String name;
+	private final String contentType;
+	private final long size;
+	private final File file;
+	private final transient IUploadSink sink;
+	private boolean formField;
+	private FileItemHeaders headers;
+
+	/**
+	 * Constructor
+	 *
+	 * @param fieldName
+	 * @param name
+	 * @param contentType
+	 * @param size
+	 * @param sink
+	 *            the sink the content was written to
+	 */
+	StreamedFileItem(String fieldName, String name, String contentType, long size,
+		IUploadSink sink)
+	{
+		this.fieldName = Args.notNull(fieldName, "fieldName");
+		this.name = name;
+		this.contentType = contentType;
+		this.size = size;
+		this.sink = Args.notNull(sink, "sink");
+		file = sink.getFile(name);
+	}
+
+	/**
+	 * Lets the sink delete the content, because the request failed.
+	 */
+	void discard()
+	{
+		sink.delete(name);
+	}
+
+	/**
+	 * @throws IOException
+	 *             if the content was not kept
+	 */
+	@Override
+	public InputStream getInputStream() throws IOException
+	{
+		if (file == null)
+		{
+			throw new IOException(NOT_KEPT);
+		}
+		return new FileInputStream(file);
+	}
+
+	@Override
+	public String getContentType()
+	{
+		return contentType;
+	}
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Override
+	public boolean isInMemory()
+	{
+		return false;
+	}
+
+	@Override
+	public long getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if the content was not kept
+	 */
+	@Override
+	public byte[] get()
+	{
+		if (file == null)
+		{
+			throw new IllegalStateException(NOT_KEPT);
+		}
+		try
+		{
+			return Files.readAllBytes(file.toPath());
+		}
+		catch (IOException iox)
+		{
+			throw new WicketRuntimeException(iox);
+		}
+	}
+
+	@Override
+	public String getString(String encoding) throws UnsupportedEncodingException
+	{
+		return new String(get(), encoding);
+	}
+
+	@Override
+	public String getString()
+	{
+		return new String(get(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Copies the content, the file the sink kept it in is left untouched.
+	 *
+	 * @throws IOException
+	 *             if the content was not kept
+	 */
+	@Override
+	public void write(File target) throws IOException
+	{
+		if (file == null)
+		{
+			throw new IOException(NOT_KEPT);
+		}
+		if (file.equals(target) == false)
+		{
+			Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	@Override
+	public void delete()
+	{
+		// the content belongs to the sink
+	}
+
+	@Override
+	public String getFieldName()
+	{
+		return fieldName;
+	}
+
+	@Override
+	public void setFieldName(String name)
+	{
+		fieldName = name;
+	}
+
+	@Override
+	public boolean isFormField()
+	{
+		return formField;
+	}
+
+	@Override
+	public void setFormField(boolean state)
+	{
+		formField = state;
+	}
+
+	/**
+	 * @throws IOException
+	 *             always, as the content was written to the sink already
+	 */
+	@Override
+	public OutputStream getOutputStream() throws IOException
+	{
+		throw new IOException("The content was written to the upload sink already");
+	}
+
+	@Override
+	public FileItemHeaders getHeaders()
+	{
+		return headers;
+	}
+
+	@Override
+	public void setHeaders(FileItemHeaders headers)
+	{
+		this.headers = headers;
+	}
+}
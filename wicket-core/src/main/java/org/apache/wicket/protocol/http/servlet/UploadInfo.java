@@ -34,7 +34,7 @@ public class UploadInfo implements IClusterable
 
 	private transient long timeStarted;
 	private transient long totalBytes;
-	private transient long bytesUploaded;
+	private transient volatile long bytesUploaded;
 
 	/**
 	 * @param totalBytes
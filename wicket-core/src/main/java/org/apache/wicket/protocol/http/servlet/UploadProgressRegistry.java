@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.servlet;
+
+import java.util.Map;
+
+import org.apache.wicket.util.collections.MostRecentlyUsedMap;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Keeps the {@link UploadInfo}s of running uploads in memory, outside of the http session, so
+ * progress updates do not trigger replication or persisting of sessions.
+ * <p>
+ * Uploads are identified by the id of the http session plus the upload identifier. The registry is
+ * bounded: if more uploads are registered than allowed, the least recently used ones are dropped,
+ * so uploads not cleared (e.g. because of a crashed request) cannot leak.
+ * </p>
+ * <p>
+ * Note that in a cluster the progress of an upload can only be queried on the node receiving the
+ * upload.
+ * </p>
+ *
+ * @see org.apache.wicket.settings.ApplicationSettings#getUploadProgressRegistry()
+ */
+public class UploadProgressRegistry
+{
+	private final Map<String, UploadInfo> uploads;
+
+	/**
+	 * Construct.
+	 *
+	 * @param maxEntries
+	 *            maximum number of uploads to keep track of
+	 */
+	public UploadProgressRegistry(int maxEntries)
+	{
+		uploads = new MostRecentlyUsedMap<>(maxEntries);
+	}
+
+	private static String getKey(String sessionId, String upload)
+	{
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(upload, "upload");
+
+		return sessionId + ":" + upload;
+	}
+
+	/**
+	 * Gets the information about an upload.
+	 *
+	 * @param sessionId
+	 *            id of the http session
+	 * @param upload
+	 *            upload identifier
+	 * @return info or <code>null</code> if no such upload is running
+	 */
+	public UploadInfo get(String sessionId, String upload)
+	{
+		String key = getKey(sessionId, upload);
+		synchronized (uploads)
+		{
+			return uploads.get(key);
+		}
+	}
+
+	/**
+	 * Registers the information about an upload.
+	 *
+	 * @param sessionId
+	 *            id of the http session
+	 * @param upload
+	 *            upload identifier
+	 * @param uploadInfo
+	 *            info, not null
+	 */
+	public void put(String sessionId, String upload, UploadInfo uploadInfo)
+	{
+		String key = getKey(sessionId, upload);
+		Args.notNull(uploadInfo, "uploadInfo");
+		synchronized (uploads)
+		{
+			uploads.put(key, uploadInfo);
+		}
+	}
+
+	/**
+	 * Removes the information about an upload.
+	 *
+	 * @param sessionId
+	 *            id of the http session
+	 * @param upload
+	 *            upload identifier
+	 */
+	public void remove(String sessionId, String upload)
+	{
+		String key = getKey(sessionId, upload);
+		synchronized (uploads)
+		{
+			uploads.remove(key);
+		}
+	}
+
+	/**
+	 * @return number of uploads tracked
+	 */
+	public int size()
+	{
+		synchronized (uploads)
+		{
+			return uploads.size();
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.wicket.protocol.http.servlet.ResponseIOException;
+import org.apache.wicket.request.resource.AbstractResource.WriteCallback;
+import org.apache.wicket.request.resource.IResource.Attributes;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * Writes a file or a part of it to the response with {@link FileChannel#transferTo}, so the data
+ * does not have to be copied through byte arrays on the heap. The range is handled like in
+ * {@link PartWriterCallback}.
+ * <p>
+ * If sendfile is enabled with {@link #setSendfile(boolean)} and the servlet container supports it
+ * (signaled by the request attribute {@value #SENDFILE_SUPPORT}) the file is not written by this
+ * callback at all but handed over to the container, which sends it directly from the file system
+ * cache to the socket. Sendfile is disabled by default, since the response then bypasses any
+ * filters buffering or modifying it after Wicket.
+ * </p>
+ */
+public class FileChannelWriterCallback extends WriteCallback
+{
+	/** request attribute set by containers supporting sendfile, e.g. Tomcat with NIO */
+	public static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+	private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+	private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+	private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+	/**
+	 * The file to write
+	 */
+	private final Path path;
+
+	/**
+	 * The total length to write if {@link #endbyte} is not specified
+	 */
+	private final long contentLength;
+
+	/**
+	 * The byte to start writing from, or {@code null} to start at the beginning of the file
+	 */
+	private final Long startbyte;
+
+	/**
+	 * The last byte to write, or {@code null} or -1 to write till the end of the file
+	 */
+	private final Long endbyte;
+
+	/**
+	 * If the container's sendfile support should be used
+	 */
+	private boolean sendfile = false;
+
+	/**
+	 * Creates a file channel writer callback.
+	 *
+	 * @param path
+	 *            the file to write
+	 * @param contentLength
+	 *            the length of the file
+	 * @param startbyte
+	 *            the start position to write from, may be {@code null}
+	 * @param endbyte
+	 *            the end position to write to (inclusive), may be {@code null}
+	 */
+	public FileChannelWriterCallback(Path path, long contentLength, Long startbyte, Long endbyte)
+	{
+		this.path = Args.notNull(path, "path");
+		this.contentLength = contentLength;
+		this.startbyte = startbyte;
+		this.endbyte = endbyte;
+	}
+
+	/**
+	 * Whether files of the given path can be written by this callback.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @return {@code true} if the path is on the default file system
+	 */
+	public static boolean supports(Path path)
+	{
+		return path != null && path.getFileSystem() == FileSystems.getDefault();
+	}
+
+	@Override
+	public void writeData(Attributes attributes) throws IOException
+	{
+		long start = startbyte != null ? startbyte : 0L;
+		long end = endbyte == null || endbyte == -1L ? contentLength : endbyte + 1;
+		end = Math.min(end, contentLength);
+		if (start >= end)
+		{
+			return;
+		}
+
+		if (sendfile && offerToContainer(attributes, start, end))
+		{
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			WritableByteChannel target = Channels.newChannel(attributes.getResponse()
+				.getOutputStream());
+
+			long position = start;
+			while (position < end)
+			{
+				long transferred = channel.transferTo(position, end - position, target);
+				if (transferred <= 0)
+				{
+					// the file has been truncated
+					break;
+				}
+				position += transferred;
+			}
+		}
+		catch (ResponseIOException e)
+		{
+			// the client has closed the connection and
+			// doesn't read the stream further on
+			// we ignore this case
+		}
+	}
+
+	/**
+	 * Hands the file over to the container if it supports sendfile.
+	 *
+	 * @param attributes
+	 * @param start
+	 *            the first byte to send
+	 * @param end
+	 *            the byte after the last one to send
+	 * @return {@code true} if the container sends the file
+	 * @throws IOException
+	 *             if the real path of the file can't be resolved
+	 */
+	private boolean offerToContainer(Attributes attributes, long start, long end)
+		throws IOException
+	{
+		Object containerRequest = attributes.getRequest().getContainerRequest();
+		if (containerRequest instanceof HttpServletRequest)
+		{
+			HttpServletRequest request = (HttpServletRequest)containerRequest;
+			if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)))
+			{
+				// the container requires the canonical path of the file
+				request.setAttribute(SENDFILE_FILENAME, path.toRealPath().toString());
+				request.setAttribute(SENDFILE_START, start);
+				request.setAttribute(SENDFILE_END, end);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return if the container's sendfile support is used
+	 */
+	public boolean isSendfile()
+	{
+		return sendfile;
+	}
+
+	/**
+	 * Sets whether the container's sendfile support should be used if available. It must not be
+	 * enabled if the response is buffered or filtered, e.g. compressed, after Wicket. Defaults to
+	 * {@code false}.
+	 *
+	 * @param sendfile
+	 *            if the container's sendfile support should be used
+	 * @return the file channel writer callback
+	 */
+	public FileChannelWriterCallback setSendfile(boolean sendfile)
+	{
+		this.sendfile = sendfile;
+		return this;
+	}
+}
@@ -35,8 +35,10 @@ import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.mock.MockWebRequest;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.resource.caching.IStaticCacheableResource;
 import org.apache.wicket.response.StringResponse;
+import org.apache.wicket.settings.ResourceSettings;
 import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.lang.Classes;
 import org.apache.wicket.util.lang.Packages;
@@ -46,6 +48,7 @@ import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
 import org.apache.wicket.util.resource.ResourceStreamWrapper;
 import org.apache.wicket.util.string.Strings;
 import org.apache.wicket.util.time.Time;
+import org.apache.wicket.util.watch.IModificationWatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -339,26 +342,45 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 
 			try
 			{
-				// read resource data to get the content length
-				InputStream inputStream = resourceStream.getInputStream();
+				// get content range information
+				RequestCycle cycle = RequestCycle.get();
+				Long startbyte = cycle.getMetaData(CONTENT_RANGE_STARTBYTE);
+				Long endbyte = cycle.getMetaData(CONTENT_RANGE_ENDBYTE);
 
+				InputStream inputStream = null;
 				byte[] bytes = null;
 				// send Content-Length header
 				if (readBuffered)
 				{
-					bytes = IOUtils.toByteArray(inputStream);
+					PackageResourceCache.Entry entry = getCachedBody(resourceStream, lastModified,
+						contentType);
+					if (entry != null)
+					{
+						bytes = entry.getBytes();
+
+						byte[] gzipped = entry.getGzippedBytes();
+						if (gzipped != null)
+						{
+							resourceResponse.getHeaders().addHeader("Vary", "Accept-Encoding");
+							if (startbyte == null && endbyte == null && acceptsGzip(attributes))
+							{
+								bytes = gzipped;
+								resourceResponse.getHeaders().addHeader("Content-Encoding", "gzip");
+							}
+						}
+					}
+					else
+					{
+						bytes = IOUtils.toByteArray(resourceStream.getInputStream());
+					}
 					resourceResponse.setContentLength(bytes.length);
 				}
 				else
 				{
+					inputStream = resourceStream.getInputStream();
 					resourceResponse.setContentLength(resourceStream.length().bytes());
 				}
 
-				// get content range information
-				RequestCycle cycle = RequestCycle.get();
-				Long startbyte = cycle.getMetaData(CONTENT_RANGE_STARTBYTE);
-				Long endbyte = cycle.getMetaData(CONTENT_RANGE_ENDBYTE);
-
 				// send response body with resource data
 				PartWriterCallback partWriterCallback = new PartWriterCallback(bytes != null
 					? new ByteArrayInputStream(bytes) : inputStream,
@@ -397,6 +419,69 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 		return resourceResponse;
 	}
 
+	/**
+	 * Gets the processed body of this resource from the application's
+	 * {@link PackageResourceCache}, reading and caching it if necessary.
+	 * 
+	 * @param resourceStream
+	 *            the located resource stream
+	 * @param lastModified
+	 *            the last modification time of the resource stream
+	 * @param contentType
+	 *            the content type of the resource
+	 * @return the cached body or {@code null} if the body cannot be cached
+	 * @throws IOException
+	 * @throws ResourceStreamNotFoundException
+	 */
+	private PackageResourceCache.Entry getCachedBody(final IResourceStream resourceStream,
+		final Time lastModified, final String contentType) throws IOException,
+		ResourceStreamNotFoundException
+	{
+		if (lastModified == null || Application.exists() == false)
+		{
+			return null;
+		}
+
+		ResourceSettings resourceSettings = Application.get().getResourceSettings();
+		PackageResourceCache cache = resourceSettings.getPackageResourceCache();
+		if (cache == null)
+		{
+			return null;
+		}
+
+		// the processing depends on the type and the compress flag of the resource
+		BodyKey key = new BodyKey(getClass().getName(), compress, new CacheKey(scopeName,
+			absolutePath, getCurrentLocale(), getCurrentStyle(), variation));
+		PackageResourceCache.Entry entry = cache.get(key, lastModified);
+		if (entry == null)
+		{
+			byte[] bytes = IOUtils.toByteArray(resourceStream.getInputStream());
+			entry = cache.put(key, lastModified, bytes, contentType);
+
+			IModificationWatcher watcher = resourceSettings.getResourceWatcher(true);
+			if (watcher != null)
+			{
+				cache.watch(key, resourceStream, watcher);
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * @param attributes
+	 *            current request attributes from client
+	 * @return {@code true} if the client accepts a gzipped body
+	 */
+	private static boolean acceptsGzip(final Attributes attributes)
+	{
+		if (attributes.getRequest() instanceof WebRequest)
+		{
+			String acceptEncoding = ((WebRequest)attributes.getRequest()).getHeader("Accept-Encoding");
+			return acceptEncoding != null && acceptEncoding.contains("gzip");
+		}
+		return false;
+	}
+
 	/**
 	 * Gives a chance to modify the resource going to be written in the response
 	 * 
@@ -749,6 +834,52 @@ public class PackageResource extends AbstractResource implements IStaticCacheabl
 		}
 	}
 
+	/**
+	 * The key of a processed body in the {@link PackageResourceCache}
+	 */
+	private static class BodyKey
+	{
+		private final String type;
+		private final boolean compress;
+		private final CacheKey cacheKey;
+
+		private BodyKey(String type, boolean compress, CacheKey cacheKey)
+		{
+			this.type = type;
+			this.compress = compress;
+			this.cacheKey = cacheKey;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (this == o)
+				return true;
+			if (!(o instanceof BodyKey))
+				return false;
+
+			BodyKey bodyKey = (BodyKey)o;
+
+			return compress == bodyKey.compress && type.equals(bodyKey.type) &&
+				cacheKey.equals(bodyKey.cacheKey);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = type.hashCode();
+			result = 31 * result + (compress ? 1 : 0);
+			result = 31 * result + cacheKey.hashCode();
+			return result;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "BodyKey{type='" + type + "', compress=" + compress + ", " + cacheKey + '}';
+		}
+	}
+
 	/**
 	 * If the package resource should be read buffered.<br>
 	 * <br>
@@ -0,0 +1,327 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Time;
+import org.apache.wicket.util.watch.IModifiable;
+import org.apache.wicket.util.watch.IModificationWatcher;
+
+/**
+ * An application scoped cache of the processed (e.g. minified) bodies of {@link PackageResource}s
+ * so that static JavaScript and CSS files are served from memory instead of being read from the
+ * class path and processed for each request.
+ * <p>
+ * For compressible content types a gzipped variant is computed once and sent to clients which
+ * accept it. An entry is valid as long as the last modification time of the resource does not
+ * change, in development mode entries are additionally removed by the resource watcher.
+ * </p>
+ * <p>
+ * The cache is limited by the size of all cached bodies, including their gzipped variants. The
+ * least recently used entries are evicted first.
+ * </p>
+ *
+ * @see org.apache.wicket.settings.ResourceSettings#setPackageResourceCache(PackageResourceCache)
+ */
+public class PackageResourceCache
+{
+	/** smaller bodies do not profit from compression */
+	private static final int MIN_COMPRESS_SIZE = 256;
+
+	private final long maxSize;
+
+	/** guarded by this */
+	private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/** the keys of the entries which are removed by a resource watcher */
+	private final Set<Object> watchedKeys = ConcurrentHashMap.newKeySet();
+
+	/** guarded by this */
+	private long size;
+
+	/** guarded by this */
+	private long hitCount;
+
+	/** guarded by this */
+	private long missCount;
+
+	/**
+	 * Construct.
+	 *
+	 * @param maxSize
+	 *            the maximum size of all cached bodies
+	 */
+	public PackageResourceCache(final Bytes maxSize)
+	{
+		this.maxSize = Args.notNull(maxSize, "maxSize").bytes();
+	}
+
+	/**
+	 * Gets a cached body.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 * @param lastModified
+	 *            the current last modification time of the resource
+	 * @return the entry or {@code null} if not cached or outdated
+	 */
+	public synchronized Entry get(final Object key, final Time lastModified)
+	{
+		Entry entry = entries.get(key);
+		if (entry != null && Objects.equals(entry.lastModified, lastModified) == false)
+		{
+			removeEntry(key);
+			entry = null;
+		}
+
+		if (entry != null)
+		{
+			hitCount++;
+		}
+		else
+		{
+			missCount++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Caches the body of a resource.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 * @param lastModified
+	 *            the last modification time of the resource
+	 * @param bytes
+	 *            the processed body
+	 * @param contentType
+	 *            the content type of the body, may be {@code null}
+	 * @return the entry, even if it was too big to be cached
+	 */
+	public Entry put(final Object key, final Time lastModified, final byte[] bytes,
+		final String contentType)
+	{
+		Args.notNull(key, "key");
+		Args.notNull(bytes, "bytes");
+
+		// compress outside of the lock
+		byte[] gzipped = null;
+		if (bytes.length >= MIN_COMPRESS_SIZE && isCompressible(contentType))
+		{
+			gzipped = gzip(bytes);
+			if (gzipped.length >= bytes.length)
+			{
+				gzipped = null;
+			}
+		}
+		Entry entry = new Entry(bytes, gzipped, lastModified);
+
+		synchronized (this)
+		{
+			removeEntry(key);
+
+			if (entry.size() <= maxSize)
+			{
+				entries.put(key, entry);
+				size += entry.size();
+
+				Iterator<Entry> eldest = entries.values().iterator();
+				while (size > maxSize && eldest.hasNext())
+				{
+					size -= eldest.next().size();
+					eldest.remove();
+				}
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes the entry of a resource as soon as the watcher detects a modification of it.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 * @param resource
+	 *            the resource to watch
+	 * @param watcher
+	 *            the watcher
+	 */
+	public void watch(final Object key, final IModifiable resource,
+		final IModificationWatcher watcher)
+	{
+		if (watchedKeys.add(key))
+		{
+			watcher.add(resource, modifiable -> {
+				watcher.remove(modifiable);
+				watchedKeys.remove(key);
+				remove(key);
+			});
+		}
+	}
+
+	/**
+	 * Removes a cached body.
+	 *
+	 * @param key
+	 *            the key of the resource
+	 */
+	public synchronized void remove(final Object key)
+	{
+		removeEntry(key);
+	}
+
+	/**
+	 * Removes all cached bodies.
+	 */
+	public synchronized void clear()
+	{
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return the number of cached bodies
+	 */
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return the size of all cached bodies including their gzipped variants
+	 */
+	public synchronized long getSizeInBytes()
+	{
+		return size;
+	}
+
+	/**
+	 * @return the number of lookups which found a valid entry
+	 */
+	public synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	/**
+	 * @return the number of lookups which did not find a valid entry
+	 */
+	public synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	/**
+	 * Whether a gzipped variant should be computed for the given content type.
+	 *
+	 * @param contentType
+	 *            the content type, may be {@code null}
+	 * @return {@code true} for text based content types
+	 */
+	protected boolean isCompressible(final String contentType)
+	{
+		if (contentType == null)
+		{
+			return false;
+		}
+		return contentType.startsWith("text/") || contentType.contains("javascript") ||
+			contentType.contains("json") || contentType.contains("xml");
+	}
+
+	private void removeEntry(final Object key)
+	{
+		Entry removed = entries.remove(key);
+		if (removed != null)
+		{
+			size -= removed.size();
+		}
+	}
+
+	private static byte[] gzip(final byte[] bytes)
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 3 + 32);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out))
+		{
+			gzip.write(bytes);
+		}
+		catch (IOException e)
+		{
+			throw new WicketRuntimeException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * A cached body
+	 */
+	public static final class Entry
+	{
+		private final byte[] bytes;
+
+		private final byte[] gzipped;
+
+		private final Time lastModified;
+
+		private Entry(final byte[] bytes, final byte[] gzipped, final Time lastModified)
+		{
+			this.bytes = bytes;
+			this.gzipped = gzipped;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * @return the processed body, must not be modified
+		 */
+		public byte[] getBytes()
+		{
+			return bytes;
+		}
+
+		/**
+		 * @return the gzipped body or {@code null} if it is not compressible, must not be
+		 *         modified
+		 */
+		public byte[] getGzippedBytes()
+		{
+			return gzipped;
+		}
+
+		/**
+		 * @return the last modification time of the resource
+		 */
+		public Time getLastModified()
+		{
+			return lastModified;
+		}
+
+		private long size()
+		{
+			return bytes.length + (gzipped != null ? gzipped.length : 0);
+		}
+	}
+}
@@ -18,12 +18,17 @@ package org.apache.wicket.request.resource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Checks;
+import org.apache.wicket.util.resource.FileResourceStream;
+import org.apache.wicket.util.resource.FileSystemResourceStream;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.IResourceStreamWriter;
 import org.apache.wicket.util.resource.ResourceStreamNotFoundException;
@@ -49,6 +54,8 @@ public class ResourceStreamResource extends AbstractResource
 
 	private Duration cacheDuration;
 
+	private boolean sendfile;
+
 	/**
 	 * Constructor.
 	 */
@@ -117,6 +124,28 @@ public class ResourceStreamResource extends AbstractResource
 		return this;
 	}
 
+	/**
+	 * @return if the container's sendfile support is used for file based resource streams
+	 * @see FileChannelWriterCallback#isSendfile()
+	 */
+	public boolean isSendfile()
+	{
+		return sendfile;
+	}
+
+	/**
+	 * @param sendfile
+	 *            if the container's sendfile support should be used for file based resource
+	 *            streams
+	 * @return this object, for chaining
+	 * @see FileChannelWriterCallback#setSendfile(boolean)
+	 */
+	public ResourceStreamResource setSendfile(boolean sendfile)
+	{
+		this.sendfile = sendfile;
+		return this;
+	}
+
 	/**
 	 * Lazy or dynamic initialization of the wrapped IResourceStream(Writer)
 	 *
@@ -156,7 +185,9 @@ public class ResourceStreamResource extends AbstractResource
 		if (data.dataNeedsToBeWritten(attributes))
 		{
 			InputStream inputStream = null;
-			if (resourceStream instanceof IResourceStreamWriter == false)
+			final Bytes length = resourceStream.length();
+			final Path path = length != null ? getFilePath(resourceStream) : null;
+			if (resourceStream instanceof IResourceStreamWriter == false && path == null)
 			{
 				try
 				{
@@ -170,7 +201,6 @@ public class ResourceStreamResource extends AbstractResource
 			}
 
 			data.setContentDisposition(contentDisposition);
-			Bytes length = resourceStream.length();
 			if (length != null)
 			{
 				data.setContentLength(length.bytes());
@@ -197,6 +227,15 @@ public class ResourceStreamResource extends AbstractResource
 					}
 				});
 			}
+			else if (path != null)
+			{
+				data.setAcceptRange(ContentRangeType.BYTES);
+				RequestCycle cycle = RequestCycle.get();
+				Long startbyte = cycle.getMetaData(CONTENT_RANGE_STARTBYTE);
+				Long endbyte = cycle.getMetaData(CONTENT_RANGE_ENDBYTE);
+				data.setWriteCallback(new FileChannelWriterCallback(path, length.bytes(),
+					startbyte, endbyte).setSendfile(sendfile));
+			}
 			else
 			{
 				final InputStream s = inputStream;
@@ -221,6 +260,29 @@ public class ResourceStreamResource extends AbstractResource
 		return data;
 	}
 
+	/**
+	 * Gets the file of a resource stream which can be transferred without reading it through its
+	 * input stream. Only the plain file resource streams are considered, subclasses might modify
+	 * the content.
+	 * 
+	 * @param resourceStream
+	 *            the resource stream
+	 * @return the path of the file or {@code null}
+	 */
+	private static Path getFilePath(IResourceStream resourceStream)
+	{
+		Path path = null;
+		if (resourceStream.getClass() == FileResourceStream.class)
+		{
+			path = ((FileResourceStream)resourceStream).getFile().toPath();
+		}
+		else if (resourceStream.getClass() == FileSystemResourceStream.class)
+		{
+			path = ((FileSystemResourceStream)resourceStream).getPath();
+		}
+		return FileChannelWriterCallback.supports(path) && Files.isRegularFile(path) ? path : null;
+	}
+
 	private void close(IResourceStream stream)
 	{
 		try
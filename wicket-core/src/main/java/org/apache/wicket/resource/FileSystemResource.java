@@ -26,6 +26,7 @@ import org.apache.wicket.Application;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.request.resource.FileChannelWriterCallback;
 import org.apache.wicket.request.resource.PartWriterCallback;
 
 /**
@@ -42,6 +43,8 @@ public class FileSystemResource extends AbstractResource
 
 	private Path path;
 
+	private boolean sendfile;
+
 	/**
 	 * Creates a new file system resource based on the given path
 	 * 
@@ -101,8 +104,7 @@ public class FileSystemResource extends AbstractResource
 			RequestCycle cycle = RequestCycle.get();
 			Long startbyte = cycle.getMetaData(CONTENT_RANGE_STARTBYTE);
 			Long endbyte = cycle.getMetaData(CONTENT_RANGE_ENDBYTE);
-			resourceResponse.setWriteCallback(
-				new PartWriterCallback(getInputStream(), size, startbyte, endbyte));
+			resourceResponse.setWriteCallback(newWriteCallback(size, startbyte, endbyte));
 			return resourceResponse;
 		}
 		catch (IOException e)
@@ -112,6 +114,53 @@ public class FileSystemResource extends AbstractResource
 		}
 	}
 
+	/**
+	 * Creates the callback writing the content of the path. Paths on the default file system are
+	 * transferred by a {@link FileChannelWriterCallback}, all others are read from
+	 * {@link #getInputStream()}. Subclasses overriding {@link #getInputStream()} to modify the
+	 * content have to override this method too.
+	 * 
+	 * @param size
+	 *            the size of the resource
+	 * @param startbyte
+	 *            the start position of the requested range, may be {@code null}
+	 * @param endbyte
+	 *            the end position of the requested range, may be {@code null}
+	 * @return the write callback
+	 * @throws IOException
+	 *             if the content can't be read
+	 */
+	protected WriteCallback newWriteCallback(long size, Long startbyte, Long endbyte)
+		throws IOException
+	{
+		if (FileChannelWriterCallback.supports(path))
+		{
+			return new FileChannelWriterCallback(path, size, startbyte, endbyte).setSendfile(sendfile);
+		}
+		return new PartWriterCallback(getInputStream(), size, startbyte, endbyte);
+	}
+
+	/**
+	 * @return if the container's sendfile support is used
+	 * @see FileChannelWriterCallback#isSendfile()
+	 */
+	public boolean isSendfile()
+	{
+		return sendfile;
+	}
+
+	/**
+	 * @param sendfile
+	 *            if the container's sendfile support should be used
+	 * @return this object, for chaining
+	 * @see FileChannelWriterCallback#setSendfile(boolean)
+	 */
+	public FileSystemResource setSendfile(boolean sendfile)
+	{
+		this.sendfile = sendfile;
+		return this;
+	}
+
 	/**
 	 * Gets the size of the resource
 	 * 
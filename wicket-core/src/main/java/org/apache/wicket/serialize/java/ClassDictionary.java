@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.Component;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.Page;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.behavior.AttributeAppender;
+import org.apache.wicket.behavior.Behavior;
+import org.apache.wicket.markup.html.WebComponent;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.form.FormComponent;
+import org.apache.wicket.markup.html.form.TextField;
+import org.apache.wicket.markup.html.link.AbstractLink;
+import org.apache.wicket.markup.html.link.BookmarkablePageLink;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.repeater.AbstractRepeater;
+import org.apache.wicket.markup.repeater.RepeatingView;
+import org.apache.wicket.model.CompoundPropertyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.model.ResourceModel;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * An application wide, append-only dictionary of classes which are written by
+ * {@link CompactJavaSerializer} as small integer ids instead of class names.
+ * <p>
+ * The dictionary is versioned: each serialized stream records the number of entries it may use
+ * and a hash of these entries (class names and serialVersionUIDs). A stream can be read by every
+ * dictionary which starts with the same entries, e.g. by another node of the cluster which
+ * registers the same classes in the same order.
+ * </p>
+ * <p>
+ * {@link #withWicketClasses()} returns a dictionary with the classes found in almost every page.
+ * Applications can {@link #register(Class...)} their own page, component, model and behavior
+ * classes, preferably in {@link org.apache.wicket.Application#init()}.
+ * </p>
+ */
+public class ClassDictionary
+{
+	/** replaced on registration, so streams can use a consistent snapshot without locking */
+	private volatile Snapshot snapshot = new Snapshot(new String[0], new long[0],
+		new HashMap<String, Integer>(), new int[] { 1 });
+
+	/**
+	 * @return a dictionary with commonly used Wicket classes
+	 */
+	public static ClassDictionary withWicketClasses()
+	{
+		return new ClassDictionary().register(Object[].class, Component.class,
+			MarkupContainer.class, Page.class, WebPage.class, WebMarkupContainer.class,
+			WebComponent.class, Label.class, AbstractLink.class, Link.class,
+			BookmarkablePageLink.class, Form.class, FormComponent.class, TextField.class,
+			AbstractRepeater.class, ListView.class, ListItem.class, RepeatingView.class,
+			Behavior.class, AttributeAppender.class, Model.class, PropertyModel.class,
+			CompoundPropertyModel.class, LoadableDetachableModel.class, ResourceModel.class,
+			PageParameters.class, ArrayList.class, HashMap.class, Integer.class, Long.class,
+			Boolean.class, Number.class);
+	}
+
+	/**
+	 * Registers classes at the end of the dictionary. Already registered classes are ignored.
+	 *
+	 * @param classes
+	 *            serializable classes
+	 * @return {@code this} for chaining
+	 */
+	public synchronized ClassDictionary register(final Class<?>... classes)
+	{
+		Args.notNull(classes, "classes");
+
+		Snapshot current = snapshot;
+		List<String> names = new ArrayList<>(Arrays.asList(current.names));
+		long[] serialVersionUIDs = current.serialVersionUIDs;
+		Map<String, Integer> ids = new HashMap<>(current.ids);
+		int[] hashes = current.hashes;
+
+		for (Class<?> cls : classes)
+		{
+			ObjectStreamClass descriptor = ObjectStreamClass.lookup(cls);
+			if (descriptor == null)
+			{
+				throw new WicketRuntimeException("Class " + cls.getName() + " is not serializable");
+			}
+
+			String name = descriptor.getName();
+			if (ids.containsKey(name))
+			{
+				continue;
+			}
+
+			long serialVersionUID = descriptor.getSerialVersionUID();
+			int size = names.size();
+			ids.put(name, size);
+			names.add(name);
+			serialVersionUIDs = Arrays.copyOf(serialVersionUIDs, size + 1);
+			serialVersionUIDs[size] = serialVersionUID;
+			hashes = Arrays.copyOf(hashes, size + 2);
+			hashes[size + 1] = 31 * (31 * hashes[size] + name.hashCode()) +
+				Long.hashCode(serialVersionUID);
+		}
+
+		snapshot = new Snapshot(names.toArray(new String[names.size()]), serialVersionUIDs, ids,
+			hashes);
+		return this;
+	}
+
+	/**
+	 * @return the number of registered classes
+	 */
+	public int size()
+	{
+		return snapshot.names.length;
+	}
+
+	/**
+	 * @return the current entries
+	 */
+	Snapshot getSnapshot()
+	{
+		return snapshot;
+	}
+
+	/**
+	 * An immutable state of the dictionary
+	 */
+	static final class Snapshot
+	{
+		/** the registered class names, the index is the id */
+		private final String[] names;
+
+		private final long[] serialVersionUIDs;
+
+		private final Map<String, Integer> ids;
+
+		/** hashes[n] is the hash of the first n entries */
+		private final int[] hashes;
+
+		private Snapshot(final String[] names, final long[] serialVersionUIDs,
+			final Map<String, Integer> ids, final int[] hashes)
+		{
+			this.names = names;
+			this.serialVersionUIDs = serialVersionUIDs;
+			this.ids = ids;
+			this.hashes = hashes;
+		}
+
+		/**
+		 * @return the number of entries
+		 */
+		int size()
+		{
+			return names.length;
+		}
+
+		/**
+		 * @return the hash of all entries
+		 */
+		int getHash()
+		{
+			return hashes[names.length];
+		}
+
+		/**
+		 * @param size
+		 *            the number of entries a stream may use
+		 * @param hash
+		 *            the hash of these entries
+		 * @return {@code true} if this dictionary starts with the same entries
+		 */
+		boolean isCompatible(final int size, final int hash)
+		{
+			return size >= 0 && size <= names.length && hashes[size] == hash;
+		}
+
+		/**
+		 * @param name
+		 *            the class name
+		 * @return the id of the class or -1 if it is not registered
+		 */
+		int getId(final String name)
+		{
+			Integer id = ids.get(name);
+			return id != null ? id : -1;
+		}
+
+		/**
+		 * @param id
+		 * @return the name of the class with the id
+		 */
+		String getName(final int id)
+		{
+			return names[id];
+		}
+
+		/**
+		 * @param id
+		 * @return the serialVersionUID of the class with the id
+		 */
+		long getSerialVersionUID(final int id)
+		{
+			return serialVersionUIDs[id];
+		}
+	}
+}
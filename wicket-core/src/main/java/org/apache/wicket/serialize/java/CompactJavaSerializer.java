@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A {@link JavaSerializer} which writes compact class descriptors.
+ * <p>
+ * Java serialization writes the full {@link ObjectStreamClass} - class name, serialVersionUID and
+ * the names and types of all fields - for each class of the serialized object graph. For pages
+ * with many different component, model and behavior classes this metadata is a big part of the
+ * serialized data. This serializer writes only the class name, serialVersionUID and a fingerprint
+ * of the field layout and reads the field layout from the local class, which has to be identical.
+ * Classes registered in the {@link ClassDictionary} are written as small integer ids.
+ * </p>
+ * <p>
+ * All other aspects of Java serialization, like {@code writeReplace}/{@code readResolve} and
+ * custom {@code writeObject}/{@code readObject} methods, work as usual. Since the field layout is
+ * not written the data cannot be read by a different version of the classes, which is not needed
+ * for page stores. If the names or types of the fields of a local class differ from the ones the
+ * data has been written with, an {@link InvalidClassException} is thrown.
+ * </p>
+ * <p>
+ * To use this serializer, put the following code in your application's init:
+ *
+ * <pre>
+ * getFrameworkSettings().setSerializer(new CompactJavaSerializer(getApplicationKey()));
+ * </pre>
+ */
+public class CompactJavaSerializer extends JavaSerializer
+{
+	/** a class from the dictionary */
+	private static final int DESCRIPTOR_ID = 1;
+
+	/** a class by name */
+	private static final int DESCRIPTOR_NAME = 2;
+
+	private final ClassDictionary dictionary;
+
+	/** resolved local descriptors by class name */
+	private final ConcurrentMap<String, ObjectStreamClass> descriptors = new ConcurrentHashMap<>();
+
+	/** fingerprints of the field layouts of local descriptors by class name */
+	private final ConcurrentMap<String, Integer> fingerprints = new ConcurrentHashMap<>();
+
+	/**
+	 * Construct with a dictionary of commonly used Wicket classes.
+	 *
+	 * @param applicationKey
+	 *            the name of the application
+	 */
+	public CompactJavaSerializer(final String applicationKey)
+	{
+		this(applicationKey, ClassDictionary.withWicketClasses());
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param applicationKey
+	 *            the name of the application
+	 * @param dictionary
+	 *            the dictionary of classes written as ids
+	 */
+	public CompactJavaSerializer(final String applicationKey, final ClassDictionary dictionary)
+	{
+		super(applicationKey);
+
+		this.dictionary = Args.notNull(dictionary, "dictionary");
+	}
+
+	/**
+	 * @return the dictionary of classes written as ids
+	 */
+	public ClassDictionary getDictionary()
+	{
+		return dictionary;
+	}
+
+	@Override
+	protected ObjectOutputStream newObjectOutputStream(final OutputStream out) throws IOException
+	{
+		return new SerializationCheckerObjectOutputStream(out, new CompactObjectOutputStream(out,
+			this));
+	}
+
+	@Override
+	protected ObjectInputStream newObjectInputStream(final InputStream in) throws IOException
+	{
+		return new CompactObjectInputStream(in, this);
+	}
+
+	/**
+	 * Finds the local descriptor for a class
+	 *
+	 * @param className
+	 * @return the descriptor
+	 * @throws ClassNotFoundException
+	 */
+	private ObjectStreamClass lookup(final String className) throws ClassNotFoundException
+	{
+		ObjectStreamClass descriptor = descriptors.get(className);
+		if (descriptor == null)
+		{
+			descriptor = ObjectStreamClass.lookupAny(resolveClass(className));
+			descriptors.put(className, descriptor);
+		}
+		return descriptor;
+	}
+
+	/**
+	 * Gets the fingerprint of the names and types of the serializable fields of a local class.
+	 *
+	 * @param descriptor
+	 *            the local descriptor
+	 * @return the fingerprint
+	 */
+	private int fingerprint(final ObjectStreamClass descriptor)
+	{
+		Integer fingerprint = fingerprints.get(descriptor.getName());
+		if (fingerprint == null)
+		{
+			int hash = 1;
+			for (ObjectStreamField field : descriptor.getFields())
+			{
+				hash = 31 * hash + field.getName().hashCode();
+				hash = 31 * hash + field.getTypeCode();
+				String type = field.getTypeString();
+				hash = 31 * hash + (type != null ? type.hashCode() : 0);
+			}
+			fingerprint = hash;
+			fingerprints.put(descriptor.getName(), fingerprint);
+		}
+		return fingerprint;
+	}
+
+	/**
+	 * Resolves a class by name with the application's
+	 * {@link org.apache.wicket.application.IClassResolver} if available.
+	 *
+	 * @param className
+	 * @return the class
+	 * @throws ClassNotFoundException
+	 */
+	protected Class<?> resolveClass(final String className) throws ClassNotFoundException
+	{
+		if (Application.exists())
+		{
+			try
+			{
+				return Application.get()
+					.getApplicationSettings()
+					.getClassResolver()
+					.resolveClass(className);
+			}
+			catch (ClassNotFoundException | WicketRuntimeException e)
+			{
+				// try the class loaders below
+			}
+		}
+
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		if (classLoader == null)
+		{
+			classLoader = CompactJavaSerializer.class.getClassLoader();
+		}
+		return Class.forName(className, false, classLoader);
+	}
+
+	/**
+	 * Writes class descriptors as id or name and serialVersionUID, followed by the fingerprint of
+	 * the field layout
+	 */
+	private static class CompactObjectOutputStream extends ObjectOutputStream
+	{
+		private final CompactJavaSerializer serializer;
+
+		private final ClassDictionary.Snapshot dictionary;
+
+		private CompactObjectOutputStream(final OutputStream out,
+			final CompactJavaSerializer serializer) throws IOException
+		{
+			super(out);
+			this.serializer = serializer;
+
+			dictionary = serializer.dictionary.getSnapshot();
+
+			// the version of the dictionary
+			writeInt(dictionary.size());
+			writeInt(dictionary.getHash());
+		}
+
+		@Override
+		protected void writeClassDescriptor(final ObjectStreamClass desc) throws IOException
+		{
+			int id = dictionary.getId(desc.getName());
+			if (id >= 0)
+			{
+				writeByte(DESCRIPTOR_ID);
+				writeVarInt(id);
+			}
+			else
+			{
+				writeByte(DESCRIPTOR_NAME);
+				writeUTF(desc.getName());
+				writeLong(desc.getSerialVersionUID());
+			}
+			writeInt(serializer.fingerprint(desc));
+		}
+
+		private void writeVarInt(int value) throws IOException
+		{
+			while ((value & ~0x7F) != 0)
+			{
+				writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			writeByte(value);
+		}
+	}
+
+	/**
+	 * Reads the class descriptors written by {@link CompactObjectOutputStream}
+	 */
+	private static class CompactObjectInputStream extends ObjectInputStream
+	{
+		private final CompactJavaSerializer serializer;
+
+		private final ClassDictionary.Snapshot dictionary;
+
+		private final int dictionarySize;
+
+		private CompactObjectInputStream(final InputStream in,
+			final CompactJavaSerializer serializer) throws IOException
+		{
+			super(in);
+			this.serializer = serializer;
+
+			dictionary = serializer.dictionary.getSnapshot();
+			dictionarySize = readInt();
+			int hash = readInt();
+			if (dictionary.isCompatible(dictionarySize, hash) == false)
+			{
+				throw new StreamCorruptedException(
+					"The data has been serialized with an unknown class dictionary");
+			}
+		}
+
+		@Override
+		protected ObjectStreamClass readClassDescriptor() throws IOException,
+			ClassNotFoundException
+		{
+			String name;
+			long serialVersionUID;
+
+			int type = readByte();
+			if (type == DESCRIPTOR_ID)
+			{
+				int id = readVarInt();
+				if (id >= dictionarySize)
+				{
+					throw new StreamCorruptedException("Unknown class id " + id);
+				}
+				name = dictionary.getName(id);
+				serialVersionUID = dictionary.getSerialVersionUID(id);
+			}
+			else if (type == DESCRIPTOR_NAME)
+			{
+				name = readUTF();
+				serialVersionUID = readLong();
+			}
+			else
+			{
+				throw new StreamCorruptedException("Unknown class descriptor type " + type);
+			}
+			int fingerprint = readInt();
+
+			ObjectStreamClass descriptor = serializer.lookup(name);
+			if (descriptor.getSerialVersionUID() != serialVersionUID)
+			{
+				throw new InvalidClassException(name,
+					"local class incompatible: stream classdesc serialVersionUID = " +
+						serialVersionUID + ", local class serialVersionUID = " +
+						descriptor.getSerialVersionUID());
+			}
+			if (serializer.fingerprint(descriptor) != fingerprint)
+			{
+				throw new InvalidClassException(name,
+					"local class incompatible: the names or types of the serializable fields differ");
+			}
+			return descriptor;
+		}
+
+		@Override
+		protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException,
+			ClassNotFoundException
+		{
+			// the descriptor is already the local one
+			Class<?> cls = desc.forClass();
+			return cls != null ? cls : serializer.resolveClass(desc.getName());
+		}
+
+		private int readVarInt() throws IOException
+		{
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7)
+			{
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+				{
+					return value;
+				}
+			}
+			throw new StreamCorruptedException("Malformed class id");
+		}
+	}
+}
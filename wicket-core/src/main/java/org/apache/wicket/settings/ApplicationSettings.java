@@ -23,9 +23,11 @@ import org.apache.wicket.application.DefaultClassResolver;
 import org.apache.wicket.application.IClassResolver;
 import org.apache.wicket.feedback.DefaultCleanupFeedbackMessageFilter;
 import org.apache.wicket.feedback.IFeedbackMessageFilter;
+import org.apache.wicket.protocol.http.servlet.UploadProgressRegistry;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.util.lang.Args;
 import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
 
 /**
  * * Settings class for application settings.
@@ -63,6 +65,12 @@ public class ApplicationSettings
 
 	private boolean uploadProgressUpdatesEnabled = false;
 
+	private UploadProgressRegistry uploadProgressRegistry = new UploadProgressRegistry(1000);
+
+	private Bytes uploadProgressUpdateBytes = Bytes.kilobytes(64);
+
+	private Duration uploadProgressUpdateInterval = Duration.milliseconds(500);
+
 	private IFeedbackMessageFilter feedbackMessageCleanupFilter = new DefaultCleanupFeedbackMessageFilter();
 
 	/**
@@ -126,6 +134,38 @@ public class ApplicationSettings
 		return uploadProgressUpdatesEnabled;
 	}
 
+	/**
+	 * Gets the registry keeping track of the progress of uploads.
+	 *
+	 * @return registry of upload progress
+	 */
+	public UploadProgressRegistry getUploadProgressRegistry()
+	{
+		return uploadProgressRegistry;
+	}
+
+	/**
+	 * Gets the number of bytes to be uploaded before the progress of an upload is updated, if the
+	 * {@link #getUploadProgressUpdateInterval() interval} did not pass before.
+	 *
+	 * @return granularity of upload progress updates in bytes
+	 */
+	public Bytes getUploadProgressUpdateBytes()
+	{
+		return uploadProgressUpdateBytes;
+	}
+
+	/**
+	 * Gets the time to pass before the progress of an upload is updated, if not
+	 * {@link #getUploadProgressUpdateBytes() enough bytes} were uploaded before.
+	 *
+	 * @return granularity of upload progress updates in time
+	 */
+	public Duration getUploadProgressUpdateInterval()
+	{
+		return uploadProgressUpdateInterval;
+	}
+
 	/**
 	 * Sets the access denied page class. The class must be bookmarkable and must extend Page.
 	 *
@@ -224,6 +264,37 @@ public class ApplicationSettings
 		return this;
 	}
 
+	/**
+	 * Sets the registry keeping track of the progress of uploads.
+	 *
+	 * @param uploadProgressRegistry
+	 *            registry of upload progress
+	 * @return {@code this} object for chaining
+	 */
+	public ApplicationSettings setUploadProgressRegistry(UploadProgressRegistry uploadProgressRegistry)
+	{
+		this.uploadProgressRegistry = Args.notNull(uploadProgressRegistry, "uploadProgressRegistry");
+		return this;
+	}
+
+	/**
+	 * Sets the granularity of upload progress updates. The progress is updated whenever the given
+	 * number of bytes was uploaded or the given interval passed since the last update, whatever
+	 * happens first.
+	 *
+	 * @param bytes
+	 *            number of bytes to upload before an update
+	 * @param interval
+	 *            time to pass before an update
+	 * @return {@code this} object for chaining
+	 */
+	public ApplicationSettings setUploadProgressUpdateGranularity(Bytes bytes, Duration interval)
+	{
+		this.uploadProgressUpdateBytes = Args.notNull(bytes, "bytes");
+		this.uploadProgressUpdateInterval = Args.notNull(interval, "interval");
+		return this;
+	}
+
 	/**
 	 * Throws an IllegalArgumentException if the given class is not a subclass of Page.
 	 * 
@@ -148,6 +148,17 @@ public class RequestCycleSettings
 	 */
 	private boolean gatherExtendedBrowserInfo = false;
 
+	/**
+	 * Whether the static parts of the markup are written as bytes encoded once only. False by
+	 * default.
+	 */
+	private boolean writePreEncodedMarkup = false;
+
+	/**
+	 * Whether Ajax responses are written while components are rendered. False by default.
+	 */
+	private boolean streamAjaxResponses = false;
+
 	/**
 	 * The render strategy, defaults to 'REDIRECT_TO_BUFFER'. This property influences the default
 	 * way in how a logical request that consists of an 'action' and a 'render' part is handled, and
@@ -220,6 +231,30 @@ public class RequestCycleSettings
 		return gatherExtendedBrowserInfo;
 	}
 
+	/**
+	 * Gets whether buffered responses write the static parts of the markup as bytes which are
+	 * encoded once only, instead of encoding the whole response text on each request.
+	 *
+	 * @return Whether to write pre-encoded markup
+	 * @see #setWritePreEncodedMarkup(boolean)
+	 */
+	public boolean getWritePreEncodedMarkup()
+	{
+		return writePreEncodedMarkup;
+	}
+
+	/**
+	 * Gets whether Ajax responses are written to the response while the components are rendered,
+	 * instead of being buffered completely.
+	 *
+	 * @return Whether to stream Ajax responses
+	 * @see #setStreamAjaxResponses(boolean)
+	 */
+	public boolean getStreamAjaxResponses()
+	{
+		return streamAjaxResponses;
+	}
+
 	/**
 	 * Gets in what way the render part of a request is handled.
 	 *
@@ -325,6 +360,49 @@ public class RequestCycleSettings
 		return this;
 	}
 
+	/**
+	 * Sets whether buffered responses write the static parts of the markup as bytes which are
+	 * encoded once only.
+	 * <p>
+	 * This is done only if no {@link IResponseFilter}s are configured and the container response
+	 * is encoded with UTF-8, ISO-8859-1 or US-ASCII. The response is then written through the
+	 * container's output stream instead of its writer, so this must not be switched on if a
+	 * servlet filter expects the writer to be used. False by default.
+	 * </p>
+	 *
+	 * @param writePreEncodedMarkup
+	 *            Whether to write pre-encoded markup
+	 * @return {@code this} object for chaining
+	 */
+	public RequestCycleSettings setWritePreEncodedMarkup(boolean writePreEncodedMarkup)
+	{
+		this.writePreEncodedMarkup = writePreEncodedMarkup;
+		return this;
+	}
+
+	/**
+	 * Sets whether Ajax responses are written to the response while the components are rendered.
+	 * <p>
+	 * By default the markup of each updated component is buffered, escaped and collected in the
+	 * complete Ajax response, before anything is written. Streaming writes the escaped markup
+	 * directly, which reduces the memory needed for large updates considerably.
+	 * </p>
+	 * <p>
+	 * This is done only if no {@link IResponseFilter}s are configured. Note that a failure while
+	 * rendering cannot be answered with an error response anymore, once the container has
+	 * committed the partially written response.
+	 * </p>
+	 *
+	 * @param streamAjaxResponses
+	 *            Whether to stream Ajax responses
+	 * @return {@code this} object for chaining
+	 */
+	public RequestCycleSettings setStreamAjaxResponses(boolean streamAjaxResponses)
+	{
+		this.streamAjaxResponses = streamAjaxResponses;
+		return this;
+	}
+
 	/**
 	 * Sets in what way the render part of a request is handled. Basically, there are two different
 	 * options:
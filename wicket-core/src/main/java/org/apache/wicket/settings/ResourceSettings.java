@@ -35,6 +35,7 @@ import org.apache.wicket.markup.head.ResourceAggregator.RecordedHeaderItem;
 import org.apache.wicket.markup.html.IPackageResourceGuard;
 import org.apache.wicket.markup.html.SecurePackageResourceGuard;
 import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.PackageResourceCache;
 import org.apache.wicket.request.resource.caching.FilenameWithVersionResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.IResourceCachingStrategy;
 import org.apache.wicket.request.resource.caching.NoOpResourceCachingStrategy;
@@ -173,6 +174,8 @@ public class ResourceSettings implements IPropertiesFactoryContext
 
 	private boolean encodeJSessionId = false;
 
+	private PackageResourceCache packageResourceCache;
+
 	/**
 	 * Configures Wicket's default ResourceLoaders.<br>
 	 * For an example in {@code FooApplication} let {@code bar.Foo} extend {@link Component}, this
@@ -767,4 +770,27 @@ public class ResourceSettings implements IPropertiesFactoryContext
 		this.encodeJSessionId = encodeJSessionId;
 		return this;
 	}
+
+	/**
+	 * @return the cache for the processed bodies of package resources, or {@code null} if they
+	 *         are read and processed for each request, which is the default
+	 */
+	public PackageResourceCache getPackageResourceCache()
+	{
+		return packageResourceCache;
+	}
+
+	/**
+	 * Sets the cache for the processed bodies of package resources, e.g.
+	 * {@code new PackageResourceCache(Bytes.megabytes(8))}. Disabled by default.
+	 *
+	 * @param packageResourceCache
+	 *            the cache, or {@code null} to read and process the resources for each request
+	 * @return {@code this} object for chaining
+	 */
+	public ResourceSettings setPackageResourceCache(PackageResourceCache packageResourceCache)
+	{
+		this.packageResourceCache = packageResourceCache;
+		return this;
+	}
 }
@@ -52,12 +52,18 @@ public class StoreSettings
 
 	private int inmemoryCacheSize = DEFAULT_CACHE_SIZE;
 
+	private Bytes inmemoryCacheMaxSize = null;
+
 	private Bytes maxSizePerSession = DEFAULT_MAX_SIZE_PER_SESSION;
 
 	private File fileStoreFolder = null;
 
 	private int asynchronousQueueCapacity = DEFAULT_ASYNCHRONOUS_QUEUE_CAPACITY;
 
+	private int asynchronousWorkerCount = 1;
+
+	private int deltaSnapshotInterval = 0;
+
 	private boolean isAsynchronous = true;
 
 	/**
@@ -93,6 +99,31 @@ public class StoreSettings
 		return this;
 	}
 
+	/**
+	 * @return the maximum size of the page instances which will be stored in the application
+	 *         scoped cache, {@code null} if only the number of page instances is limited
+	 */
+	public Bytes getInmemoryCacheMaxSize()
+	{
+		return inmemoryCacheMaxSize;
+	}
+
+	/**
+	 * Sets the maximum size of the page instances which will be stored in the application scoped
+	 * second level cache
+	 *
+	 * @param inmemoryCacheMaxSize
+	 *            the maximum size of all page instances held in the application scoped cache, or
+	 *            {@code null} to limit only their number
+	 * @return {@code this} object for chaining
+	 * @see #setInmemoryCacheSize(int)
+	 */
+	public StoreSettings setInmemoryCacheMaxSize(final Bytes inmemoryCacheMaxSize)
+	{
+		this.inmemoryCacheMaxSize = inmemoryCacheMaxSize;
+		return this;
+	}
+
 	/**
 	 * @return maximum page size. After this size is exceeded,
 	 * the {@link org.apache.wicket.pageStore.DiskDataStore} will start saving the
@@ -192,6 +223,70 @@ public class StoreSettings
 		return this;
 	}
 
+	/**
+	 * @return the number of threads which store the pages asynchronously
+	 * @see org.apache.wicket.pageStore.AsynchronousDataStore
+	 */
+	public int getAsynchronousWorkerCount()
+	{
+		return asynchronousWorkerCount;
+	}
+
+	/**
+	 * Sets the number of threads which store the pages asynchronously. More than one thread
+	 * should be used only if the configured {@link org.apache.wicket.pageStore.IDataStore}
+	 * supports concurrent writes.
+	 *
+	 * @param workerCount
+	 *            the number of threads, at most the capacity of the queue
+	 * @see org.apache.wicket.pageStore.AsynchronousDataStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setAsynchronousWorkerCount(int workerCount)
+	{
+		if (workerCount < 1)
+		{
+			throw new IllegalArgumentException(
+				"The number of asynchronous workers should be at least 1.");
+		}
+		asynchronousWorkerCount = workerCount;
+		return this;
+	}
+
+	/**
+	 * @return the maximum number of page versions stored as deltas between two full snapshots, 0
+	 *         if every version is stored completely
+	 * @see org.apache.wicket.pageStore.DeltaPageStore
+	 */
+	public int getDeltaSnapshotInterval()
+	{
+		return deltaSnapshotInterval;
+	}
+
+	/**
+	 * Sets the maximum number of page versions stored as deltas against their previous version
+	 * between two full snapshots. Storing deltas reduces the amount of data written for pages
+	 * with small changes, but a version is available only as long as the versions it depends on
+	 * are. The previous version is taken from the second level cache if possible, so this works
+	 * best together with {@link #setInmemoryCacheSize(int)}.
+	 *
+	 * @param snapshotInterval
+	 *            the maximum number of versions between two snapshots, or 0 to store every
+	 *            version completely
+	 * @see org.apache.wicket.pageStore.DeltaPageStore
+	 * @return {@code this} object for chaining
+	 */
+	public StoreSettings setDeltaSnapshotInterval(int snapshotInterval)
+	{
+		if (snapshotInterval < 0)
+		{
+			throw new IllegalArgumentException(
+				"The snapshot interval should not be negative.");
+		}
+		deltaSnapshotInterval = snapshotInterval;
+		return this;
+	}
+
 	/**
 	 * Sets a flag whether to wrap the configured {@link org.apache.wicket.pageStore.IDataStore} with
 	 * {@link org.apache.wicket.pageStore.AsynchronousDataStore}. By doing this the HTTP worker thread will not wait for the
@@ -21,9 +21,13 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
 import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.resource.FileChannelWriterCallback;
 import org.apache.wicket.request.resource.IResource;
 import org.apache.wicket.request.resource.ResourceStreamResource;
+import org.apache.wicket.response.ByteArrayResponse;
 import org.apache.wicket.util.resource.FileResourceStream;
 import org.apache.wicket.util.resource.IResourceStream;
 import org.apache.wicket.util.resource.StringResourceStream;
@@ -74,6 +78,85 @@ public class ResourceTest extends WicketTestCase
 		assertEquals(TEST_STRING.length(), tester.getContentLengthFromResponseHeader());
 	}
 
+	/**
+	 * Files are transferred by a {@link FileChannelWriterCallback}, which supports ranges.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void fileResourceStreamRange() throws IOException
+	{
+		IResource resource = new ResourceStreamResource(new FileResourceStream(
+			new org.apache.wicket.util.file.File(createTestFile())));
+
+		assertEquals(TEST_STRING, respond(resource, null));
+		assertEquals("World", respond(resource, "bytes=7-11"));
+		assertEquals("World!", respond(resource, "bytes=7-"));
+	}
+
+	/**
+	 * Sendfile is not used unless enabled, even if the container supports it.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void fileResourceStreamSendfileDisabled() throws IOException
+	{
+		IResource resource = new ResourceStreamResource(new FileResourceStream(
+			new org.apache.wicket.util.file.File(createTestFile())));
+
+		MockHttpServletRequest request = tester.getRequest();
+		request.setAttribute(FileChannelWriterCallback.SENDFILE_SUPPORT, Boolean.TRUE);
+
+		assertEquals("World", respond(resource, "bytes=7-11"));
+		assertNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+	}
+
+	/**
+	 * If sendfile is enabled and the container supports it the file is handed over to it.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void fileResourceStreamSendfile() throws IOException
+	{
+		File testFile = createTestFile();
+		IResource resource = new ResourceStreamResource(new FileResourceStream(
+			new org.apache.wicket.util.file.File(testFile))).setSendfile(true);
+
+		MockHttpServletRequest request = tester.getRequest();
+		request.setAttribute(FileChannelWriterCallback.SENDFILE_SUPPORT, Boolean.TRUE);
+
+		assertEquals("", respond(resource, "bytes=7-11"));
+		assertEquals(testFile.toPath().toRealPath().toString(),
+			request.getAttribute("org.apache.tomcat.sendfile.filename"));
+		assertEquals(7L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+		assertEquals(12L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+	}
+
+	private File createTestFile() throws IOException
+	{
+		File testFile = File.createTempFile(ResourceTest.class.getName(), null);
+		testFile.deleteOnExit();
+		try (OutputStream out = new FileOutputStream(testFile))
+		{
+			out.write(TEST_STRING.getBytes());
+		}
+		return testFile;
+	}
+
+	private String respond(IResource resource, String range)
+	{
+		Request request = tester.getRequestCycle().getRequest();
+		if (range != null)
+		{
+			((MockHttpServletRequest)request.getContainerRequest()).setHeader("range", range);
+		}
+		ByteArrayResponse response = new ByteArrayResponse();
+		resource.respond(new IResource.Attributes(request, response));
+		return new String(response.getBytes());
+	}
+
 	private void bindToApplicationAsResourceAndRequestIt(IResourceStream iResourceStream)
 	{
 		IResource resource = new ResourceStreamResource(iResourceStream);
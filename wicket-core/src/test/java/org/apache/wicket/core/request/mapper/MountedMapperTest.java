@@ -923,4 +923,25 @@ public class MountedMapperTest extends AbstractMapperTest
 			+ " got exact = " + exactCompatScore + " and optional = " + optCompatScore,
 			requiredParamScore > optCompatScore);
 	}
+
+	/**
+	 * Mounted segments are available for indexing, unless the scoring is overridden.
+	 */
+	@Test
+	public void mountedSegments()
+	{
+		assertArrayEquals(new String[] { "some", "#{param1}", "path", "${param2}", "#{param3}" },
+			optionPlaceholderEncoder.getMountedSegments());
+		assertEquals(0, optionPlaceholderEncoder.getIncompatibleScore());
+
+		MountedMapper scoring = new MountedMapper("/some/mount/path", MockPage.class)
+		{
+			@Override
+			public int getCompatibilityScore(Request request)
+			{
+				return 1;
+			}
+		};
+		assertNull(scoring.getMountedSegments());
+	}
 }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MarkupPreloader}
+ */
+public class MarkupPreloaderTest extends WicketTestCase
+{
+	private MarkupCache cache;
+
+	private final AtomicInteger parsed = new AtomicInteger();
+
+	/**
+	 * Use a fresh cache, counting parsed markup.
+	 */
+	@Before
+	public void before()
+	{
+		cache = new MarkupCache();
+
+		Application.get().getMarkupSettings().setMarkupFactory(new MarkupFactory()
+		{
+			@Override
+			public IMarkupCache getMarkupCache()
+			{
+				return cache;
+			}
+
+			@Override
+			public MarkupParser newMarkupParser(MarkupResourceStream resource)
+			{
+				parsed.incrementAndGet();
+				return super.newMarkupParser(resource);
+			}
+		});
+	}
+
+	/**
+	 * Preloaded markup, including its base markup, is used for rendering.
+	 */
+	@Test
+	public void preload()
+	{
+		MarkupPreloader preloader = new MarkupPreloader(tester.getApplication());
+		preloader.add(MarkupInheritanceExtension_1.class);
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			assertEquals(1, preloader.preload(pool));
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		// derived and base markup
+		assertEquals(2, cache.size());
+		assertEquals(2, parsed.get());
+
+		tester.startPage(MarkupInheritanceExtension_1.class);
+		tester.assertRenderedPage(MarkupInheritanceExtension_1.class);
+
+		// nothing was parsed additionally
+		assertEquals(2, parsed.get());
+
+		Markup markup = cache.getMarkup(tester.getLastRenderedPage(), null, false);
+		assertTrue(markup instanceof MergedMarkup);
+	}
+
+	/**
+	 * Markup cached in a previous run is preloaded from the index.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void index() throws IOException
+	{
+		File indexFile = File.createTempFile("markup", ".index");
+		try
+		{
+			tester.startPage(MarkupInheritanceExtension_1.class);
+			tester.assertRenderedPage(MarkupInheritanceExtension_1.class);
+
+			new MarkupPreloader(tester.getApplication()).setIndexFile(indexFile).writeIndex();
+
+			cache.clear();
+
+			MarkupPreloader preloader = new MarkupPreloader(tester.getApplication());
+			preloader.setIndexFile(indexFile);
+			assertEquals(2, preloader.preload());
+			assertEquals(2, cache.size());
+		}
+		finally
+		{
+			indexFile.delete();
+		}
+	}
+}
@@ -16,15 +16,22 @@
  */
 package org.apache.wicket.markup.html;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Locale;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.SharedResources;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.resource.JavaScriptPackageResource;
 import org.apache.wicket.request.resource.PackageResource;
+import org.apache.wicket.request.resource.PackageResourceCache;
 import org.apache.wicket.request.resource.PackageResourceReference;
+import org.apache.wicket.request.resource.PackageResourceReferenceTest;
 import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Bytes;
 import org.apache.wicket.util.lang.Packages;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.junit.Before;
@@ -189,4 +196,39 @@ public class PackageResourceTest extends WicketTestCase
 		final String contentType = tester.getLastResponse().getContentType();
 		assertEquals("text/javascript; charset=" + encoding, contentType);
 	}
+
+	/**
+	 * Text resources are cached and sent gzipped to clients which accept it
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void gzippedBody() throws IOException
+	{
+		tester.getApplication()
+			.getResourceSettings()
+			.setPackageResourceCache(new PackageResourceCache(Bytes.megabytes(8)));
+
+		PackageResource resource = new PackageResource(PackageResourceReferenceTest.class,
+			"resource_gt_4096.txt", null, null, null)
+		{
+			private static final long serialVersionUID = 1L;
+		};
+
+		tester.startResource(resource);
+		byte[] plain = tester.getLastResponse().getBinaryContent();
+		assertNull(tester.getLastResponse().getHeader("Content-Encoding"));
+
+		tester.getRequest().addHeader("Accept-Encoding", "gzip, deflate");
+		tester.startResource(resource);
+		assertEquals("gzip", tester.getLastResponse().getHeader("Content-Encoding"));
+		byte[] gzipped = tester.getLastResponse().getBinaryContent();
+		assertTrue(gzipped.length < plain.length);
+		assertArrayEquals(plain,
+			IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped))));
+
+		PackageResourceCache cache = application.getResourceSettings().getPackageResourceCache();
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getHitCount());
+	}
 }
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.head.IHeaderResponse;
+import org.apache.wicket.markup.head.JavaScriptHeaderItem;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.link.Link;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OutputCacheBehavior}
+ */
+public class OutputCacheBehaviorTest extends WicketTestCase
+{
+	private OutputCache cache;
+
+	private final AtomicInteger renders = new AtomicInteger();
+
+	/**
+	 * Use a cache for each test.
+	 */
+	@Before
+	public void before()
+	{
+		cache = new OutputCache();
+		OutputCache.set(tester.getApplication(), cache);
+	}
+
+	/**
+	 * The cached output and header contributions are replayed without rendering the children.
+	 */
+	@Test
+	public void replay()
+	{
+		tester.startPage(new TestPage(renders, 1, false));
+		String output = tester.getLastResponseAsString();
+		assertEquals(1, renders.get());
+		assertEquals(1, cache.size());
+		assertTrue(output.contains("cached label"));
+		assertEquals(output.indexOf("var x"), output.lastIndexOf("var x"));
+
+		tester.startPage(new TestPage(renders, 1, false));
+		assertEquals(1, renders.get());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(output, tester.getLastResponseAsString());
+	}
+
+	/**
+	 * A different cache key renders the children again.
+	 */
+	@Test
+	public void cacheKey()
+	{
+		tester.startPage(new TestPage(renders, 1, false));
+		tester.startPage(new TestPage(renders, 2, false));
+		assertEquals(2, renders.get());
+
+		tester.startPage(new TestPage(renders, 2, false));
+		assertEquals(2, renders.get());
+		assertEquals(2, cache.size());
+	}
+
+	/**
+	 * Invalidated output is rendered again.
+	 */
+	@Test
+	public void invalidate()
+	{
+		tester.startPage(new TestPage(renders, 1, false));
+		assertEquals(1, cache.invalidate("menu"));
+
+		tester.startPage(new TestPage(renders, 1, false));
+		assertEquals(2, renders.get());
+		assertTrue(tester.getLastResponseAsString().contains("cached label"));
+	}
+
+	/**
+	 * The output of stateful components is not cached.
+	 */
+	@Test
+	public void stateful()
+	{
+		tester.startPage(new TestPage(renders, 1, true));
+		tester.startPage(new TestPage(renders, 1, true));
+
+		assertEquals(2, renders.get());
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * A page with a cached container
+	 */
+	public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int version;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param renders
+		 *            counter of renders of the label
+		 * @param version
+		 *            the version to cache with
+		 * @param stateful
+		 *            whether to add a stateful link
+		 */
+		public TestPage(final AtomicInteger renders, int version, boolean stateful)
+		{
+			this.version = version;
+
+			WebMarkupContainer menu = new WebMarkupContainer("menu");
+			menu.add(new OutputCacheBehavior(new PropertyModel<Integer>(this, "version")).setTags(
+				"menu"));
+			add(menu);
+
+			menu.add(new Label("label", new IModel<String>()
+			{
+				@Override
+				public String getObject()
+				{
+					renders.incrementAndGet();
+					return "cached label";
+				}
+			})
+			{
+				@Override
+				public void renderHead(IHeaderResponse response)
+				{
+					response.render(JavaScriptHeaderItem.forScript("var x = '#';", "label"));
+				}
+			});
+
+			Link<Void> link = new Link<Void>("link")
+			{
+				@Override
+				public void onClick()
+				{
+				}
+			};
+			menu.add(link.setVisible(stateful));
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream("<html><head></head><body><div wicket:id='menu'>" +
+				"<span wicket:id='label'></span><a wicket:id='link'></a></div></body></html>");
+		}
+	}
+}
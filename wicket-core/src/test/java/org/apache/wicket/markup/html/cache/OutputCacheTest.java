@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.markup.html.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.wicket.markup.head.HeaderItem;
+import org.apache.wicket.util.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link OutputCache}
+ */
+public class OutputCacheTest extends Assert
+{
+	/**
+	 * Hits and misses are counted.
+	 */
+	@Test
+	public void getAndPut()
+	{
+		OutputCache cache = new OutputCache();
+
+		assertNull(cache.get(key("a", null)));
+		cache.put(key("a", null), "<p>a</p>", Collections.<HeaderItem> emptyList(), null);
+
+		OutputCache.Entry entry = cache.get(key("a", null));
+		assertEquals("<p>a</p>", entry.getMarkup().toString());
+		assertNull(cache.get(key("a", 2)));
+
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	/**
+	 * The least recently used entry is evicted.
+	 */
+	@Test
+	public void evict()
+	{
+		OutputCache cache = new OutputCache(2, OutputCache.DEFAULT_TIME_TO_LIVE);
+
+		cache.put(key("a", null), "a", Collections.<HeaderItem> emptyList(), null);
+		cache.put(key("b", null), "b", Collections.<HeaderItem> emptyList(), null);
+		cache.get(key("a", null));
+		cache.put(key("c", null), "c", Collections.<HeaderItem> emptyList(), null);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNotNull(cache.get(key("a", null)));
+		assertNull(cache.get(key("b", null)));
+	}
+
+	/**
+	 * Expired entries are removed.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void expire() throws Exception
+	{
+		OutputCache cache = new OutputCache();
+
+		cache.put(key("a", null), "a", Collections.<HeaderItem> emptyList(),
+			Duration.milliseconds(1));
+		Thread.sleep(10);
+
+		assertNull(cache.get(key("a", null)));
+		assertEquals(1, cache.getExpirationCount());
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Entries are invalidated by key, tag and predicate.
+	 */
+	@Test
+	public void invalidate()
+	{
+		OutputCache cache = new OutputCache();
+
+		cache.put(key("a", null), "a", Collections.<HeaderItem> emptyList(), null, "menu");
+		cache.put(key("b", null), "b", Collections.<HeaderItem> emptyList(), null, "menu",
+			"teaser");
+		cache.put(key("c", null), "c", Collections.<HeaderItem> emptyList(), null);
+		cache.put(key("d", null), "d", Collections.<HeaderItem> emptyList(), null);
+
+		assertEquals(2, cache.invalidate("menu"));
+		assertEquals(0, cache.invalidate("teaser"));
+		assertTrue(cache.remove(key("c", null)));
+		assertFalse(cache.remove(key("c", null)));
+		assertEquals(1, cache.invalidate(key -> key.getPath().equals("d")));
+
+		assertEquals(0, cache.size());
+		assertEquals(4, cache.getInvalidationCount());
+	}
+
+	/**
+	 * Clearing invalidates all entries.
+	 */
+	@Test
+	public void clear()
+	{
+		final List<OutputCacheKey> removed = new ArrayList<>();
+		OutputCache cache = new OutputCache()
+		{
+			@Override
+			protected void onRemoved(OutputCacheKey key, Entry entry)
+			{
+				removed.add(key);
+			}
+		};
+
+		cache.put(key("a", null), "a", Collections.<HeaderItem> emptyList(), null);
+		cache.put(key("b", null), "b", Collections.<HeaderItem> emptyList(), null);
+
+		assertEquals(2, cache.clear());
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getInvalidationCount());
+		assertEquals(2, removed.size());
+		assertTrue(removed.contains(key("a", null)));
+	}
+
+	private static OutputCacheKey key(String path, Object key)
+	{
+		return new OutputCacheKey("Page", path, Locale.ENGLISH, null, null, key);
+	}
+}
@@ -24,7 +24,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
 
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.protocol.http.servlet.IUploadSink;
 import org.apache.wicket.util.file.File;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
 import org.apache.wicket.util.tester.FormTester;
 import org.apache.wicket.util.tester.WicketTestCase;
 import org.apache.wicket.validation.IValidatable;
@@ -173,6 +180,95 @@ public class FileUploadFieldTest extends WicketTestCase
 		tester.assertNoErrorMessage();
 	}
 
+	/**
+	 * The content of uploaded files is streamed into the field's sink, and read back from it by the
+	 * {@link FileUpload}.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void uploadSink() throws IOException
+	{
+		File tmp = writeTestFile(1000);
+		File destination = new File(java.io.File.createTempFile(TEST_FILE_NAME, ".sink"));
+		try
+		{
+			tester.startPage(new TestSinkPage(destination));
+
+			FormTester formtester = tester.newFormTester("form");
+			formtester.setFile("upload", tmp, "text/plain");
+			formtester.submit();
+
+			TestSinkPage page = (TestSinkPage)tester.getLastRenderedPage();
+			assertEquals(tmp.getName(), page.clientFileName);
+			assertEquals(tmp.length(), page.size);
+			assertArrayEquals(read(tmp), read(destination));
+			assertArrayEquals(read(tmp), page.bytes);
+		}
+		finally
+		{
+			tmp.delete();
+			destination.delete();
+		}
+	}
+
+	/**
+	 * A page with a field streaming its upload into a file.
+	 */
+	public static class TestSinkPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		private String clientFileName;
+
+		private long size;
+
+		private byte[] bytes;
+
+		/**
+		 * Construct.
+		 * 
+		 * @param destination
+		 */
+		public TestSinkPage(final File destination)
+		{
+			final FileUploadField upload = new FileUploadField("upload")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				public IUploadSink newUploadSink()
+				{
+					return IUploadSink.toFile(fileName -> destination);
+				}
+			};
+
+			Form<Void> form = new Form<Void>("form")
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void onSubmit()
+				{
+					FileUpload fileUpload = upload.getFileUpload();
+					clientFileName = fileUpload.getClientFileName();
+					size = fileUpload.getSize();
+					bytes = fileUpload.getBytes();
+				}
+			};
+			form.add(upload);
+			add(form);
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container,
+			Class<?> containerClass)
+		{
+			return new StringResourceStream(
+				"<html><body><form wicket:id=\"form\"><input wicket:id=\"upload\" type=\"file\"/></form></body></html>");
+		}
+	}
+
 	public static class TestValidationPage extends MockPageWithFormAndUploadField
 	{
 		/** */
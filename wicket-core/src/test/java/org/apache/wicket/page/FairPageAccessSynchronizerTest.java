@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.page;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.wicket.MockPage;
+import org.apache.wicket.mock.MockPageManager;
+import org.apache.wicket.page.PageLockStatistics.WaitHistogram;
+import org.apache.wicket.util.SlowTests;
+import org.apache.wicket.util.time.Duration;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.Timeout;
+
+/**
+ * Tests for {@link FairPageAccessSynchronizer}
+ */
+@Category(SlowTests.class)
+public class FairPageAccessSynchronizerTest extends Assert
+{
+	/**	 */
+	@Rule
+	public Timeout globalTimeout = new Timeout(30, TimeUnit.SECONDS);
+
+	/**
+	 * Locks are reentrant and released completely.
+	 */
+	@Test
+	public void reentrant()
+	{
+		FairPageAccessSynchronizer sync = new FairPageAccessSynchronizer(Duration.seconds(5));
+		sync.lockPage(0);
+		sync.lockPage(0);
+		sync.lockPage(1);
+		assertEquals(2, sync.getLockCount());
+
+		sync.unlockPage(0);
+		assertEquals(1, sync.getLockCount());
+
+		sync.unlockAllPages();
+		assertEquals(0, sync.getLockCount());
+	}
+
+	/**
+	 * Waiting threads fail after the timeout.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void timeout() throws Exception
+	{
+		final FairPageAccessSynchronizer sync = new FairPageAccessSynchronizer(
+			Duration.milliseconds(100));
+		sync.lockPage(1);
+
+		final AtomicReference<Exception> failure = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			try
+			{
+				sync.lockPage(1);
+			}
+			catch (CouldNotLockPageException ex)
+			{
+				failure.set(ex);
+			}
+		});
+		thread.start();
+		thread.join();
+
+		assertTrue(failure.get() instanceof CouldNotLockPageException);
+		assertEquals(1, sync.getLockCount());
+
+		sync.unlockAllPages();
+		assertEquals(0, sync.getLockCount());
+	}
+
+	/**
+	 * Threads are granted access in the order they started waiting.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void fifo() throws Exception
+	{
+		final FairPageAccessSynchronizer sync = new FairPageAccessSynchronizer(Duration.seconds(10));
+		final List<Integer> order = new CopyOnWriteArrayList<>();
+
+		sync.lockPage(1);
+
+		Thread[] threads = new Thread[5];
+		for (int t = 0; t < threads.length; t++)
+		{
+			final int number = t;
+			threads[t] = new Thread(() -> {
+				sync.lockPage(1);
+				order.add(number);
+				sync.unlockAllPages();
+			});
+			threads[t].start();
+
+			// let it queue up before the next one
+			TimeUnit.MILLISECONDS.sleep(50);
+		}
+
+		sync.unlockAllPages();
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		assertEquals("[0, 1, 2, 3, 4]", order.toString());
+		assertEquals(0, sync.getLockCount());
+	}
+
+	/**
+	 * Requests marked for shared access do not wait for each other, but for exclusive ones.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void shared() throws Exception
+	{
+		final FairPageAccessSynchronizer sync = new FairPageAccessSynchronizer(Duration.seconds(10))
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean isSharedAccess(int pageId)
+			{
+				return Thread.currentThread().getName().startsWith("shared");
+			}
+		};
+
+		final CountDownLatch sharedLocked = new CountDownLatch(2);
+		final CountDownLatch done = new CountDownLatch(1);
+		Runnable sharing = () -> {
+			sync.lockPage(1);
+			sharedLocked.countDown();
+			try
+			{
+				done.await();
+			}
+			catch (InterruptedException ex)
+			{
+				throw new RuntimeException(ex);
+			}
+			sync.unlockAllPages();
+		};
+		Thread shared1 = new Thread(sharing, "shared-1");
+		Thread shared2 = new Thread(sharing, "shared-2");
+		shared1.start();
+		shared2.start();
+
+		// both hold the page at the same time
+		assertTrue(sharedLocked.await(5, TimeUnit.SECONDS));
+
+		final AtomicReference<Long> exclusiveLocked = new AtomicReference<>();
+		Thread exclusive = new Thread(() -> {
+			sync.lockPage(1);
+			exclusiveLocked.set(System.nanoTime());
+			sync.unlockAllPages();
+		}, "exclusive");
+		exclusive.start();
+
+		TimeUnit.MILLISECONDS.sleep(100);
+		assertNull(exclusiveLocked.get());
+
+		done.countDown();
+		exclusive.join();
+		shared1.join();
+		shared2.join();
+
+		assertNotNull(exclusiveLocked.get());
+		assertEquals(0, sync.getLockCount());
+	}
+
+	/**
+	 * Waits are recorded per page class.
+	 */
+	@Test
+	public void statistics()
+	{
+		PageLockStatistics statistics = new PageLockStatistics();
+		FairPageAccessSynchronizer sync = new FairPageAccessSynchronizer(Duration.seconds(5),
+			statistics);
+		IPageManager pageManager = sync.adapt(new MockPageManager());
+
+		MockPage page = new MockPage(1);
+		pageManager.touchPage(page);
+		assertSame(page, pageManager.getPage(1));
+		pageManager.commitRequest();
+
+		assertSame(page, pageManager.getPage(1));
+		pageManager.commitRequest();
+
+		assertEquals(0, sync.getLockCount());
+
+		WaitHistogram histogram = statistics.getHistogram(MockPage.class);
+		assertEquals(2, histogram.getCount());
+		assertEquals(2, histogram.getBucketCount(0));
+
+		// unknown pages are not recorded
+		assertNull(pageManager.getPage(2));
+		assertEquals(0, sync.getLockCount());
+		assertEquals(2, histogram.getCount());
+	}
+
+	/**
+	 * Histogram buckets and percentiles.
+	 */
+	@Test
+	public void histogram()
+	{
+		WaitHistogram histogram = new WaitHistogram();
+		for (int i = 0; i < 98; i++)
+		{
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+		}
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(300));
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(98, histogram.getBucketCount(0));
+		// 4..7 ms
+		assertEquals(1, histogram.getBucketCount(3));
+		// 256..511 ms
+		assertEquals(1, histogram.getBucketCount(9));
+
+		assertEquals(1, histogram.getPercentileMillis(50));
+		assertEquals(8, histogram.getPercentileMillis(99));
+		assertEquals(300, histogram.getPercentileMillis(100));
+		assertEquals(300, histogram.getMaxMillis());
+	}
+}
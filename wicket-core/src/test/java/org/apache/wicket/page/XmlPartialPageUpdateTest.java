@@ -52,6 +52,41 @@ public class XmlPartialPageUpdateTest extends WicketTestCase
 				"</head>]]></header-contribution></ajax-response>";
 		assertEquals(expected, response.getTextResponse().toString());
 	}
+
+	/**
+	 * Streaming writes the same response as buffering.
+	 */
+	@Test
+	public void streaming()
+	{
+		PageForStreamingPartialUpdate page = new PageForStreamingPartialUpdate();
+
+		String buffered = write(page, false);
+		String streamed = write(page, true);
+
+		assertEquals(buffered, streamed);
+
+		// CDATA end written in several pieces
+		assertTrue(streamed.contains("split CDATA end: ]]]]><![CDATA[> </span>"));
+	}
+
+	private String write(PageForStreamingPartialUpdate page, boolean streaming)
+	{
+		XmlPartialPageUpdate update = new XmlPartialPageUpdate(page);
+		update.setStreaming(streaming);
+
+		update.add(page.container, page.container.getMarkupId());
+		update.add(page.split, page.split.getMarkupId());
+		update.prependJavaScript("prepend(']]>');");
+		update.appendJavaScript("append(']]>');");
+
+		MockWebResponse response = new MockWebResponse();
+
+		update.writeTo(response, "UTF-8");
+
+		return response.getTextResponse().toString();
+	}
+
 	/**
 	 * 
 	 * see https://issues.apache.org/jira/browse/WICKET-6162
@@ -16,10 +16,17 @@
  */
 package org.apache.wicket.pageStore;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
 import java.security.SecureRandom;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.wicket.versioning.InMemoryPageStore;
 import org.junit.Test;
@@ -77,6 +84,159 @@ public class AsynchronousDataStoreTest
 		DATA_STORE.destroy();
 	}
 
+	/**
+	 * Executes random operations with several workers.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void randomOperationsWithWorkers() throws Exception
+	{
+		AsynchronousDataStore dataStore = new AsynchronousDataStore(new InMemoryPageStore(), 100, 4);
+		ExecutorService executorService = Executors.newFixedThreadPool(20);
+
+		for (int i = 0; i < 1000; i++)
+		{
+			String sessionId = SESSIONS[i % SESSIONS.length];
+			int pageId = PAGE_IDS[i % PAGE_IDS.length];
+			executorService.submit(() -> dataStore.storeData(sessionId, pageId, DATA));
+		}
+		executorService.shutdown();
+		assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+		for (String sessionId : SESSIONS)
+		{
+			for (int pageId : PAGE_IDS)
+			{
+				assertArrayEquals(DATA, dataStore.getData(sessionId, pageId));
+			}
+		}
+		dataStore.destroy();
+	}
+
+	/**
+	 * Repeated writes of a page which is still in the queue replace its data.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void coalesceQueuedWrites() throws Exception
+	{
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger stores = new AtomicInteger();
+		IDataStore wrapped = new InMemoryPageStore()
+		{
+			@Override
+			public void storeData(String sessionId, int pageId, byte[] pageAsBytes)
+			{
+				if (stores.incrementAndGet() == 1)
+				{
+					// block the worker with the first page
+					blocked.countDown();
+					try
+					{
+						release.await();
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+				super.storeData(sessionId, pageId, pageAsBytes);
+			}
+		};
+		AsynchronousDataStore dataStore = new AsynchronousDataStore(wrapped, 10);
+
+		dataStore.storeData("s1", 1, new byte[] { 1 });
+		blocked.await();
+
+		dataStore.storeData("s1", 2, new byte[] { 1 });
+		dataStore.storeData("s1", 2, new byte[] { 2 });
+		dataStore.storeData("s1", 2, new byte[] { 3 });
+		dataStore.storeData("s1", 3, new byte[] { 1 });
+		dataStore.removeData("s1", 3);
+
+		assertEquals(2, dataStore.getCoalescedCount());
+		assertEquals(1, dataStore.getDroppedCount());
+		assertEquals(1, dataStore.getQueueDepth());
+		assertArrayEquals(new byte[] { 3 }, dataStore.getData("s1", 2));
+
+		release.countDown();
+		while (dataStore.getQueueDepth() > 0 || wrapped.getData("s1", 2) == null)
+		{
+			Thread.sleep(10);
+		}
+
+		assertEquals(2, stores.get());
+		assertArrayEquals(new byte[] { 3 }, wrapped.getData("s1", 2));
+		assertNull(dataStore.getData("s1", 3));
+		assertEquals(0, dataStore.getFallbackSyncCount());
+		dataStore.destroy();
+	}
+
+	/**
+	 * Data which replaces the data of an entry while it waits for room in the full queue is stored
+	 * by the synchronous fallback.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void replaceDataOfFallback() throws Exception
+	{
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		IDataStore wrapped = new InMemoryPageStore()
+		{
+			@Override
+			public void storeData(String sessionId, int pageId, byte[] pageAsBytes)
+			{
+				if (pageId == 1)
+				{
+					// block the worker with the first page
+					blocked.countDown();
+					try
+					{
+						release.await();
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+				super.storeData(sessionId, pageId, pageAsBytes);
+			}
+		};
+		final AsynchronousDataStore dataStore = new AsynchronousDataStore(wrapped, 1);
+
+		dataStore.storeData("s1", 1, new byte[] { 1 });
+		blocked.await();
+		dataStore.storeData("s1", 2, new byte[] { 1 });
+
+		Thread writer = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				// waits for room in the full queue, then stores synchronously
+				dataStore.storeData("s1", 3, new byte[] { 1 });
+			}
+		});
+		writer.start();
+		while (dataStore.getData("s1", 3) == null)
+		{
+			Thread.yield();
+		}
+		dataStore.storeData("s1", 3, new byte[] { 2 });
+		writer.join();
+
+		assertArrayEquals(new byte[] { 2 }, wrapped.getData("s1", 3));
+		assertTrue(dataStore.getFallbackSyncCount() > 0);
+
+		release.countDown();
+		dataStore.destroy();
+	}
+
 	private static abstract class AbstractTask implements Runnable
 	{
 		protected abstract void r();
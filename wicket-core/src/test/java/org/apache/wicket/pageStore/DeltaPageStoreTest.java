@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.serialize.ISerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link DeltaPageStore}
+ */
+public class DeltaPageStoreTest extends Assert
+{
+	private final MapDataStore dataStore = new MapDataStore();
+
+	private DeltaPageStore newPageStore(int cacheSize)
+	{
+		return new DeltaPageStore(new ObjectSerializer(), dataStore, cacheSize, null, 4);
+	}
+
+	/**
+	 * Versions are stored as deltas and can be restored without cache
+	 */
+	@Test
+	public void storeVersions()
+	{
+		DeltaPageStore pageStore = newPageStore(10);
+
+		DummyPage page = new DummyPage(1, -1, new Random(1));
+		pageStore.storePage("s1", page);
+		for (int id = 2; id <= 10; id++)
+		{
+			page = page.nextVersion(id);
+			pageStore.storePage("s1", page);
+		}
+
+		// snapshots at 1, 5 and 9
+		assertTrue(pageStore.getPageBytes() > 10 * 10000);
+		assertTrue(pageStore.getStoredBytes() < 4 * 10000);
+
+		// restore from the data store only
+		pageStore = newPageStore(0);
+		assertEquals(1, pageStore.getPage("s1", 1).getPageId());
+		for (int id = 2; id <= 10; id++)
+		{
+			DummyPage restored = (DummyPage)pageStore.getPage("s1", id);
+			assertEquals(id, restored.getPageId());
+			assertEquals(id, restored.data[id * 100]);
+		}
+	}
+
+	/**
+	 * The previous version is taken from the data store if it is not cached
+	 */
+	@Test
+	public void withoutCache()
+	{
+		DeltaPageStore pageStore = newPageStore(0);
+
+		DummyPage page = new DummyPage(1, -1, new Random(2));
+		pageStore.storePage("s1", page);
+		page = page.nextVersion(2);
+		pageStore.storePage("s1", page);
+
+		assertTrue(pageStore.getStoredBytes() < 12000);
+		assertEquals(2, ((DummyPage)pageStore.getPage("s1", 2)).data[200]);
+	}
+
+	/**
+	 * A version is not available any more when a version it depends on has been removed
+	 */
+	@Test
+	public void missingPreviousVersion()
+	{
+		DeltaPageStore pageStore = newPageStore(0);
+
+		DummyPage page = new DummyPage(1, -1, new Random(3));
+		pageStore.storePage("s1", page);
+		pageStore.storePage("s1", page.nextVersion(2));
+		dataStore.removeData("s1", 1);
+
+		assertNull(pageStore.getPage("s1", 2));
+	}
+
+	/**
+	 * A page with random data
+	 */
+	private static class DummyPage implements IManageablePage
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int pageId;
+
+		private final int previousPageId;
+
+		private final byte[] data;
+
+		private DummyPage(int pageId, int previousPageId, Random random)
+		{
+			this.pageId = pageId;
+			this.previousPageId = previousPageId;
+			data = new byte[10000];
+			random.nextBytes(data);
+		}
+
+		private DummyPage(DummyPage previous, int pageId)
+		{
+			this.pageId = pageId;
+			previousPageId = previous.pageId;
+			data = previous.data.clone();
+			data[pageId * 100] = (byte)pageId;
+		}
+
+		private DummyPage nextVersion(int pageId)
+		{
+			return new DummyPage(this, pageId);
+		}
+
+		@Override
+		public boolean isPageStateless()
+		{
+			return false;
+		}
+
+		@Override
+		public int getPageId()
+		{
+			return pageId;
+		}
+
+		@Override
+		public int getPreviousPageId()
+		{
+			return previousPageId;
+		}
+
+		@Override
+		public void detach()
+		{
+		}
+
+		@Override
+		public boolean setFreezePageId(boolean freeze)
+		{
+			return false;
+		}
+	}
+
+	/**
+	 * Plain Java serialization
+	 */
+	private static class ObjectSerializer implements ISerializer
+	{
+		@Override
+		public byte[] serialize(Object object)
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(out))
+			{
+				oos.writeObject(object);
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+			return out.toByteArray();
+		}
+
+		@Override
+		public Object deserialize(byte[] data)
+		{
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data)))
+			{
+				return ois.readObject();
+			}
+			catch (IOException | ClassNotFoundException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Keeps the data in memory
+	 */
+	private static class MapDataStore extends NoopDataStore
+	{
+		private final Map<String, byte[]> data = new ConcurrentHashMap<>();
+
+		@Override
+		public byte[] getData(String sessionId, int id)
+		{
+			return data.get(sessionId + ":" + id);
+		}
+
+		@Override
+		public void removeData(String sessionId, int id)
+		{
+			data.remove(sessionId + ":" + id);
+		}
+
+		@Override
+		public void storeData(String sessionId, int id, byte[] data)
+		{
+			this.data.put(sessionId + ":" + id, data);
+		}
+	}
+}
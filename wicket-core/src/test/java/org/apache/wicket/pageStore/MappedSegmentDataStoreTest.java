@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.apache.wicket.util.file.Files;
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MappedSegmentDataStore}
+ */
+public class MappedSegmentDataStoreTest extends Assert
+{
+	private File folder;
+
+	private MappedSegmentDataStore dataStore;
+
+	/**
+	 * @throws IOException
+	 */
+	@Before
+	public void before() throws IOException
+	{
+		folder = File.createTempFile("segmentstore", "");
+		Files.remove(folder);
+		dataStore = newDataStore();
+	}
+
+	/**
+	 */
+	@After
+	public void after()
+	{
+		dataStore.destroy();
+		Files.removeFolder(folder);
+	}
+
+	private MappedSegmentDataStore newDataStore()
+	{
+		return new MappedSegmentDataStore("app", folder, Bytes.kilobytes(8), Bytes.kilobytes(4),
+			3, 0.5);
+	}
+
+	private static byte[] data(int length, int value)
+	{
+		byte[] data = new byte[length];
+		Arrays.fill(data, (byte)value);
+		return data;
+	}
+
+	/**
+	 * Stores, overwrites and removes pages.
+	 */
+	@Test
+	public void storeAndRemove()
+	{
+		dataStore.storeData("s1", 1, data(100, 1));
+		dataStore.storeData("s1", 2, data(200, 2));
+		dataStore.storeData("s2", 1, data(300, 3));
+
+		assertArrayEquals(data(100, 1), dataStore.getData("s1", 1));
+		assertArrayEquals(data(200, 2), dataStore.getData("s1", 2));
+		assertArrayEquals(data(300, 3), dataStore.getData("s2", 1));
+		assertNull(dataStore.getData("s2", 2));
+		assertNull(dataStore.getData("s3", 1));
+
+		dataStore.storeData("s1", 1, data(50, 4));
+		assertArrayEquals(data(50, 4), dataStore.getData("s1", 1));
+
+		dataStore.removeData("s1", 1);
+		assertNull(dataStore.getData("s1", 1));
+		assertArrayEquals(data(200, 2), dataStore.getData("s1", 2));
+
+		dataStore.removeData("s1");
+		assertNull(dataStore.getData("s1", 2));
+		assertArrayEquals(data(300, 3), dataStore.getData("s2", 1));
+	}
+
+	/**
+	 * Overwriting the same pages again and again must not lose them thanks to compaction.
+	 */
+	@Test
+	public void compaction()
+	{
+		for (int i = 0; i < 500; i++)
+		{
+			dataStore.storeData("s1", 1, data(300, i));
+			dataStore.storeData("s2", i % 3, data(500, i));
+		}
+
+		assertArrayEquals(data(300, 499), dataStore.getData("s1", 1));
+		assertArrayEquals(data(500, 498), dataStore.getData("s2", 0));
+		assertArrayEquals(data(500, 499), dataStore.getData("s2", 1));
+		assertArrayEquals(data(500, 497), dataStore.getData("s2", 2));
+	}
+
+	/**
+	 * When all segments are full of live data the oldest pages are evicted.
+	 */
+	@Test
+	public void eviction()
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			dataStore.storeData("s" + i, 1, data(1000, i));
+		}
+
+		assertNull(dataStore.getData("s0", 1));
+		assertArrayEquals(data(1000, 99), dataStore.getData("s99", 1));
+	}
+
+	/**
+	 * The oldest pages of a session are evicted when it exceeds the maximum size per session.
+	 */
+	@Test
+	public void maxSizePerSession()
+	{
+		for (int i = 0; i < 10; i++)
+		{
+			dataStore.storeData("s1", i, data(1000, i));
+		}
+
+		assertNull(dataStore.getData("s1", 0));
+		assertArrayEquals(data(1000, 9), dataStore.getData("s1", 9));
+	}
+
+	/**
+	 * Pages that are too big are not stored.
+	 */
+	@Test
+	public void tooBig()
+	{
+		dataStore.storeData("s1", 1, data(5000, 1));
+
+		assertNull(dataStore.getData("s1", 1));
+	}
+
+	/**
+	 * The index is rebuilt from the segments after a restart.
+	 */
+	@Test
+	public void recovery()
+	{
+		for (int i = 0; i < 20; i++)
+		{
+			dataStore.storeData("s1", i % 4, data(400, i));
+		}
+		dataStore.storeData("s2", 1, data(100, 1));
+		dataStore.storeData("s3", 1, data(100, 2));
+		dataStore.removeData("s1", 0);
+		dataStore.removeData("s3");
+		dataStore.destroy();
+
+		dataStore = newDataStore();
+
+		assertNull(dataStore.getData("s1", 0));
+		assertArrayEquals(data(400, 17), dataStore.getData("s1", 1));
+		assertArrayEquals(data(400, 18), dataStore.getData("s1", 2));
+		assertArrayEquals(data(400, 19), dataStore.getData("s1", 3));
+		assertArrayEquals(data(100, 1), dataStore.getData("s2", 1));
+		assertNull(dataStore.getData("s3", 1));
+
+		// the recovered store continues to work
+		dataStore.storeData("s2", 2, data(100, 3));
+		assertArrayEquals(data(100, 3), dataStore.getData("s2", 2));
+	}
+
+	/**
+	 * A torn record is ignored at recovery.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void recoveryIgnoresIncompleteRecord() throws IOException
+	{
+		dataStore.storeData("s1", 1, data(100, 1));
+		dataStore.storeData("s1", 2, data(100, 2));
+		dataStore.destroy();
+
+		File segment = new File(new File(folder, "app-segmentstore"), "segment-0.data");
+		try (RandomAccessFile file = new RandomAccessFile(segment, "rw"))
+		{
+			// corrupt the data of the second record
+			file.seek(12 + 35 + 2 + 100 + 35 + 2 + 50);
+			file.write(42);
+		}
+
+		dataStore = newDataStore();
+
+		assertArrayEquals(data(100, 1), dataStore.getData("s1", 1));
+		assertNull(dataStore.getData("s1", 2));
+	}
+}
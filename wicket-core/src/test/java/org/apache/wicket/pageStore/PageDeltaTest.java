@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PageDelta}
+ */
+public class PageDeltaTest extends Assert
+{
+	private static byte[] random(Random random, int length)
+	{
+		byte[] data = new byte[length];
+		random.nextBytes(data);
+		return data;
+	}
+
+	private static byte[] roundTrip(byte[] base, byte[] target)
+	{
+		byte[] delta = PageDelta.diff(base, target);
+		assertArrayEquals(target, PageDelta.apply(base, delta, 0));
+		return delta;
+	}
+
+	/**
+	 * A small change results in a small delta
+	 */
+	@Test
+	public void smallChange()
+	{
+		byte[] base = random(new Random(1), 100000);
+		byte[] target = base.clone();
+		target[50000] ^= 1;
+
+		assertTrue(roundTrip(base, target).length < 100);
+	}
+
+	/**
+	 * Unchanged data is found even if it moved
+	 */
+	@Test
+	public void insertAndRemove()
+	{
+		Random random = new Random(2);
+		byte[] base = random(random, 100000);
+
+		byte[] target = new byte[base.length + 10 - 1000];
+		System.arraycopy(base, 0, target, 0, 20000);
+		System.arraycopy(random(random, 10), 0, target, 20000, 10);
+		System.arraycopy(base, 20000, target, 20010, 50000);
+		System.arraycopy(base, 71000, target, 70010, 29000);
+
+		assertTrue(roundTrip(base, target).length < 100);
+	}
+
+	/**
+	 * Unrelated, short and empty data
+	 */
+	@Test
+	public void edgeCases()
+	{
+		Random random = new Random(3);
+		byte[] base = random(random, 1000);
+
+		byte[] unrelated = random(random, 1000);
+		assertTrue(roundTrip(base, unrelated).length > 1000);
+
+		roundTrip(base, new byte[0]);
+		roundTrip(new byte[0], base);
+		roundTrip(Arrays.copyOf(base, 10), Arrays.copyOf(base, 20));
+		roundTrip(base, Arrays.copyOf(base, 999));
+		roundTrip(base, base);
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.pageStore;
+
+import org.apache.wicket.util.lang.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StripedPageCache}
+ */
+public class StripedPageCacheTest extends Assert
+{
+	private static StripedPageCache<byte[]> newCache(int maxEntries, Bytes maxSize)
+	{
+		return new StripedPageCache<>(maxEntries, maxSize, page -> page.length);
+	}
+
+	/**
+	 * Store, get and remove pages
+	 */
+	@Test
+	public void storeGetRemove()
+	{
+		StripedPageCache<byte[]> cache = newCache(10, null);
+
+		byte[] page1 = new byte[1];
+		byte[] page2 = new byte[2];
+		cache.storePage("s1", 1, page1);
+		cache.storePage("s1", 2, page2);
+		cache.storePage("s2", 1, page2);
+
+		assertSame(page1, cache.getPage("s1", 1));
+		assertSame(page2, cache.getPage("s1", 2));
+		assertSame(page2, cache.getPage("s2", 1));
+		assertNull(cache.getPage("s2", 2));
+		assertEquals(3, cache.size());
+		assertEquals(5, cache.getSizeInBytes());
+
+		assertSame(page1, cache.removePage("s1", 1));
+		assertNull(cache.getPage("s1", 1));
+
+		cache.removePages("s1");
+		assertNull(cache.getPage("s1", 2));
+		assertSame(page2, cache.getPage("s2", 1));
+		assertEquals(1, cache.size());
+		assertEquals(2, cache.getSizeInBytes());
+
+		assertEquals(4, cache.getHitCount());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	/**
+	 * The least recently used page is evicted when the number of entries is exceeded
+	 */
+	@Test
+	public void evictByEntries()
+	{
+		StripedPageCache<byte[]> cache = newCache(2, null);
+
+		cache.storePage("s1", 1, new byte[1]);
+		cache.storePage("s1", 2, new byte[1]);
+		// touch the first page
+		assertNotNull(cache.getPage("s1", 1));
+		cache.storePage("s1", 3, new byte[1]);
+
+		assertNotNull(cache.getPage("s1", 1));
+		assertNull(cache.getPage("s1", 2));
+		assertNotNull(cache.getPage("s1", 3));
+		assertEquals(1, cache.getEvictionCount());
+	}
+
+	/**
+	 * The least recently used pages are evicted when the size is exceeded
+	 */
+	@Test
+	public void evictBySize()
+	{
+		StripedPageCache<byte[]> cache = newCache(10, Bytes.bytes(100));
+
+		cache.storePage("s1", 1, new byte[40]);
+		cache.storePage("s1", 2, new byte[40]);
+		cache.storePage("s1", 3, new byte[40]);
+
+		assertNull(cache.getPage("s1", 1));
+		assertNotNull(cache.getPage("s1", 2));
+		assertNotNull(cache.getPage("s1", 3));
+		assertEquals(80, cache.getSizeInBytes());
+
+		// too big to be cached at all
+		cache.storePage("s1", 4, new byte[101]);
+		assertNull(cache.getPage("s1", 4));
+	}
+
+	/**
+	 * Storing a page again replaces the previous one
+	 */
+	@Test
+	public void replace()
+	{
+		StripedPageCache<byte[]> cache = newCache(10, null);
+
+		byte[] page = new byte[20];
+		cache.storePage("s1", 1, new byte[10]);
+		cache.storePage("s1", 1, page);
+
+		assertSame(page, cache.getPage("s1", 1));
+		assertEquals(1, cache.size());
+		assertEquals(20, cache.getSizeInBytes());
+	}
+
+	/**
+	 * Large caches are striped, but keep their limits
+	 */
+	@Test
+	public void striped()
+	{
+		StripedPageCache<byte[]> cache = newCache(1000, null);
+
+		for (int i = 0; i < 5000; i++)
+		{
+			cache.storePage("s" + (i % 10), i, new byte[1]);
+		}
+
+		assertTrue(cache.size() <= 1000);
+		assertTrue(cache.size() > 900);
+		assertNotNull(cache.getPage("s9", 4999));
+	}
+
+	/**
+	 * The size limit is shared by all stripes, so a page fits if it is not larger than the
+	 * maximum size
+	 */
+	@Test
+	public void stripedSize()
+	{
+		StripedPageCache<byte[]> cache = newCache(1000, Bytes.bytes(1000));
+
+		for (int i = 0; i < 100; i++)
+		{
+			cache.storePage("s" + (i % 10), i, new byte[10]);
+		}
+		assertEquals(1000, cache.getSizeInBytes());
+
+		// larger than the share of a single stripe
+		byte[] large = new byte[900];
+		cache.storePage("s1", 1000, large);
+
+		assertSame(large, cache.getPage("s1", 1000));
+		assertTrue(cache.getSizeInBytes() <= 1000);
+		assertTrue(cache.size() >= 1);
+		assertEquals(cache.size() - 1, (cache.getSizeInBytes() - 900) / 10);
+	}
+
+	/**
+	 * A cache with non positive size caches nothing
+	 */
+	@Test
+	public void disabled()
+	{
+		StripedPageCache<byte[]> cache = newCache(0, null);
+
+		cache.storePage("s1", 1, new byte[1]);
+
+		assertNull(cache.getPage("s1", 1));
+		assertEquals(0, cache.size());
+	}
+}
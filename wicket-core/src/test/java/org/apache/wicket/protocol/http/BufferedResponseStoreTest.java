@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Duration;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BufferedResponseStore}
+ */
+public class BufferedResponseStoreTest extends Assert
+{
+	private static BufferedWebResponse response(String text)
+	{
+		BufferedWebResponse response = new BufferedWebResponse(null);
+		response.write(text);
+		return response;
+	}
+
+	/**
+	 * The oldest responses are evicted when the byte budget is exceeded.
+	 */
+	@Test
+	public void byteBudget()
+	{
+		// 2 bytes per char
+		BufferedResponseStore store = new BufferedResponseStore(Bytes.bytes(100),
+			Duration.minutes(1), false);
+
+		store.put("1", response("0123456789"));
+		store.put("2", response("0123456789"));
+		assertEquals(2, store.getEntries());
+		assertEquals(40, store.getBytes());
+
+		store.put("3", response("01234567890123456789"));
+		assertEquals(3, store.getEntries());
+		assertEquals(80, store.getBytes());
+		assertEquals(0, store.getEvicted());
+
+		store.put("4", response("012345678901234"));
+		assertFalse(store.contains("1"));
+		assertTrue(store.contains("2"));
+		assertEquals(3, store.getEntries());
+		assertEquals(90, store.getBytes());
+		assertEquals(1, store.getEvicted());
+
+		// too large for the budget at all
+		store.put("5", response(new String(new char[51])));
+		assertFalse(store.contains("5"));
+		assertEquals(3, store.getEntries());
+		assertEquals(2, store.getEvicted());
+	}
+
+	/**
+	 * Replacing a response accounts for the bytes of the replaced one.
+	 */
+	@Test
+	public void replace()
+	{
+		BufferedResponseStore store = new BufferedResponseStore(Bytes.bytes(100),
+			Duration.minutes(1), false);
+
+		store.put("1", response("0123456789"));
+		store.put("1", response("01234"));
+		assertEquals(1, store.getEntries());
+		assertEquals(10, store.getBytes());
+
+		assertEquals("01234", store.remove("1").getText().toString());
+		assertEquals(0, store.getEntries());
+		assertEquals(0, store.getBytes());
+	}
+
+	/**
+	 * Expired responses are not returned.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void expired() throws Exception
+	{
+		BufferedResponseStore store = new BufferedResponseStore(Bytes.megabytes(1),
+			Duration.milliseconds(50), false);
+
+		store.put("1", response("one"));
+		store.put("2", response("two"));
+		assertTrue(store.contains("1"));
+
+		TimeUnit.MILLISECONDS.sleep(100);
+
+		assertFalse(store.contains("1"));
+		assertNull(store.remove("1"));
+		assertEquals(1, store.getExpired());
+
+		// evicts the other expired response
+		store.put("3", response("three"));
+		assertEquals(1, store.getEntries());
+		assertEquals(2, store.getExpired());
+		assertEquals(0, store.getEvicted());
+	}
+
+	/**
+	 * Hits and misses are counted.
+	 */
+	@Test
+	public void metrics()
+	{
+		BufferedResponseStore store = new BufferedResponseStore(Bytes.megabytes(1),
+			Duration.minutes(1), false);
+
+		store.put("1", response("one"));
+		assertNotNull(store.remove("1"));
+		assertNull(store.remove("1"));
+		assertNull(store.remove("2"));
+
+		assertEquals(1, store.getHits());
+		assertEquals(2, store.getMisses());
+		assertEquals(0, store.getEntries());
+		assertEquals(0, store.getBytes());
+	}
+
+	/**
+	 * Compressed responses keep their text.
+	 */
+	@Test
+	public void compressed()
+	{
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++)
+		{
+			text.append("<div class=\"row\">ä€").append(i).append("</div>\n");
+		}
+
+		BufferedResponseStore store = new BufferedResponseStore(Bytes.megabytes(1),
+			Duration.minutes(1), true);
+		store.put("1", response(text.toString()));
+		assertTrue(store.getBytes() < text.length());
+
+		BufferedWebResponse response = store.remove("1");
+		assertEquals(text.toString(), response.getText().toString());
+
+		// still writable after decompression
+		response.write("end");
+		assertEquals(text.toString() + "end", response.getText().toString());
+	}
+}
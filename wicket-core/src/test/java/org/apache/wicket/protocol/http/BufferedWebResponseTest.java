@@ -1,76 +1,191 @@
-/*
- * Licensed to the Apache Software Foundation (ASF) under one or more
- * contributor license agreements.  See the NOTICE file distributed with
- * this work for additional information regarding copyright ownership.
- * The ASF licenses this file to You under the Apache License, Version 2.0
- * (the "License"); you may not use this file except in compliance with
- * the License.  You may obtain a copy of the License at
- *
- *      http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.apache.wicket.protocol.http;
-
-import java.util.ArrayList;
-
-import org.apache.wicket.mock.MockWebResponse;
-import org.apache.wicket.request.http.WebResponse;
-import org.apache.wicket.util.tester.WicketTestCase;
-import org.junit.Test;
-
-
-/**
- * @author Pedro Santos
- */
-public class BufferedWebResponseTest extends WicketTestCase
-{
-	enum TestAction {
-		SET_CONTENT_LENGTH, WRITE_RESPONSE, DISABLE_CACHING
-	}
-
-	/**
-	 * Asserting that set header actions are invoked before write in response actions.
-	 * 
-	 * WICKET-3618
-	 */
-	@Test
-	public void testBufferedResponsePostponeWriteResponseAction()
-	{
-		final ArrayList<TestAction> actionsSequence = new ArrayList<TestAction>();
-		WebResponse originalResponse = new MockWebResponse()
-		{
-			@Override
-			public void setContentLength(long length)
-			{
-				actionsSequence.add(TestAction.SET_CONTENT_LENGTH);
-			}
-
-			@Override
-			public void write(CharSequence sequence)
-			{
-				actionsSequence.add(TestAction.WRITE_RESPONSE);
-			}
-
-			/**
-			 * WICKET-5863
-			 */
-			@Override
-			public void disableCaching() {
-				actionsSequence.add(TestAction.DISABLE_CACHING);
-			}
-		};
-		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
-		response.setText("some text");
-		response.setContentLength(9);
-		response.disableCaching();
-		response.writeTo(originalResponse);
-		assertEquals(0, actionsSequence.indexOf(TestAction.SET_CONTENT_LENGTH));
-		assertEquals(1, actionsSequence.indexOf(TestAction.DISABLE_CACHING));
-		assertEquals(2, actionsSequence.indexOf(TestAction.WRITE_RESPONSE));
-	}
-}
\ No newline at end of file
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.apache.wicket.RuntimeConfigurationType;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.protocol.http.servlet.ServletWebResponse;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.response.filter.IResponseFilter;
+import org.apache.wicket.util.string.AppendingStringBuffer;
+import org.apache.wicket.util.string.PreEncodedText;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Test;
+
+
+/**
+ * @author Pedro Santos
+ */
+public class BufferedWebResponseTest extends WicketTestCase
+{
+	enum TestAction {
+		SET_CONTENT_LENGTH, WRITE_RESPONSE, DISABLE_CACHING
+	}
+
+	/**
+	 * Development mode adds a response filter, which prevents writing pre-encoded texts.
+	 */
+	@Override
+	protected WebApplication newApplication()
+	{
+		return new MockApplication()
+		{
+			@Override
+			public RuntimeConfigurationType getConfigurationType()
+			{
+				return RuntimeConfigurationType.DEPLOYMENT;
+			}
+		};
+	}
+
+	/**
+	 * Asserting that set header actions are invoked before write in response actions.
+	 * 
+	 * WICKET-3618
+	 */
+	@Test
+	public void testBufferedResponsePostponeWriteResponseAction()
+	{
+		final ArrayList<TestAction> actionsSequence = new ArrayList<TestAction>();
+		WebResponse originalResponse = new MockWebResponse()
+		{
+			@Override
+			public void setContentLength(long length)
+			{
+				actionsSequence.add(TestAction.SET_CONTENT_LENGTH);
+			}
+
+			@Override
+			public void write(CharSequence sequence)
+			{
+				actionsSequence.add(TestAction.WRITE_RESPONSE);
+			}
+
+			/**
+			 * WICKET-5863
+			 */
+			@Override
+			public void disableCaching() {
+				actionsSequence.add(TestAction.DISABLE_CACHING);
+			}
+		};
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		response.setText("some text");
+		response.setContentLength(9);
+		response.disableCaching();
+		response.writeTo(originalResponse);
+		assertEquals(0, actionsSequence.indexOf(TestAction.SET_CONTENT_LENGTH));
+		assertEquals(1, actionsSequence.indexOf(TestAction.DISABLE_CACHING));
+		assertEquals(2, actionsSequence.indexOf(TestAction.WRITE_RESPONSE));
+	}
+
+	/**
+	 * Pre-encoded texts are written as bytes together with the other text.
+	 */
+	@Test
+	public void writePreEncodedText()
+	{
+		tester.getApplication().getRequestCycleSettings().setWritePreEncodedMarkup(true);
+
+		MockHttpServletResponse httpResponse = new MockHttpServletResponse(tester.getRequest());
+		ServletWebResponse originalResponse = new ServletWebResponse(
+			(ServletWebRequest)tester.getRequestCycle().getRequest(), httpResponse);
+
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		PreEncodedText text = new PreEncodedText("<p>gr\u00fc\u00dfe</p>");
+		response.write(text);
+		response.write("\u20ac");
+		response.write(text);
+
+		String expected = "<p>gr\u00fc\u00dfe</p>\u20ac<p>gr\u00fc\u00dfe</p>";
+		assertEquals(expected, response.getText().toString());
+
+		response.writeTo(originalResponse);
+
+		assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), httpResponse.getBinaryContent());
+		assertEquals(expected, httpResponse.getDocument());
+	}
+
+	/**
+	 * Pre-encoded texts are written as text unless enabled.
+	 */
+	@Test
+	public void writePreEncodedTextDisabled()
+	{
+		MockHttpServletResponse httpResponse = new MockHttpServletResponse(tester.getRequest());
+		ServletWebResponse originalResponse = new ServletWebResponse(
+			(ServletWebRequest)tester.getRequestCycle().getRequest(), httpResponse);
+
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		response.write(new PreEncodedText("<p>text</p>"));
+		response.writeTo(originalResponse);
+
+		assertEquals(0, httpResponse.getBinaryContent().length);
+		assertEquals("<p>text</p>", httpResponse.getDocument());
+	}
+
+	/**
+	 * Pre-encoded texts are written as text if response filters have to be applied.
+	 */
+	@Test
+	public void writePreEncodedTextWithFilter()
+	{
+		tester.getApplication().getRequestCycleSettings().setWritePreEncodedMarkup(true);
+		tester.getApplication().getRequestCycleSettings().addResponseFilter(new IResponseFilter()
+		{
+			@Override
+			public AppendingStringBuffer filter(AppendingStringBuffer responseBuffer)
+			{
+				return responseBuffer.append("!");
+			}
+		});
+
+		MockHttpServletResponse httpResponse = new MockHttpServletResponse(tester.getRequest());
+		ServletWebResponse originalResponse = new ServletWebResponse(
+			(ServletWebRequest)tester.getRequestCycle().getRequest(), httpResponse);
+
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		response.write(new PreEncodedText("<p>text</p>"));
+		response.writeTo(originalResponse);
+
+		assertEquals("<p>text</p>!", httpResponse.getDocument());
+	}
+
+	/**
+	 * Replacing the text drops the pre-encoded texts.
+	 */
+	@Test
+	public void setTextAfterPreEncodedText()
+	{
+		MockHttpServletResponse httpResponse = new MockHttpServletResponse(tester.getRequest());
+		ServletWebResponse originalResponse = new ServletWebResponse(
+			(ServletWebRequest)tester.getRequestCycle().getRequest(), httpResponse);
+
+		BufferedWebResponse response = new BufferedWebResponse(originalResponse);
+		response.write(new PreEncodedText("<p>text</p>"));
+		response.setText("other");
+		response.writeTo(originalResponse);
+
+		assertEquals("other", httpResponse.getDocument());
+	}
+}
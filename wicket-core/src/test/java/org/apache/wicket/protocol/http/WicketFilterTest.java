@@ -21,6 +21,7 @@ import static org.mockito.Mockito.*;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -30,31 +31,49 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 import java.util.TimeZone;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.wicket.Application;
+import org.apache.wicket.Session;
 import org.apache.wicket.ThreadContext;
 import org.apache.wicket.mock.MockApplication;
 import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
 import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
 import org.apache.wicket.protocol.http.mock.MockServletContext;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.handler.TextRequestHandler;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.request.resource.ByteArrayResource;
 import org.apache.wicket.request.resource.DynamicImageResource;
 import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.settings.RequestCycleSettings.RenderStrategy;
 import org.apache.wicket.util.SlowTests;
 import org.apache.wicket.util.file.WebXmlFile;
 import org.apache.wicket.util.string.Strings;
@@ -63,6 +82,7 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
@@ -284,6 +304,456 @@ public class WicketFilterTest extends Assert
 	}
 
 
+	/**
+	 * Resources are processed asynchronously if enabled, buffering content until the container is
+	 * ready to write.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void asyncResource() throws Exception
+	{
+		final ScheduledExecutorService container = Executors.newSingleThreadScheduledExecutor();
+		WicketFilter filter = new WicketFilter();
+		try
+		{
+			application = new MockApplication();
+			FilterTestingConfig config = new FilterTestingConfig();
+			config.initParameters.put(WicketFilter.ASYNC_THREADS_PARAM, "1");
+			config.initParameters.put(WicketFilter.ASYNC_TIMEOUT_PARAM, "30 seconds");
+			filter.init(config);
+			ThreadContext.setApplication(application);
+
+			final byte[] data = new byte[100000];
+			new Random().nextBytes(data);
+			final AtomicReference<Thread> processingThread = new AtomicReference<>();
+			application.getSharedResources().add("foo.bin",
+				new ByteArrayResource("application/octet-stream")
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected byte[] getData(Attributes attributes)
+					{
+						processingThread.set(Thread.currentThread());
+						return data;
+					}
+				});
+
+			final CountDownLatch completed = new CountDownLatch(1);
+			final AsyncContext asyncContext = mock(AsyncContext.class);
+			doAnswer(invocation -> {
+				completed.countDown();
+				return null;
+			}).when(asyncContext).complete();
+
+			MockHttpServletRequest request = newAsyncRequest(asyncContext);
+			request.setURL(request.getContextPath() + request.getServletPath() +
+				"/wicket/resource/" + Application.class.getName() + "/foo.bin");
+
+			MockHttpServletResponse response = new MockHttpServletResponse(request)
+			{
+				private ServletOutputStream stream;
+
+				@Override
+				public ServletOutputStream getOutputStream()
+				{
+					if (stream == null)
+					{
+						stream = new NonBlockingOutputStream(super.getOutputStream(), container);
+					}
+					return stream;
+				}
+			};
+
+			filter.doFilter(request, response, null);
+
+			assertTrue(completed.await(5, TimeUnit.SECONDS));
+			assertTrue(processingThread.get().getName().startsWith("Wicket-AsyncRequest-"));
+			assertArrayEquals(data, response.getBinaryContent());
+			verify(asyncContext).setTimeout(30000);
+		}
+		finally
+		{
+			ThreadContext.detach();
+			filter.destroy();
+			application = null;
+			container.shutdown();
+		}
+	}
+
+	/**
+	 * A timed out request is completed without waiting for its processing, content written
+	 * afterwards is discarded.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void asyncTimeout() throws Exception
+	{
+		WicketFilter filter = new WicketFilter();
+		try
+		{
+			application = new MockApplication();
+			FilterTestingConfig config = new FilterTestingConfig();
+			config.initParameters.put(WicketFilter.ASYNC_THREADS_PARAM, "1");
+			filter.init(config);
+			ThreadContext.setApplication(application);
+
+			final CountDownLatch processing = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+			application.getSharedResources().add("foo.bin",
+				new ByteArrayResource("application/octet-stream")
+				{
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected byte[] getData(Attributes attributes)
+					{
+						processing.countDown();
+						try
+						{
+							release.await(5, TimeUnit.SECONDS);
+						}
+						catch (InterruptedException e)
+						{
+							throw new RuntimeException(e);
+						}
+						return new byte[1000];
+					}
+				});
+
+			AsyncContext asyncContext = mock(AsyncContext.class);
+			MockHttpServletRequest request = newAsyncRequest(asyncContext);
+			request.setURL(request.getContextPath() + request.getServletPath() +
+				"/wicket/resource/" + Application.class.getName() + "/foo.bin");
+			MockHttpServletResponse response = new MockHttpServletResponse(request);
+
+			filter.doFilter(request, response, null);
+			assertTrue(processing.await(5, TimeUnit.SECONDS));
+
+			ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+			verify(asyncContext).setTimeout(60000);
+			verify(asyncContext).addListener(listener.capture());
+			listener.getValue().onTimeout(null);
+			verify(asyncContext).complete();
+
+			release.countDown();
+			filter.destroy();
+
+			verify(asyncContext, times(1)).complete();
+			assertEquals(0, response.getBinaryContent().length);
+		}
+		finally
+		{
+			ThreadContext.detach();
+			filter.destroy();
+			application = null;
+		}
+	}
+
+	/**
+	 * A request the request cycle does not handle after all is dispatched back to the container
+	 * and passed on to the filter chain.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void asyncUnhandledRequest() throws Exception
+	{
+		WicketFilter filter = new WicketFilter();
+		try
+		{
+			application = new MockApplication();
+			FilterTestingConfig config = new FilterTestingConfig();
+			config.initParameters.put(WicketFilter.ASYNC_THREADS_PARAM, "1");
+			filter.init(config);
+			ThreadContext.setApplication(application);
+
+			// resolves when deciding about asynchronous processing only
+			final AtomicInteger mapped = new AtomicInteger();
+			application.getRootRequestMapperAsCompound().add(new IRequestMapper()
+			{
+				@Override
+				public IRequestHandler mapRequest(Request request)
+				{
+					if (mapped.incrementAndGet() == 1)
+					{
+						return new TextRequestHandler("text");
+					}
+					return null;
+				}
+
+				@Override
+				public int getCompatibilityScore(Request request)
+				{
+					return Integer.MAX_VALUE;
+				}
+
+				@Override
+				public Url mapHandler(IRequestHandler requestHandler)
+				{
+					return null;
+				}
+			});
+
+			final CountDownLatch dispatched = new CountDownLatch(1);
+			AsyncContext asyncContext = mock(AsyncContext.class);
+			doAnswer(invocation -> {
+				dispatched.countDown();
+				return null;
+			}).when(asyncContext).dispatch();
+
+			MockHttpServletRequest request = newAsyncRequest(asyncContext);
+			request.setURL(request.getContextPath() + request.getServletPath() + "/foo.txt");
+			MockHttpServletResponse response = new MockHttpServletResponse(request);
+			FilterChain chain = mock(FilterChain.class);
+
+			filter.doFilter(request, response, chain);
+			assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+			verify(asyncContext, never()).complete();
+			verify(chain, never()).doFilter(request, response);
+
+			// dispatched by the container
+			filter.doFilter(request, response, chain);
+			verify(chain).doFilter(request, response);
+			assertEquals(2, mapped.get());
+		}
+		finally
+		{
+			ThreadContext.detach();
+			filter.destroy();
+			application = null;
+		}
+	}
+
+	/**
+	 * Writing waits while the content not taken by the container exceeds the maximum, until the
+	 * request times out.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void asyncPendingContentBounded() throws Exception
+	{
+		WicketFilter filter = new WicketFilter();
+		try
+		{
+			application = new MockApplication();
+			FilterTestingConfig config = new FilterTestingConfig();
+			config.initParameters.put(WicketFilter.ASYNC_THREADS_PARAM, "1");
+			filter.init(config);
+			ThreadContext.setApplication(application);
+
+			final AtomicReference<Thread> processingThread = new AtomicReference<>();
+			final AtomicLong written = new AtomicLong();
+			final AtomicReference<Exception> failure = new AtomicReference<>();
+			application.getSharedResources().add("foo.bin", new AbstractResource()
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected ResourceResponse newResourceResponse(Attributes attributes)
+				{
+					ResourceResponse response = new ResourceResponse();
+					response.setContentType("application/octet-stream");
+					response.setWriteCallback(new WriteCallback()
+					{
+						@Override
+						public void writeData(Attributes attributes) throws IOException
+						{
+							processingThread.set(Thread.currentThread());
+							OutputStream out = attributes.getResponse().getOutputStream();
+							byte[] chunk = new byte[1024];
+							try
+							{
+								for (int i = 0; i < 1024; i++)
+								{
+									out.write(chunk);
+									written.addAndGet(chunk.length);
+								}
+							}
+							catch (RuntimeException ex)
+							{
+								failure.set(ex);
+								throw ex;
+							}
+						}
+					});
+					return response;
+				}
+			});
+
+			AsyncContext asyncContext = mock(AsyncContext.class);
+			MockHttpServletRequest request = newAsyncRequest(asyncContext);
+			request.setURL(request.getContextPath() + request.getServletPath() +
+				"/wicket/resource/" + Application.class.getName() + "/foo.bin");
+			final ServletOutputStream stream = mock(ServletOutputStream.class);
+			when(stream.isReady()).thenReturn(false);
+			MockHttpServletResponse response = new MockHttpServletResponse(request)
+			{
+				@Override
+				public ServletOutputStream getOutputStream()
+				{
+					// a client which never becomes ready
+					return stream;
+				}
+			};
+
+			filter.doFilter(request, response, null);
+
+			long deadline = System.currentTimeMillis() + 5000;
+			while ((processingThread.get() == null ||
+				processingThread.get().getState() != Thread.State.WAITING) &&
+				System.currentTimeMillis() < deadline)
+			{
+				Thread.sleep(10);
+			}
+			assertEquals(Thread.State.WAITING, processingThread.get().getState());
+			assertTrue(written.get() <= AsyncRequestProcessor.DEFAULT_MAX_PENDING.bytes());
+
+			ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+			verify(asyncContext).addListener(listener.capture());
+			listener.getValue().onTimeout(null);
+
+			processingThread.get().join(5000);
+			assertNotNull(failure.get());
+			verify(asyncContext, times(1)).complete();
+			verify(stream, never()).write(Matchers.any(byte[].class));
+		}
+		finally
+		{
+			ThreadContext.detach();
+			filter.destroy();
+			application = null;
+		}
+	}
+
+	/**
+	 * A response buffered by {@link RenderStrategy#REDIRECT_TO_BUFFER} is processed
+	 * synchronously, without removing the buffer when deciding about asynchronous processing.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void asyncBufferedResponse() throws Exception
+	{
+		WicketFilter filter = new WicketFilter();
+		try
+		{
+			application = new MockApplication();
+			FilterTestingConfig config = new FilterTestingConfig();
+			config.initParameters.put(WicketFilter.ASYNC_THREADS_PARAM, "1");
+			filter.init(config);
+			ThreadContext.setApplication(application);
+			application.getRequestCycleSettings().setRenderStrategy(
+				RenderStrategy.REDIRECT_TO_BUFFER);
+
+			AsyncContext asyncContext = mock(AsyncContext.class);
+			MockHttpServletRequest request = newAsyncRequest(asyncContext);
+			request.setURL(request.getContextPath() + request.getServletPath() +
+				"/wicket/page?0");
+
+			// the session of the redirecting request
+			ServletWebRequest webRequest = new ServletWebRequest(request, filter.getFilterPath());
+			Session session = application.newSession(webRequest, null);
+			application.getSessionStore().bind(webRequest, session);
+			String sessionId = application.getSessionStore().getSessionId(webRequest, true);
+
+			BufferedWebResponse buffered = new BufferedWebResponse(null);
+			buffered.setText("buffered");
+			application.storeBufferedResponse(sessionId, Url.parse("wicket/page?0"), buffered);
+
+			MockHttpServletResponse response = new MockHttpServletResponse(request);
+
+			filter.doFilter(request, response, null);
+
+			assertEquals("buffered", response.getDocument());
+			verifyZeroInteractions(asyncContext);
+		}
+		finally
+		{
+			ThreadContext.detach();
+			filter.destroy();
+			application = null;
+		}
+	}
+
+	private MockHttpServletRequest newAsyncRequest(final AsyncContext asyncContext)
+	{
+		return new MockHttpServletRequest(application, null, null)
+		{
+			@Override
+			public boolean isAsyncSupported()
+			{
+				return true;
+			}
+
+			@Override
+			public AsyncContext startAsync()
+			{
+				return asyncContext;
+			}
+		};
+	}
+
+	/**
+	 * A non-blocking stream, which is not ready after each write until the container notifies
+	 * the listener.
+	 */
+	private static class NonBlockingOutputStream extends ServletOutputStream
+	{
+		private final ServletOutputStream delegate;
+
+		private final ScheduledExecutorService container;
+
+		private volatile boolean ready = true;
+
+		private WriteListener listener;
+
+		private NonBlockingOutputStream(ServletOutputStream delegate,
+			ScheduledExecutorService container)
+		{
+			this.delegate = delegate;
+			this.container = container;
+		}
+
+		@Override
+		public boolean isReady()
+		{
+			return ready;
+		}
+
+		@Override
+		public void setWriteListener(WriteListener listener)
+		{
+			this.listener = listener;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			write(new byte[] { (byte)b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			if (ready == false)
+			{
+				throw new IllegalStateException("not ready");
+			}
+			delegate.write(b, off, len);
+
+			ready = false;
+			container.schedule(() -> {
+				ready = true;
+				listener.onWritePossible();
+				return null;
+			}, 10, TimeUnit.MILLISECONDS);
+		}
+	}
+
 	private void setIfModifiedSinceToNextWeek(MockHttpServletRequest request)
 	{
 		Calendar nextWeek = Calendar.getInstance();
@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.http.servlet;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpSession;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.fileupload.FileUploadBase.FileSizeLimitExceededException;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
+import org.apache.wicket.util.file.File;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.apache.wicket.util.time.Duration;
+import org.junit.Test;
+
+/**
+ * Tests for {@link MultipartServletWebRequestImpl}
+ */
+public class MultipartServletWebRequestImplTest extends WicketTestCase
+{
+	/**
+	 * Upload progress is kept in the registry instead of the session and updated at the
+	 * configured granularity.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void uploadProgress() throws Exception
+	{
+		tester.getApplication()
+			.getApplicationSettings()
+			.setUploadProgressUpdatesEnabled(true)
+			.setUploadProgressUpdateGranularity(Bytes.bytes(5000), Duration.ONE_HOUR);
+		final UploadProgressRegistry registry = tester.getApplication()
+			.getApplicationSettings()
+			.getUploadProgressRegistry();
+
+		File file = writeTestFile(20000);
+		try
+		{
+			final MockHttpServletRequest request = tester.getRequest();
+			request.addFile("file", file, "text/plain");
+			final HttpSession session = request.getSession();
+
+			final List<Long> updates = new ArrayList<>();
+			MultipartServletWebRequestImpl multipart = new MultipartServletWebRequestImpl(request,
+				"", Bytes.MAX, "upload")
+			{
+				@Override
+				protected void onUploadUpdate(int bytesUploaded, int total)
+				{
+					super.onUploadUpdate(bytesUploaded, total);
+
+					UploadInfo info = registry.get(session.getId(), "upload");
+					updates.add(info.getBytesUploaded());
+
+					assertSame(info, getUploadInfo(request, "upload"));
+					assertFalse(Collections.list(session.getAttributeNames()).contains(
+						MultipartServletWebRequestImpl.class.getName() + ":upload"));
+				}
+			};
+			multipart.parseFileParts();
+
+			int total = request.getContentLength();
+			assertTrue(total > 20000);
+			assertEquals(Long.valueOf(total), updates.get(updates.size() - 1));
+			assertTrue(updates.size() >= 3);
+			assertTrue(updates.size() <= total / 5000 + 1);
+			for (int i = 1; i < updates.size() - 1; i++)
+			{
+				assertTrue(updates.get(i) - updates.get(i - 1) >= 5000);
+			}
+
+			// cleared when completed
+			assertNull(registry.get(session.getId(), "upload"));
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Files of fields with a sink are streamed into it, other items are parsed as usual.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void uploadSinks() throws Exception
+	{
+		File file = writeTestFile(20000);
+		try
+		{
+			MockHttpServletRequest request = tester.getRequest();
+			request.getPostParameters().setParameterValue("text", "value");
+			request.addFile("streamed", file, "text/plain");
+			request.addFile("buffered", file, "text/plain");
+
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			MultipartServletWebRequestImpl multipart = new MultipartServletWebRequestImpl(request,
+				"", Bytes.MAX, "upload");
+			multipart.setUploadSink("streamed", IUploadSink.digest(digest));
+			multipart.parseFileParts();
+
+			assertEquals("value", multipart.getPostParameters()
+				.getParameterValue("text")
+				.toString());
+
+			FileItem streamed = multipart.getFile("streamed").get(0);
+			assertEquals(file.getName(), streamed.getName());
+			assertEquals("text/plain", streamed.getContentType());
+			assertEquals(20000, streamed.getSize());
+			assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(new byte[20000]),
+				digest.digest());
+
+			FileItem buffered = multipart.getFile("buffered").get(0);
+			assertEquals(20000, buffered.get().length);
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * A sink can reject an upload while it is parsed.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void uploadSinkRejects() throws Exception
+	{
+		File file = writeTestFile(20000);
+		try
+		{
+			MockHttpServletRequest request = tester.getRequest();
+			request.addFile("streamed", file, "text/plain");
+
+			MultipartServletWebRequestImpl multipart = new MultipartServletWebRequestImpl(request,
+				"", Bytes.MAX, "upload");
+			multipart.setUploadSink("streamed", IUploadSink.discard(Bytes.bytes(10000)));
+			try
+			{
+				multipart.parseFileParts();
+				fail();
+			}
+			catch (FileUploadException e)
+			{
+				assertTrue(e instanceof FileSizeLimitExceededException);
+				assertEquals(file.getName(), ((FileSizeLimitExceededException)e).getFileName());
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Each file of a field uploading multiple files is written to its own destination, the content
+	 * is read back from there.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void uploadSinkToFiles() throws Exception
+	{
+		File file1 = writeTestFile(1000);
+		File file2 = writeTestFile(2000);
+		java.io.File folder = Files.createTempDirectory("sink").toFile();
+		try
+		{
+			MockHttpServletRequest request = tester.getRequest();
+			request.addFile("streamed", file1, "text/plain");
+			request.addFile("streamed", file2, "text/plain");
+
+			MultipartServletWebRequestImpl multipart = new MultipartServletWebRequestImpl(request,
+				"", Bytes.MAX, "upload");
+			multipart.setUploadSink("streamed",
+				IUploadSink.toFile(fileName -> new java.io.File(folder, fileName)));
+			multipart.parseFileParts();
+
+			List<FileItem> items = multipart.getFile("streamed");
+			assertEquals(2, items.size());
+			assertEquals(1000, items.get(0).get().length);
+			assertEquals(2000, items.get(1).get().length);
+			assertEquals(1000, new java.io.File(folder, file1.getName()).length());
+			assertEquals(2000, new java.io.File(folder, file2.getName()).length());
+		}
+		finally
+		{
+			file1.delete();
+			file2.delete();
+			new java.io.File(folder, file1.getName()).delete();
+			new java.io.File(folder, file2.getName()).delete();
+			folder.delete();
+		}
+	}
+
+	/**
+	 * A file sink rejects a second file for the same destination instead of overwriting it, the
+	 * destination of the failed request is deleted.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void uploadSinkToFileRejectsSecondFile() throws Exception
+	{
+		File file1 = writeTestFile(1000);
+		File file2 = writeTestFile(2000);
+		File destination = new File(File.createTempFile("sink", ".txt"));
+		try
+		{
+			MockHttpServletRequest request = tester.getRequest();
+			request.addFile("streamed", file1, "text/plain");
+			request.addFile("streamed", file2, "text/plain");
+
+			MultipartServletWebRequestImpl multipart = new MultipartServletWebRequestImpl(request,
+				"", Bytes.MAX, "upload");
+			multipart.setUploadSink("streamed", IUploadSink.toFile(fileName -> destination));
+			try
+			{
+				multipart.parseFileParts();
+				fail();
+			}
+			catch (FileUploadException e)
+			{
+				assertTrue(e.getMessage().contains(file2.getName()));
+			}
+			assertFalse(destination.exists());
+		}
+		finally
+		{
+			file1.delete();
+			file2.delete();
+			destination.delete();
+		}
+	}
+
+	/**
+	 * A file exceeding its maximum size while it is streamed into a file sink does not leave the
+	 * truncated destination behind.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void uploadSinkToFileDeletesTruncated() throws Exception
+	{
+		File file = writeTestFile(20000);
+		File destination = new File(File.createTempFile("sink", ".txt"));
+		try
+		{
+			MockHttpServletRequest request = tester.getRequest();
+			request.addFile("streamed", file, "text/plain");
+
+			MultipartServletWebRequestImpl multipart = new MultipartServletWebRequestImpl(request,
+				"", Bytes.MAX, "upload");
+			multipart.setFileMaxSize(Bytes.bytes(10000));
+			multipart.setUploadSink("streamed", IUploadSink.toFile(fileName -> destination));
+			try
+			{
+				multipart.parseFileParts();
+				fail();
+			}
+			catch (FileSizeLimitExceededException expected)
+			{
+			}
+			assertFalse(destination.exists());
+		}
+		finally
+		{
+			file.delete();
+			destination.delete();
+		}
+	}
+
+	/**
+	 * Reading the content of a file not kept by its sink fails with a meaningful exception.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void uploadSinkNotKeepingContent() throws Exception
+	{
+		File file = writeTestFile(1000);
+		try
+		{
+			MockHttpServletRequest request = tester.getRequest();
+			request.addFile("streamed", file, "text/plain");
+
+			MultipartServletWebRequestImpl multipart = new MultipartServletWebRequestImpl(request,
+				"", Bytes.MAX, "upload");
+			multipart.setUploadSink("streamed", IUploadSink.discard(Bytes.MAX));
+			multipart.parseFileParts();
+
+			FileItem streamed = multipart.getFile("streamed").get(0);
+			try
+			{
+				streamed.getInputStream();
+				fail();
+			}
+			catch (IOException expected)
+			{
+			}
+			try
+			{
+				streamed.get();
+				fail();
+			}
+			catch (IllegalStateException expected)
+			{
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	private static File writeTestFile(int size) throws Exception
+	{
+		File file = new File(File.createTempFile("upload", ".txt"));
+		try (OutputStream out = new FileOutputStream(file))
+		{
+			out.write(new byte[size]);
+		}
+		return file;
+	}
+
+	/**
+	 * The registry drops the least recently used uploads.
+	 */
+	@Test
+	public void registryIsBounded()
+	{
+		UploadProgressRegistry registry = new UploadProgressRegistry(2);
+
+		UploadInfo info1 = new UploadInfo(1);
+		UploadInfo info2 = new UploadInfo(2);
+		registry.put("session1", "upload", info1);
+		registry.put("session2", "upload", info2);
+		assertSame(info1, registry.get("session1", "upload"));
+
+		registry.put("session1", "upload2", new UploadInfo(3));
+		assertEquals(2, registry.size());
+		assertSame(info1, registry.get("session1", "upload"));
+		assertNull(registry.get("session2", "upload"));
+
+		registry.remove("session1", "upload");
+		assertNull(registry.get("session1", "upload"));
+		assertEquals(1, registry.size());
+	}
+}
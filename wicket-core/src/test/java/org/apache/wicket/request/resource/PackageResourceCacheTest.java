@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.lang.Bytes;
+import org.apache.wicket.util.time.Time;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PackageResourceCache}
+ */
+public class PackageResourceCacheTest extends Assert
+{
+	private static byte[] text(int length)
+	{
+		byte[] bytes = new byte[length];
+		Arrays.fill(bytes, (byte)'a');
+		return bytes;
+	}
+
+	/**
+	 * Text bodies get a gzipped variant
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void gzippedVariant() throws IOException
+	{
+		PackageResourceCache cache = new PackageResourceCache(Bytes.kilobytes(10));
+		Time lastModified = Time.millis(1000);
+
+		byte[] bytes = text(1000);
+		cache.put("a.js", lastModified, bytes, "text/javascript");
+		cache.put("a.png", lastModified, bytes, "image/png");
+		cache.put("b.js", lastModified, text(10), "text/javascript");
+
+		PackageResourceCache.Entry entry = cache.get("a.js", lastModified);
+		assertSame(bytes, entry.getBytes());
+		byte[] gunzipped = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(
+			entry.getGzippedBytes())));
+		assertArrayEquals(bytes, gunzipped);
+
+		assertNull(cache.get("a.png", lastModified).getGzippedBytes());
+		assertNull(cache.get("b.js", lastModified).getGzippedBytes());
+		assertEquals(3, cache.getHitCount());
+	}
+
+	/**
+	 * Entries of modified resources are not returned
+	 */
+	@Test
+	public void modified()
+	{
+		PackageResourceCache cache = new PackageResourceCache(Bytes.kilobytes(10));
+
+		cache.put("a.js", Time.millis(1000), text(10), "text/javascript");
+
+		assertNull(cache.get("a.js", Time.millis(2000)));
+		assertNull(cache.get("a.js", Time.millis(1000)));
+		assertEquals(0, cache.size());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	/**
+	 * The least recently used entries are evicted when the budget is exceeded
+	 */
+	@Test
+	public void evict()
+	{
+		PackageResourceCache cache = new PackageResourceCache(Bytes.bytes(250));
+		Time lastModified = Time.millis(1000);
+
+		cache.put("a", lastModified, text(100), null);
+		cache.put("b", lastModified, text(100), null);
+		assertNotNull(cache.get("a", lastModified));
+		cache.put("c", lastModified, text(100), null);
+
+		assertNotNull(cache.get("a", lastModified));
+		assertNull(cache.get("b", lastModified));
+		assertNotNull(cache.get("c", lastModified));
+		assertEquals(200, cache.getSizeInBytes());
+
+		// too big, but still returned
+		assertNotNull(cache.put("d", lastModified, text(300), null));
+		assertNull(cache.get("d", lastModified));
+	}
+}
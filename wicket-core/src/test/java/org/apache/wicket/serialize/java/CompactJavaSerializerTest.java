@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.serialize.java;
+
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.model.Model;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CompactJavaSerializer}
+ */
+public class CompactJavaSerializerTest extends Assert
+{
+	private static Node newGraph()
+	{
+		Node root = new Node("root");
+		for (int i = 0; i < 20; i++)
+		{
+			Node child = new Node("child" + i);
+			child.parent = root;
+			child.attributes.put("index", i);
+			child.attributes.put("model", Model.of("value" + i));
+			root.children.add(child);
+		}
+		root.attributes.put("parameters", new PageParameters().add("a", "b"));
+		return root;
+	}
+
+	/**
+	 * Serializes and deserializes an object graph
+	 */
+	@Test
+	public void roundTrip()
+	{
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest");
+
+		byte[] data = serializer.serialize(newGraph());
+		Node root = (Node)serializer.deserialize(data);
+
+		assertEquals("root", root.name);
+		assertEquals(20, root.children.size());
+		Node child = root.children.get(7);
+		assertSame(root, child.parent);
+		assertEquals(7, child.attributes.get("index"));
+		assertEquals("value7", ((Model<?>)child.attributes.get("model")).getObject());
+		assertEquals("b",
+			((PageParameters)root.attributes.get("parameters")).get("a").toString());
+	}
+
+	/**
+	 * The compact class descriptors make the data smaller
+	 */
+	@Test
+	public void smallerThanJavaSerializer()
+	{
+		ClassDictionary dictionary = ClassDictionary.withWicketClasses().register(Node.class);
+		byte[] compact = new CompactJavaSerializer("CompactJavaSerializerTest", dictionary)
+			.serialize(newGraph());
+		byte[] java = new JavaSerializer("CompactJavaSerializerTest").serialize(newGraph());
+
+		assertTrue(compact.length + " < " + java.length, compact.length < java.length);
+	}
+
+	/**
+	 * Data can be read with a dictionary that has more classes registered, but not with a
+	 * different one
+	 */
+	@Test
+	public void dictionaryVersions()
+	{
+		ClassDictionary dictionary = new ClassDictionary().register(Node.class, ArrayList.class);
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest",
+			dictionary);
+		byte[] data = serializer.serialize(newGraph());
+
+		dictionary.register(HashMap.class);
+		assertEquals(3, dictionary.size());
+		assertEquals("root", ((Node)serializer.deserialize(data)).name);
+
+		CompactJavaSerializer other = new CompactJavaSerializer("CompactJavaSerializerTest",
+			new ClassDictionary().register(ArrayList.class, Node.class));
+		try
+		{
+			other.deserialize(data);
+			fail("The data must not be readable with a different dictionary");
+		}
+		catch (RuntimeException expected)
+		{
+			assertTrue(expected.getCause() instanceof StreamCorruptedException);
+		}
+	}
+
+	/**
+	 * Data can't be read if the fields of a class have changed, even if its serialVersionUID has
+	 * not
+	 */
+	@Test
+	public void changedFields()
+	{
+		CompactJavaSerializer serializer = new CompactJavaSerializer("CompactJavaSerializerTest");
+		byte[] data = serializer.serialize(new Leaf("leaf"));
+
+		CompactJavaSerializer changed = new CompactJavaSerializer("CompactJavaSerializerTest")
+		{
+			@Override
+			protected Class<?> resolveClass(String className) throws ClassNotFoundException
+			{
+				if (className.equals(Leaf.class.getName()))
+				{
+					return ChangedLeaf.class;
+				}
+				return super.resolveClass(className);
+			}
+		};
+		try
+		{
+			changed.deserialize(data);
+			fail("The data must not be readable with a different field layout");
+		}
+		catch (RuntimeException expected)
+		{
+			assertTrue(expected.getCause() instanceof InvalidClassException);
+		}
+	}
+
+	/**
+	 * A serializable test class
+	 */
+	private static class Node implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+
+		private Node parent;
+
+		private final List<Node> children = new ArrayList<>();
+
+		private final Map<String, Object> attributes = new HashMap<>();
+
+		private Node(String name)
+		{
+			this.name = name;
+		}
+	}
+
+	/**
+	 * A serializable test class
+	 */
+	private static class Leaf implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String name;
+
+		private Leaf(String name)
+		{
+			this.name = name;
+		}
+	}
+
+	/**
+	 * {@link Leaf} with a changed field type
+	 */
+	private static class ChangedLeaf implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Object name;
+
+		private ChangedLeaf(Object name)
+		{
+			this.name = name;
+		}
+	}
+}
@@ -766,7 +766,59 @@ public class PropertyResolverTest extends WicketTestCase
 		assertEquals("string", PropertyResolver.getValue("string", document));
 		assertEquals("string2", PropertyResolver.getValue("nested.string", document));
 	}
-	
+
+	/**
+	 * A compiled expression is evaluated on objects of other classes too.
+	 */
+	@Test
+	public void compiledWithSubType()
+	{
+		person.setCountry(new Country("US"));
+		assertEquals("US", PropertyResolver.getValue("country.name", person));
+
+		person.setCountry(new Country2("NL", new Country("BE")));
+		assertEquals("NL", PropertyResolver.getValue("country.name", person));
+		assertEquals("BE", PropertyResolver.getValue("country.subCountry.name", person));
+
+		person.setCountry(new Country("US"));
+		assertEquals("US", PropertyResolver.getValue("country.name", person));
+		try
+		{
+			PropertyResolver.getValue("country.subCountry.name", person);
+			fail("country.subCountry shouldnt be found");
+		}
+		catch (WicketRuntimeException ex)
+		{
+		}
+	}
+
+	/**
+	 * Expressions are evaluated the same without compilation.
+	 */
+	@Test
+	public void notCompiled()
+	{
+		PropertyResolver.setLocator(tester.getApplication(),
+			new CachingPropertyLocator(new DefaultPropertyLocator(), false));
+
+		PropertyResolver.setValue("address.street", person, "wicket-street", CONVERTER);
+		PropertyResolver.setValue("age", person, 10, CONVERTER);
+		assertEquals("wicket-street", PropertyResolver.getValue("address.street", person));
+		assertEquals(10, PropertyResolver.getValue("age", person));
+	}
+
+	/**
+	 * A boxed value needs no conversion for a primitive.
+	 */
+	@Test
+	public void convertBoxedToPrimitive()
+	{
+		PropertyResolverConverter converter = new PropertyResolverConverter(null, Locale.US);
+
+		Integer value = 10;
+		assertSame(value, converter.convert(value, int.class));
+	}
+
 	class CustomGetAndSetLocator implements IPropertyLocator {
 
 		private IPropertyLocator locator = new DefaultPropertyLocator();
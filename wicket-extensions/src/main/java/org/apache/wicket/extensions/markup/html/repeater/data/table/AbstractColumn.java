@@ -92,4 +92,24 @@ public abstract class AbstractColumn<T, S> implements IStyledColumn<T, S>
 	{
 		return null;
 	}
+
+	/**
+	 * Checks whether the class of this column overrides {@code getDataModel(IModel)} of an
+	 * {@link org.apache.wicket.extensions.markup.html.repeater.data.table.export.IExportableColumn}.
+	 * 
+	 * @param declaringClass
+	 *            the class declaring the method originally
+	 * @return {@code true} if a subclass of the declaring class overrides the method
+	 */
+	final boolean isDataModelOverridden(final Class<?> declaringClass)
+	{
+		try
+		{
+			return getClass().getMethod("getDataModel", IModel.class).getDeclaringClass() != declaringClass;
+		}
+		catch (NoSuchMethodException e)
+		{
+			return true;
+		}
+	}
 }
@@ -48,6 +48,9 @@ public class LambdaColumn<T, S> extends AbstractColumn<T, S> implements IExporta
 	
 	private final SerializableFunction<T, ?> function;
 
+	/** whether {@link #getDataModel(IModel)} is overridden, determined lazily */
+	private transient Boolean dataModelOverridden;
+
 	/**
 	 * Creates a column that is not sortable.
 	 * 
@@ -119,4 +122,28 @@ public class LambdaColumn<T, S> extends AbstractColumn<T, S> implements IExporta
 		};
 		return dataModel;
 	}
+
+	/**
+	 * Applies the function to the row object directly, unless {@link #getDataModel(IModel)} is
+	 * overridden.
+	 * 
+	 * @param rowModel
+	 * @return result of the function
+	 */
+	@Override
+	public Object getDataObject(final IModel<T> rowModel)
+	{
+		if (dataModelOverridden == null)
+		{
+			dataModelOverridden = isDataModelOverridden(LambdaColumn.class);
+		}
+
+		if (dataModelOverridden)
+		{
+			return IExportableColumn.super.getDataObject(rowModel);
+		}
+
+		T row = rowModel.getObject();
+		return row == null ? null : function.apply(row);
+	}
 }
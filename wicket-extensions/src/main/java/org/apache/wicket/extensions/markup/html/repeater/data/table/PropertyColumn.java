@@ -16,6 +16,7 @@
  */
 package org.apache.wicket.extensions.markup.html.repeater.data.table;
 
+import org.apache.wicket.core.util.lang.PropertyResolver;
 import org.apache.wicket.extensions.markup.html.repeater.data.grid.ICellPopulator;
 import org.apache.wicket.extensions.markup.html.repeater.data.table.export.IExportableColumn;
 import org.apache.wicket.markup.html.basic.Label;
@@ -23,7 +24,6 @@ import org.apache.wicket.markup.repeater.Item;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.PropertyModel;
 
-
 /**
  * A convenience implementation of column that adds a label to the cell whose model is determined by
  * the provided wicket property expression (same as used by {@link PropertyModel}) that is evaluated
@@ -52,6 +52,9 @@ public class PropertyColumn<T, S> extends AbstractColumn<T, S> implements IExpor
 
 	private final String propertyExpression;
 
+	/** whether {@link #getDataModel(IModel)} is overridden, determined lazily */
+	private transient Boolean dataModelOverridden;
+
 	/**
 	 * Creates a property column that is also sortable
 	 * 
@@ -118,4 +121,26 @@ public class PropertyColumn<T, S> extends AbstractColumn<T, S> implements IExpor
 		PropertyModel<?> propertyModel = new PropertyModel<>(rowModel, propertyExpression);
 		return propertyModel;
 	}
+
+	/**
+	 * Resolves the property expression against the row object directly, unless
+	 * {@link #getDataModel(IModel)} is overridden.
+	 * 
+	 * @param rowModel
+	 * @return value of the property
+	 */
+	@Override
+	public Object getDataObject(final IModel<T> rowModel)
+	{
+		if (dataModelOverridden == null)
+		{
+			dataModelOverridden = isDataModelOverridden(PropertyColumn.class);
+		}
+
+		if (dataModelOverridden)
+		{
+			return IExportableColumn.super.getDataObject(rowModel);
+		}
+		return PropertyResolver.getValue(propertyExpression, rowModel.getObject());
+	}
 }
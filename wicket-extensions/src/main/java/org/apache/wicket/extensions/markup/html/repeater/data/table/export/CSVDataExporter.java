@@ -16,16 +16,24 @@
  */
 package org.apache.wicket.extensions.markup.html.repeater.data.table.export;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
 import org.apache.wicket.Application;
+import org.apache.wicket.IConverterLocator;
 import org.apache.wicket.Session;
 import org.apache.wicket.markup.repeater.data.IDataProvider;
+import org.apache.wicket.model.IModel;
 import org.apache.wicket.model.Model;
 import org.apache.wicket.util.convert.IConverter;
 import org.apache.wicket.util.lang.Args;
@@ -35,11 +43,22 @@ import org.apache.wicket.util.lang.Args;
  * setting the delimiter, the text quoting character and the character set.
  * <p>
  * This class will export CSV files in a format consistent with RFC4180 by default.
+ * <p>
+ * Rows are requested from the {@link IDataProvider} in chunks of {@link #getChunkSize()} rows and
+ * written as they are read, so that exports of large data sets do not need to hold all rows in
+ * memory. Optionally the export is compressed with gzip.
  *
  * @author Jesse Long
  */
 public class CSVDataExporter extends AbstractDataExporter
 {
+	/**
+	 * The default number of rows requested from the data provider at once.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	private static final int BUFFER_SIZE = 8192;
+
 	private char delimiter = ',';
 
 	private String characterSet = "utf-8";
@@ -48,6 +67,10 @@ public class CSVDataExporter extends AbstractDataExporter
 
 	private boolean exportHeadersEnabled = true;
 
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private boolean gzipEnabled = false;
+
 	/**
 	 * Creates a new instance.
 	 */
@@ -125,19 +148,88 @@ public class CSVDataExporter extends AbstractDataExporter
 		return this;
 	}
 
+	/**
+	 * Returns the number of rows requested from the data provider at once.
+	 *
+	 * @return the number of rows requested from the data provider at once.
+	 */
+	public int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * Sets the number of rows requested from the data provider at once. The data provider is
+	 * detached after each chunk. This defaults to {@value #DEFAULT_CHUNK_SIZE}.
+	 *
+	 * @param chunkSize
+	 *      The number of rows requested from the data provider at once.
+	 * @return {@code this}, for chaining.
+	 */
+	public CSVDataExporter setChunkSize(int chunkSize)
+	{
+		this.chunkSize = Args.withinRange(1, Integer.MAX_VALUE, chunkSize, "chunkSize");
+		return this;
+	}
+
+	/**
+	 * Indicates if the export is compressed with gzip. Defaults to {@code false}.
+	 *
+	 * @return a boolean indicating if the export is compressed with gzip.
+	 */
+	public boolean isGzipEnabled()
+	{
+		return gzipEnabled;
+	}
+
+	/**
+	 * Turns on or off compression of the export with gzip. If this is set to {@code true}, the
+	 * export is offered as a "csv.gz" file.
+	 *
+	 * @param gzipEnabled
+	 *      A boolean indicating whether or not the export should be compressed.
+	 * @return {@code this}, for chaining.
+	 */
+	public CSVDataExporter setGzipEnabled(boolean gzipEnabled)
+	{
+		this.gzipEnabled = gzipEnabled;
+		return this;
+	}
+
 	/**
 	 * Returns the content type of the exported data. For CSV, this is normally
 	 * "text/csv". This methods adds the character set and header values, in accordance with
 	 * RFC4180.
+	 * <p>
+	 * If the export is compressed, this is "application/gzip".
 	 *
 	 * @return  the content type of the exported data.
 	 */
 	@Override
 	public String getContentType()
 	{
+		if (gzipEnabled)
+		{
+			return "application/gzip";
+		}
 		return super.getContentType() + "; charset=" + characterSet + "; header=" + ((exportHeadersEnabled) ? "present" : "absent");
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the export is compressed, ".gz" is appended.
+	 */
+	@Override
+	public String getFileNameExtension()
+	{
+		if (gzipEnabled)
+		{
+			return super.getFileNameExtension() + ".gz";
+		}
+		return super.getFileNameExtension();
+	}
+
 	/**
 	 * Turns on or off export headers functionality. If this is set to {@code true}, then the first
 	 * line of the export will contain the column headers. This defaults to {@code true}.
@@ -172,6 +264,10 @@ public class CSVDataExporter extends AbstractDataExporter
 	 */
 	protected String quoteValue(String value)
 	{
+		if (value.indexOf(quoteCharacter) == -1)
+		{
+			return quoteCharacter + value + quoteCharacter;
+		}
 		return quoteCharacter + value.replace("" + quoteCharacter, "" + quoteCharacter + quoteCharacter) + quoteCharacter;
 	}
 
@@ -179,7 +275,8 @@ public class CSVDataExporter extends AbstractDataExporter
 	public <T> void exportData(IDataProvider<T> dataProvider, List<IExportableColumn<T, ?>> columns, OutputStream outputStream)
 		throws IOException
 	{
-		PrintWriter out = new PrintWriter(new OutputStreamWriter(outputStream, Charset.forName(characterSet)));
+		OutputStream stream = gzipEnabled ? new GZIPOutputStream(outputStream, BUFFER_SIZE) : outputStream;
+		Writer out = new BufferedWriter(new OutputStreamWriter(stream, Charset.forName(characterSet)), BUFFER_SIZE);
 		try
 		{
 			if (isExportHeadersEnabled())
@@ -193,58 +290,108 @@ public class CSVDataExporter extends AbstractDataExporter
 					}
 					else
 					{
-						out.print(delimiter);
+						out.write(delimiter);
 					}
-					out.print(quoteValue(col.getDisplayModel().getObject()));
+					out.write(quoteValue(col.getDisplayModel().getObject()));
 				}
-				out.print("\r\n");
+				out.write("\r\n");
 			}
+
+			RowWriter rowWriter = new RowWriter(out);
+
 			long numberOfRows = dataProvider.size();
-			Iterator<? extends T> rowIterator = dataProvider.iterator(0, numberOfRows);
-			while (rowIterator.hasNext())
+			for (long first = 0; first < numberOfRows; first += chunkSize)
 			{
-				T row = rowIterator.next();
+				long count = Math.min(chunkSize, numberOfRows - first);
 
-				boolean first = true;
-				for (IExportableColumn<T, ?> col : columns)
+				Iterator<? extends T> rowIterator = dataProvider.iterator(first, count);
+				if (rowIterator.hasNext() == false)
 				{
-					if (first)
-					{
-						first = false;
-					}
-					else
-					{
-						out.print(delimiter);
-					}
+					// fewer rows than announced
+					break;
+				}
 
-					Object o = col.getDataModel(dataProvider.model(row)).getObject();
+				while (rowIterator.hasNext())
+				{
+					IModel<T> rowModel = dataProvider.model(rowIterator.next());
 
-					if (o != null)
-					{
-						Class<?> c = o.getClass();
+					rowWriter.write(rowModel, columns);
 
-						String s;
+					rowModel.detach();
+				}
 
-						IConverter converter = Application.get().getConverterLocator().getConverter(c);
+				// let the provider release the chunk
+				dataProvider.detach();
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes rows, caching converters by type.
+	 */
+	private class RowWriter
+	{
+		private final Writer out;
 
-						if (converter == null)
-						{
-							s = o.toString();
-						}
-						else
-						{
-							s = converter.convertToString(o, Session.get().getLocale());
-						}
+		private final IConverterLocator converterLocator = Application.get().getConverterLocator();
 
-						out.print(quoteValue(s));
-					}
+		private final Locale locale = Session.get().getLocale();
+
+		private final Map<Class<?>, IConverter<?>> converters = new HashMap<>();
+
+		private RowWriter(Writer out)
+		{
+			this.out = out;
+		}
+
+		private <T> void write(IModel<T> rowModel, List<IExportableColumn<T, ?>> columns) throws IOException
+		{
+			boolean first = true;
+			for (IExportableColumn<T, ?> col : columns)
+			{
+				if (first)
+				{
+					first = false;
+				}
+				else
+				{
+					out.write(delimiter);
+				}
+
+				Object o = col.getDataObject(rowModel);
+
+				if (o != null)
+				{
+					out.write(quoteValue(convert(o)));
 				}
-				out.print("\r\n");
 			}
+			out.write("\r\n");
 		}
-		finally
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private String convert(Object o)
 		{
-			out.close();
+			Class<?> c = o.getClass();
+
+			IConverter converter = converters.get(c);
+			if (converter == null && converters.containsKey(c) == false)
+			{
+				converter = converterLocator.getConverter(c);
+				converters.put(c, converter);
+			}
+
+			if (converter == null)
+			{
+				return o.toString();
+			}
+			else
+			{
+				return converter.convertToString(o, locale);
+			}
 		}
 	}
 }
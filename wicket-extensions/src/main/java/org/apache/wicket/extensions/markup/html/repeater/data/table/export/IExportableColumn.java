@@ -42,6 +42,23 @@ public interface IExportableColumn<T, S> extends IColumn<T, S>
 	 */
 	IModel<?> getDataModel(IModel<T> rowModel);
 
+	/**
+	 * Returns the data displayed by this column for the {@code rowModel} provided. This is used by
+	 * {@link IDataExporter}s for each exported cell.
+	 * <p>
+	 * The default implementation returns the object of the {@link #getDataModel(IModel) data
+	 * model}. Columns can override this to resolve the data from the row directly, without creating
+	 * a model for each cell.
+	 *
+	 * @param rowModel
+	 *      An {@link IModel} of the row data.
+	 * @return the data displayed by this column for the {@code rowModel} provided.
+	 */
+	default Object getDataObject(IModel<T> rowModel)
+	{
+		return getDataModel(rowModel).getObject();
+	}
+
 	/**
 	 * Returns a model of the column header. The content of this model is used as a heading for the column
 	 * when it is exported.
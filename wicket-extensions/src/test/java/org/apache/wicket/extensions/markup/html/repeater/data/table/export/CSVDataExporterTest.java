@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.extensions.markup.html.repeater.data.table.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.wicket.extensions.markup.html.repeater.data.table.LambdaColumn;
+import org.apache.wicket.extensions.markup.html.repeater.data.table.PropertyColumn;
+import org.apache.wicket.markup.repeater.data.IDataProvider;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.Model;
+import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.tester.WicketTestCase;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CSVDataExporter}
+ */
+public class CSVDataExporterTest extends WicketTestCase
+{
+	/**
+	 * Rows are requested in chunks, row models and the provider are detached.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void chunks() throws Exception
+	{
+		RowProvider provider = new RowProvider(25);
+
+		CSVDataExporter exporter = new CSVDataExporter().setChunkSize(10);
+		String csv = export(exporter, provider, columns());
+
+		assertEquals("[0+10, 10+10, 20+5]", provider.requested.toString());
+		assertEquals(3, provider.detached);
+		assertEquals(25, provider.detachedRows);
+
+		String[] lines = csv.split("\r\n");
+		assertEquals(26, lines.length);
+		assertEquals("\"Name\",\"Number\",\"Label\"", lines[0]);
+		assertEquals("\"Row \"\"0\"\"\",\"0\",\"#0\"", lines[1]);
+		assertEquals("\"Row \"\"24\"\"\",\"24\",\"#24\"", lines[25]);
+	}
+
+	/**
+	 * Export stops when the provider has fewer rows than announced.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void fewerRows() throws Exception
+	{
+		RowProvider provider = new RowProvider(25)
+		{
+			@Override
+			public long size()
+			{
+				return 100;
+			}
+		};
+
+		String csv = export(new CSVDataExporter().setChunkSize(10), provider, columns());
+
+		assertEquals("[0+10, 10+10, 20+10, 30+10]", provider.requested.toString());
+		assertEquals(26, csv.split("\r\n").length);
+	}
+
+	/**
+	 * Compressed exports contain the same data.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void gzip() throws Exception
+	{
+		CSVDataExporter exporter = new CSVDataExporter();
+		String csv = export(exporter, new RowProvider(100), columns());
+
+		exporter.setGzipEnabled(true);
+		assertEquals("csv.gz", exporter.getFileNameExtension());
+		assertEquals("application/gzip", exporter.getContentType());
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		exporter.exportData(new RowProvider(100), columns(), output);
+
+		byte[] uncompressed = IOUtils.toByteArray(
+			new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())));
+		assertEquals(csv, new String(uncompressed, "utf-8"));
+	}
+
+	/**
+	 * Columns with an overridden data model are exported with it.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void overriddenDataModel() throws Exception
+	{
+		List<IExportableColumn<Row, ?>> columns = new ArrayList<>();
+		columns.add(new PropertyColumn<Row, String>(Model.of("Name"), "name")
+		{
+			@Override
+			public IModel<?> getDataModel(IModel<Row> rowModel)
+			{
+				return Model.of("overridden");
+			}
+		});
+
+		String csv = export(new CSVDataExporter().setExportHeadersEnabled(false),
+			new RowProvider(1), columns);
+
+		assertEquals("\"overridden\"\r\n", csv);
+	}
+
+	private String export(CSVDataExporter exporter, RowProvider provider,
+		List<IExportableColumn<Row, ?>> columns) throws IOException
+	{
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		exporter.exportData(provider, columns, output);
+		return new String(output.toByteArray(), "utf-8");
+	}
+
+	private List<IExportableColumn<Row, ?>> columns()
+	{
+		return Arrays.asList(new PropertyColumn<>(Model.of("Name"), "name"),
+			new PropertyColumn<>(Model.of("Number"), "number"),
+			new LambdaColumn<>(Model.of("Label"), (Row row) -> "#" + row.getNumber()));
+	}
+
+	/**
+	 * A row
+	 */
+	public static class Row implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final int number;
+
+		private Row(int number)
+		{
+			this.number = number;
+		}
+
+		/**
+		 * @return name
+		 */
+		public String getName()
+		{
+			return "Row \"" + number + "\"";
+		}
+
+		/**
+		 * @return number
+		 */
+		public int getNumber()
+		{
+			return number;
+		}
+	}
+
+	private static class RowProvider implements IDataProvider<Row>
+	{
+		private final List<Row> rows = new ArrayList<>();
+
+		private final List<String> requested = new ArrayList<>();
+
+		private int detached;
+
+		private int detachedRows;
+
+		private RowProvider(int size)
+		{
+			for (int i = 0; i < size; i++)
+			{
+				rows.add(new Row(i));
+			}
+		}
+
+		@Override
+		public Iterator<? extends Row> iterator(long first, long count)
+		{
+			requested.add(first + "+" + count);
+
+			int from = (int)Math.min(first, rows.size());
+			int to = (int)Math.min(first + count, rows.size());
+			return rows.subList(from, to).iterator();
+		}
+
+		@Override
+		public long size()
+		{
+			return rows.size();
+		}
+
+		@Override
+		public IModel<Row> model(Row row)
+		{
+			return new Model<Row>(row)
+			{
+				@Override
+				public void detach()
+				{
+					detachedRows++;
+				}
+			};
+		}
+
+		@Override
+		public void detach()
+		{
+			detached++;
+		}
+	}
+}
@@ -18,6 +18,7 @@ package org.apache.wicket.proxy;
 
 import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
@@ -25,13 +26,21 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import net.sf.cglib.core.DefaultNamingPolicy;
 import net.sf.cglib.core.Predicate;
+import net.sf.cglib.core.ReflectUtils;
 import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.CallbackFilter;
 import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 import net.sf.cglib.proxy.NoOp;
@@ -122,9 +131,76 @@ public class LazyInitProxyFactory
 
 	private static final boolean IS_OBJENESIS_AVAILABLE = isObjenesisAvailable();
 
+	/** proxy classes generated for the proxied types */
+	private static final ProxyClassCache PROXY_CLASSES = new ProxyClassCache();
+
+	/** constructors of JDK proxy classes, kept with the classes */
+	private static final ClassValue<Constructor<?>> JDK_CONSTRUCTORS = new ClassValue<Constructor<?>>()
+	{
+		@Override
+		protected Constructor<?> computeValue(Class<?> proxyClass)
+		{
+			try
+			{
+				return proxyClass.getConstructor(InvocationHandler.class);
+			}
+			catch (NoSuchMethodException e)
+			{
+				throw new WicketRuntimeException("Cannot create proxy of class " + proxyClass, e);
+			}
+		}
+	};
+
+	/** prototypes creating instances of CGLib proxy classes, kept with the classes */
+	private static final ClassValue<Factory> CGLIB_PROTOTYPES = new ClassValue<Factory>()
+	{
+		@Override
+		protected Factory computeValue(Class<?> proxyClass)
+		{
+			// methods called by the constructor of the proxied type are passed through to it, the
+			// prototype's callbacks are never used otherwise
+			MethodInterceptor passThrough = (object, method, args, methodProxy) -> methodProxy.invokeSuper(
+				object, args);
+
+			Callback[] callbacks = new Callback[2];
+			callbacks[CGLIB_CALLBACK_NO_OVERRIDE] = SerializableNoOpCallback.INSTANCE;
+			callbacks[CGLIB_CALLBACK_HANDLER] = passThrough;
+
+			// the constructor binds the callbacks registered for the current thread
+			Enhancer.registerCallbacks(proxyClass, callbacks);
+			try
+			{
+				return (Factory)ReflectUtils.newInstance(proxyClass);
+			}
+			finally
+			{
+				Enhancer.registerCallbacks(proxyClass, null);
+			}
+		}
+	};
+
+	/** whether classes have a constructor without arguments */
+	private static final ClassValue<Boolean> NO_ARG_CONSTRUCTORS = new ClassValue<Boolean>()
+	{
+		@Override
+		protected Boolean computeValue(Class<?> type)
+		{
+			for (Constructor<?> constructor : type.getDeclaredConstructors())
+			{
+				if (constructor.getParameterTypes().length == 0)
+					return true;
+			}
+
+			return false;
+		}
+	};
+
 	/**
 	 * Create a lazy init proxy for the specified type. The target object will be located using the
 	 * provided locator upon first method invocation.
+	 * <p>
+	 * The proxy classes are generated once per type and class loader only.
+	 * </p>
 	 * 
 	 * @param type
 	 *            type that proxy will represent
@@ -146,52 +222,86 @@ public class LazyInitProxyFactory
 		{
 			JdkHandler handler = new JdkHandler(type, locator);
 
+			final ClassLoader classLoader = resolveClassLoader();
+			Class<?> proxyClass = PROXY_CLASSES.get(classLoader, type,
+				() -> createJdkProxyClass(classLoader, type));
 			try
 			{
-				return Proxy.newProxyInstance(resolveClassLoader(),
-					new Class[] { type, Serializable.class, ILazyInitProxy.class,
-							IWriteReplace.class }, handler);
+				return JDK_CONSTRUCTORS.get(proxyClass).newInstance(handler);
 			}
-			catch (IllegalArgumentException e)
+			catch (InstantiationException | IllegalAccessException e)
 			{
-				/*
-				 * STW: In some clustering environments it appears the context classloader fails to
-				 * load the proxied interface (currently seen in BEA WLS 9.x clusters). If this
-				 * happens, we can try and fall back to the classloader (current) that actually
-				 * loaded this class.
-				 */
-				return Proxy.newProxyInstance(LazyInitProxyFactory.class.getClassLoader(),
-					new Class[] { type, Serializable.class, ILazyInitProxy.class,
-							IWriteReplace.class }, handler);
+				throw new WicketRuntimeException("Cannot create proxy for " + type, e);
 			}
+			catch (InvocationTargetException e)
+			{
+				throw new WicketRuntimeException("Cannot create proxy for " + type,
+					e.getTargetException());
+			}
+		}
+		else if (IS_OBJENESIS_AVAILABLE && !hasNoArgConstructor(type))
+		{
+			// generated in the class loader of the type
+			Class<?> proxyClass = PROXY_CLASSES.get(type.getClassLoader(), type,
+				() -> ObjenesisProxyFactory.createProxyClass(type, WicketNamingPolicy.INSTANCE));
 
+			return ObjenesisProxyFactory.newInstance(proxyClass, type, locator);
 		}
 		else
 		{
-			if (IS_OBJENESIS_AVAILABLE && !hasNoArgConstructor(type))
-			{
-				return ObjenesisProxyFactory.createProxy(type, locator, WicketNamingPolicy.INSTANCE);
-			}
-
 			CGLibInterceptor handler = new CGLibInterceptor(type, locator);
 
 			Callback[] callbacks = new Callback[2];
 			callbacks[CGLIB_CALLBACK_NO_OVERRIDE] = SerializableNoOpCallback.INSTANCE;
 			callbacks[CGLIB_CALLBACK_HANDLER] = handler;
 
-			Enhancer e = new Enhancer();
-			e.setClassLoader(resolveClassLoader());
-			e.setInterfaces(new Class[] { Serializable.class, ILazyInitProxy.class,
-					IWriteReplace.class });
-			e.setSuperclass(type);
-			e.setCallbackFilter(NoOpForProtectedMethodsCGLibCallbackFilter.INSTANCE);
-			e.setCallbacks(callbacks);
-			e.setNamingPolicy(WicketNamingPolicy.INSTANCE);
+			final ClassLoader classLoader = resolveClassLoader();
+			Class<?> proxyClass = PROXY_CLASSES.get(classLoader, type,
+				() -> createCGLibProxyClass(classLoader, type));
 
-			return e.create();
+			// no need to generate the class again
+			return CGLIB_PROTOTYPES.get(proxyClass).newInstance(callbacks);
 		}
 	}
 
+	private static Class<?> createJdkProxyClass(final ClassLoader classLoader, final Class<?> type)
+	{
+		Class<?>[] interfaces = new Class[] { type, Serializable.class, ILazyInitProxy.class,
+				IWriteReplace.class };
+		try
+		{
+			return Proxy.getProxyClass(classLoader, interfaces);
+		}
+		catch (IllegalArgumentException e)
+		{
+			/*
+			 * STW: In some clustering environments it appears the context classloader fails to
+			 * load the proxied interface (currently seen in BEA WLS 9.x clusters). If this
+			 * happens, we can try and fall back to the classloader (current) that actually
+			 * loaded this class.
+			 */
+			return Proxy.getProxyClass(LazyInitProxyFactory.class.getClassLoader(), interfaces);
+		}
+	}
+
+	private static Class<?> createCGLibProxyClass(final ClassLoader classLoader, final Class<?> type)
+	{
+		Class<?>[] callbackTypes = new Class[2];
+		callbackTypes[CGLIB_CALLBACK_NO_OVERRIDE] = SerializableNoOpCallback.class;
+		callbackTypes[CGLIB_CALLBACK_HANDLER] = CGLibInterceptor.class;
+
+		Enhancer e = new Enhancer();
+		e.setClassLoader(classLoader);
+		e.setInterfaces(new Class[] { Serializable.class, ILazyInitProxy.class,
+				IWriteReplace.class });
+		e.setSuperclass(type);
+		e.setCallbackFilter(NoOpForProtectedMethodsCGLibCallbackFilter.INSTANCE);
+		e.setCallbackTypes(callbackTypes);
+		e.setNamingPolicy(WicketNamingPolicy.INSTANCE);
+
+		return e.createClass();
+	}
+
 	private static ClassLoader resolveClassLoader()
 	{
 		ClassLoader classLoader = null;
@@ -597,6 +707,69 @@ public class LazyInitProxyFactory
 			(method.getParameterTypes().length == 0) && method.getName().equals("writeReplace");
 	}
 
+	/**
+	 * Proxy classes per class loader and proxied type. The classes are referenced weakly, so the
+	 * cache does not prevent class loaders from being garbage collected.
+	 */
+	private static class ProxyClassCache
+	{
+		private volatile Map<ClassLoader, ConcurrentMap<String, WeakReference<Class<?>>>> cache = Collections.emptyMap();
+
+		/**
+		 * Gets the proxy class for a type, generating it if not cached yet.
+		 * 
+		 * @param classLoader
+		 *            class loader to generate the class with
+		 * @param type
+		 *            proxied type
+		 * @param generator
+		 *            generates the proxy class
+		 * @return proxy class
+		 */
+		private Class<?> get(final ClassLoader classLoader, final Class<?> type,
+			final Supplier<Class<?>> generator)
+		{
+			ConcurrentMap<String, WeakReference<Class<?>>> classes = getClassLoaderCache(classLoader);
+
+			WeakReference<Class<?>> reference = classes.get(type.getName());
+			Class<?> proxyClass = reference == null ? null : reference.get();
+
+			// a type with the same name might have been reloaded
+			if (proxyClass == null || type.isAssignableFrom(proxyClass) == false)
+			{
+				proxyClass = generator.get();
+				classes.put(type.getName(), new WeakReference<>(proxyClass));
+			}
+			return proxyClass;
+		}
+
+		private ConcurrentMap<String, WeakReference<Class<?>>> getClassLoaderCache(
+			final ClassLoader classLoader)
+		{
+			ConcurrentMap<String, WeakReference<Class<?>>> container = cache.get(classLoader);
+			if (container == null)
+			{
+				// only lock in rare event of unknown ClassLoader
+				synchronized (this)
+				{
+					// check again inside lock
+					container = cache.get(classLoader);
+					if (container == null)
+					{
+						container = new ConcurrentHashMap<>();
+
+						// don't write to current cache, copy instead
+						Map<ClassLoader, ConcurrentMap<String, WeakReference<Class<?>>>> newCache = new WeakHashMap<>(
+							cache);
+						newCache.put(classLoader, container);
+						cache = Collections.unmodifiableMap(newCache);
+					}
+				}
+			}
+			return container;
+		}
+	}
+
 	public static final class WicketNamingPolicy extends DefaultNamingPolicy
 	{
 		public static final WicketNamingPolicy INSTANCE = new WicketNamingPolicy();
@@ -617,13 +790,7 @@ public class LazyInitProxyFactory
 
 	private static boolean hasNoArgConstructor(Class<?> type)
 	{
-		for (Constructor<?> constructor : type.getDeclaredConstructors())
-		{
-			if (constructor.getParameterTypes().length == 0)
-				return true;
-		}
-
-		return false;
+		return NO_ARG_CONSTRUCTORS.get(type);
 	}
 
 	private static boolean isObjenesisAvailable()
@@ -18,11 +18,13 @@ package org.apache.wicket.proxy.objenesis;
 
 import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
 import net.sf.cglib.core.NamingPolicy;
 import org.apache.wicket.proxy.ILazyInitProxy;
 import org.apache.wicket.proxy.IProxyTargetLocator;
 import org.apache.wicket.proxy.LazyInitProxyFactory.IWriteReplace;
 import org.objenesis.ObjenesisStd;
+import org.objenesis.instantiator.ObjectInstantiator;
 
 import java.io.Serializable;
 
@@ -30,19 +32,59 @@ public class ObjenesisProxyFactory
 {
 	private static final ObjenesisStd OBJENESIS = new ObjenesisStd(false);
 
+	/** instantiators kept with their proxy classes */
+	private static final ClassValue<ObjectInstantiator<?>> INSTANTIATORS = new ClassValue<ObjectInstantiator<?>>()
+	{
+		@Override
+		protected ObjectInstantiator<?> computeValue(Class<?> proxyClass)
+		{
+			return OBJENESIS.getInstantiatorOf(proxyClass);
+		}
+	};
+
 	public static Object createProxy(final Class<?> type, final IProxyTargetLocator locator, NamingPolicy namingPolicy)
 	{
-		ObjenesisCGLibInterceptor handler = new ObjenesisCGLibInterceptor(type, locator);
+		return newInstance(createProxyClass(type, namingPolicy), type, locator);
+	}
 
+	/**
+	 * Creates the class of proxies for a type.
+	 *
+	 * @param type
+	 *            type that proxies will represent
+	 * @param namingPolicy
+	 *            naming policy of the class
+	 * @return proxy class
+	 */
+	public static Class<?> createProxyClass(final Class<?> type, NamingPolicy namingPolicy)
+	{
 		Enhancer e = new Enhancer();
 		e.setInterfaces(new Class[]{Serializable.class, ILazyInitProxy.class, IWriteReplace.class});
 		e.setSuperclass(type);
-		e.setCallbackType(handler.getClass());
+		e.setCallbackType(ObjenesisCGLibInterceptor.class);
 		e.setNamingPolicy(namingPolicy);
-		e.setUseCache(false);
 
-		Class<?> proxyClass = e.createClass();
-		Enhancer.registerCallbacks(proxyClass, new Callback[]{handler});
-		return OBJENESIS.newInstance(proxyClass);
+		return e.createClass();
+	}
+
+	/**
+	 * Creates a proxy without invoking any constructor.
+	 *
+	 * @param proxyClass
+	 *            class created with {@link #createProxyClass(Class, NamingPolicy)}
+	 * @param type
+	 *            type that proxy will represent
+	 * @param locator
+	 *            object locator that will locate the object the proxy represents
+	 * @return proxy
+	 */
+	public static Object newInstance(final Class<?> proxyClass, final Class<?> type, final IProxyTargetLocator locator)
+	{
+		ObjenesisCGLibInterceptor handler = new ObjenesisCGLibInterceptor(type, locator);
+
+		// set the callback on the instance, as no constructor binds it
+		Factory proxy = (Factory)INSTANTIATORS.get(proxyClass).newInstance();
+		proxy.setCallbacks(new Callback[]{handler});
+		return proxy;
 	}
 }
@@ -18,6 +18,7 @@ package org.apache.wicket.proxy;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 
+import java.io.Serializable;
 import java.lang.reflect.Proxy;
 
 import org.apache.wicket.core.util.lang.WicketObjects;
@@ -26,6 +27,7 @@ import org.apache.wicket.proxy.util.ConcreteObject;
 import org.apache.wicket.proxy.util.IInterface;
 import org.apache.wicket.proxy.util.IObjectMethodTester;
 import org.apache.wicket.proxy.util.InterfaceObject;
+import org.apache.wicket.proxy.util.MockObjectLocator;
 import org.apache.wicket.proxy.util.ObjectMethodTester;
 import org.junit.Assert;
 import org.junit.Test;
@@ -175,6 +177,39 @@ public class LazyInitProxyFactoryTest extends Assert
 		assertTrue(tester.isValid());
 	}
 
+	/**
+	 * Tests proxies of classes without default constructor, which are created with Objenesis
+	 */
+	@Test
+	public void testObjenesisProxy()
+	{
+		NoDefaultConstructorObject proxy = (NoDefaultConstructorObject)LazyInitProxyFactory.createProxy(
+			NoDefaultConstructorObject.class, new MockObjectLocator(new NoDefaultConstructorObject("first")));
+		NoDefaultConstructorObject proxy2 = (NoDefaultConstructorObject)LazyInitProxyFactory.createProxy(
+			NoDefaultConstructorObject.class, new MockObjectLocator(new NoDefaultConstructorObject("second")));
+
+		// a single class is generated, but each proxy has its own locator
+		assertSame(proxy.getClass(), proxy2.getClass());
+		assertEquals("first", proxy.getMessage());
+		assertEquals("second", proxy2.getMessage());
+
+		NoDefaultConstructorObject proxy3 = WicketObjects.cloneObject(proxy2);
+		assertTrue(proxy2 != proxy3);
+		assertEquals("second", proxy3.getMessage());
+	}
+
+	/**
+	 * Tests proxies of classes calling overridable methods in their constructor
+	 */
+	@Test
+	public void testConstructorCallingProxy()
+	{
+		ConstructorCallingObject proxy = (ConstructorCallingObject)LazyInitProxyFactory.createProxy(
+			ConstructorCallingObject.class, new MockObjectLocator(new ConstructorCallingObject()));
+
+		assertEquals("initialized", proxy.getMessage());
+	}
+
 	/**
 	 * Tests lazy init concrete replacement replacement
 	 */
@@ -200,4 +235,66 @@ public class LazyInitProxyFactoryTest extends Assert
 		String proxy = (String)LazyInitProxyFactory.createProxy(String.class, stringObjectLocator);
 		assertEquals("StringLiteral", proxy);
 	}
+
+	/**
+	 * A class calling an overridable method in its constructor.
+	 */
+	public static class ConstructorCallingObject implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private String message;
+
+		/**
+		 * Constructor
+		 */
+		public ConstructorCallingObject()
+		{
+			init();
+		}
+
+		/**
+		 * Initializes the message.
+		 */
+		public void init()
+		{
+			message = "initialized";
+		}
+
+		/**
+		 * @return message
+		 */
+		public String getMessage()
+		{
+			return message;
+		}
+	}
+
+	/**
+	 * A class without default constructor.
+	 */
+	public static class NoDefaultConstructorObject implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final String message;
+
+		/**
+		 * Constructor
+		 * 
+		 * @param message
+		 */
+		public NoDefaultConstructorObject(final String message)
+		{
+			this.message = message;
+		}
+
+		/**
+		 * @return message
+		 */
+		public String getMessage()
+		{
+			return message;
+		}
+	}
 }
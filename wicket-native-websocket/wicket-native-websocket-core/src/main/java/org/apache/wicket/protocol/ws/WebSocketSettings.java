@@ -22,6 +22,7 @@ import org.apache.wicket.Page;
 import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
 import org.apache.wicket.protocol.ws.api.IWebSocketConnectionFilter;
 import org.apache.wicket.protocol.ws.api.ServletRequestCopy;
+import org.apache.wicket.protocol.ws.api.WebSocketBroadcastEngine;
 import org.apache.wicket.protocol.ws.api.WebSocketConnectionFilterCollection;
 import org.apache.wicket.protocol.ws.api.WebSocketRequest;
 import org.apache.wicket.protocol.ws.api.WebSocketRequestHandler;
@@ -132,6 +133,11 @@ public class WebSocketSettings
 	 */
 	private IWebSocketConnectionFilter connectionFilter;
 
+	/**
+	 * Delivers the push messages to the connections
+	 */
+	private WebSocketBroadcastEngine broadcastEngine = new WebSocketBroadcastEngine();
+
 	/**
 	 * Set the executor for processing websocket push messages broadcasted to all sessions.
 	 * Default executor does all the processing in the caller thread. Using a proper thread pool is adviced
@@ -155,6 +161,29 @@ public class WebSocketSettings
 		return webSocketPushMessageExecutor;
 	}
 
+	/**
+	 * Sets the engine that delivers push messages to the connections. It defines how many messages
+	 * may be pending for a connection and what happens if there are more.
+	 *
+	 * @param broadcastEngine
+	 *            The engine used by {@link org.apache.wicket.protocol.ws.api.WebSocketPushBroadcaster}
+	 * @return {@code this}, for method chaining
+	 */
+	public WebSocketSettings setBroadcastEngine(WebSocketBroadcastEngine broadcastEngine)
+	{
+		Args.notNull(broadcastEngine, "broadcastEngine");
+		this.broadcastEngine = broadcastEngine;
+		return this;
+	}
+
+	/**
+	 * @return the engine that delivers push messages to the connections
+	 */
+	public WebSocketBroadcastEngine getBroadcastEngine()
+	{
+		return broadcastEngine;
+	}
+
 	/**
 	 * @return The registry that tracks all currently connected WebSocket clients
 	 */
@@ -17,6 +17,7 @@
 package org.apache.wicket.protocol.ws.api;
 
 import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+import org.apache.wicket.protocol.ws.api.registry.IKey;
 import org.apache.wicket.util.lang.Args;
 
 /**
@@ -42,4 +43,16 @@ public abstract class AbstractWebSocketConnection implements IWebSocketConnectio
 	{
 		webSocketProcessor.broadcastMessage(message);
 	}
+
+	@Override
+	public String getSessionId()
+	{
+		return webSocketProcessor.getSessionId();
+	}
+
+	@Override
+	public IKey getKey()
+	{
+		return webSocketProcessor.getRegistryKey();
+	}
 }
@@ -47,6 +47,7 @@ import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
 import org.apache.wicket.protocol.ws.api.message.TextMessage;
 import org.apache.wicket.protocol.ws.api.registry.IKey;
 import org.apache.wicket.protocol.ws.api.registry.IWebSocketConnectionRegistry;
+import org.apache.wicket.protocol.ws.api.registry.IndexedWebSocketConnectionRegistry;
 import org.apache.wicket.protocol.ws.api.registry.PageIdKey;
 import org.apache.wicket.protocol.ws.api.registry.ResourceNameKey;
 import org.apache.wicket.request.IRequestHandler;
@@ -238,6 +239,13 @@ public abstract class AbstractWebSocketProcessor implements IWebSocketProcessor
 
 				if (page != null)
 				{
+					if (message instanceof ConnectedMessage && pageId != NO_PAGE_ID &&
+						connectionRegistry instanceof IndexedWebSocketConnectionRegistry)
+					{
+						((IndexedWebSocketConnectionRegistry)connectionRegistry).setPageClass(
+							application, sessionId, key, page.getClass());
+					}
+
 					WebSocketRequestHandler requestHandler = webSocketSettings.newWebSocketRequestHandler(page, connection);
 
 					WebSocketPayload payload = createEventPayload(message, requestHandler);
@@ -368,7 +376,7 @@ public abstract class AbstractWebSocketProcessor implements IWebSocketProcessor
 		return payload;
 	}
 
-	private IKey getRegistryKey()
+	final IKey getRegistryKey()
 	{
 		IKey key;
 		if (Strings.isEmpty(resourceName))
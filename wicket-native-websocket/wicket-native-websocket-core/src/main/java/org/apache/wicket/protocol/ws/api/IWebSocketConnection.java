@@ -18,6 +18,7 @@ package org.apache.wicket.protocol.ws.api;
 
 import java.io.IOException;
 import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+import org.apache.wicket.protocol.ws.api.registry.IKey;
 
 /**
  * Common interface for native WebSocket connections
@@ -76,4 +77,24 @@ public interface IWebSocketConnection
 	 * @since 6.4
 	 */
 	void sendMessage(IWebSocketPushMessage message);
+
+	/**
+	 * @return the id of the http session of this connection, or {@code null} if unknown
+	 * @since 8.0
+	 */
+	default String getSessionId()
+	{
+		return null;
+	}
+
+	/**
+	 * @return the key of this connection in the
+	 *      {@link org.apache.wicket.protocol.ws.api.registry.IWebSocketConnectionRegistry},
+	 *      or {@code null} if unknown
+	 * @since 8.0
+	 */
+	default IKey getKey()
+	{
+		return null;
+	}
 }
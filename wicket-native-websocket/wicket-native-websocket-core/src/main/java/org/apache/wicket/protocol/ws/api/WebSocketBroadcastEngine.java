@@ -0,0 +1,482 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+import org.apache.wicket.protocol.ws.concurrent.Executor;
+import org.apache.wicket.util.lang.Args;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers push messages to Web Socket connections for {@link WebSocketPushBroadcaster}.
+ * <p>
+ * The connections of a broadcast are grouped by their session and each group is processed by a
+ * single task of the executor. So the pages of a session are processed one after the other by the
+ * same thread instead of blocking several threads of the executor which wait for the locks of the
+ * session's pages.
+ * </p>
+ * <p>
+ * Each connection has a bounded queue of pending messages. If messages are broadcast faster than
+ * a connection can process them the {@link OverflowPolicy} decides which message is discarded.
+ * Discarded messages are counted, see {@link #getDroppedCount()}, and reported to
+ * {@link #onMessageDropped(IWebSocketConnection, IWebSocketPushMessage)}, which logs a warning by
+ * default.
+ * </p>
+ * <p>
+ * The engine is application scoped, see
+ * {@link org.apache.wicket.protocol.ws.WebSocketSettings#setBroadcastEngine(WebSocketBroadcastEngine)}.
+ * </p>
+ */
+public class WebSocketBroadcastEngine
+{
+	private static final Logger LOG = LoggerFactory.getLogger(WebSocketBroadcastEngine.class);
+
+	/** the default maximum number of pending messages per connection */
+	public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+	/**
+	 * Decides what happens when a message is broadcast to a connection whose queue is full
+	 */
+	public enum OverflowPolicy
+	{
+		/** the new message is discarded */
+		DROP_NEWEST,
+
+		/** the oldest pending message is discarded */
+		DROP_OLDEST,
+
+		/**
+		 * a pending message of the same class is replaced by the new message, if there is none the
+		 * oldest pending message is discarded
+		 */
+		COALESCE
+	}
+
+	private final int queueCapacity;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final ConcurrentMap<IWebSocketConnection, ConnectionQueue> queues = new ConcurrentHashMap<>();
+
+	private final AtomicLong broadcastCount = new AtomicLong();
+
+	private final AtomicLong deliveredCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	private final AtomicLong lastFanOutNanos = new AtomicLong();
+
+	private final AtomicLong maxFanOutNanos = new AtomicLong();
+
+	/**
+	 * Construct with the default queue capacity dropping the oldest messages.
+	 */
+	public WebSocketBroadcastEngine()
+	{
+		this(DEFAULT_QUEUE_CAPACITY, OverflowPolicy.DROP_OLDEST);
+	}
+
+	/**
+	 * Construct.
+	 *
+	 * @param queueCapacity
+	 *      the maximum number of pending messages per connection
+	 * @param overflowPolicy
+	 *      what to do if the queue of a connection is full
+	 */
+	public WebSocketBroadcastEngine(int queueCapacity, OverflowPolicy overflowPolicy)
+	{
+		this.queueCapacity = Args.withinRange(1, Integer.MAX_VALUE, queueCapacity, "queueCapacity");
+		this.overflowPolicy = Args.notNull(overflowPolicy, "overflowPolicy");
+	}
+
+	/**
+	 * Queues the message for all given connections and schedules their processing.
+	 *
+	 * @param executor
+	 *      the executor processing the messages
+	 * @param connections
+	 *      the connections to deliver the message to
+	 * @param message
+	 *      the push message
+	 */
+	public void dispatch(Executor executor, Collection<IWebSocketConnection> connections,
+		IWebSocketPushMessage message)
+	{
+		Args.notNull(executor, "executor");
+		Args.notNull(connections, "connections");
+		Args.notNull(message, "message");
+
+		broadcastCount.incrementAndGet();
+		Broadcast broadcast = new Broadcast(connections.size());
+
+		// connections without a session id get a group of their own
+		Map<String, List<ConnectionQueue>> groups = new LinkedHashMap<>();
+		List<List<ConnectionQueue>> ungrouped = new ArrayList<>();
+		for (IWebSocketConnection connection : connections)
+		{
+			if (connection.isOpen() == false)
+			{
+				broadcast.done();
+				continue;
+			}
+
+			ConnectionQueue queue = offer(connection, new Delivery(message, broadcast));
+			if (queue != null)
+			{
+				String sessionId = connection.getSessionId();
+				if (sessionId != null)
+				{
+					groups.computeIfAbsent(sessionId, id -> new ArrayList<>()).add(queue);
+				}
+				else
+				{
+					List<ConnectionQueue> group = new ArrayList<>(1);
+					group.add(queue);
+					ungrouped.add(group);
+				}
+			}
+		}
+
+		for (List<ConnectionQueue> group : groups.values())
+		{
+			schedule(executor, group);
+		}
+		for (List<ConnectionQueue> group : ungrouped)
+		{
+			schedule(executor, group);
+		}
+
+		// all deliveries are queued
+		broadcast.done();
+	}
+
+	/**
+	 * Adds a delivery to the queue of a connection.
+	 *
+	 * @param connection
+	 * @param delivery
+	 * @return the queue if it has to be scheduled, {@code null} if it is already
+	 */
+	private ConnectionQueue offer(IWebSocketConnection connection, Delivery delivery)
+	{
+		while (true)
+		{
+			ConnectionQueue queue = queues.computeIfAbsent(connection, ConnectionQueue::new);
+			synchronized (queue)
+			{
+				if (queue.removed)
+				{
+					// drained and removed concurrently, retry with a new one
+					continue;
+				}
+
+				if (queue.pending.size() >= queueCapacity)
+				{
+					overflow(queue, delivery);
+				}
+				else
+				{
+					queue.pending.add(delivery);
+				}
+
+				if (queue.scheduled)
+				{
+					return null;
+				}
+				queue.scheduled = true;
+				return queue;
+			}
+		}
+	}
+
+	/**
+	 * Applies the overflow policy to a full queue.
+	 *
+	 * @param queue
+	 * @param delivery
+	 *      the new delivery
+	 */
+	private void overflow(ConnectionQueue queue, Delivery delivery)
+	{
+		switch (overflowPolicy)
+		{
+			case DROP_NEWEST :
+				drop(queue.connection, delivery);
+				return;
+
+			case COALESCE :
+				Class<?> messageClass = delivery.message.getClass();
+				Iterator<Delivery> iterator = queue.pending.descendingIterator();
+				while (iterator.hasNext())
+				{
+					Delivery pending = iterator.next();
+					if (pending.message.getClass() == messageClass)
+					{
+						iterator.remove();
+						coalescedCount.incrementAndGet();
+						pending.broadcast.done();
+						queue.pending.add(delivery);
+						return;
+					}
+				}
+				// fall through and drop the oldest
+
+			case DROP_OLDEST :
+			default :
+				drop(queue.connection, queue.pending.poll());
+				queue.pending.add(delivery);
+		}
+	}
+
+	private void drop(IWebSocketConnection connection, Delivery delivery)
+	{
+		droppedCount.incrementAndGet();
+		delivery.broadcast.done();
+		onMessageDropped(connection, delivery.message);
+	}
+
+	private void schedule(Executor executor, final List<ConnectionQueue> group)
+	{
+		executor.run(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				for (ConnectionQueue queue : group)
+				{
+					drain(queue);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Processes the pending messages of a connection until its queue is empty.
+	 *
+	 * @param queue
+	 */
+	private void drain(ConnectionQueue queue)
+	{
+		while (true)
+		{
+			Delivery delivery;
+			synchronized (queue)
+			{
+				delivery = queue.pending.poll();
+				if (delivery == null)
+				{
+					queue.scheduled = false;
+					queue.removed = true;
+					queues.remove(queue.connection, queue);
+					return;
+				}
+			}
+
+			try
+			{
+				queue.connection.sendMessage(delivery.message);
+				deliveredCount.incrementAndGet();
+			}
+			catch (RuntimeException x)
+			{
+				LOG.error("An error occurred during delivery of a push message", x);
+			}
+			finally
+			{
+				delivery.broadcast.done();
+			}
+		}
+	}
+
+	/**
+	 * Called when a message is discarded because the queue of a connection is full. Called while
+	 * the queue is locked, so implementations should return quickly.
+	 *
+	 * @param connection
+	 *      the connection the message was broadcast to
+	 * @param message
+	 *      the discarded message
+	 */
+	protected void onMessageDropped(IWebSocketConnection connection, IWebSocketPushMessage message)
+	{
+		LOG.warn(
+			"Dropped push message {} for connection {} because its queue is full, {} messages dropped so far",
+			message, connection.getKey(), droppedCount.get());
+	}
+
+	/**
+	 * Called when a broadcast has been processed or discarded by all its connections.
+	 *
+	 * @param connections
+	 *      the number of connections the message has been broadcast to
+	 * @param fanOutNanos
+	 *      the time between the start of the broadcast and the end of the last delivery
+	 */
+	protected void onBroadcastCompleted(int connections, long fanOutNanos)
+	{
+		LOG.debug("Broadcast to {} connections completed in {} ms", connections,
+			fanOutNanos / 1000000);
+	}
+
+	/**
+	 * @return the maximum number of pending messages per connection
+	 */
+	public int getQueueCapacity()
+	{
+		return queueCapacity;
+	}
+
+	/**
+	 * @return what happens if the queue of a connection is full
+	 */
+	public OverflowPolicy getOverflowPolicy()
+	{
+		return overflowPolicy;
+	}
+
+	/**
+	 * @return the number of broadcasts
+	 */
+	public long getBroadcastCount()
+	{
+		return broadcastCount.get();
+	}
+
+	/**
+	 * @return the number of messages delivered to connections
+	 */
+	public long getDeliveredCount()
+	{
+		return deliveredCount.get();
+	}
+
+	/**
+	 * @return the number of messages discarded because a queue was full
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the number of messages replaced by a newer message of the same class
+	 */
+	public long getCoalescedCount()
+	{
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the fan-out time of the last completed broadcast in nanoseconds
+	 */
+	public long getLastFanOutNanos()
+	{
+		return lastFanOutNanos.get();
+	}
+
+	/**
+	 * @return the longest fan-out time of all completed broadcasts in nanoseconds
+	 */
+	public long getMaxFanOutNanos()
+	{
+		return maxFanOutNanos.get();
+	}
+
+	/**
+	 * The pending messages of a connection
+	 */
+	private static class ConnectionQueue
+	{
+		private final IWebSocketConnection connection;
+
+		/** guarded by this */
+		private final ArrayDeque<Delivery> pending = new ArrayDeque<>();
+
+		/** whether a task processes this queue, guarded by this */
+		private boolean scheduled;
+
+		/** whether the queue has been removed from the map, guarded by this */
+		private boolean removed;
+
+		private ConnectionQueue(IWebSocketConnection connection)
+		{
+			this.connection = connection;
+		}
+	}
+
+	/**
+	 * A message for a connection
+	 */
+	private static class Delivery
+	{
+		private final IWebSocketPushMessage message;
+
+		private final Broadcast broadcast;
+
+		private Delivery(IWebSocketPushMessage message, Broadcast broadcast)
+		{
+			this.message = message;
+			this.broadcast = broadcast;
+		}
+	}
+
+	/**
+	 * Tracks the outstanding deliveries of a broadcast
+	 */
+	private class Broadcast
+	{
+		private final long start = System.nanoTime();
+
+		private final int connections;
+
+		/** the outstanding deliveries plus one until all are queued */
+		private final AtomicInteger outstanding;
+
+		private Broadcast(int connections)
+		{
+			this.connections = connections;
+			this.outstanding = new AtomicInteger(connections + 1);
+		}
+
+		private void done()
+		{
+			if (outstanding.decrementAndGet() == 0)
+			{
+				long nanos = System.nanoTime() - start;
+				lastFanOutNanos.set(nanos);
+				maxFanOutNanos.accumulateAndGet(nanos, Math::max);
+				onBroadcastCompleted(connections, nanos);
+			}
+		}
+	}
+}
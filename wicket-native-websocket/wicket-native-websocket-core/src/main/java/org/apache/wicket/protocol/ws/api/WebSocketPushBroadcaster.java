@@ -91,6 +91,8 @@ public class WebSocketPushBroadcaster
 	 *
 	 * If some connections are not in valid state they are silently ignored.
 	 *
+	 * The connections are processed grouped by their session, see {@link WebSocketBroadcastEngine}.
+	 *
 	 * @param application
 	 *			The wicket application
 	 * @param message
@@ -109,21 +111,40 @@ public class WebSocketPushBroadcaster
 		process(application, wsConnections, message);
 	}
 
+	/**
+	 * Processes the given message in the pages of the given Web Socket connections, e.g. the
+	 * connections of a topic found by an
+	 * {@link org.apache.wicket.protocol.ws.api.registry.IndexedWebSocketConnectionRegistry}.
+	 *
+	 * This method can be invoked from any thread, even a non-wicket thread. By default all processing
+	 * is done in the caller thread. Use
+	 * {@link WebSocketSettings#setWebSocketPushMessageExecutor(org.apache.wicket.protocol.ws.concurrent.Executor)}
+	 * to move processing to background threads.
+	 *
+	 * If some connections are not in valid state they are silently ignored.
+	 *
+	 * @param application
+	 *			The wicket application
+	 * @param connections
+	 *			The Web Socket connections to process the message for
+	 * @param message
+	 *			The push message event
+	 */
+	public void broadcast(Application application, Collection<IWebSocketConnection> connections,
+	                      IWebSocketPushMessage message)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(connections, "connections");
+		Args.notNull(message, "message");
+
+		process(application, connections, message);
+	}
+
 	private void process(final Application application, final Collection<IWebSocketConnection> wsConnections,
 	                     final IWebSocketPushMessage message)
 	{
 		WebSocketSettings webSocketSettings = WebSocketSettings.Holder.get(application);
 		Executor executor = webSocketSettings.getWebSocketPushMessageExecutor();
-		for (final IWebSocketConnection wsConnection : wsConnections)
-		{
-			executor.run(new Runnable()
-			{
-				@Override
-				public void run()
-				{
-					wsConnection.sendMessage(message);
-				}
-			});
-		}
+		webSocketSettings.getBroadcastEngine().dispatch(executor, wsConnections, message);
 	}
 }
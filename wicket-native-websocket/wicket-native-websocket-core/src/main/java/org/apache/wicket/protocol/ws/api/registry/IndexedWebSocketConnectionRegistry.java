@@ -0,0 +1,504 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.api.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.Page;
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.apache.wicket.protocol.ws.api.message.ConnectedMessage;
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * A registry that additionally indexes the connections by the class of their page, by the name of
+ * their shared resource and by user defined topics, so that the connections of a subset of the
+ * clients can be found without iterating all connections.
+ * <p>
+ * The class of the page is set by the web socket processor when the connection is established.
+ * Topics have to be assigned by the application, e.g. in
+ * {@link org.apache.wicket.protocol.ws.api.WebSocketBehavior#onConnect(ConnectedMessage)}:
+ * </p>
+ *
+ * <pre>
+ * registry.subscribe(message, &quot;stock-quotes&quot;);
+ * </pre>
+ * <p>
+ * All lookups return snapshots which are not affected by later changes of the registry.
+ * </p>
+ *
+ * @see org.apache.wicket.protocol.ws.WebSocketSettings#setConnectionRegistry(IWebSocketConnectionRegistry)
+ */
+public class IndexedWebSocketConnectionRegistry implements IWebSocketConnectionRegistry
+{
+	private static final MetaDataKey<Index> KEY = new MetaDataKey<Index>()
+	{
+	};
+
+	@Override
+	public IWebSocketConnection getConnection(Application application, String sessionId, IKey key)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(key, "key");
+
+		Entry entry = getEntry(application, sessionId, key);
+		return entry != null ? entry.connection : null;
+	}
+
+	@Override
+	public Collection<IWebSocketConnection> getConnections(Application application, String sessionId)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(sessionId, "sessionId");
+
+		Index index = getIndex(application, false);
+		if (index == null)
+		{
+			return Collections.emptyList();
+		}
+		Map<IKey, Entry> entries = index.bySession.get(sessionId);
+		return entries != null ? snapshot(entries.values()) : Collections.<IWebSocketConnection>emptyList();
+	}
+
+	@Override
+	public Collection<IWebSocketConnection> getConnections(Application application)
+	{
+		Args.notNull(application, "application");
+
+		Index index = getIndex(application, false);
+		return index != null ? snapshot(index.all) : Collections.<IWebSocketConnection>emptyList();
+	}
+
+	/**
+	 * @param application
+	 *      the web application to look in
+	 * @param pageClass
+	 *      the class of the pages
+	 * @return the connections of all pages of exactly this class
+	 */
+	public Collection<IWebSocketConnection> getConnectionsByPageClass(Application application,
+		Class<? extends Page> pageClass)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(pageClass, "pageClass");
+
+		Index index = getIndex(application, false);
+		return index != null ? lookup(index.byPageClass, pageClass.getName())
+			: Collections.<IWebSocketConnection>emptyList();
+	}
+
+	/**
+	 * @param application
+	 *      the web application to look in
+	 * @param resourceName
+	 *      the name of the shared resource
+	 * @return the connections of the shared resource
+	 * @see ResourceNameKey
+	 */
+	public Collection<IWebSocketConnection> getConnectionsByResourceName(Application application,
+		String resourceName)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(resourceName, "resourceName");
+
+		Index index = getIndex(application, false);
+		return index != null ? lookup(index.byResourceName, resourceName)
+			: Collections.<IWebSocketConnection>emptyList();
+	}
+
+	/**
+	 * @param application
+	 *      the web application to look in
+	 * @param topic
+	 *      the topic
+	 * @return the connections subscribed to the topic
+	 */
+	public Collection<IWebSocketConnection> getConnectionsByTopic(Application application,
+		String topic)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(topic, "topic");
+
+		Index index = getIndex(application, false);
+		return index != null ? lookup(index.byTopic, topic)
+			: Collections.<IWebSocketConnection>emptyList();
+	}
+
+	/**
+	 * @param application
+	 *      the web application to look in
+	 * @return the number of connections
+	 */
+	public int size(Application application)
+	{
+		Args.notNull(application, "application");
+
+		Index index = getIndex(application, false);
+		return index != null ? index.all.size() : 0;
+	}
+
+	/**
+	 * @param application
+	 *      the web application to look in
+	 * @param topic
+	 *      the topic
+	 * @return the number of connections subscribed to the topic
+	 */
+	public int getTopicSize(Application application, String topic)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(topic, "topic");
+
+		Index index = getIndex(application, false);
+		if (index == null)
+		{
+			return 0;
+		}
+		Set<Entry> entries = index.byTopic.get(topic);
+		return entries != null ? entries.size() : 0;
+	}
+
+	/**
+	 * Indexes a connection by the class of its page.
+	 *
+	 * @param application
+	 *      the web application to look in
+	 * @param sessionId
+	 *      the web socket client session id
+	 * @param key
+	 *      the web socket client key
+	 * @param pageClass
+	 *      the class of the page
+	 */
+	public void setPageClass(Application application, String sessionId, IKey key,
+		Class<? extends Page> pageClass)
+	{
+		Args.notNull(pageClass, "pageClass");
+
+		Index index = getIndex(application, false);
+		Entry entry = getEntry(application, sessionId, key);
+		if (entry != null)
+		{
+			synchronized (index)
+			{
+				if (entry.pageClass != null)
+				{
+					unindex(index.byPageClass, entry.pageClass, entry);
+				}
+				entry.pageClass = pageClass.getName();
+				if (entry.removed == false)
+				{
+					index(index.byPageClass, entry.pageClass, entry);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Subscribes a connection to a topic.
+	 *
+	 * @param application
+	 *      the web application to look in
+	 * @param sessionId
+	 *      the web socket client session id
+	 * @param key
+	 *      the web socket client key
+	 * @param topic
+	 *      the topic
+	 * @return {@code true} if the connection has been found
+	 */
+	public boolean subscribe(Application application, String sessionId, IKey key, String topic)
+	{
+		Args.notNull(topic, "topic");
+
+		Index index = getIndex(application, false);
+		Entry entry = getEntry(application, sessionId, key);
+		if (entry == null)
+		{
+			return false;
+		}
+		synchronized (index)
+		{
+			if (entry.removed == false && entry.topics.add(topic))
+			{
+				index(index.byTopic, topic, entry);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Subscribes the connection of a connected message to a topic.
+	 *
+	 * @param message
+	 *      the message notifying about the connection
+	 * @param topic
+	 *      the topic
+	 * @return {@code true} if the connection has been found
+	 */
+	public boolean subscribe(ConnectedMessage message, String topic)
+	{
+		Args.notNull(message, "message");
+
+		return subscribe(message.getApplication(), message.getSessionId(), message.getKey(), topic);
+	}
+
+	/**
+	 * Unsubscribes a connection from a topic.
+	 *
+	 * @param application
+	 *      the web application to look in
+	 * @param sessionId
+	 *      the web socket client session id
+	 * @param key
+	 *      the web socket client key
+	 * @param topic
+	 *      the topic
+	 */
+	public void unsubscribe(Application application, String sessionId, IKey key, String topic)
+	{
+		Args.notNull(topic, "topic");
+
+		Index index = getIndex(application, false);
+		Entry entry = getEntry(application, sessionId, key);
+		if (entry != null)
+		{
+			synchronized (index)
+			{
+				if (entry.topics.remove(topic))
+				{
+					unindex(index.byTopic, topic, entry);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void setConnection(Application application, String sessionId, IKey key, IWebSocketConnection connection)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(key, "key");
+
+		if (connection == null)
+		{
+			removeConnection(application, sessionId, key);
+			return;
+		}
+
+		Index index = getIndex(application, true);
+		Entry entry = new Entry(connection, key);
+		synchronized (index)
+		{
+			ConcurrentMap<IKey, Entry> entries = index.bySession.get(sessionId);
+			if (entries == null)
+			{
+				entries = new ConcurrentHashMap<>();
+				index.bySession.put(sessionId, entries);
+			}
+
+			Entry old = entries.put(key, entry);
+			if (old != null)
+			{
+				remove(index, old);
+			}
+
+			index.all.add(entry);
+			if (key instanceof ResourceNameKey)
+			{
+				index(index.byResourceName, ((ResourceNameKey)key).getResourceName(), entry);
+			}
+		}
+	}
+
+	@Override
+	public void removeConnection(Application application, String sessionId, IKey key)
+	{
+		Args.notNull(application, "application");
+		Args.notNull(sessionId, "sessionId");
+		Args.notNull(key, "key");
+
+		Index index = getIndex(application, false);
+		if (index != null)
+		{
+			synchronized (index)
+			{
+				ConcurrentMap<IKey, Entry> entries = index.bySession.get(sessionId);
+				if (entries != null)
+				{
+					Entry entry = entries.remove(key);
+					if (entry != null)
+					{
+						remove(index, entry);
+					}
+					if (entries.isEmpty())
+					{
+						index.bySession.remove(sessionId);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes an entry from all secondary indexes, called with the lock of the index.
+	 *
+	 * @param index
+	 * @param entry
+	 */
+	private void remove(Index index, Entry entry)
+	{
+		entry.removed = true;
+		index.all.remove(entry);
+		if (entry.key instanceof ResourceNameKey)
+		{
+			unindex(index.byResourceName, ((ResourceNameKey)entry.key).getResourceName(), entry);
+		}
+		if (entry.pageClass != null)
+		{
+			unindex(index.byPageClass, entry.pageClass, entry);
+		}
+		for (String topic : entry.topics)
+		{
+			unindex(index.byTopic, topic, entry);
+		}
+	}
+
+	private static void index(ConcurrentMap<String, Set<Entry>> map, String name, Entry entry)
+	{
+		Set<Entry> entries = map.get(name);
+		if (entries == null)
+		{
+			entries = ConcurrentHashMap.newKeySet();
+			map.put(name, entries);
+		}
+		entries.add(entry);
+	}
+
+	private static void unindex(ConcurrentMap<String, Set<Entry>> map, String name, Entry entry)
+	{
+		Set<Entry> entries = map.get(name);
+		if (entries != null)
+		{
+			entries.remove(entry);
+			if (entries.isEmpty())
+			{
+				map.remove(name);
+			}
+		}
+	}
+
+	private static Collection<IWebSocketConnection> lookup(ConcurrentMap<String, Set<Entry>> map,
+		String name)
+	{
+		Set<Entry> entries = map.get(name);
+		return entries != null ? snapshot(entries) : Collections.<IWebSocketConnection>emptyList();
+	}
+
+	private static Collection<IWebSocketConnection> snapshot(Collection<Entry> entries)
+	{
+		List<IWebSocketConnection> connections = new ArrayList<>(entries.size());
+		for (Entry entry : entries)
+		{
+			connections.add(entry.connection);
+		}
+		return Collections.unmodifiableList(connections);
+	}
+
+	private Entry getEntry(Application application, String sessionId, IKey key)
+	{
+		Index index = getIndex(application, false);
+		if (index != null)
+		{
+			Map<IKey, Entry> entries = index.bySession.get(sessionId);
+			if (entries != null)
+			{
+				return entries.get(key);
+			}
+		}
+		return null;
+	}
+
+	private Index getIndex(Application application, boolean create)
+	{
+		Index index = application.getMetaData(KEY);
+		if (index == null && create)
+		{
+			synchronized (KEY)
+			{
+				index = application.getMetaData(KEY);
+				if (index == null)
+				{
+					index = new Index();
+					application.setMetaData(KEY, index);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * The connections of an application. Reads are lock free, changes are guarded by the index.
+	 */
+	private static class Index
+	{
+		private final ConcurrentMap<String, ConcurrentMap<IKey, Entry>> bySession = new ConcurrentHashMap<>();
+
+		private final Set<Entry> all = ConcurrentHashMap.newKeySet();
+
+		private final ConcurrentMap<String, Set<Entry>> byPageClass = new ConcurrentHashMap<>();
+
+		private final ConcurrentMap<String, Set<Entry>> byResourceName = new ConcurrentHashMap<>();
+
+		private final ConcurrentMap<String, Set<Entry>> byTopic = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * A registered connection
+	 */
+	private static class Entry
+	{
+		private final IWebSocketConnection connection;
+
+		private final IKey key;
+
+		/** guarded by the index */
+		private final Set<String> topics = new HashSet<>();
+
+		/** the name of the page class, guarded by the index */
+		private String pageClass;
+
+		/** guarded by the index */
+		private boolean removed;
+
+		private Entry(IWebSocketConnection connection, IKey key)
+		{
+			this.connection = connection;
+			this.key = key;
+		}
+	}
+}
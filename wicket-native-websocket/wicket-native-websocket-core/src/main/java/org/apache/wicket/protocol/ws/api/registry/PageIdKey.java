@@ -30,6 +30,14 @@ public class PageIdKey implements IKey
 		this.pageId = Args.notNull(pageId, "pageId");
 	}
 
+	/**
+	 * @return the id of the page
+	 */
+	public Integer getPageId()
+	{
+		return pageId;
+	}
+
 	@Override
 	public boolean equals(Object o)
 	{
@@ -145,6 +145,12 @@ abstract class TestWebSocketProcessor extends AbstractWebSocketProcessor
 			{
 				TestWebSocketProcessor.this.broadcastMessage(message);
 			}
+
+			@Override
+			public String getSessionId()
+			{
+				return TestWebSocketProcessor.this.getSessionId();
+			}
 		});
 	}
 
@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.wicket.protocol.ws.api.WebSocketBroadcastEngine.OverflowPolicy;
+import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+import org.apache.wicket.protocol.ws.concurrent.Executor;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link WebSocketBroadcastEngine}
+ */
+public class WebSocketBroadcastEngineTest extends Assert
+{
+	/**
+	 * The connections of a session are processed by a single task.
+	 */
+	@Test
+	public void groupsBySession()
+	{
+		final List<Integer> completed = new ArrayList<>();
+		WebSocketBroadcastEngine engine = new WebSocketBroadcastEngine()
+		{
+			@Override
+			protected void onBroadcastCompleted(int connections, long fanOutNanos)
+			{
+				completed.add(connections);
+			}
+		};
+		QueueingExecutor executor = new QueueingExecutor();
+
+		Connection a1 = new Connection("a");
+		Connection a2 = new Connection("a");
+		Connection b1 = new Connection("b");
+		Connection closed = new Connection("b");
+		closed.open = false;
+
+		engine.dispatch(executor, Arrays.<IWebSocketConnection> asList(a1, b1, a2, closed),
+			new Message("1"));
+
+		assertEquals(2, executor.tasks.size());
+		assertTrue(completed.isEmpty());
+
+		executor.runAll();
+
+		assertEquals(Collections.singletonList("1"), a1.received);
+		assertEquals(Collections.singletonList("1"), a2.received);
+		assertEquals(Collections.singletonList("1"), b1.received);
+		assertTrue(closed.received.isEmpty());
+		assertEquals(Collections.singletonList(4), completed);
+		assertEquals(3, engine.getDeliveredCount());
+		assertTrue(engine.getMaxFanOutNanos() >= engine.getLastFanOutNanos());
+	}
+
+	/**
+	 * A full queue drops the oldest message and reports it.
+	 */
+	@Test
+	public void dropOldest()
+	{
+		final List<String> dropped = new ArrayList<>();
+		WebSocketBroadcastEngine engine = new WebSocketBroadcastEngine(2, OverflowPolicy.DROP_OLDEST)
+		{
+			@Override
+			protected void onMessageDropped(IWebSocketConnection connection,
+				IWebSocketPushMessage message)
+			{
+				super.onMessageDropped(connection, message);
+
+				dropped.add(((Message)message).text);
+			}
+		};
+		QueueingExecutor executor = new QueueingExecutor();
+		Connection connection = new Connection("a");
+
+		for (int i = 1; i <= 4; i++)
+		{
+			engine.dispatch(executor, Collections.<IWebSocketConnection> singletonList(connection),
+				new Message(String.valueOf(i)));
+		}
+		// the connection is scheduled once only
+		assertEquals(1, executor.tasks.size());
+
+		executor.runAll();
+
+		assertEquals(Arrays.asList("3", "4"), connection.received);
+		assertEquals(2, engine.getDroppedCount());
+		assertEquals(Arrays.asList("1", "2"), dropped);
+		assertEquals(4, engine.getBroadcastCount());
+	}
+
+	/**
+	 * A full queue drops the new message.
+	 */
+	@Test
+	public void dropNewest()
+	{
+		WebSocketBroadcastEngine engine = new WebSocketBroadcastEngine(2, OverflowPolicy.DROP_NEWEST);
+		QueueingExecutor executor = new QueueingExecutor();
+		Connection connection = new Connection("a");
+
+		for (int i = 1; i <= 4; i++)
+		{
+			engine.dispatch(executor, Collections.<IWebSocketConnection> singletonList(connection),
+				new Message(String.valueOf(i)));
+		}
+		executor.runAll();
+
+		assertEquals(Arrays.asList("1", "2"), connection.received);
+		assertEquals(2, engine.getDroppedCount());
+	}
+
+	/**
+	 * A full queue replaces a pending message of the same class.
+	 */
+	@Test
+	public void coalesce()
+	{
+		WebSocketBroadcastEngine engine = new WebSocketBroadcastEngine(2, OverflowPolicy.COALESCE);
+		QueueingExecutor executor = new QueueingExecutor();
+		Connection connection = new Connection("a");
+		List<IWebSocketConnection> connections = Collections.<IWebSocketConnection> singletonList(connection);
+
+		engine.dispatch(executor, connections, new Message("1"));
+		engine.dispatch(executor, connections, new OtherMessage("2"));
+		engine.dispatch(executor, connections, new Message("3"));
+		engine.dispatch(executor, connections, new Message("4"));
+		executor.runAll();
+
+		assertEquals(Arrays.asList("2", "4"), connection.received);
+		assertEquals(2, engine.getCoalescedCount());
+		assertEquals(0, engine.getDroppedCount());
+	}
+
+	/**
+	 * Messages broadcast while a connection is processed are processed by the same task.
+	 */
+	@Test
+	public void broadcastWhileProcessing()
+	{
+		final WebSocketBroadcastEngine engine = new WebSocketBroadcastEngine();
+		final QueueingExecutor executor = new QueueingExecutor();
+		final Connection connection = new Connection("a")
+		{
+			@Override
+			public void sendMessage(IWebSocketPushMessage message)
+			{
+				super.sendMessage(message);
+				if (received.size() == 1)
+				{
+					engine.dispatch(executor,
+						Collections.<IWebSocketConnection> singletonList(this), new Message("2"));
+				}
+			}
+		};
+
+		engine.dispatch(executor, Collections.<IWebSocketConnection> singletonList(connection),
+			new Message("1"));
+		executor.runAll();
+
+		assertEquals(Arrays.asList("1", "2"), connection.received);
+		assertEquals(0, executor.tasks.size());
+	}
+
+	private static class QueueingExecutor implements Executor
+	{
+		private final List<Runnable> tasks = new ArrayList<>();
+
+		@Override
+		public void run(Runnable command)
+		{
+			tasks.add(command);
+		}
+
+		private void runAll()
+		{
+			while (tasks.isEmpty() == false)
+			{
+				tasks.remove(0).run();
+			}
+		}
+	}
+
+	private static class Message implements IWebSocketPushMessage
+	{
+		private final String text;
+
+		private Message(String text)
+		{
+			this.text = text;
+		}
+	}
+
+	private static class OtherMessage extends Message
+	{
+		private OtherMessage(String text)
+		{
+			super(text);
+		}
+	}
+
+	private static class Connection implements IWebSocketConnection
+	{
+		private final String sessionId;
+
+		private boolean open = true;
+
+		final List<String> received = new ArrayList<>();
+
+		private Connection(String sessionId)
+		{
+			this.sessionId = sessionId;
+		}
+
+		@Override
+		public boolean isOpen()
+		{
+			return open;
+		}
+
+		@Override
+		public void close(int code, String reason)
+		{
+			open = false;
+		}
+
+		@Override
+		public IWebSocketConnection sendMessage(String message)
+		{
+			return this;
+		}
+
+		@Override
+		public IWebSocketConnection sendMessage(byte[] message, int offset, int length)
+		{
+			return this;
+		}
+
+		@Override
+		public void sendMessage(IWebSocketPushMessage message)
+		{
+			received.add(((Message)message).text);
+		}
+
+		@Override
+		public String getSessionId()
+		{
+			return sessionId;
+		}
+	}
+}
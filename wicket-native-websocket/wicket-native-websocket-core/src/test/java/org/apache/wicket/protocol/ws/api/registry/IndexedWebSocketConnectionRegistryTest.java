@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.protocol.ws.api.registry;
+
+import java.util.Collection;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.MarkupContainer;
+import org.apache.wicket.markup.IMarkupResourceStreamProvider;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.protocol.ws.WebSocketSettings;
+import org.apache.wicket.protocol.ws.api.IWebSocketConnection;
+import org.apache.wicket.protocol.ws.api.WebSocketBehavior;
+import org.apache.wicket.protocol.ws.api.message.IWebSocketPushMessage;
+import org.apache.wicket.protocol.ws.util.tester.WebSocketTester;
+import org.apache.wicket.util.resource.IResourceStream;
+import org.apache.wicket.util.resource.StringResourceStream;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link IndexedWebSocketConnectionRegistry}
+ */
+public class IndexedWebSocketConnectionRegistryTest extends Assert
+{
+	private WicketTester tester;
+
+	private IndexedWebSocketConnectionRegistry registry;
+
+	@Before
+	public void before()
+	{
+		tester = new WicketTester();
+		registry = new IndexedWebSocketConnectionRegistry();
+		WebSocketSettings.Holder.get(tester.getApplication()).setConnectionRegistry(registry);
+	}
+
+	@After
+	public void after()
+	{
+		tester.destroy();
+	}
+
+	/**
+	 * Connections are found by session, resource name and topic.
+	 */
+	@Test
+	public void indexes()
+	{
+		Application application = tester.getApplication();
+		IWebSocketConnection resource = new Connection();
+		IWebSocketConnection page1 = new Connection();
+		IWebSocketConnection page2 = new Connection();
+
+		registry.setConnection(application, "s1", new ResourceNameKey("r"), resource);
+		registry.setConnection(application, "s1", new PageIdKey(1), page1);
+		registry.setConnection(application, "s2", new PageIdKey(1), page2);
+
+		assertEquals(3, registry.size(application));
+		assertEquals(3, registry.getConnections(application).size());
+		assertEquals(2, registry.getConnections(application, "s1").size());
+		assertSame(page2, registry.getConnection(application, "s2", new PageIdKey(1)));
+
+		Collection<IWebSocketConnection> byResource = registry.getConnectionsByResourceName(
+			application, "r");
+		assertEquals(1, byResource.size());
+		assertTrue(byResource.contains(resource));
+
+		assertTrue(registry.subscribe(application, "s1", new PageIdKey(1), "news"));
+		assertTrue(registry.subscribe(application, "s2", new PageIdKey(1), "news"));
+		assertFalse(registry.subscribe(application, "s3", new PageIdKey(1), "news"));
+		assertEquals(2, registry.getTopicSize(application, "news"));
+
+		// snapshots are not affected by later changes
+		Collection<IWebSocketConnection> news = registry.getConnectionsByTopic(application, "news");
+		registry.removeConnection(application, "s1", new PageIdKey(1));
+		assertEquals(2, news.size());
+		assertEquals(1, registry.getTopicSize(application, "news"));
+		assertEquals(2, registry.size(application));
+
+		registry.unsubscribe(application, "s2", new PageIdKey(1), "news");
+		assertTrue(registry.getConnectionsByTopic(application, "news").isEmpty());
+
+		registry.removeConnection(application, "s1", new ResourceNameKey("r"));
+		assertTrue(registry.getConnectionsByResourceName(application, "r").isEmpty());
+		assertTrue(registry.getConnections(application, "s1").isEmpty());
+	}
+
+	/**
+	 * A new connection for the same key replaces the old one in all indexes.
+	 */
+	@Test
+	public void replaceConnection()
+	{
+		Application application = tester.getApplication();
+
+		registry.setConnection(application, "s1", new PageIdKey(1), new Connection());
+		registry.subscribe(application, "s1", new PageIdKey(1), "news");
+
+		IWebSocketConnection connection = new Connection();
+		registry.setConnection(application, "s1", new PageIdKey(1), connection);
+
+		assertEquals(1, registry.size(application));
+		assertEquals(0, registry.getTopicSize(application, "news"));
+		assertSame(connection, registry.getConnection(application, "s1", new PageIdKey(1)));
+	}
+
+	/**
+	 * Page connections are indexed by the class of their page when they connect.
+	 */
+	@Test
+	public void pageClass()
+	{
+		Application application = tester.getApplication();
+		TestPage page = new TestPage();
+		tester.startPage(page);
+
+		WebSocketTester webSocketTester = new WebSocketTester(tester, page);
+
+		assertEquals(1, registry.getConnectionsByPageClass(application, TestPage.class).size());
+		assertTrue(registry.getConnectionsByPageClass(application, WebPage.class).isEmpty());
+
+		webSocketTester.destroy();
+
+		assertTrue(registry.getConnectionsByPageClass(application, TestPage.class).isEmpty());
+	}
+
+	/**
+	 * A page with a web socket behavior
+	 */
+	public static class TestPage extends WebPage implements IMarkupResourceStreamProvider
+	{
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Construct.
+		 */
+		public TestPage()
+		{
+			add(new WebSocketBehavior() {});
+		}
+
+		@Override
+		public IResourceStream getMarkupResourceStream(MarkupContainer container, Class<?> containerClass)
+		{
+			return new StringResourceStream("<html/>");
+		}
+	}
+
+	private static class Connection implements IWebSocketConnection
+	{
+		@Override
+		public boolean isOpen()
+		{
+			return true;
+		}
+
+		@Override
+		public void close(int code, String reason)
+		{
+		}
+
+		@Override
+		public IWebSocketConnection sendMessage(String message)
+		{
+			return this;
+		}
+
+		@Override
+		public IWebSocketConnection sendMessage(byte[] message, int offset, int length)
+		{
+			return this;
+		}
+
+		@Override
+		public void sendMessage(IWebSocketPushMessage message)
+		{
+		}
+	}
+}
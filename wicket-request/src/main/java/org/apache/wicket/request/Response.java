@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 
 import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.string.PreEncodedText;
 
 /**
  * Abstract base class for different implementations of response writing.
@@ -67,6 +68,23 @@ public abstract class Response
 	 */
 	public abstract void write(byte[] array, int offset, int length);
 
+	/**
+	 * Writes a text whose encoded bytes are cached, e.g. the static parts of markup. Responses
+	 * which write the text as bytes may use the cached bytes instead of encoding the text again.
+	 * <p>
+	 * The default implementation writes the text as {@link CharSequence}.
+	 * 
+	 * @param text
+	 *            the text
+	 * @throws IllegalStateException
+	 *             if {@link #write(byte[])} has already been called on this instance
+	 * @see #write(CharSequence)
+	 */
+	public void write(PreEncodedText text)
+	{
+		write(text.toString());
+	}
+
 	/**
 	 * Closes the response
 	 */
@@ -34,6 +34,11 @@ import org.slf4j.LoggerFactory;
  * Thread safe compound {@link IRequestMapper}. The mappers are searched depending on their
  * compatibility score and the orders they were registered. If two or more {@link IRequestMapper}s
  * have the same compatibility score, the last registered mapper has highest priority.
+ * <p>
+ * {@link IMountedRequestMapper}s are indexed by their mount segments, so that only mappers matching
+ * the requested url have to be asked for their compatibility score. All other indexed mappers are
+ * known to return their {@link IMountedRequestMapper#getIncompatibleScore() incompatible score},
+ * thus the mappers are tried in the same order as if all of them had been scored.
  * 
  * @author igor.vaynberg
  * @author Matej Knopp
@@ -97,20 +102,52 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 
 	private final List<IRequestMapper> mappers = new CopyOnWriteArrayList<>();
 
+	/** index of the mappers, built lazily after mappers were added or removed */
+	private volatile MapperIndex index;
+
 	@Override
 	public CompoundRequestMapper add(final IRequestMapper mapper)
 	{
-		mappers.add(0, mapper);
+		synchronized (mappers)
+		{
+			mappers.add(0, mapper);
+			index = null;
+		}
 		return this;
 	}
 
 	@Override
 	public CompoundRequestMapper remove(final IRequestMapper mapper)
 	{
-		mappers.remove(mapper);
+		synchronized (mappers)
+		{
+			mappers.remove(mapper);
+			index = null;
+		}
 		return this;
 	}
 
+	/**
+	 * @return the index of the current mappers
+	 */
+	private MapperIndex getIndex()
+	{
+		MapperIndex current = index;
+		if (current == null)
+		{
+			synchronized (mappers)
+			{
+				current = index;
+				if (current == null)
+				{
+					current = new MapperIndex(this);
+					index = current;
+				}
+			}
+		}
+		return current;
+	}
+
 	/**
 	 * Searches the registered {@link IRequestMapper}s to find one that can map the {@link Request}.
 	 * Each registered {@link IRequestMapper} is asked to provide its compatibility score. Then the
@@ -118,6 +155,10 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	 * score.
 	 * <p>
 	 * The mapper with highest compatibility score which can map the request is returned.
+	 * <p>
+	 * Indexed mappers whose mount segments do not match the url are not scored. If none of the
+	 * scored mappers with a higher score than these can map the request, the remaining mappers are
+	 * tried in the order they would have had if all mappers were scored.
 	 * 
 	 * @param request
 	 * @return RequestHandler for the request or <code>null</code> if no mapper for the request is
@@ -126,14 +167,26 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	@Override
 	public IRequestHandler mapRequest(final Request request)
 	{
-		List<MapperWithScore> list = new ArrayList<>(mappers.size());
+		MapperIndex index = getIndex();
 
-		for (IRequestMapper mapper : this)
+		int[] candidates = index.getCandidates(request.getUrl());
+		int[] scores = new int[candidates.length];
+
+		// incompatible mappers cannot score higher than this
+		int threshold = index.getMaxIncompatibleScore();
+
+		List<MapperWithScore> list = new ArrayList<>(candidates.length);
+		for (int i = 0; i < candidates.length; i++)
 		{
-			int score = mapper.getCompatibilityScore(request);
-			list.add(new MapperWithScore(mapper, score));
+			IRequestMapper mapper = index.getMapper(candidates[i]);
+			scores[i] = mapper.getCompatibilityScore(request);
+			if (scores[i] > threshold)
+			{
+				list.add(new MapperWithScore(mapper, scores[i]));
+			}
 		}
 
+		// stable sort, keeps the registration order for equal scores
 		Collections.sort(list);
 
 		if (LOG.isDebugEnabled())
@@ -141,7 +194,48 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 			logMappers(list, request.getUrl().toString());
 		}
 
-		for (MapperWithScore mapperWithScore : list)
+		IRequestHandler handler = mapRequest(request, list);
+		if (handler == null && index.size() > list.size())
+		{
+			// try all others, including incompatible ones
+			List<MapperWithScore> others = new ArrayList<>(index.size() - list.size());
+			for (int position = 0, c = 0; position < index.size(); position++)
+			{
+				int score;
+				if (c < candidates.length && candidates[c] == position)
+				{
+					score = scores[c++];
+				}
+				else
+				{
+					score = index.getIncompatibleScore(position);
+				}
+
+				if (score <= threshold)
+				{
+					others.add(new MapperWithScore(index.getMapper(position), score));
+				}
+			}
+
+			Collections.sort(others);
+
+			handler = mapRequest(request, others);
+		}
+
+		return handler;
+	}
+
+	/**
+	 * Asks the mappers to map the request in the given order.
+	 *
+	 * @param request
+	 * @param mappersWithScores
+	 * @return the handler of the first mapper which can map the request or <code>null</code>
+	 */
+	private IRequestHandler mapRequest(final Request request,
+		final List<MapperWithScore> mappersWithScores)
+	{
+		for (MapperWithScore mapperWithScore : mappersWithScores)
 		{
 			IRequestMapper mapper = mapperWithScore.getMapper();
 			IRequestHandler handler = mapper.mapRequest(request);
@@ -224,10 +318,22 @@ public class CompoundRequestMapper implements ICompoundRequestMapper
 	@Override
 	public int getCompatibilityScore(final Request request)
 	{
+		MapperIndex index = getIndex();
+
+		int[] candidates = index.getCandidates(request.getUrl());
+
 		int score = Integer.MIN_VALUE;
-		for (IRequestMapper mapper : this)
+		for (int position = 0, c = 0; position < index.size(); position++)
 		{
-			score = Math.max(score, mapper.getCompatibilityScore(request));
+			if (c < candidates.length && candidates[c] == position)
+			{
+				score = Math.max(score, index.getMapper(position).getCompatibilityScore(request));
+				c++;
+			}
+			else
+			{
+				score = Math.max(score, index.getIncompatibleScore(position));
+			}
 		}
 		return score;
 	}
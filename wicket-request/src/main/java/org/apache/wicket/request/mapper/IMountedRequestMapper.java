@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.mapper;
+
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+
+/**
+ * A {@link IRequestMapper} which is compatible with requests below its mount path only. A
+ * {@link CompoundRequestMapper} indexes such mappers by their mount segments, so that it has to ask
+ * only the mappers matching the requested url for their compatibility score.
+ * <p>
+ * Implementations must guarantee that {@link #getCompatibilityScore(Request)} returns
+ * {@link #getIncompatibleScore()} for any request whose url does not start with the mounted
+ * segments. A segment matches if it is equal to the url segment at the same position, or if it
+ * is a <code>${placeholder}</code> and the url has a segment at this position, or if it is an
+ * <code>#{optionalPlaceholder}</code>.
+ * </p>
+ */
+public interface IMountedRequestMapper extends IRequestMapper
+{
+	/**
+	 * Returns the segments of the mount path.
+	 *
+	 * @return segments including placeholders, or <code>null</code> if the compatibility score
+	 *         cannot be determined by the segments only, e.g. because a subclass has overridden the
+	 *         scoring
+	 */
+	String[] getMountedSegments();
+
+	/**
+	 * @return the compatibility score for requests whose url does not start with the mounted
+	 *         segments
+	 */
+	int getIncompatibleScore();
+
+	/**
+	 * Whether the last segment of the url may be rewritten before it is compared with the mounted
+	 * segments, e.g. to remove caching information from a resource's filename.
+	 *
+	 * @return <code>true</code> if the last url segment has to be treated as matching any fixed
+	 *         segment
+	 */
+	boolean isLastSegmentDecorated();
+}
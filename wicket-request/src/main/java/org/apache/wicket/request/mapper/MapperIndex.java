@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.request.mapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Url;
+
+/**
+ * An immutable index of the mappers of a {@link CompoundRequestMapper}. The mount segments of
+ * {@link IMountedRequestMapper}s are kept in a trie with separate nodes for fixed segments,
+ * placeholders and optional placeholders.
+ * <p>
+ * Mappers are identified by their position in the compound, i.e. the order they are tried in if
+ * their compatibility scores are equal.
+ * </p>
+ */
+final class MapperIndex
+{
+	private final IRequestMapper[] mappers;
+
+	/** score of indexed mappers for incompatible urls, unused for other mappers */
+	private final int[] incompatibleScores;
+
+	/** positions of mappers which have to be scored always */
+	private final int[] unindexed;
+
+	/** mappers comparing the url as it is */
+	private final Node root = new Node();
+
+	/** mappers which may rewrite the last url segment before comparing */
+	private final Node decoratedRoot = new Node();
+
+	private final int maxIncompatibleScore;
+
+	/**
+	 * Construct.
+	 *
+	 * @param compound
+	 *            the mappers to index
+	 */
+	MapperIndex(final Iterable<IRequestMapper> compound)
+	{
+		List<IRequestMapper> list = new ArrayList<>();
+		for (IRequestMapper mapper : compound)
+		{
+			list.add(mapper);
+		}
+
+		mappers = list.toArray(new IRequestMapper[list.size()]);
+		incompatibleScores = new int[mappers.length];
+
+		int[] unindexed = new int[mappers.length];
+		int unindexedCount = 0;
+		int maxIncompatibleScore = Integer.MIN_VALUE;
+		for (int position = 0; position < mappers.length; position++)
+		{
+			IRequestMapper mapper = mappers[position];
+
+			String[] segments = null;
+			if (mapper instanceof IMountedRequestMapper)
+			{
+				segments = ((IMountedRequestMapper)mapper).getMountedSegments();
+			}
+
+			if (segments == null)
+			{
+				unindexed[unindexedCount++] = position;
+			}
+			else
+			{
+				IMountedRequestMapper mounted = (IMountedRequestMapper)mapper;
+				Node node = mounted.isLastSegmentDecorated() ? decoratedRoot : root;
+				for (String segment : segments)
+				{
+					node = node.child(segment);
+				}
+				node.add(position);
+
+				incompatibleScores[position] = mounted.getIncompatibleScore();
+				maxIncompatibleScore = Math.max(maxIncompatibleScore, incompatibleScores[position]);
+			}
+		}
+
+		this.unindexed = Arrays.copyOf(unindexed, unindexedCount);
+		this.maxIncompatibleScore = maxIncompatibleScore;
+	}
+
+	/**
+	 * @return number of mappers
+	 */
+	int size()
+	{
+		return mappers.length;
+	}
+
+	/**
+	 * @param position
+	 * @return the mapper at the given position
+	 */
+	IRequestMapper getMapper(final int position)
+	{
+		return mappers[position];
+	}
+
+	/**
+	 * @param position
+	 *            position of an indexed mapper
+	 * @return the score of the mapper for urls not matching its mount segments
+	 */
+	int getIncompatibleScore(final int position)
+	{
+		return incompatibleScores[position];
+	}
+
+	/**
+	 * @return the highest score of any indexed mapper for urls not matching its mount segments,
+	 *         {@link Integer#MIN_VALUE} if there are no indexed mappers
+	 */
+	int getMaxIncompatibleScore()
+	{
+		return maxIncompatibleScore;
+	}
+
+	/**
+	 * Collects the mappers which have to be scored for the given url, i.e. all indexed mappers
+	 * whose mount segments match the url and all mappers that are not indexed.
+	 *
+	 * @param url
+	 * @return positions of the mappers in ascending order
+	 */
+	int[] getCandidates(final Url url)
+	{
+		List<String> segments = url.getSegments();
+
+		Positions positions = new Positions(unindexed);
+		root.collect(segments, 0, false, positions);
+		decoratedRoot.collect(segments, 0, true, positions);
+
+		return positions.sorted();
+	}
+
+	/**
+	 * Copy of {@link AbstractMapper#getPlaceholder(String, char)}, which must not be overridden by
+	 * indexed mappers.
+	 *
+	 * @param segment
+	 * @param startChar
+	 * @return whether the segment is a placeholder
+	 */
+	private static boolean isPlaceholder(final String segment, final char startChar)
+	{
+		return segment.length() >= 4 && segment.charAt(0) == startChar &&
+			segment.charAt(1) == '{' && segment.charAt(segment.length() - 1) == '}';
+	}
+
+	/**
+	 * A node in the trie of mount segments.
+	 */
+	private static final class Node
+	{
+		/** children for fixed segments */
+		private Map<String, Node> fixed;
+
+		/** child for a required placeholder, matching any present url segment */
+		private Node required;
+
+		/** child for an optional placeholder, matching any url segment or none */
+		private Node optional;
+
+		/** positions of the mappers mounted at this node */
+		private int[] positions = new int[0];
+
+		private Node child(final String segment)
+		{
+			if (isPlaceholder(segment, '$'))
+			{
+				if (required == null)
+				{
+					required = new Node();
+				}
+				return required;
+			}
+			else if (isPlaceholder(segment, '#'))
+			{
+				if (optional == null)
+				{
+					optional = new Node();
+				}
+				return optional;
+			}
+			else
+			{
+				if (fixed == null)
+				{
+					fixed = new HashMap<>();
+				}
+				return fixed.computeIfAbsent(segment, s -> new Node());
+			}
+		}
+
+		private void add(final int position)
+		{
+			positions = Arrays.copyOf(positions, positions.length + 1);
+			positions[positions.length - 1] = position;
+		}
+
+		private void collect(final List<String> segments, final int depth,
+			final boolean lastSegmentDecorated, final Positions collected)
+		{
+			collected.add(positions);
+
+			String segment = depth < segments.size() ? segments.get(depth) : null;
+			if (segment != null)
+			{
+				if (fixed != null)
+				{
+					if (lastSegmentDecorated && depth == segments.size() - 1)
+					{
+						// the segment might be rewritten to any of the fixed ones
+						for (Node child : fixed.values())
+						{
+							child.collect(segments, depth + 1, lastSegmentDecorated, collected);
+						}
+					}
+					else
+					{
+						Node child = fixed.get(segment);
+						if (child != null)
+						{
+							child.collect(segments, depth + 1, lastSegmentDecorated, collected);
+						}
+					}
+				}
+				if (required != null)
+				{
+					required.collect(segments, depth + 1, lastSegmentDecorated, collected);
+				}
+			}
+			if (optional != null)
+			{
+				optional.collect(segments, depth + 1, lastSegmentDecorated, collected);
+			}
+		}
+	}
+
+	/**
+	 * Growable list of positions.
+	 */
+	private static final class Positions
+	{
+		private int[] values;
+
+		private int size;
+
+		private Positions(final int[] initial)
+		{
+			values = Arrays.copyOf(initial, initial.length + 8);
+			size = initial.length;
+		}
+
+		private void add(final int[] positions)
+		{
+			if (positions.length > 0)
+			{
+				if (size + positions.length > values.length)
+				{
+					values = Arrays.copyOf(values, Math.max(values.length * 2, size +
+						positions.length));
+				}
+				System.arraycopy(positions, 0, values, size, positions.length);
+				size += positions.length;
+			}
+		}
+
+		private int[] sorted()
+		{
+			int[] result = Arrays.copyOf(values, size);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+}
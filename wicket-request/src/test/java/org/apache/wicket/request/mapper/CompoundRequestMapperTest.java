@@ -16,6 +16,17 @@
  */
 package org.apache.wicket.request.mapper;
 
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
 import org.apache.wicket.request.mapper.CompoundRequestMapper.MapperWithScore;
 import org.junit.Assert;
 import org.junit.Test;
@@ -47,4 +58,255 @@ public class CompoundRequestMapperTest extends Assert
 	{
 		return new MapperWithScore(null, score);
 	}
+
+	/**
+	 * Indexed mappers are tried in the same order as if all mappers were scored.
+	 */
+	@Test
+	public void indexedDispatch()
+	{
+		String[] mountSegments = { "a", "b", "c", "${p}", "#{o}" };
+		String[] urlSegments = { "a", "b", "c", "a-v1", "c-v2", "x", "" };
+
+		Random random = new Random(42);
+		for (int round = 0; round < 50; round++)
+		{
+			CompoundRequestMapper compound = new CompoundRequestMapper();
+			for (int i = 0; i < 20; i++)
+			{
+				if (random.nextInt(10) == 0)
+				{
+					compound.add(new ScoredMapper(random.nextInt(5) - 1, random.nextBoolean()));
+				}
+				else
+				{
+					String[] segments = new String[random.nextInt(4)];
+					for (int s = 0; s < segments.length; s++)
+					{
+						segments[s] = mountSegments[random.nextInt(mountSegments.length)];
+					}
+					compound.add(new TestMountedMapper(segments, random.nextBoolean(),
+						random.nextInt(4) == 0, random.nextInt(8) == 0));
+				}
+			}
+
+			for (int u = 0; u < 50; u++)
+			{
+				Url url = new Url();
+				for (int s = random.nextInt(5); s > 0; s--)
+				{
+					url.getSegments().add(urlSegments[random.nextInt(urlSegments.length)]);
+				}
+				Request request = request(url);
+
+				assertSame(url.toString(), mapAll(compound, request), compound.mapRequest(request));
+				assertEquals(url.toString(), scoreAll(compound, request),
+					compound.getCompatibilityScore(request));
+			}
+		}
+	}
+
+	/**
+	 * Removed mappers are no longer indexed.
+	 */
+	@Test
+	public void removeIndexed()
+	{
+		TestMountedMapper mapper = new TestMountedMapper(new String[] { "a", "${p}" }, false, true,
+			false);
+		CompoundRequestMapper compound = new CompoundRequestMapper();
+		compound.add(mapper);
+
+		Request request = request(Url.parse("a/b"));
+		assertSame(mapper.handler, compound.mapRequest(request));
+
+		compound.remove(mapper);
+		assertNull(compound.mapRequest(request));
+	}
+
+	/**
+	 * Maps the request by scoring all mappers.
+	 */
+	private IRequestHandler mapAll(CompoundRequestMapper compound, Request request)
+	{
+		List<MapperWithScore> list = new ArrayList<>();
+		for (IRequestMapper mapper : compound)
+		{
+			list.add(new MapperWithScore(mapper, mapper.getCompatibilityScore(request)));
+		}
+		Collections.sort(list);
+
+		for (MapperWithScore mapperWithScore : list)
+		{
+			IRequestHandler handler = mapperWithScore.getMapper().mapRequest(request);
+			if (handler != null)
+			{
+				return handler;
+			}
+		}
+		return null;
+	}
+
+	private int scoreAll(CompoundRequestMapper compound, Request request)
+	{
+		int score = Integer.MIN_VALUE;
+		for (IRequestMapper mapper : compound)
+		{
+			score = Math.max(score, mapper.getCompatibilityScore(request));
+		}
+		return score;
+	}
+
+	private Request request(final Url url)
+	{
+		return new Request()
+		{
+			@Override
+			public Url getUrl()
+			{
+				return url;
+			}
+
+			@Override
+			public Url getClientUrl()
+			{
+				return url;
+			}
+
+			@Override
+			public Locale getLocale()
+			{
+				return Locale.ENGLISH;
+			}
+
+			@Override
+			public Charset getCharset()
+			{
+				return Charset.forName("UTF-8");
+			}
+
+			@Override
+			public Object getContainerRequest()
+			{
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * A mapper which cannot be indexed.
+	 */
+	private static class ScoredMapper implements IRequestMapper
+	{
+		private final IRequestHandler handler = cycle -> {};
+
+		private final int score;
+
+		private final boolean maps;
+
+		private ScoredMapper(int score, boolean maps)
+		{
+			this.score = score;
+			this.maps = maps;
+		}
+
+		@Override
+		public IRequestHandler mapRequest(Request request)
+		{
+			return maps ? handler : null;
+		}
+
+		@Override
+		public int getCompatibilityScore(Request request)
+		{
+			return score;
+		}
+
+		@Override
+		public Url mapHandler(IRequestHandler requestHandler)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * A mapper scoring by its mount segments, optionally removing a version from the last url
+	 * segment.
+	 */
+	private static class TestMountedMapper extends AbstractMapper implements IMountedRequestMapper
+	{
+		private final IRequestHandler handler = cycle -> {};
+
+		private final String[] segments;
+
+		private final boolean decorated;
+
+		/** whether to map compatible requests */
+		private final boolean mapsCompatible;
+
+		/** whether to map incompatible requests too */
+		private final boolean mapsIncompatible;
+
+		private TestMountedMapper(String[] segments, boolean decorated, boolean mapsCompatible,
+			boolean mapsIncompatible)
+		{
+			this.segments = segments;
+			this.decorated = decorated;
+			this.mapsCompatible = mapsCompatible;
+			this.mapsIncompatible = mapsIncompatible;
+		}
+
+		private boolean matches(Request request)
+		{
+			Url url = new Url(request.getUrl());
+			List<String> urlSegments = url.getSegments();
+			if (decorated && urlSegments.isEmpty() == false)
+			{
+				String last = urlSegments.get(urlSegments.size() - 1);
+				int version = last.indexOf("-v");
+				if (version != -1)
+				{
+					urlSegments.set(urlSegments.size() - 1, last.substring(0, version));
+				}
+			}
+			return urlStartsWith(url, segments);
+		}
+
+		@Override
+		public IRequestHandler mapRequest(Request request)
+		{
+			boolean matches = matches(request);
+			return (matches && mapsCompatible) || (!matches && mapsIncompatible) ? handler : null;
+		}
+
+		@Override
+		public int getCompatibilityScore(Request request)
+		{
+			return matches(request) ? segments.length : getIncompatibleScore();
+		}
+
+		@Override
+		public Url mapHandler(IRequestHandler requestHandler)
+		{
+			return null;
+		}
+
+		@Override
+		public String[] getMountedSegments()
+		{
+			return segments;
+		}
+
+		@Override
+		public int getIncompatibleScore()
+		{
+			return decorated ? -1 : 0;
+		}
+
+		@Override
+		public boolean isLastSegmentDecorated()
+		{
+			return decorated;
+		}
+	}
 }
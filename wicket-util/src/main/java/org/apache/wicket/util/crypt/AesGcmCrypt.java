@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.crypt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.wicket.util.lang.Args;
+
+
+/**
+ * Encrypts and decrypts strings with AES in Galois/Counter Mode, which additionally authenticates
+ * the encrypted data, so that tampered data is rejected instead of being decrypted to garbage.
+ * <p>
+ * Unlike {@link SunJceCrypt} this implementation derives the secret key only once and reuses a
+ * {@link Cipher} per thread, so it is well suited for encrypting many URLs, e.g. with
+ * {@link org.apache.wicket.util.crypt.ICryptFactory}s creating a crypt for each URL. The encrypted
+ * data consists of a random initialization vector followed by the cipher text and the
+ * authentication tag.
+ * </p>
+ * <p>
+ * The key is either given as {@link SecretKey} or derived from the string passed to
+ * {@link #setKey(String)} with PBKDF2.
+ * </p>
+ */
+public class AesGcmCrypt extends AbstractCrypt
+{
+	/** Name of the cipher */
+	public static final String CIPHER = "AES/GCM/NoPadding";
+
+	/** The length of the generated keys in bytes */
+	public static final int KEY_LENGTH = 16;
+
+	/** The length of the initialization vector in bytes */
+	private static final int IV_LENGTH = 12;
+
+	/** The length of the authentication tag in bits */
+	private static final int TAG_LENGTH = 128;
+
+	/** Iteration count used to derive a key from a string */
+	private static final int ITERATIONS = 1000;
+
+	private static final byte[] SALT = "org.apache.wicket.util.crypt.AesGcmCrypt".getBytes(
+		StandardCharsets.UTF_8);
+
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	/** Cipher instances are expensive to look up but cheap to re-initialize */
+	private static final ThreadLocal<Cipher> CIPHERS = new ThreadLocal<Cipher>()
+	{
+		@Override
+		protected Cipher initialValue()
+		{
+			try
+			{
+				return Cipher.getInstance(CIPHER);
+			}
+			catch (GeneralSecurityException e)
+			{
+				throw new IllegalStateException("Cipher " + CIPHER + " is not available", e);
+			}
+		}
+	};
+
+	/** The key, derived lazily if set as string */
+	private volatile SecretKey secretKey;
+
+	/**
+	 * Constructor using a key derived from the string key of {@link AbstractCrypt}.
+	 */
+	public AesGcmCrypt()
+	{
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param secretKey
+	 *            the AES key
+	 */
+	public AesGcmCrypt(final SecretKey secretKey)
+	{
+		this.secretKey = Args.notNull(secretKey, "secretKey");
+	}
+
+	/**
+	 * Generates a new random AES key.
+	 *
+	 * @return the raw bytes of the key
+	 */
+	public static byte[] generateKey()
+	{
+		byte[] key = new byte[KEY_LENGTH];
+		RANDOM.nextBytes(key);
+		return key;
+	}
+
+	@Override
+	public void setKey(final String key)
+	{
+		super.setKey(key);
+
+		secretKey = null;
+	}
+
+	@Override
+	protected byte[] crypt(final byte[] input, final int mode) throws GeneralSecurityException
+	{
+		Cipher cipher = CIPHERS.get();
+		SecretKey key = getSecretKey();
+
+		if (mode == Cipher.ENCRYPT_MODE)
+		{
+			byte[] iv = new byte[IV_LENGTH];
+			RANDOM.nextBytes(iv);
+			cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, iv));
+
+			byte[] output = new byte[IV_LENGTH + cipher.getOutputSize(input.length)];
+			System.arraycopy(iv, 0, output, 0, IV_LENGTH);
+			cipher.doFinal(input, 0, input.length, output, IV_LENGTH);
+			return output;
+		}
+		else
+		{
+			if (input.length < IV_LENGTH + TAG_LENGTH / 8)
+			{
+				throw new AEADBadTagException("Encrypted data is too short");
+			}
+			cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH, input, 0,
+				IV_LENGTH));
+			return cipher.doFinal(input, IV_LENGTH, input.length - IV_LENGTH);
+		}
+	}
+
+	/**
+	 * @return the key, derived from the string key on first use
+	 * @throws GeneralSecurityException
+	 */
+	private SecretKey getSecretKey() throws GeneralSecurityException
+	{
+		SecretKey key = secretKey;
+		if (key == null)
+		{
+			key = deriveKey(getKey());
+			secretKey = key;
+		}
+		return key;
+	}
+
+	/**
+	 * Derives an AES key from a string.
+	 *
+	 * @param key
+	 *            the string key
+	 * @return the AES key
+	 * @throws GeneralSecurityException
+	 */
+	protected SecretKey deriveKey(final String key) throws GeneralSecurityException
+	{
+		SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+		PBEKeySpec spec = new PBEKeySpec(key.toCharArray(), SALT, ITERATIONS, KEY_LENGTH * 8);
+		try
+		{
+			return new SecretKeySpec(factory.generateSecret(spec).getEncoded(), "AES");
+		}
+		finally
+		{
+			spec.clearPassword();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.string;
+
+import java.nio.charset.Charset;
+
+import org.apache.wicket.util.lang.Args;
+
+/**
+ * An immutable text which caches its encoded bytes, so that text written over and over again, e.g.
+ * the static parts of a markup template, has to be encoded only once per charset.
+ * <p>
+ * The encoded bytes of the most recently used charset are kept. Since a response is usually
+ * encoded with the same charset this is a single entry only.
+ * </p>
+ */
+public final class PreEncodedText
+{
+	private final String text;
+
+	/** whether the text can be encoded independently of the surrounding text */
+	private final boolean selfContained;
+
+	private volatile Encoded encoded;
+
+	/**
+	 * Construct.
+	 *
+	 * @param text
+	 *            the text
+	 */
+	public PreEncodedText(final CharSequence text)
+	{
+		this.text = Args.notNull(text, "text").toString();
+
+		int length = this.text.length();
+		selfContained = length == 0 || (Character.isLowSurrogate(this.text.charAt(0)) == false &&
+			Character.isHighSurrogate(this.text.charAt(length - 1)) == false);
+	}
+
+	/**
+	 * Gets the encoded text.
+	 *
+	 * @param charset
+	 *            the charset to encode with
+	 * @return the encoded bytes, must not be modified
+	 */
+	public byte[] getBytes(final Charset charset)
+	{
+		Encoded current = encoded;
+		if (current == null || current.charset.equals(charset) == false)
+		{
+			current = new Encoded(charset, text.getBytes(charset));
+			encoded = current;
+		}
+		return current.bytes;
+	}
+
+	/**
+	 * Whether the text can be encoded on its own. This is not the case if it starts or ends with
+	 * half of a surrogate pair, which is completed by the text written before or after it.
+	 *
+	 * @return {@code true} if the encoded bytes can be used in place of the text
+	 */
+	public boolean isSelfContained()
+	{
+		return selfContained;
+	}
+
+	/**
+	 * @return the length of the text
+	 */
+	public int length()
+	{
+		return text.length();
+	}
+
+	/**
+	 * @return the text
+	 */
+	@Override
+	public String toString()
+	{
+		return text;
+	}
+
+	/**
+	 * The bytes of the text in a charset
+	 */
+	private static final class Encoded
+	{
+		private final Charset charset;
+
+		private final byte[] bytes;
+
+		private Encoded(final Charset charset, final byte[] bytes)
+		{
+			this.charset = charset;
+			this.bytes = bytes;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.crypt;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class AesGcmCryptTest extends Assert
+{
+	private static final String URL = "wicket/bookmarkable/org.apache.wicket.Page?0-1.ILinkListener-link&id=42";
+
+	@Test
+	public void roundTrip()
+	{
+		AesGcmCrypt crypt = new AesGcmCrypt();
+		crypt.setKey("secret");
+
+		String encrypted = crypt.encryptUrlSafe(URL);
+		assertNotEquals(URL, encrypted);
+		assertEquals(URL, crypt.decryptUrlSafe(encrypted));
+
+		// a random initialization vector is used for each encryption
+		assertNotEquals(encrypted, crypt.encryptUrlSafe(URL));
+
+		// another instance with the same key can decrypt it
+		AesGcmCrypt other = new AesGcmCrypt();
+		other.setKey("secret");
+		assertEquals(URL, other.decryptUrlSafe(encrypted));
+	}
+
+	@Test
+	public void secretKey()
+	{
+		byte[] key = AesGcmCrypt.generateKey();
+		AesGcmCrypt crypt = new AesGcmCrypt(new SecretKeySpec(key, "AES"));
+
+		String encrypted = crypt.encryptUrlSafe(URL);
+		assertEquals(URL, new AesGcmCrypt(new SecretKeySpec(key, "AES")).decryptUrlSafe(encrypted));
+		assertNull(new AesGcmCrypt(new SecretKeySpec(AesGcmCrypt.generateKey(), "AES")).decryptUrlSafe(encrypted));
+	}
+
+	@Test
+	public void tamperedData()
+	{
+		AesGcmCrypt crypt = new AesGcmCrypt();
+		String encrypted = crypt.encryptUrlSafe(URL);
+
+		char[] chars = encrypted.toCharArray();
+		int middle = chars.length / 2;
+		chars[middle] = chars[middle] == 'A' ? 'B' : 'A';
+
+		assertNull(crypt.decryptUrlSafe(new String(chars)));
+		assertNull(crypt.decryptUrlSafe("AAAA"));
+	}
+
+	@Test
+	public void changedKey()
+	{
+		AesGcmCrypt crypt = new AesGcmCrypt();
+		crypt.setKey("first");
+		String encrypted = crypt.encryptUrlSafe(URL);
+
+		crypt.setKey("second");
+		assertNull(crypt.decryptUrlSafe(encrypted));
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wicket.util.string;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PreEncodedText}
+ */
+public class PreEncodedTextTest extends Assert
+{
+	/**
+	 * The bytes are encoded once per charset.
+	 */
+	@Test
+	public void getBytes()
+	{
+		PreEncodedText text = new PreEncodedText("gr\u00fc\u00dfe");
+
+		byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals("gr\u00fc\u00dfe".getBytes(StandardCharsets.UTF_8), utf8);
+		assertSame(utf8, text.getBytes(StandardCharsets.UTF_8));
+
+		byte[] latin1 = text.getBytes(StandardCharsets.ISO_8859_1);
+		assertArrayEquals("gr\u00fc\u00dfe".getBytes(StandardCharsets.ISO_8859_1), latin1);
+		assertEquals(5, latin1.length);
+		assertEquals("gr\u00fc\u00dfe", text.toString());
+	}
+
+	/**
+	 * Texts starting or ending with half of a surrogate pair can not be encoded on their own.
+	 */
+	@Test
+	public void selfContained()
+	{
+		assertTrue(new PreEncodedText("").isSelfContained());
+		assertTrue(new PreEncodedText("a\ud83d\ude00b").isSelfContained());
+		assertFalse(new PreEncodedText("a\ud83d").isSelfContained());
+		assertFalse(new PreEncodedText("\ude00b").isSelfContained());
+	}
+}